@@ -0,0 +1,132 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two JMH JSON result files, for example from two commits.
+ *
+ * Benchmarks are matched by name and parameters. For each match the average time and the
+ * bytes allocated per operation, as reported by the GC profiler, are printed side by side
+ * with the relative change. A benchmark whose score grew by more than the tolerance is
+ * marked as a regression, and the exit status is 1 if there is any.
+ *
+ * Usage: java -cp target/test-classes:target/classes
+ * io.github.mlarsen_source.centroid_finder.BenchmarkComparison &lt;baseline.json&gt;
+ * &lt;candidate.json&gt; [tolerance_percent]
+ */
+public class BenchmarkComparison {
+
+    /** The relative slowdown in percent tolerated when no tolerance is given. */
+    private static final double DEFAULT_TOLERANCE_PERCENT = 10;
+
+    /** The GC profiler's secondary metric for bytes allocated per operation. */
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    /**
+     * Prints the comparison.
+     *
+     * @param args the baseline and candidate result files, optionally followed by the
+     *             tolerated slowdown in percent
+     * @throws IOException if a result file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: java BenchmarkComparison <baseline.json> <candidate.json> [tolerance_percent]");
+            System.exit(1);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE_PERCENT;
+        Map<String, Map<?, ?>> baseline = read(Path.of(args[0]));
+        Map<String, Map<?, ?>> candidate = read(Path.of(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-70s %12s %12s %8s %14s %14s%n", "benchmark", "baseline", "candidate", "change", "alloc before", "alloc after");
+        for (Map.Entry<String, Map<?, ?>> entry : candidate.entrySet()) {
+            Map<?, ?> before = baseline.get(entry.getKey());
+            if (before == null) continue;
+            Map<?, ?> after = entry.getValue();
+
+            double oldScore = score((Map<?, ?>) before.get("primaryMetric"));
+            double newScore = score((Map<?, ?>) after.get("primaryMetric"));
+            double change = (newScore - oldScore) / oldScore * 100;
+            boolean regression = change > tolerance;
+            if (regression) regressions++;
+
+            System.out.printf("%-70s %12.3f %12.3f %+7.1f%% %14s %14s%s%n",
+                entry.getKey(), oldScore, newScore, change,
+                allocation(before), allocation(after),
+                regression ? "  REGRESSION" : "");
+        }
+        System.out.println(regressions == 0
+            ? "No regressions beyond " + tolerance + "%."
+            : regressions + " regression(s) beyond " + tolerance + "%.");
+        if (regressions > 0) System.exit(1);
+    }
+
+    /**
+     * Reads a JMH JSON result file.
+     *
+     * @param file the result file
+     * @return each result keyed by benchmark name and parameters, in file order
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a JMH result array
+     */
+    static Map<String, Map<?, ?>> read(Path file) throws IOException {
+        if (!(Json.parse(Files.readString(file)) instanceof List<?> results)) {
+            throw new IllegalArgumentException("Not a JMH JSON result file: " + file);
+        }
+        Map<String, Map<?, ?>> byKey = new LinkedHashMap<>();
+        for (Object result : results) {
+            Map<?, ?> benchmark = (Map<?, ?>) result;
+            byKey.put(key(benchmark), benchmark);
+        }
+        return byKey;
+    }
+
+    /**
+     * Builds the key of a result: the benchmark's short name followed by its parameters.
+     *
+     * @param result one result from the file
+     * @return a key such as "BinarizerBenchmark.reusedMask resolution=1080p"
+     */
+    private static String key(Map<?, ?> result) {
+        String name = String.valueOf(result.get("benchmark"));
+        int method = name.lastIndexOf('.');
+        int type = name.lastIndexOf('.', method - 1);
+        StringBuilder key = new StringBuilder(name.substring(type + 1));
+        if (result.get("params") instanceof Map<?, ?> params) {
+            for (Map.Entry<?, ?> param : params.entrySet()) {
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue());
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the score of a metric.
+     *
+     * @param metric a primary or secondary metric
+     * @return the score, or NaN if the metric has none
+     */
+    private static double score(Map<?, ?> metric) {
+        return metric != null && metric.get("score") instanceof Number score ? score.doubleValue() : Double.NaN;
+    }
+
+    /**
+     * Formats the bytes allocated per operation of a result.
+     *
+     * @param result one result from the file
+     * @return the allocation in bytes per operation, or "-" if the GC profiler was not used
+     */
+    private static String allocation(Map<?, ?> result) {
+        if (result.get("secondaryMetrics") instanceof Map<?, ?> secondary
+                && secondary.get(ALLOCATION_METRIC) instanceof Map<?, ?> metric) {
+            return String.format("%.0f B/op", score(metric));
+        }
+        return "-";
+    }
+}
@@ -0,0 +1,146 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.SplittableRandom;
+
+/**
+ * Builds reproducible synthetic frames and masks for the benchmarks.
+ *
+ * A frame is TYPE_3BYTE_BGR, like decoded video, with a noisy background and square
+ * blobs of the target color. The same seed always produces the same frame, so results
+ * are comparable between runs and commits.
+ */
+final class BenchmarkFrames {
+
+    /** The color of the blobs, the orange of the bundled sample clip. */
+    static final int TARGET_COLOR = 0xFFA500;
+
+    /** The color distance threshold that separates the blobs from the background. */
+    static final int THRESHOLD = 60;
+
+    /** The seed used for every frame and mask. */
+    private static final long SEED = 42;
+
+    private BenchmarkFrames() {
+    }
+
+    /**
+     * Returns the width of a named resolution.
+     *
+     * @param resolution "480p", "1080p" or "2160p"
+     * @return the width in pixels
+     * @throws IllegalArgumentException if the resolution is unknown
+     */
+    static int width(String resolution) {
+        return switch (resolution) {
+            case "480p" -> 854;
+            case "1080p" -> 1920;
+            case "2160p" -> 3840;
+            default -> throw new IllegalArgumentException("Unknown resolution: " + resolution);
+        };
+    }
+
+    /**
+     * Returns the height of a named resolution.
+     *
+     * @param resolution "480p", "1080p" or "2160p"
+     * @return the height in pixels
+     * @throws IllegalArgumentException if the resolution is unknown
+     */
+    static int height(String resolution) {
+        return switch (resolution) {
+            case "480p" -> 480;
+            case "1080p" -> 1080;
+            case "2160p" -> 2160;
+            default -> throw new IllegalArgumentException("Unknown resolution: " + resolution);
+        };
+    }
+
+    /**
+     * Creates a frame with a noisy background and target-colored blobs.
+     *
+     * @param width the frame width
+     * @param height the frame height
+     * @param blobs the number of blobs
+     * @param coverage the fraction of the frame the blobs cover together, between 0 and 1
+     * @return the frame
+     */
+    static BufferedImage frame(int width, int height, int blobs, double coverage) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        byte[] bgr = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < bgr.length; i += 3) {
+            // Dark, bluish background far from the target color
+            bgr[i] = (byte) (96 + random.nextInt(64));
+            bgr[i + 1] = (byte) random.nextInt(64);
+            bgr[i + 2] = (byte) random.nextInt(64);
+        }
+        forEachBlobPixel(width, height, blobs, coverage, (row, col) -> {
+            int i = (row * width + col) * 3;
+            bgr[i] = (byte) (TARGET_COLOR & 0xFF);
+            bgr[i + 1] = (byte) ((TARGET_COLOR >> 8) & 0xFF);
+            bgr[i + 2] = (byte) ((TARGET_COLOR >> 16) & 0xFF);
+        });
+        return image;
+    }
+
+    /**
+     * Creates a binary mask with square blobs of ones.
+     *
+     * @param width the mask width
+     * @param height the mask height
+     * @param blobs the number of blobs
+     * @param density the fraction of the mask the blobs cover together, between 0 and 1
+     * @return the mask as [height][width]
+     */
+    static int[][] mask(int width, int height, int blobs, double density) {
+        int[][] mask = new int[height][width];
+        forEachBlobPixel(width, height, blobs, density, (row, col) -> mask[row][col] = 1);
+        return mask;
+    }
+
+    /**
+     * Visits the pixels of square blobs placed at random, non-overlapping grid cells.
+     *
+     * @param width the image width
+     * @param height the image height
+     * @param blobs the number of blobs
+     * @param coverage the fraction of the image the blobs cover together
+     * @param pixel receives each blob pixel
+     */
+    private static void forEachBlobPixel(int width, int height, int blobs, double coverage, PixelVisitor pixel) {
+        if (blobs <= 0 || coverage <= 0) return;
+        // One blob per grid cell keeps blobs apart, so each is a separate group
+        int columns = (int) Math.ceil(Math.sqrt(blobs * (double) width / height));
+        int rows = (int) Math.ceil((double) blobs / columns);
+        int cellWidth = width / columns;
+        int cellHeight = height / rows;
+        int side = (int) Math.sqrt(coverage * width * height / blobs);
+        side = Math.max(1, Math.min(side, Math.min(cellWidth, cellHeight) - 1));
+
+        SplittableRandom random = new SplittableRandom(SEED + blobs);
+        for (int blob = 0; blob < blobs; blob++) {
+            int top = (blob / columns) * cellHeight + random.nextInt(cellHeight - side);
+            int left = (blob % columns) * cellWidth + random.nextInt(cellWidth - side);
+            for (int row = top; row < top + side; row++) {
+                for (int col = left; col < left + side; col++) {
+                    pixel.visit(row, col);
+                }
+            }
+        }
+    }
+
+    /** Receives the position of a pixel. */
+    @FunctionalInterface
+    private interface PixelVisitor {
+
+        /**
+         * Visits one pixel.
+         *
+         * @param row the pixel's row
+         * @param col the pixel's column
+         */
+        void visit(int row, int col);
+    }
+}
@@ -0,0 +1,72 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures DistanceImageBinarizer.toBinaryArray on decoded-frame-like images, both
+ * writing into a reused mask as the pipeline does and allocating a new one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinarizerBenchmark {
+
+    /** The frame size. */
+    @Param({ "480p", "1080p", "2160p" })
+    public String resolution;
+
+    /** The binarizer under test. */
+    private final ImageBinarizer binarizer =
+        new DistanceImageBinarizer(new EuclideanColorDistance(), BenchmarkFrames.TARGET_COLOR, BenchmarkFrames.THRESHOLD);
+
+    /** The frame to binarize. */
+    private BufferedImage frame;
+
+    /** The mask reused between invocations. */
+    private int[][] mask;
+
+    /** Creates the frame and the reused mask. */
+    @Setup
+    public void setup() {
+        int width = BenchmarkFrames.width(resolution);
+        int height = BenchmarkFrames.height(resolution);
+        frame = BenchmarkFrames.frame(width, height, 16, 0.05);
+        mask = new int[height][width];
+    }
+
+    /**
+     * Binarizes the frame into the reused mask.
+     *
+     * @return the mask
+     */
+    @Benchmark
+    public int[][] reusedMask() {
+        return binarizer.toBinaryArray(frame, mask);
+    }
+
+    /**
+     * Binarizes the frame into a newly allocated mask.
+     *
+     * @return the mask
+     */
+    @Benchmark
+    public int[][] newMask() {
+        return binarizer.toBinaryArray(frame);
+    }
+}
@@ -0,0 +1,62 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures EuclideanColorDistance.distance, which the binarizer calls once per pixel.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorDistanceBenchmark {
+
+    /** The number of color pairs compared per invocation. */
+    private static final int PAIRS = 1024;
+
+    /** The distance function under test. */
+    private final ColorDistanceFinder distance = new EuclideanColorDistance();
+
+    /** Random 24-bit colors, compared against the target color. */
+    private int[] colors;
+
+    /** Creates the colors. */
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        colors = new int[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            colors[i] = random.nextInt(1 << 24);
+        }
+    }
+
+    /**
+     * Computes the distance of every color to the target color.
+     *
+     * @return the sum of the distances, so the work cannot be eliminated
+     */
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public double distance() {
+        double sum = 0;
+        for (int color : colors) {
+            sum += distance.distance(color, BenchmarkFrames.TARGET_COLOR);
+        }
+        return sum;
+    }
+}
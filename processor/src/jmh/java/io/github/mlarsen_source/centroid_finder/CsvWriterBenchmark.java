@@ -0,0 +1,88 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures CsvWriter.writeToCsv for trajectories of different lengths, with and without
+ * the rank column.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvWriterBenchmark {
+
+    /** The number of rows written. */
+    @Param({ "1000", "100000" })
+    public int rows;
+
+    /** Whether the rank column is written. */
+    @Param({ "false", "true" })
+    public boolean ranked;
+
+    /** The rows to write. */
+    private Trajectory trajectory;
+
+    /** The writer under test. */
+    private CsvWriter writer;
+
+    /** The file written on every invocation. */
+    private Path output;
+
+    /**
+     * Creates the trajectory and the output file.
+     *
+     * @throws IOException if the file cannot be created
+     */
+    @Setup
+    public void setup() throws IOException {
+        trajectory = new Trajectory(rows);
+        for (int i = 0; i < rows; i++) {
+            if (ranked) {
+                trajectory.add(i / 30.0, (i * 7) % 1920, (i * 13) % 1080, 1 + i % 3);
+            } else {
+                trajectory.add(i / 30.0, (i * 7) % 1920, (i * 13) % 1080);
+            }
+        }
+        writer = new CsvWriter(ranked);
+        output = Files.createTempFile("csv-benchmark-", ".csv");
+    }
+
+    /**
+     * Deletes the output file.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(output);
+    }
+
+    /**
+     * Writes the trajectory, replacing the previous file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Benchmark
+    public void writeToCsv() throws IOException {
+        writer.writeToCsv(output.toString(), trajectory);
+    }
+}
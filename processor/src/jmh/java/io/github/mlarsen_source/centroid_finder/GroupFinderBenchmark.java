@@ -0,0 +1,72 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures BfsBinaryGroupFinder.findConnectedGroups on 1080p masks with a varying
+ * fraction of set pixels spread over a varying number of blobs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GroupFinderBenchmark {
+
+    /** The fraction of the mask covered by blobs. */
+    @Param({ "0.01", "0.1", "0.4" })
+    public double density;
+
+    /** The number of blobs the covered pixels are split into. */
+    @Param({ "1", "32", "512" })
+    public int blobs;
+
+    /** Returns every group, sorted. */
+    private final BinaryGroupFinder allGroups = new BfsBinaryGroupFinder();
+
+    /** Returns only the largest group. */
+    private final BinaryGroupFinder largestGroup = new BfsBinaryGroupFinder(1, 1);
+
+    /** The mask to search. */
+    private int[][] mask;
+
+    /** Creates the mask. */
+    @Setup
+    public void setup() {
+        mask = BenchmarkFrames.mask(1920, 1080, blobs, density);
+    }
+
+    /**
+     * Finds and sorts every group.
+     *
+     * @return the groups
+     */
+    @Benchmark
+    public List<Group> allGroups() {
+        return allGroups.findConnectedGroups(mask);
+    }
+
+    /**
+     * Finds only the largest group, as the default command line does.
+     *
+     * @return the largest group
+     */
+    @Benchmark
+    public List<Group> largestGroup() {
+        return largestGroup.findConnectedGroups(mask);
+    }
+}
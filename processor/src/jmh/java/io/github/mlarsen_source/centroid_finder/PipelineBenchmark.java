@@ -0,0 +1,60 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the full per-frame analysis, BinarizingImageGroupFinder.findConnectedGroups,
+ * as the command line configures it: binarize into the thread's reused mask, then keep
+ * the largest group.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+    /** The frame size. */
+    @Param({ "480p", "1080p", "2160p" })
+    public String resolution;
+
+    /** The pipeline under test. */
+    private ImageGroupFinder groupFinder;
+
+    /** The frame to analyze. */
+    private BufferedImage frame;
+
+    /** Creates the frame and the pipeline. */
+    @Setup
+    public void setup() {
+        ImageBinarizer binarizer = new DistanceImageBinarizer(new EuclideanColorDistance(),
+            BenchmarkFrames.TARGET_COLOR, BenchmarkFrames.THRESHOLD);
+        groupFinder = new BinarizingImageGroupFinder(binarizer, new BfsBinaryGroupFinder(1, 1));
+        frame = BenchmarkFrames.frame(BenchmarkFrames.width(resolution), BenchmarkFrames.height(resolution), 16, 0.05);
+    }
+
+    /**
+     * Finds the largest group in the frame.
+     *
+     * @return the largest group
+     */
+    @Benchmark
+    public List<Group> findConnectedGroups() {
+        return groupFinder.findConnectedGroups(frame);
+    }
+}
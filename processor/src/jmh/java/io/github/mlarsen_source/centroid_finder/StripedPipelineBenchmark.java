@@ -0,0 +1,77 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the per-frame analysis with the frame split into stripes that are binarized
+ * and labeled on a ForkJoinPool, as --frame-threads configures it, so the speedup over
+ * PipelineBenchmark can be read off for each thread count.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StripedPipelineBenchmark {
+
+    /** The frame size. */
+    @Param({ "1080p", "2160p" })
+    public String resolution;
+
+    /** The number of threads the stripes run on. */
+    @Param({ "2", "4", "8" })
+    public int threads;
+
+    /** The pool the stripes run on. */
+    private ForkJoinPool pool;
+
+    /** The pipeline under test. */
+    private ImageGroupFinder groupFinder;
+
+    /** The frame to analyze. */
+    private BufferedImage frame;
+
+    /** Creates the frame, the pool and the pipeline. */
+    @Setup
+    public void setup() {
+        pool = new ForkJoinPool(threads);
+        DistanceImageBinarizer binarizer = new DistanceImageBinarizer(new EuclideanColorDistance(),
+            BenchmarkFrames.TARGET_COLOR, BenchmarkFrames.THRESHOLD);
+        groupFinder = new BinarizingImageGroupFinder(new StripedImageBinarizer(binarizer, pool),
+            new StripedBinaryGroupFinder(1, 1, pool));
+        frame = BenchmarkFrames.frame(BenchmarkFrames.width(resolution), BenchmarkFrames.height(resolution), 16, 0.05);
+    }
+
+    /** Stops the pool. */
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Finds the largest group in the frame.
+     *
+     * @return the largest group
+     */
+    @Benchmark
+    public List<Group> findConnectedGroups() {
+        return groupFinder.findConnectedGroups(frame);
+    }
+}
@@ -32,4 +32,11 @@ public interface ArgumentParser {
    * @return the threshold value
    */
   int getThreshold();
+
+  /**
+   * Returns the optional processing settings.
+   * 
+   * @return the processing options, with defaults for settings that were not given
+   */
+  ProcessingOptions getOptions();
 }
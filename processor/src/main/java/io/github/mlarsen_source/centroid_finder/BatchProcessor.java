@@ -0,0 +1,332 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes many videos in one JVM.
+ *
+ * The videos come either from a manifest file with one "video,output,color,threshold"
+ * line per video, or from a directory or file glob such as "videos/*.mp4" together with
+ * a shared output directory, color and threshold. Every job is validated and processed
+ * exactly like a single-video command line, so its CSV is identical to the one the
+ * four-argument command would write.
+ *
+ * Jobs run on a work-stealing ForkJoinPool whose parallelism bounds how many videos are
+ * processed at once. Each job with --frame-threads N starts N threads of its own, so the
+ * number of concurrent jobs is capped at the core count divided by N. A job that fails,
+ * including one with invalid arguments, is reported and skipped without affecting the
+ * others.
+ */
+public class BatchProcessor {
+
+    /** The usage message shown when the batch arguments are malformed. */
+    private static final String USAGE =
+        "Usage: java -jar app.jar --batch <manifest.csv | directory | glob> [--output-dir DIR]"
+        + " [--color HEX] [--threshold N] [--jobs N] [processing flags]";
+
+    /** The optional header line of a manifest. */
+    private static final String MANIFEST_HEADER = "video,output,color,threshold";
+
+    /** Runs each job. */
+    private final VideoProcessingAppRunner runner;
+
+    /** The maximum number of videos processed at once. */
+    private final int parallelism;
+
+    /**
+     * Creates a batch processor.
+     *
+     * @param runner runs each job
+     * @param parallelism the maximum number of videos processed at once
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public BatchProcessor(VideoProcessingAppRunner runner, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.runner = runner;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Runs a batch from the command line and prints one line per job followed by a summary.
+     *
+     * @param args the arguments following --batch
+     * @return 0 if every job succeeded, 1 otherwise
+     * @throws IOException if the manifest or directory cannot be read
+     * @throws IllegalArgumentException if the arguments are malformed
+     */
+    public static int run(String[] args) throws IOException {
+        if (args.length < 1 || args[0].startsWith("--")) {
+            throw new IllegalArgumentException(USAGE);
+        }
+        String source = args[0];
+        Path outputDir = null;
+        String color = null;
+        String threshold = null;
+        Integer jobs = null;
+        List<String> flags = new ArrayList<>();
+
+        int i = 1;
+        while (i < args.length) {
+            String flag = args[i++];
+            if (!flag.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + flag + "\n" + USAGE);
+            }
+            if (CommandLineParser.isSwitch(flag)) {
+                flags.add(flag);
+                continue;
+            }
+            if (i >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + flag);
+            }
+            String value = args[i++];
+            switch (flag) {
+                case "--output-dir" -> outputDir = Path.of(value);
+                case "--color" -> color = value;
+                case "--threshold" -> threshold = value;
+                case "--jobs" -> {
+                    try {
+                        jobs = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("--jobs must be an integer: " + value);
+                    }
+                }
+                default -> {
+                    // Processing flags such as --top-k apply to every job
+                    flags.add(flag);
+                    flags.add(value);
+                }
+            }
+        }
+
+        if (flags.contains("--progress-events")) {
+            // Events carry no job id, so those of concurrent jobs would interleave on stdout
+            throw new IllegalArgumentException("--progress-events cannot be combined with --batch");
+        }
+
+        Path sourcePath = Path.of(source);
+        List<String[]> batch;
+        if (Files.isRegularFile(sourcePath) && !source.toLowerCase().endsWith(".mp4")) {
+            batch = readManifest(sourcePath, flags);
+        } else {
+            if (color == null || threshold == null) {
+                throw new IllegalArgumentException("--color and --threshold are required for a directory or glob\n" + USAGE);
+            }
+            batch = findVideos(source, outputDir, color, threshold, flags);
+        }
+        if (batch.isEmpty()) {
+            System.out.println("No videos to process.");
+            return 0;
+        }
+
+        int parallelism = concurrentJobs(jobs, frameThreads(flags), Runtime.getRuntime().availableProcessors());
+        List<Result> results = new BatchProcessor(new VideoProcessingAppRunner(), parallelism).process(batch);
+        int failed = 0;
+        for (Result result : results) {
+            if (result.succeeded()) {
+                System.out.println("OK     " + result.video() + " -> " + result.output() + " (" + result.elapsedMillis() + " ms)");
+            } else {
+                failed++;
+                System.out.println("FAILED " + result.video() + ": " + result.error());
+            }
+        }
+        System.out.println("Batch complete: " + (results.size() - failed) + " succeeded, " + failed + " failed.");
+        return failed == 0 ? 0 : 1;
+    }
+
+    /**
+     * Splits the cores between concurrent videos and the stripe threads of each video, so
+     * that the jobs times the frame threads never exceed the cores.
+     *
+     * @param requested the --jobs value, or null to use every core
+     * @param frameThreads the --frame-threads value of every job
+     * @param cores the number of available processors
+     * @return the number of videos to process at once
+     */
+    static int concurrentJobs(Integer requested, int frameThreads, int cores) {
+        int budget = Math.max(1, cores / Math.max(1, frameThreads));
+        return requested == null ? budget : Math.min(requested, budget);
+    }
+
+    /**
+     * Returns the --frame-threads value among the processing flags.
+     *
+     * @param flags the processing flags appended to every job
+     * @return the value, or 1 if the flag is absent or malformed, which the jobs report
+     */
+    private static int frameThreads(List<String> flags) {
+        int index = flags.lastIndexOf("--frame-threads");
+        if (index < 0 || index + 1 >= flags.size()) return 1;
+        try {
+            return Integer.parseInt(flags.get(index + 1));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * Reads a manifest with one "video,output,color,threshold" line per job. Blank lines,
+     * lines starting with # and a header line are skipped. Relative paths are resolved
+     * against the manifest's directory.
+     *
+     * @param manifest the manifest file
+     * @param flags processing flags appended to every job
+     * @return the command line arguments of each job, in manifest order
+     * @throws IOException if the manifest cannot be read
+     * @throws IllegalArgumentException if a line does not have four fields
+     */
+    static List<String[]> readManifest(Path manifest, List<String> flags) throws IOException {
+        Path base = manifest.toAbsolutePath().getParent();
+        List<String[]> jobs = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(manifest)) {
+            lineNumber++;
+            String trimmed = line.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.equalsIgnoreCase(MANIFEST_HEADER)) {
+                continue;
+            }
+            String[] fields = trimmed.split(",", -1);
+            if (fields.length != 4) {
+                throw new IllegalArgumentException("Manifest line " + lineNumber
+                    + " must have four fields (" + MANIFEST_HEADER + "): " + line);
+            }
+            String video = base.resolve(fields[0].strip()).toString();
+            String output = base.resolve(fields[1].strip()).toString();
+            jobs.add(jobArgs(video, output, fields[2].strip(), fields[3].strip(), flags));
+        }
+        return jobs;
+    }
+
+    /**
+     * Lists the mp4 videos in a directory, or the files matching a glob in its last path
+     * element, and gives each an output CSV with the same base name.
+     *
+     * @param source a directory, or a path whose file name is a glob such as "*.mp4"
+     * @param outputDir the directory for the CSV files, or null to write each next to its video
+     * @param color the target color for every job
+     * @param threshold the threshold for every job
+     * @param flags processing flags appended to every job
+     * @return the command line arguments of each job, sorted by video path
+     * @throws IOException if the directory cannot be listed
+     */
+    static List<String[]> findVideos(String source, Path outputDir, String color, String threshold,
+            List<String> flags) throws IOException {
+        Path sourcePath = Path.of(source);
+        Path directory;
+        String glob;
+        if (Files.isDirectory(sourcePath)) {
+            directory = sourcePath;
+            glob = "*.{mp4,MP4}";
+        } else {
+            directory = sourcePath.toAbsolutePath().getParent();
+            glob = sourcePath.getFileName().toString();
+        }
+
+        List<Path> videos = new ArrayList<>();
+        try (DirectoryStream<Path> matches = Files.newDirectoryStream(directory, glob)) {
+            for (Path video : matches) {
+                if (Files.isRegularFile(video)) videos.add(video);
+            }
+        }
+        videos.sort(null);
+
+        List<String[]> jobs = new ArrayList<>();
+        for (Path video : videos) {
+            String name = video.getFileName().toString();
+            int dot = name.lastIndexOf('.');
+            String csvName = (dot > 0 ? name.substring(0, dot) : name) + ".csv";
+            Path output = (outputDir != null ? outputDir : video.getParent()).resolve(csvName);
+            jobs.add(jobArgs(video.toString(), output.toString(), color, threshold, flags));
+        }
+        return jobs;
+    }
+
+    /**
+     * Builds the command line arguments of one job.
+     *
+     * @param video the input video path
+     * @param output the output CSV path
+     * @param color the target color
+     * @param threshold the threshold
+     * @param flags processing flags appended after the positional arguments
+     * @return the four positional arguments followed by the flags
+     */
+    private static String[] jobArgs(String video, String output, String color, String threshold, List<String> flags) {
+        List<String> args = new ArrayList<>(List.of(video, output, color, threshold));
+        args.addAll(flags);
+        return args.toArray(new String[0]);
+    }
+
+    /**
+     * Processes every job and waits for all of them to finish.
+     *
+     * @param jobs the command line arguments of each job
+     * @return one result per job, in the same order as the jobs
+     */
+    public List<Result> process(List<String[]> jobs) {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(parallelism, jobs.size())));
+        try {
+            List<ForkJoinTask<Result>> tasks = new ArrayList<>();
+            for (String[] job : jobs) {
+                tasks.add(pool.submit(() -> processJob(job)));
+            }
+            List<Result> results = new ArrayList<>();
+            for (ForkJoinTask<Result> task : tasks) {
+                results.add(task.join());
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Validates and processes one job, turning any failure into a failed result.
+     *
+     * @param job the command line arguments of the job
+     * @return the job's result
+     */
+    private Result processJob(String[] job) {
+        String video = job.length > 0 ? job[0] : "";
+        String output = job.length > 1 ? job[1] : "";
+        long start = System.nanoTime();
+        try {
+            ArgumentParser args = new CommandLineParser(job);
+            runner.processVideo(args.getVideoPath(), args.getOutputPath(), args.getTargetColor(),
+                args.getThreshold(), args.getOptions());
+            return new Result(video, output, null, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return new Result(video, output, message, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * The outcome of one job.
+     *
+     * @param video the input video path
+     * @param output the output CSV path
+     * @param error the failure message, or null if the job succeeded
+     * @param elapsedMillis the time the job took in milliseconds
+     */
+    public record Result(String video, String output, String error, long elapsedMillis) {
+
+        /**
+         * Returns whether the job succeeded.
+         *
+         * @return true if the job completed without an error
+         */
+        public boolean succeeded() {
+            return error == null;
+        }
+    }
+}
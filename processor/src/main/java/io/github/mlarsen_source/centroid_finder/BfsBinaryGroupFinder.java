@@ -4,21 +4,63 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Queue;
 
 /**
  * Implementation of BinaryGroupFinder that uses Breadth-First Search (BFS)
  * to identify connected groups in a binary 2D array.
+ * 
+ * A finder can be limited to the K largest groups and to groups of a minimum size.
+ * Components smaller than the minimum are skipped without creating a Group, and the
+ * K largest are kept in a bounded min-heap ordered by Group's compareTo, so only those
+ * K groups are ever sorted.
  */
 public class BfsBinaryGroupFinder implements BinaryGroupFinder {
+
+    /** The maximum number of groups returned per image. */
+    private final int maxGroups;
+
+    /** The minimum number of pixels a component needs to be returned as a group. */
+    private final int minGroupSize;
+
+    /**
+     * Creates a finder that returns every group in the image.
+     */
+    public BfsBinaryGroupFinder() {
+        this(Integer.MAX_VALUE, 1);
+    }
+
+    /**
+     * Creates a finder that returns at most the given number of largest groups, ignoring
+     * groups smaller than the given size.
+     * 
+     * @param maxGroups the maximum number of groups to return, at least 1
+     * @param minGroupSize the minimum group size in pixels, at least 1
+     * @throws IllegalArgumentException if either limit is less than 1
+     */
+    public BfsBinaryGroupFinder(int maxGroups, int minGroupSize) {
+        if (maxGroups < 1) throw new IllegalArgumentException("maxGroups must be at least 1");
+        if (minGroupSize < 1) throw new IllegalArgumentException("minGroupSize must be at least 1");
+        this.maxGroups = maxGroups;
+        this.minGroupSize = minGroupSize;
+    }
     /**
      * Finds connected groups of 1's in a binary 2D array using BFS.
      * Pixels are connected horizontally or vertically (4-connectivity).
      * Coordinate system: top-left is (0,0), x increases right, y increases down.
      * Centroid calculated using integer division of summed coordinates.
+     *
+     * The search queue and visited flags come from the calling thread's FrameContext and
+     * pixels are tracked as packed row-major indices, so labeling a frame only allocates
+     * the returned groups.
+     * 
+     * Only groups of at least the minimum size are returned, and at most the configured
+     * number of them. A search slower than the StageEvent threshold is reported to Flight
+     * Recorder.
      * 
      * @param image rectangular 2D array containing only 1s and 0s
-     * @return groups of connected pixels in descending order by Group's compareTo
+     * @return the largest groups of connected pixels in descending order by Group's compareTo
      * @throws NullPointerException if image or any subarray is null
      * @throws IllegalArgumentException if array is empty or contains values other than 0 or 1
      */
@@ -26,31 +68,117 @@ public class BfsBinaryGroupFinder implements BinaryGroupFinder {
     public List<Group> findConnectedGroups(int[][] image) {
         if(image == null) throw new NullPointerException("array cannot be null");
         if (image.length == 0 || image[0].length == 0) throw new IllegalArgumentException("array cannot be empty");
+        int height = image.length;
+        int width = image[0].length;
         for (int[] subarray: image) {
             if (subarray == null) throw new NullPointerException("subarray cannot be null");
-            for (int num : subarray) {
-                if (num != 0 && num != 1) throw new IllegalArgumentException("array can only contain values of 1 or 0");
-            }
+            if (subarray.length != width) throw new IllegalArgumentException("array must be rectangular");
         }
-        boolean[][] visited = new boolean[image.length][image[0].length];
+
+        StageEvent event = new StageEvent();
+        event.begin();
+        FrameContext context = FrameContext.current();
+        boolean[][] visited = context.visited(height, width);
+        int[] queue = context.queue(height * width);
+        boolean bounded = maxGroups != Integer.MAX_VALUE;
         List<Group> groups = new ArrayList<>();
+        PriorityQueue<Group> largest = bounded ? new PriorityQueue<>(Math.min(maxGroups, 64)) : null;
       
-        for (int row = 0; row < image.length; row++) {
-            for (int col = 0; col < image[0].length; col++) {
-                if (image[row][col] == 1 && !visited[row][col]) {
-                    List<int[]> pixels = new ArrayList<>();
-                    findConnectedGroups(row, col, image, visited, pixels);
-                    groups.add(createGroup(pixels));
+        for (int row = 0; row < height; row++) {
+            int[] pixels = image[row];
+            for (int col = 0; col < width; col++) {
+                int value = pixels[col];
+                if (value == 1) {
+                    if (!visited[row][col]) {
+                        Group group = searchGroup(row, col, image, visited, queue, minGroupSize);
+                        if (group == null) continue;
+                        if (!bounded) {
+                            groups.add(group);
+                        } else if (largest.size() < maxGroups) {
+                            largest.offer(group);
+                        } else if (group.compareTo(largest.peek()) > 0) {
+                            largest.poll();
+                            largest.offer(group);
+                        }
+                    }
+                } else if (value != 0) {
+                    throw new IllegalArgumentException("array can only contain values of 1 or 0");
                 }
             }
         }
+        if (bounded) {
+            groups.addAll(largest);
+        }
         if (!groups.isEmpty()) {
             groups.sort(Collections.reverseOrder());
         }
 
+        if (event.shouldCommit()) {
+            event.stage = Stage.LABEL.reportName();
+            event.width = width;
+            event.height = height;
+            event.commit();
+        }
         return groups;
     }
 
+    /**
+     * Performs a breadth-first search from the given pixel and summarizes the group it belongs to.
+     *
+     * Pixels are stored in the queue as row * width + col. Each pixel is enqueued at most
+     * once, so a queue as long as the image never overflows. Coordinate sums are kept as
+     * longs so very large groups in high resolution frames cannot overflow.
+     *
+     * @param row the starting row position
+     * @param col the starting column position
+     * @param image the binary 2D array to search
+     * @param visited flags marking pixels that already belong to a group
+     * @param queue scratch space with room for every pixel in the image
+     * @param minGroupSize the minimum number of pixels for the group to be returned
+     * @return the group containing the starting pixel, or null if it is smaller than minGroupSize
+     */
+    private static Group searchGroup(int row, int col, int[][] image, boolean[][] visited, int[] queue, int minGroupSize) {
+        int height = image.length;
+        int width = image[0].length;
+        int head = 0;
+        int tail = 0;
+        long rowSum = 0;
+        long colSum = 0;
+
+        visited[row][col] = true;
+        queue[tail++] = row * width + col;
+
+        while (head < tail) {
+            int current = queue[head++];
+            int r = current / width;
+            int c = current - r * width;
+            rowSum += r;
+            colSum += c;
+
+            if (r > 0 && image[r - 1][c] == 1 && !visited[r - 1][c]) {
+                visited[r - 1][c] = true;
+                queue[tail++] = current - width;
+            }
+            if (r < height - 1 && image[r + 1][c] == 1 && !visited[r + 1][c]) {
+                visited[r + 1][c] = true;
+                queue[tail++] = current + width;
+            }
+            if (c < width - 1 && image[r][c + 1] == 1 && !visited[r][c + 1]) {
+                visited[r][c + 1] = true;
+                queue[tail++] = current + 1;
+            }
+            if (c > 0 && image[r][c - 1] == 1 && !visited[r][c - 1]) {
+                visited[r][c - 1] = true;
+                queue[tail++] = current - 1;
+            }
+        }
+
+        int size = tail;
+        if (size < minGroupSize) return null;
+        Coordinate coord = new Coordinate((int) (colSum / size), (int) (rowSum / size));
+        return new Group(size, coord);
+    }
+
     /**
      * Performs a breadth-first search starting from the given position to find
      * all connected pixels with value 1.
@@ -1,6 +1,7 @@
 package io.github.mlarsen_source.centroid_finder;
 
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -15,6 +16,12 @@ public class BinarizingImageGroupFinder implements ImageGroupFinder {
     private final ImageBinarizer binarizer;
     private final BinaryGroupFinder groupFinder;
 
+    /** Receives the binarize and label time of every image, or null. */
+    private StageRecorder recorder;
+
+    /** The part of each image that is analyzed, or null for the whole image. */
+    private RegionMask region;
+
     /**
      * Constructs a BinarizingImageGroupFinder using the specified ImageBinarizer and BinaryGroupFinder.
      *
@@ -26,6 +33,26 @@ public class BinarizingImageGroupFinder implements ImageGroupFinder {
         this.groupFinder = groupFinder;
     }
 
+    /**
+     * Attaches a recorder that receives the binarize and label time of every image.
+     *
+     * @param recorder the recorder, or null to detach
+     */
+    public void setStageRecorder(StageRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Restricts later searches to a region of each image. Only the region's bounding box
+     * is binarized and labeled, pixels outside the region are treated as black, and
+     * centroids are still reported in full-image coordinates.
+     *
+     * @param region the region, compiled for the size of the images, or null for whole images
+     */
+    public void setRegion(RegionMask region) {
+        this.region = region;
+    }
+
     /**
      * Finds connected groups of white pixels in the given image.
      * 
@@ -34,12 +61,64 @@ public class BinarizingImageGroupFinder implements ImageGroupFinder {
      * locate connected groups (neighbors connected vertically and horizontally) within the binary array.
      * The identified groups are returned in descending order, according to the sorting defined in the Group record.
      *
+     * The binary array is the calling thread's reused FrameContext mask, so no per-frame
+     * mask is allocated when the binarizer supports writing into a provided array.
+     *
      * @param image the input BufferedImage to process
      * @return a list of groups representing connected white pixels in the image
      */
     @Override
     public List<Group> findConnectedGroups(BufferedImage image) {
-        int[][] binaryArray = binarizer.toBinaryArray(image);
-        return groupFinder.findConnectedGroups(binaryArray);
+        RegionMask region = this.region;
+        if (region != null) return findConnectedGroups(image, region);
+
+        int[][] mask = null;
+        if (image != null && image.getWidth() > 0 && image.getHeight() > 0) {
+            mask = FrameContext.current().mask(image.getHeight(), image.getWidth());
+        }
+        StageRecorder recorder = this.recorder;
+        if (recorder == null) {
+            int[][] binaryArray = binarizer.toBinaryArray(image, mask);
+            return groupFinder.findConnectedGroups(binaryArray);
+        }
+
+        long start = System.nanoTime();
+        int[][] binaryArray = binarizer.toBinaryArray(image, mask);
+        long binarized = System.nanoTime();
+        List<Group> groups = groupFinder.findConnectedGroups(binaryArray);
+        recorder.record(Stage.BINARIZE, binarized - start);
+        recorder.record(Stage.LABEL, System.nanoTime() - binarized);
+        return groups;
+    }
+
+    /**
+     * Finds connected groups inside a region of the image, moving their centroids from
+     * bounding box coordinates back to image coordinates.
+     *
+     * @param image the input BufferedImage to process
+     * @param region the region to analyze
+     * @return the groups in descending order
+     */
+    private List<Group> findConnectedGroups(BufferedImage image, RegionMask region) {
+        if (image == null) throw new NullPointerException("image cannot be null.");
+        int[][] mask = FrameContext.current().mask(region.height(), region.width());
+        StageRecorder recorder = this.recorder;
+        long start = recorder != null ? System.nanoTime() : 0;
+        int[][] binaryArray = binarizer.toBinaryArray(image, region, mask);
+        long binarized = recorder != null ? System.nanoTime() : 0;
+        List<Group> groups = groupFinder.findConnectedGroups(binaryArray);
+        if (recorder != null) {
+            recorder.record(Stage.BINARIZE, binarized - start);
+            recorder.record(Stage.LABEL, System.nanoTime() - binarized);
+        }
+
+        // Shifting every centroid by the same offset keeps the groups in order
+        if (region.left() == 0 && region.top() == 0) return groups;
+        List<Group> shifted = new ArrayList<>(groups.size());
+        for (Group group : groups) {
+            Coordinate centroid = group.centroid();
+            shifted.add(new Group(group.size(), new Coordinate(centroid.x() + region.left(), centroid.y() + region.top())));
+        }
+        return shifted;
     }
 }
@@ -0,0 +1,483 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+
+import org.jcodec.common.model.Picture;
+
+/**
+ * Walks through a video one frame at a time and stops at each frame that contains a group.
+ *
+ * Frames are decoded only when {@link #next()} is called, so a caller that stops early
+ * never decodes the rest of the video. The position of the current frame's largest group
+ * is exposed as primitives, leaving it to the caller whether to store it in a Trajectory
+ * or wrap it in a TimedCoordinate.
+ *
+ * The cursor closes its FrameReader when the last frame has been read or when
+ * {@link #close()} is called, whichever comes first.
+ *
+ * With {@link #setSampling(int, double)} the cursor analyzes only some of the frames
+ * while the target stands still, and every frame around motion.
+ *
+ * While Flight Recorder is running, every frame and its decode and convert stages are
+ * reported as FrameEvent and StageEvent spans when they exceed the events' thresholds.
+ */
+public class CentroidCursor implements Closeable {
+
+  /** Supplies decoded frames. */
+  private final FrameReader frames;
+
+  /** Finds connected groups in each frame. */
+  private final ImageGroupFinder groupFinder;
+
+  /** Converts frame numbers to timestamps. */
+  private final VideoProcessor processor;
+
+  /** The one-based number of the next frame to be read. */
+  private int frameCount = 1;
+
+  /** Whether the reader has been closed. */
+  private boolean closed;
+
+  /** The one-based number of the current frame. */
+  private int frameNumber;
+
+  /** The time in seconds of the current frame. */
+  private double time;
+
+  /** The centroid x coordinate of the current frame's largest group. */
+  private int x;
+
+  /** The centroid y coordinate of the current frame's largest group. */
+  private int y;
+
+  /** The groups found in the current frame, largest first. */
+  private List<Group> groups = List.of();
+
+  /** Notified of every processed frame, or null. */
+  private FrameObserver observer;
+
+  /** Receives the decode and convert time of every frame, or null. */
+  private StageRecorder recorder;
+
+  /** Every sampleInterval-th frame is analyzed; 1 analyzes every frame. */
+  private int sampleInterval = 1;
+
+  /** The centroid displacement in pixels between samples above which skipped frames are analyzed. */
+  private double motionThreshold;
+
+  /** Copies of the frames decoded since the last sample, oldest first. */
+  private final ArrayDeque<Picture> skipped = new ArrayDeque<>();
+
+  /** Copies no longer needed, reused for later skipped frames. */
+  private final ArrayDeque<Picture> spare = new ArrayDeque<>();
+
+  /** Analyzed frames with groups that have not been returned yet, in frame order. */
+  private final ArrayDeque<AnalyzedFrame> ready = new ArrayDeque<>();
+
+  /** Whether a frame has been sampled yet. */
+  private boolean sampled;
+
+  /** The largest group centroid of the last sample, or null if it had no groups. */
+  private Coordinate lastSample;
+
+  /** Whether the reader has returned its last frame. */
+  private boolean endOfVideo;
+
+  /** The number of frames whose groups were found so far. */
+  private int framesAnalyzed;
+
+  /**
+   * Creates a cursor positioned before the first frame of the reader.
+   *
+   * @param frames the reader to decode frames from; the cursor takes ownership of it
+   * @param groupFinder finds connected groups in each frame
+   * @param processor converts frame numbers to timestamps
+   */
+  public CentroidCursor(FrameReader frames, ImageGroupFinder groupFinder, VideoProcessor processor) {
+    this.frames = frames;
+    this.groupFinder = groupFinder;
+    this.processor = processor;
+  }
+
+  /**
+   * Attaches an observer that is notified of every frame this cursor processes,
+   * including frames without groups.
+   *
+   * @param observer the observer, or null to detach
+   */
+  public void setObserver(FrameObserver observer) {
+    this.observer = observer;
+  }
+
+  /**
+   * Attaches a recorder that receives the decode and convert time of every frame.
+   *
+   * @param recorder the recorder, or null to detach
+   */
+  public void setStageRecorder(StageRecorder recorder) {
+    this.recorder = recorder;
+  }
+
+  /**
+   * Analyzes only every interval-th frame while the target stands still. Whenever the
+   * largest group's centroid moves more than the threshold between two samples, or the
+   * target appears or disappears, the frames skipped between them are analyzed as well,
+   * in order, before the later sample is returned. Skipped frames are copied into a
+   * buffer of at most interval - 1 pictures until the next sample decides their fate.
+   * The last frame of the video is always analyzed.
+   *
+   * @param interval analyze every interval-th frame, 1 to analyze every frame
+   * @param motionThreshold the centroid displacement in pixels above which skipped frames are analyzed
+   * @throws IllegalArgumentException if interval is less than 1 or motionThreshold is negative
+   */
+  public void setSampling(int interval, double motionThreshold) {
+    if (interval < 1) throw new IllegalArgumentException("Sample interval must be at least 1: " + interval);
+    if (!(motionThreshold >= 0)) {
+      throw new IllegalArgumentException("Motion threshold cannot be negative: " + motionThreshold);
+    }
+    this.sampleInterval = interval;
+    this.motionThreshold = motionThreshold;
+  }
+
+  /**
+   * Decodes frames until one contains at least one group, and moves the cursor to it.
+   * Frames with no detected groups are skipped.
+   *
+   * @return true if a frame with a group was found, false once the video is exhausted
+   * @throws IOException if a frame cannot be read or decoded
+   */
+  public boolean next() throws IOException {
+    if (closed) return false;
+    if (sampleInterval > 1) return nextSampled();
+
+    // Look up the buffers on every call, since a cursor may be advanced from different threads
+    FrameContext context = FrameContext.current();
+    boolean timed = observer != null || recorder != null;
+    long start = timed ? System.nanoTime() : 0;
+    while (true) {
+      FrameEvent frameEvent = new FrameEvent();
+      frameEvent.begin();
+      StageEvent decodeEvent = new StageEvent();
+      decodeEvent.begin();
+      Picture picture = frames.readFrame();
+      if (picture == null) break;
+
+      int frameNumber = frameCount++;
+      commitStage(decodeEvent, Stage.DECODE, picture);
+      long decodeNanos = timed ? System.nanoTime() - start : 0;
+      if (recorder != null) recorder.record(Stage.DECODE, decodeNanos);
+
+      List<Group> frameGroups = analyze(context, picture, frameNumber, frameEvent, decodeNanos);
+      if (timed) start = System.nanoTime();
+
+      // Skip frames without any detected groups
+      if (frameGroups.isEmpty()) {
+        continue;
+      }
+
+      moveTo(frameNumber, frameGroups);
+      return true;
+    }
+
+    close();
+    return false;
+  }
+
+  /**
+   * Advances like {@link #next()}, analyzing only sampled frames and the skipped frames
+   * around motion.
+   *
+   * @return true if a frame with a group was found, false once the video is exhausted
+   * @throws IOException if a frame cannot be read or decoded
+   */
+  private boolean nextSampled() throws IOException {
+    FrameContext context = FrameContext.current();
+    boolean timed = observer != null || recorder != null;
+    while (ready.isEmpty() && !endOfVideo) {
+      long start = timed ? System.nanoTime() : 0;
+      StageEvent decodeEvent = new StageEvent();
+      decodeEvent.begin();
+      Picture picture = frames.readFrame();
+      if (picture == null) {
+        endOfVideo = true;
+        // The last frame is always a sample, so motion at the end of the video is not missed
+        Picture last = skipped.pollLast();
+        if (last != null) sample(context, last, frameCount - 1, 0);
+        continue;
+      }
+
+      int frameNumber = frameCount++;
+      commitStage(decodeEvent, Stage.DECODE, picture);
+      long decodeNanos = timed ? System.nanoTime() - start : 0;
+      if (recorder != null) recorder.record(Stage.DECODE, decodeNanos);
+
+      if ((frameNumber - 1) % sampleInterval == 0) {
+        sample(context, picture, frameNumber, decodeNanos);
+      } else {
+        // The reader may reuse its picture, so keep a copy until the next sample
+        skipped.add(copyOf(picture, spare.poll()));
+      }
+    }
+
+    AnalyzedFrame frame = ready.poll();
+    if (frame == null) {
+      close();
+      return false;
+    }
+    moveTo(frame.frameNumber(), frame.groups());
+    return true;
+  }
+
+  /**
+   * Analyzes a sampled frame, and the skipped frames before it if the target moved since
+   * the previous sample, queueing those with groups in frame order.
+   *
+   * @param context the calling thread's conversion buffers
+   * @param picture the sampled frame
+   * @param frameNumber the one-based number of the sampled frame
+   * @param decodeNanos how long the sampled frame took to decode
+   */
+  private void sample(FrameContext context, Picture picture, int frameNumber, long decodeNanos) {
+    FrameEvent frameEvent = new FrameEvent();
+    frameEvent.begin();
+    List<Group> frameGroups = analyze(context, picture, frameNumber, frameEvent, decodeNanos);
+    Coordinate centroid = frameGroups.isEmpty() ? null : frameGroups.get(0).centroid();
+
+    if (moved(centroid)) {
+      int number = frameNumber - skipped.size();
+      for (Picture between : skipped) {
+        FrameEvent betweenEvent = new FrameEvent();
+        betweenEvent.begin();
+        List<Group> betweenGroups = analyze(context, between, number, betweenEvent, 0);
+        if (!betweenGroups.isEmpty()) ready.add(new AnalyzedFrame(number, betweenGroups));
+        number++;
+      }
+    } else if (observer != null) {
+      int number = frameNumber - skipped.size();
+      for (int i = 0; i < skipped.size(); i++) {
+        observer.frameSkipped(number + i);
+      }
+    }
+    spare.addAll(skipped);
+    skipped.clear();
+
+    if (!frameGroups.isEmpty()) ready.add(new AnalyzedFrame(frameNumber, frameGroups));
+    lastSample = centroid;
+    sampled = true;
+  }
+
+  /**
+   * Copies a picture's planes, into a spare picture of the same layout when there is one.
+   *
+   * @param picture the picture to copy
+   * @param spare a picture that is no longer needed, or null
+   * @return a picture holding the same pixels and crop
+   */
+  private static Picture copyOf(Picture picture, Picture spare) {
+    byte[][] planes = picture.getData();
+    Picture copy = spare;
+    if (copy == null || copy.getColor() != picture.getColor()
+        || copy.getWidth() != picture.getWidth() || copy.getHeight() != picture.getHeight()) {
+      byte[][] copied = new byte[planes.length][];
+      for (int i = 0; i < planes.length; i++) {
+        copied[i] = planes[i].clone();
+      }
+      copy = Picture.createPicture(picture.getWidth(), picture.getHeight(), copied, picture.getColor());
+    } else {
+      for (int i = 0; i < planes.length; i++) {
+        System.arraycopy(planes[i], 0, copy.getPlaneData(i), 0, planes[i].length);
+      }
+    }
+    copy.setCrop(picture.getCrop());
+    return copy;
+  }
+
+  /**
+   * Returns whether the target moved between the previous sample and a new one.
+   *
+   * @param centroid the new sample's largest group centroid, or null if it had no groups
+   * @return true if the target appeared, disappeared or moved more than the threshold
+   */
+  private boolean moved(Coordinate centroid) {
+    if (!sampled) return false;
+    if (centroid == null || lastSample == null) return centroid != lastSample;
+    double dx = centroid.x() - lastSample.x();
+    double dy = centroid.y() - lastSample.y();
+    return dx * dx + dy * dy > motionThreshold * motionThreshold;
+  }
+
+  /**
+   * Converts a decoded frame and finds its groups, reporting the frame to the observer,
+   * the recorder and Flight Recorder.
+   *
+   * @param context the calling thread's conversion buffers
+   * @param picture the decoded frame
+   * @param frameNumber the one-based number of the frame
+   * @param frameEvent the frame event, begun when work on the frame started
+   * @param decodeNanos how long the frame took to decode, reported to the observer
+   * @return the frame's groups, largest first
+   */
+  private List<Group> analyze(FrameContext context, Picture picture, int frameNumber, FrameEvent frameEvent,
+      long decodeNanos) {
+    FrameObserver observer = this.observer;
+    StageRecorder recorder = this.recorder;
+    boolean timed = observer != null || recorder != null;
+    long read = timed ? System.nanoTime() : 0;
+    StageEvent convertEvent = new StageEvent();
+    convertEvent.begin();
+    BufferedImage frame = context.toBufferedImage(picture);
+    commitStage(convertEvent, Stage.CONVERT, picture);
+    long decoded = timed ? System.nanoTime() : 0;
+
+    // Identify connected white pixel groups
+    List<Group> frameGroups = groupFinder.findConnectedGroups(frame);
+    framesAnalyzed++;
+
+    if (frameEvent.shouldCommit()) {
+      frameEvent.frameNumber = frameNumber;
+      frameEvent.groupCount = frameGroups.size();
+      frameEvent.largestSize = frameGroups.isEmpty() ? 0 : frameGroups.get(0).size();
+      frameEvent.commit();
+    }
+
+    if (timed) {
+      long analyzed = System.nanoTime();
+      if (recorder != null) recorder.record(Stage.CONVERT, decoded - read);
+      if (observer != null) {
+        observer.frameProcessed(frameNumber, decodeNanos + decoded - read, analyzed - decoded, frameGroups);
+      }
+    }
+    return frameGroups;
+  }
+
+  /**
+   * Moves the cursor to a frame with groups.
+   *
+   * @param frameNumber the one-based number of the frame
+   * @param frameGroups the frame's groups, largest first
+   */
+  private void moveTo(int frameNumber, List<Group> frameGroups) {
+    // Extract the largest group and its centroid location
+    groups = frameGroups;
+    Coordinate location = frameGroups.get(0).centroid();
+    this.frameNumber = frameNumber;
+    time = processor.getTime(frameNumber);
+    x = location.x();
+    y = location.y();
+  }
+
+  /**
+   * Commits a stage event if Flight Recorder is recording it and it exceeded its threshold.
+   *
+   * @param event the event begun before the stage
+   * @param stage the stage that just completed
+   * @param picture the frame the stage worked on
+   */
+  private static void commitStage(StageEvent event, Stage stage, Picture picture) {
+    if (event.shouldCommit()) {
+      event.stage = stage.reportName();
+      event.width = picture.getWidth();
+      event.height = picture.getHeight();
+      event.commit();
+    }
+  }
+
+  /**
+   * Returns the number of frames decoded so far.
+   *
+   * @return the count of frames read from the video
+   */
+  public int framesRead() {
+    return frameCount - 1;
+  }
+
+  /**
+   * Returns the number of frames whose groups were found so far. This equals
+   * {@link #framesRead()} unless sampling skipped frames.
+   *
+   * @return the count of frames analyzed
+   */
+  public int framesAnalyzed() {
+    return framesAnalyzed;
+  }
+
+  /**
+   * Returns the number of the current frame.
+   *
+   * @return the one-based frame number, counted from the first frame of the reader
+   */
+  public int frameNumber() {
+    return frameNumber;
+  }
+
+  /**
+   * Returns the time of the current frame.
+   *
+   * @return the time in seconds from the start of the video
+   */
+  public double time() {
+    return time;
+  }
+
+  /**
+   * Returns the centroid x coordinate of the current frame's largest group.
+   *
+   * @return the x coordinate
+   */
+  public int x() {
+    return x;
+  }
+
+  /**
+   * Returns the centroid y coordinate of the current frame's largest group.
+   *
+   * @return the y coordinate
+   */
+  public int y() {
+    return y;
+  }
+
+  /**
+   * Returns every group found in the current frame.
+   *
+   * @return the current frame's groups in descending order, largest first
+   */
+  public List<Group> groups() {
+    return groups;
+  }
+
+  /**
+   * Returns the current position as a TimedCoordinate record.
+   *
+   * @return a record holding the current time and centroid
+   */
+  public TimedCoordinate current() {
+    return new TimedCoordinate(time, new Coordinate(x, y));
+  }
+
+  /**
+   * Stops decoding and closes the frame reader. Calling this more than once has no effect.
+   *
+   * @throws IOException if the reader cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      frames.close();
+    }
+  }
+
+  /**
+   * A frame whose groups were found, waiting to be returned.
+   *
+   * @param frameNumber the one-based number of the frame
+   * @param groups the frame's groups, largest first
+   */
+  private record AnalyzedFrame(int frameNumber, List<Group> groups) {
+  }
+}
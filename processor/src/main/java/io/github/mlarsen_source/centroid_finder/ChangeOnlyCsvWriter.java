@@ -0,0 +1,195 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+/**
+ * Writes a CSV with one row per run of frames in which the target stayed put, instead of
+ * one row per frame.
+ *
+ * A run starts at a frame with the target and lasts while the centroid stays within
+ * epsilon pixels of the run's first position. It ends when the target moves further, or
+ * when it leaves the frame, which shows as a gap of more frames than a row can stand for.
+ * Each run is written as "time,x,y,duration": its first frame's time and position, and
+ * the seconds from that frame to the end of its last frame.
+ *
+ * Only the open run is kept, so memory does not grow with the video, and the number of
+ * rows written grows with how much the target moves rather than with the video's length.
+ * Only the largest group of each frame is written.
+ */
+public class ChangeOnlyCsvWriter implements DataWriter {
+
+  /** The distance in pixels from the run's first position at which a new run starts. */
+  private final double epsilon;
+
+  /** The duration of one frame in seconds. */
+  private final double frameSeconds;
+
+  /** The most frames apart two rows of the same run can be. */
+  private final int maxGap;
+
+  /** Whether a run has been started and not written yet. */
+  private boolean open;
+
+  /** The time of the open run's first frame. */
+  private double startTime;
+
+  /** The time of the open run's last frame. */
+  private double lastTime;
+
+  /** The centroid x coordinate at the start of the open run. */
+  private int x;
+
+  /** The centroid y coordinate at the start of the open run. */
+  private int y;
+
+  /** The number of rows written so far. */
+  private long rowsWritten;
+
+  /**
+   * Creates a writer for a video whose every frame is analyzed.
+   *
+   * @param epsilon the distance in pixels the centroid must move to start a new row
+   * @param fps the frame rate of the video
+   * @throws IllegalArgumentException if epsilon is negative or fps is not positive
+   */
+  public ChangeOnlyCsvWriter(double epsilon, double fps) {
+    this(epsilon, fps, 1);
+  }
+
+  /**
+   * Creates a writer for a video in which rows may be up to maxGap frames apart while
+   * the target is in the frame, as when still frames are only sampled.
+   *
+   * @param epsilon the distance in pixels the centroid must move to start a new row
+   * @param fps the frame rate of the video
+   * @param maxGap the most frames apart two rows of the same run can be, at least 1
+   * @throws IllegalArgumentException if epsilon is negative, fps is not positive or maxGap is less than 1
+   */
+  public ChangeOnlyCsvWriter(double epsilon, double fps, int maxGap) {
+    if (!(epsilon >= 0)) throw new IllegalArgumentException("Epsilon cannot be negative: " + epsilon);
+    if (!(fps > 0)) throw new IllegalArgumentException("Frame rate must be positive: " + fps);
+    if (maxGap < 1) throw new IllegalArgumentException("maxGap must be at least 1: " + maxGap);
+    this.epsilon = epsilon;
+    this.frameSeconds = 1 / fps;
+    this.maxGap = maxGap;
+  }
+
+  /**
+   * Writes the runs of a list of TimedCoordinate objects to a CSV file.
+   *
+   * @param outputPath the file path where the CSV should be written
+   * @param timedCoordinatesList the entries to write, in time order
+   * @throws IOException if the file cannot be created or written to
+   */
+  @Override
+  public void writeToCsv(String outputPath, List<TimedCoordinate> timedCoordinatesList) throws IOException {
+    CsvWriter.write(outputPath, writer -> {
+      for (TimedCoordinate tc : timedCoordinatesList) {
+        add(writer, tc.time(), tc.centroid().x(), tc.centroid().y());
+      }
+      finish(writer);
+    });
+  }
+
+  /**
+   * Writes the runs of a Trajectory to a CSV file. Entries of groups other than the
+   * largest, ranked above 1, are skipped.
+   *
+   * @param outputPath the file path where the CSV should be written
+   * @param trajectory the trajectory to write, in time order
+   * @throws IOException if the file cannot be created or written to
+   */
+  @Override
+  public void writeToCsv(String outputPath, Trajectory trajectory) throws IOException {
+    CsvWriter.write(outputPath, writer -> {
+      append(writer, trajectory);
+      finish(writer);
+    });
+  }
+
+  /**
+   * Adds the entries of a Trajectory to an open CSV, writing and flushing the runs they
+   * end. The run still open is written by {@link #finish(PrintWriter)}. Used while a
+   * growing recording is followed.
+   *
+   * @param writer the open CSV
+   * @param trajectory the entries to add, in time order
+   */
+  public void appendToCsv(PrintWriter writer, Trajectory trajectory) {
+    long before = rowsWritten;
+    append(writer, trajectory);
+    if (rowsWritten > before) writer.flush();
+  }
+
+  /**
+   * Writes the run that is still open, if any, and flushes the CSV.
+   *
+   * @param writer the open CSV
+   */
+  public void finish(PrintWriter writer) {
+    if (open) {
+      writeRun(writer);
+      open = false;
+    }
+    writer.flush();
+  }
+
+  /**
+   * Returns the number of rows written so far.
+   *
+   * @return the row count
+   */
+  public long rowsWritten() {
+    return rowsWritten;
+  }
+
+  /**
+   * Adds the largest group's entries of a Trajectory.
+   *
+   * @param writer the CSV the ended runs are written to
+   * @param trajectory the entries to add
+   */
+  private void append(PrintWriter writer, Trajectory trajectory) {
+    for (int i = 0; i < trajectory.size(); i++) {
+      if (trajectory.rank(i) <= 1) add(writer, trajectory.time(i), trajectory.x(i), trajectory.y(i));
+    }
+  }
+
+  /**
+   * Adds the target's position in one frame, writing the open run first if the position
+   * ends it.
+   *
+   * @param writer the CSV the ended run is written to
+   * @param time the frame's time in seconds
+   * @param frameX the centroid x coordinate
+   * @param frameY the centroid y coordinate
+   */
+  private void add(PrintWriter writer, double time, int frameX, int frameY) {
+    if (open) {
+      // Half a frame of slack absorbs rounding of the timestamps
+      boolean gap = time - lastTime > (maxGap + 0.5) * frameSeconds;
+      if (!gap && Math.hypot(frameX - x, frameY - y) <= epsilon) {
+        lastTime = time;
+        return;
+      }
+      writeRun(writer);
+    }
+    open = true;
+    startTime = time;
+    lastTime = time;
+    x = frameX;
+    y = frameY;
+  }
+
+  /**
+   * Writes the open run as "time,x,y,duration".
+   *
+   * @param writer the CSV
+   */
+  private void writeRun(PrintWriter writer) {
+    writer.println(String.format("%.2f,%d,%d,%.2f", startTime, x, y, lastTime - startTime + frameSeconds));
+    rowsWritten++;
+  }
+}
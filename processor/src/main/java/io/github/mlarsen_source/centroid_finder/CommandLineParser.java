@@ -1,12 +1,51 @@
 package io.github.mlarsen_source.centroid_finder;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Parses and validates command-line arguments for the VideoSummaryApp.
  * 
  * This class checks the input video file, output file path, hex color value,
  * and threshold value to ensure all arguments are valid before the program runs.
+ * 
+ * The four positional arguments may be followed by optional flags, each given as
+ * "--name value", or as "--name" alone for on/off switches:
+ * 
+ * --top-k N            report the N largest groups per frame (adds a rank column when N > 1)
+ * --min-group-size N   ignore groups with fewer than N pixels
+ * --progress-events MS write JSON-lines progress events to stdout at most every MS milliseconds
+ * --perf-report        write per-stage latency percentiles to a .perf.json file next to the CSV
+ * --resource-report    write the job's CPU time, allocation, heap and GC use to a .resources.json file
+ * --decoder NAME       decode with auto (the default), jcodec or ffmpeg
+ * --pixel-format FMT   the raw format ffmpeg sends frames in: rgb24 (the default) or yuv420p
+ * --input-format FMT   read the input as mp4, y4m or raw frames; inferred from the path by default
+ * --frame-size WxH     the size of raw input frames
+ * --frame-rate FPS     the frame rate of raw input, as a number or a fraction such as 30000/1001
+ * --raw-pixel-format F the pixel format of raw input: yuv420p (the default), yuv422p, rgb24, bgr24 or gray
+ * --frame-threads N    binarize and label each frame in N parallel stripes
+ * --start-frame N      skip the frames before frame N, counted from 0
+ * --end-frame N        stop before frame N
+ * --follow             follow a fragmented MP4 recording as it grows, appending rows as frames arrive
+ * --idle-timeout S     stop following when the recording has not grown for S seconds (default 30)
+ * --end-marker FILE    stop following once FILE exists and the frames written before it are processed
+ * --time-budget MS     process as much of the video as MS milliseconds allow, sparse samples first,
+ *                      and write the achieved coverage to a .coverage.json file
+ * --sample-every N     analyze every Nth frame while the target stands still, and the frames
+ *                      in between when it moves
+ * --motion-threshold PX the centroid movement between samples that counts as motion (default 3)
+ * --crop X,Y,W,H       analyze only the W by H rectangle whose top-left pixel is (X,Y)
+ * --mask-polygon X1,Y1,X2,Y2,X3,Y3,...  analyze only the pixels inside the polygon
+ * --learn-background N sample N frames first and leave out the pixels that match the target
+ *                      in nearly all of them
+ * --background-threshold PCT the percentage of samples a pixel must match in to be left out (default 90)
+ * --heatmap CELL       write a heatmap of where the target spent its time, in CELL pixel cells,
+ *                      and its path length and time in frame, next to the CSV
+ * --change-only EPS    write a row with a duration only when the centroid moves more than EPS
+ *                      pixels or the target appears, instead of a row per frame
+ * 
+ * The input video may be "-" to read a Y4M or raw stream from standard input.
  */
 public class CommandLineParser implements ArgumentParser {
 
@@ -22,17 +61,31 @@ public class CommandLineParser implements ArgumentParser {
     /** The numeric threshold value used for image processing. */
     private final int threshold;
 
+    /** The optional settings given as flags after the positional arguments. */
+    private final ProcessingOptions options = new ProcessingOptions();
+
+    /** The usage message shown when the arguments are malformed. */
+    private static final String USAGE =
+        "Usage: java VideoSummaryApp <input_video> <output_csv> <hex_target_color> <threshold>"
+        + " [--top-k N] [--min-group-size N] [--progress-events MS] [--perf-report] [--resource-report]"
+        + " [--decoder auto|jcodec|ffmpeg] [--pixel-format rgb24|yuv420p]"
+        + " [--input-format mp4|y4m|raw] [--frame-size WxH] [--frame-rate FPS] [--raw-pixel-format FMT]"
+        + " [--frame-threads N] [--start-frame N] [--end-frame N]"
+        + " [--follow] [--idle-timeout SECONDS] [--end-marker FILE] [--time-budget MS]"
+        + " [--sample-every N] [--motion-threshold PX] [--crop X,Y,W,H] [--mask-polygon X1,Y1,X2,Y2,X3,Y3,...]"
+        + " [--learn-background N] [--background-threshold PCT] [--heatmap CELL]"
+        + " [--change-only EPS]";
+
     /**
      * Creates a CommandLineParser object and validates the arguments.
      * 
-     * @param args an array containing four arguments: input video, output CSV, hex target color, and threshold value
+     * @param args four arguments (input video, output CSV, hex target color, and threshold value)
+     *             followed by optional "--name value" flags
      * @throws IllegalArgumentException if any argument is missing or invalid
      */
     public CommandLineParser(String[] args) {
-        if (args.length != 4) {
-            throw new IllegalArgumentException(
-                "Usage: java VideoSummaryApp <input_video> <output_csv> <hex_target_color> <threshold>"
-            );
+        if (args.length < 4) {
+            throw new IllegalArgumentException(USAGE);
         }
 
         this.videoPath = args[0];
@@ -40,24 +93,276 @@ public class CommandLineParser implements ArgumentParser {
         this.targetColor = checkHexTargetColor(args[2]);
         this.threshold = checkThreshold(args[3]);
 
+        parseOptions(args, 4);
         checkArguments();
     }
 
+    /**
+     * Parses the optional flags that follow the positional arguments.
+     * 
+     * @param args the full argument array
+     * @param start the index of the first flag
+     * @throws IllegalArgumentException if a flag is unknown, is missing its value, or has an invalid value
+     */
+    private void parseOptions(String[] args, int start) {
+        int i = start;
+        while (i < args.length) {
+            String flag = args[i++];
+            if (!flag.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + flag + "\n" + USAGE);
+            }
+
+            // Switches take no value
+            if (isSwitch(flag)) {
+                switch (flag) {
+                    case "--perf-report" -> options.setPerfReport(true);
+                    case "--resource-report" -> options.setResourceReport(true);
+                    case "--follow" -> options.setFollow(true);
+                    default -> throw new IllegalStateException(flag);
+                }
+                continue;
+            }
+
+            if (i >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + flag);
+            }
+            String value = args[i++];
+
+            switch (flag) {
+                case "--top-k" -> options.setTopK(checkInteger(flag, value));
+                case "--min-group-size" -> options.setMinGroupSize(checkInteger(flag, value));
+                case "--progress-events" -> options.setProgressIntervalMillis(checkInteger(flag, value));
+                case "--decoder" -> options.setDecoder(value);
+                case "--pixel-format" -> options.setPixelFormat(FfmpegFrameDecoder.PixelFormat.fromOptionName(value));
+                case "--input-format" -> options.setInputFormat(InputFormat.fromName(value));
+                case "--frame-size" -> setFrameSize(value);
+                case "--frame-rate" -> options.setFrameRate(checkFrameRate(value));
+                case "--raw-pixel-format" -> options.setRawPixelFormat(RawPixelFormat.fromName(value));
+                case "--frame-threads" -> options.setFrameThreads(checkInteger(flag, value));
+                case "--start-frame" -> options.setStartFrame(checkInteger(flag, value));
+                case "--end-frame" -> options.setEndFrame(checkInteger(flag, value));
+                case "--idle-timeout" -> options.setIdleTimeoutMillis(checkInteger(flag, value) * 1000L);
+                case "--end-marker" -> options.setEndMarker(value);
+                case "--time-budget" -> options.setTimeBudgetMillis(checkInteger(flag, value));
+                case "--sample-every" -> options.setSampleInterval(checkInteger(flag, value));
+                case "--motion-threshold" -> options.setMotionThreshold(checkDouble(flag, value));
+                case "--crop" -> setCrop(value);
+                case "--mask-polygon" -> setMaskPolygon(value);
+                case "--learn-background" -> options.setBackgroundSamples(checkInteger(flag, value));
+                case "--background-threshold" -> options.setBackgroundFraction(checkInteger(flag, value) / 100.0);
+                case "--heatmap" -> options.setHeatmapCellSize(checkInteger(flag, value));
+                case "--change-only" -> options.setChangeEpsilon(checkDouble(flag, value));
+                default -> throw new IllegalArgumentException("Unknown option: " + flag + "\n" + USAGE);
+            }
+        }
+    }
+
+    /**
+     * Returns whether a flag is an on/off switch that takes no value.
+     * 
+     * @param flag the flag including its leading dashes
+     * @return true if the flag is given without a value
+     */
+    public static boolean isSwitch(String flag) {
+        return flag.equals("--perf-report") || flag.equals("--resource-report") || flag.equals("--follow");
+    }
+
+    /**
+     * Converts a flag value from string to integer.
+     * 
+     * @param flag the flag the value belongs to, used in the error message
+     * @param value the value provided as a string
+     * @return the value as an integer
+     * @throws IllegalArgumentException if the value is not an integer
+     */
+    private int checkInteger(String flag, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(flag + " must be an integer: " + value);
+        }
+    }
+
+    /**
+     * Converts a flag value from string to a finite number.
+     *
+     * @param flag the flag the value belongs to, used in the error message
+     * @param value the value provided as a string
+     * @return the value as a double
+     * @throws IllegalArgumentException if the value is not a finite number
+     */
+    private double checkDouble(String flag, String value) {
+        try {
+            double number = Double.parseDouble(value);
+            if (Double.isFinite(number)) return number;
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(flag + " must be a number: " + value);
+    }
+
+    /**
+     * Parses a frame size given as WIDTHxHEIGHT.
+     * 
+     * @param value the size, such as 1920x1080
+     * @throws IllegalArgumentException if the size is malformed or not positive
+     */
+    private void setFrameSize(String value) {
+        int x = value.indexOf('x');
+        if (x < 0) {
+            throw new IllegalArgumentException("--frame-size must be WIDTHxHEIGHT: " + value);
+        }
+        options.setFrameSize(checkInteger("--frame-size", value.substring(0, x)),
+            checkInteger("--frame-size", value.substring(x + 1)));
+    }
+
+    /**
+     * Parses a crop rectangle given as X,Y,WIDTH,HEIGHT.
+     *
+     * @param value the rectangle, such as 0,120,1920,840
+     * @throws IllegalArgumentException if the rectangle is malformed or out of range
+     */
+    private void setCrop(String value) {
+        int[] numbers = checkIntegerList("--crop", value);
+        if (numbers.length != 4) {
+            throw new IllegalArgumentException("--crop must be X,Y,WIDTH,HEIGHT: " + value);
+        }
+        options.setCrop(numbers[0], numbers[1], numbers[2], numbers[3]);
+    }
+
+    /**
+     * Parses a polygon given as a comma-separated list of vertex coordinates.
+     *
+     * @param value the vertices, such as 0,0,640,0,320,480
+     * @throws IllegalArgumentException if the list is malformed or has fewer than 3 vertices
+     */
+    private void setMaskPolygon(String value) {
+        int[] numbers = checkIntegerList("--mask-polygon", value);
+        if (numbers.length % 2 != 0) {
+            throw new IllegalArgumentException("--mask-polygon must be X1,Y1,X2,Y2,...: " + value);
+        }
+        List<Coordinate> vertices = new ArrayList<>();
+        for (int i = 0; i < numbers.length; i += 2) {
+            vertices.add(new Coordinate(numbers[i], numbers[i + 1]));
+        }
+        options.setMaskPolygon(vertices);
+    }
+
+    /**
+     * Parses a comma-separated list of integers.
+     *
+     * @param flag the flag the list was given for, used in error messages
+     * @param value the list
+     * @return the integers in order
+     * @throws IllegalArgumentException if an element is not an integer
+     */
+    private int[] checkIntegerList(String flag, String value) {
+        String[] parts = value.split(",", -1);
+        int[] numbers = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            numbers[i] = checkInteger(flag, parts[i].strip());
+        }
+        return numbers;
+    }
+
+    /**
+     * Parses a frame rate given as a number or a fraction.
+     * 
+     * @param value the rate, such as 25, 29.97 or 30000/1001
+     * @return the frames per second
+     * @throws IllegalArgumentException if the rate is malformed
+     */
+    private double checkFrameRate(String value) {
+        try {
+            int slash = value.indexOf('/');
+            if (slash < 0) return Double.parseDouble(value);
+            return Double.parseDouble(value.substring(0, slash)) / Double.parseDouble(value.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--frame-rate must be a number or a fraction: " + value);
+        }
+    }
+
     /**
      * Checks that the provided file paths and extensions are valid.
      * 
      * @throws IllegalArgumentException if any validation check fails
      */
     private void checkArguments() {
+        InputFormat format = options.inputFormatFor(videoPath);
         File video = new File(videoPath);
-        if (!video.exists()) {
+        if (!(format != InputFormat.MP4 && videoPath.equals(StreamVideoProcessor.STDIN)) && !video.exists()) {
             throw new IllegalArgumentException("No such file path exists: " + videoPath);
         }
 
-        String[] extension = videoPath.split("\\.");
-        String ext = extension[extension.length - 1].toLowerCase();
-        if (!ext.equals("mp4")) {
-            throw new IllegalArgumentException("Video type must be mp4: " + videoPath);
+        if (format == InputFormat.MP4) {
+            String[] extension = videoPath.split("\\.");
+            String ext = extension[extension.length - 1].toLowerCase();
+            if (!ext.equals("mp4")) {
+                throw new IllegalArgumentException("Video type must be mp4: " + videoPath);
+            }
+        }
+
+        if (format == InputFormat.RAW && (options.getFrameWidth() == 0 || options.getFrameRate() == 0)) {
+            throw new IllegalArgumentException("Raw input needs --frame-size and --frame-rate");
+        }
+
+        if (options.hasFrameRange()) {
+            if (format != InputFormat.MP4) {
+                throw new IllegalArgumentException("--start-frame and --end-frame need MP4 input");
+            }
+            if (options.getDecoder().equals(FrameDecoder.FFMPEG)) {
+                throw new IllegalArgumentException("--start-frame and --end-frame decode with jcodec");
+            }
+            if (options.getEndFrame() != -1 && options.getEndFrame() <= options.getStartFrame()) {
+                throw new IllegalArgumentException("--end-frame must be greater than --start-frame");
+            }
+        }
+
+        if (options.isFollow()) {
+            if (format != InputFormat.MP4) {
+                throw new IllegalArgumentException("--follow needs a fragmented MP4 file");
+            }
+            if (options.getDecoder().equals(FrameDecoder.FFMPEG)) {
+                throw new IllegalArgumentException("--follow decodes with jcodec");
+            }
+            if (options.hasFrameRange()) {
+                throw new IllegalArgumentException("--follow cannot be combined with --start-frame or --end-frame");
+            }
+        }
+
+        if (options.hasTimeBudget()) {
+            if (format != InputFormat.MP4) {
+                throw new IllegalArgumentException("--time-budget needs MP4 input");
+            }
+            if (options.getDecoder().equals(FrameDecoder.FFMPEG)) {
+                throw new IllegalArgumentException("--time-budget decodes with jcodec");
+            }
+            if (options.hasFrameRange() || options.isFollow()) {
+                throw new IllegalArgumentException("--time-budget cannot be combined with --start-frame, --end-frame or --follow");
+            }
+            if (options.getSampleInterval() > 1) {
+                throw new IllegalArgumentException("--time-budget cannot be combined with --sample-every");
+            }
+            if (options.hasHeatmap()) {
+                throw new IllegalArgumentException("--time-budget cannot be combined with --heatmap");
+            }
+            if (options.isChangeOnly()) {
+                // Sparse samples would each become a run one frame long
+                throw new IllegalArgumentException("--time-budget cannot be combined with --change-only");
+            }
+        }
+
+        if (options.hasBackgroundLearning()) {
+            if (format != InputFormat.MP4) {
+                throw new IllegalArgumentException("--learn-background needs MP4 input");
+            }
+            if (options.isFollow()) {
+                throw new IllegalArgumentException("--learn-background cannot be combined with --follow");
+            }
+        }
+
+        if (options.isChangeOnly() && options.getTopK() > 1) {
+            throw new IllegalArgumentException("--change-only writes only the largest group and cannot be combined with --top-k");
         }
 
         File outFile = new File(outputPath);
@@ -167,4 +472,13 @@ public class CommandLineParser implements ArgumentParser {
     public int getThreshold() {
         return threshold;
     }
+
+    /**
+     * Returns the optional settings given as flags.
+     * 
+     * @return the processing options, with defaults for flags that were not given
+     */
+    public ProcessingOptions getOptions() {
+        return options;
+    }
 }
@@ -5,36 +5,100 @@ import java.io.PrintWriter;
 import java.time.Duration;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Writes the generated list of TimedCoordinate records to a CSV file.
  */
 public class CsvWriter implements DataWriter{
 
+  /** Whether trajectory rows get a trailing rank column. */
+  private final boolean includeRank;
+
+  /**
+   * Creates a writer that writes "time,x,y" rows.
+   */
+  public CsvWriter() {
+    this(false);
+  }
+
+  /**
+   * Creates a writer that optionally appends each trajectory entry's rank within its
+   * frame, writing "time,x,y,rank" rows. Used when more than one group is reported per frame.
+   *
+   * @param includeRank true to write the rank column for trajectories
+   */
+  public CsvWriter(boolean includeRank) {
+    this.includeRank = includeRank;
+  }
+
   /**
    * Writes a list of TimedCoordinate objects to a CSV file.
-   * 
+   *
    * @param outputPath the file path where the CSV should be written
    * @param timedCoordinatesList the list of TimedCoordinate objects to write
    * @throws IOException if the file cannot be created or written to
    */
   public void writeToCsv(String outputPath, List<TimedCoordinate> timedCoordinatesList) throws IOException {
-    LocalTime startTime = LocalTime.now();
-
-    try (PrintWriter writer = new PrintWriter(outputPath)) {
+    write(outputPath, writer -> {
       for (TimedCoordinate tc : timedCoordinatesList) {
         writer.println(tc.toCsvRow());
       }
+    });
+  }
+
+  /**
+   * Writes the entries of a Trajectory to a CSV file, reading them straight from its
+   * primitive arrays without creating TimedCoordinate records.
+   *
+   * @param outputPath the file path where the CSV should be written
+   * @param trajectory the trajectory to write
+   * @throws IOException if the file cannot be created or written to
+   */
+  public void writeToCsv(String outputPath, Trajectory trajectory) throws IOException {
+    write(outputPath, writer -> {
+      for (int i = 0; i < trajectory.size(); i++) {
+        writer.println(trajectory.toCsvRow(i, includeRank));
+      }
+    });
+  }
+
+  /**
+   * Appends the entries of a Trajectory to an open CSV and flushes them, so the rows are
+   * on disk as soon as they are written. Used while a growing recording is followed.
+   *
+   * @param writer the open CSV
+   * @param trajectory the entries to append
+   */
+  public void appendToCsv(PrintWriter writer, Trajectory trajectory) {
+    for (int i = 0; i < trajectory.size(); i++) {
+      writer.println(trajectory.toCsvRow(i, includeRank));
+    }
+    writer.flush();
+  }
+
+  /**
+   * Opens the output file, writes the rows and reports where the results were saved and
+   * how long writing took. Errors are logged rather than thrown.
+   *
+   * @param outputPath the file path where the CSV should be written
+   * @param rows writes the CSV rows to the given writer
+   */
+  static void write(String outputPath, Consumer<PrintWriter> rows) {
+    LocalTime startTime = LocalTime.now();
+
+    try (PrintWriter writer = new PrintWriter(outputPath)) {
+      rows.accept(writer);
 
       System.out.println("TimedCoordinate results saved at " + outputPath);
 
       LocalTime endTime = LocalTime.now();
       System.out.println("Duration: " + Duration.between(startTime, endTime));
-    } 
-    
+    }
+
     catch (Exception e) {
       System.err.println("Error writing " + outputPath);
       e.printStackTrace();
     }
   }
-}
\ No newline at end of file
+}
@@ -16,4 +16,13 @@ public interface DataWriter {
      * @throws IOException if the data cannot be written
      */
     void writeToCsv(String outputPath, List<TimedCoordinate> timedCoordinatesList) throws IOException;
+
+    /**
+     * Writes a Trajectory to an output destination.
+     * 
+     * @param outputPath the path where the data should be written
+     * @param trajectory the trajectory whose entries should be written, in order
+     * @throws IOException if the data cannot be written
+     */
+    void writeToCsv(String outputPath, Trajectory trajectory) throws IOException;
 }
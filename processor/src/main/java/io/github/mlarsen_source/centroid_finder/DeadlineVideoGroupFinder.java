@@ -0,0 +1,329 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
+
+import org.jcodec.api.JCodecException;
+import org.jcodec.common.model.Picture;
+
+/**
+ * Finds the centroids of as much of an MP4 video as can be processed before a deadline,
+ * spreading the processed frames over the whole video.
+ *
+ * Processing runs in two passes. The first pass analyzes every keyframe, which can be
+ * decoded on its own, so even a short budget samples the whole video evenly. The second
+ * pass fills in the frames between keyframes one group of pictures at a time. Both
+ * passes visit the groups in bisection order (first, last, middle, quarters, and so on),
+ * so the processed frames stay spread out whenever the deadline stops them. Frames are
+ * decoded exactly as in a run over the whole video, so the centroids and timestamps of
+ * every processed frame are the same as in such a run.
+ *
+ * A run keeps one JCodec reader open and seeks it from one range to the next, and skips
+ * the seek when the reader already stands at the start of the range, so the container
+ * is parsed and the decoder set up only once. A fill still decodes its keyframe, which
+ * the frames after it are predicted from, but does not analyze it again.
+ *
+ * After a run, {@link #coverage()} tells how much of the video was processed.
+ */
+public class DeadlineVideoGroupFinder {
+
+    /** The video, which is decoded with JCodec so it can be sought. */
+    private final Mp4VideoProcessor video;
+
+    /** Finds connected groups in each frame. */
+    private final ImageGroupFinder groupFinder;
+
+    /** The number of largest groups recorded per frame. */
+    private final int groupsPerFrame;
+
+    /** Returns the current time in nanoseconds. */
+    private final LongSupplier clock;
+
+    /** Notified of every processed frame, or null. */
+    private FrameObserver observer;
+
+    /** Receives the decode and convert time of every frame, or null. */
+    private StageRecorder recorder;
+
+    /** The frame the current run's reader returns next. */
+    private int readerFrame;
+
+    /** Which frames the last run processed. */
+    private boolean[] processed = new boolean[0];
+
+    /** The number of keyframes in the video. */
+    private int keyframes;
+
+    /** The number of keyframes the last run processed. */
+    private int keyframesProcessed;
+
+    /** The number of groups of pictures the last run processed completely. */
+    private int segmentsCompleted;
+
+    /** How long the last run took, in nanoseconds. */
+    private long elapsedNanos;
+
+    /**
+     * Creates a finder that records up to the given number of largest groups per frame.
+     *
+     * @param video the video, whose frames are decoded with JCodec
+     * @param groupFinder finds connected groups in each frame
+     * @param groupsPerFrame the maximum number of groups recorded per frame, at least 1
+     * @throws IllegalArgumentException if groupsPerFrame is less than 1
+     */
+    public DeadlineVideoGroupFinder(Mp4VideoProcessor video, ImageGroupFinder groupFinder, int groupsPerFrame) {
+        this(video, groupFinder, groupsPerFrame, System::nanoTime);
+    }
+
+    /**
+     * Creates a finder that reads the time from the given clock.
+     *
+     * @param video the video, whose frames are decoded with JCodec
+     * @param groupFinder finds connected groups in each frame
+     * @param groupsPerFrame the maximum number of groups recorded per frame, at least 1
+     * @param clock returns the current time in nanoseconds
+     * @throws IllegalArgumentException if groupsPerFrame is less than 1
+     */
+    DeadlineVideoGroupFinder(Mp4VideoProcessor video, ImageGroupFinder groupFinder, int groupsPerFrame,
+            LongSupplier clock) {
+        if (groupsPerFrame < 1) throw new IllegalArgumentException("groupsPerFrame must be at least 1");
+        this.video = video;
+        this.groupFinder = groupFinder;
+        this.groupsPerFrame = groupsPerFrame;
+        this.clock = clock;
+    }
+
+    /**
+     * Attaches an observer that is notified of every frame processed by later runs.
+     *
+     * @param observer the observer, or null to detach
+     */
+    public void setObserver(FrameObserver observer) {
+        this.observer = observer;
+    }
+
+    /**
+     * Attaches a recorder that receives the decode and convert time of every frame
+     * processed by later runs.
+     *
+     * @param recorder the recorder, or null to detach
+     */
+    public void setStageRecorder(StageRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Processes frames until the deadline or the end of the video and returns the
+     * centroids found, sorted by time. Frames with no detected groups are skipped, and
+     * with more than one group per frame each frame contributes one entry per group,
+     * largest first, as in {@link Mp4VideoGroupFinder#getTrajectory()}.
+     *
+     * @param deadlineNanos the time, on the System.nanoTime scale, after which no frame is started
+     * @return the centroids of the processed frames in time order
+     * @throws IOException if an error occurs while reading the video file
+     * @throws JCodecException if an error occurs while decoding video frames
+     */
+    public Trajectory getTrajectory(long deadlineNanos) throws IOException, JCodecException {
+        long start = clock.getAsLong();
+        int totalFrames = video.getTotalFrames();
+        int[] starts = Arrays.stream(video.getKeyframes()).filter(frame -> frame < totalFrames).toArray();
+        if (starts.length == 0 || starts[0] != 0) {
+            // Frames before the first keyframe can only be decoded from the start
+            starts = IntStream.concat(IntStream.of(0), Arrays.stream(starts)).toArray();
+        }
+        processed = new boolean[totalFrames];
+        keyframes = starts.length;
+        keyframesProcessed = 0;
+        segmentsCompleted = 0;
+
+        int[] order = spreadOrder(starts.length);
+        Trajectory[] keyframeRows = new Trajectory[starts.length];
+        Trajectory[] fillRows = new Trajectory[starts.length];
+        boolean expired = false;
+        try (JCodecFrameReader reader = video.openFrames(0)) {
+            readerFrame = 0;
+            for (int i = 0; i < order.length && !expired; i++) {
+                int segment = order[i];
+                keyframeRows[segment] = new Trajectory();
+                expired = process(reader, starts[segment], starts[segment] + 1, keyframeRows[segment],
+                    deadlineNanos) < 1;
+                if (!expired) keyframesProcessed++;
+            }
+            for (int i = 0; i < order.length && !expired; i++) {
+                int segment = order[i];
+                int from = starts[segment] + 1;
+                int to = segment + 1 < starts.length ? starts[segment + 1] : totalFrames;
+                if (from < to) {
+                    fillRows[segment] = new Trajectory();
+                    expired = process(reader, from, to, fillRows[segment], deadlineNanos) < to - from;
+                }
+                if (!expired) segmentsCompleted++;
+            }
+        }
+
+        Trajectory trajectory = new Trajectory();
+        for (int segment = 0; segment < starts.length; segment++) {
+            append(trajectory, keyframeRows[segment]);
+            append(trajectory, fillRows[segment]);
+        }
+        elapsedNanos = clock.getAsLong() - start;
+        return trajectory;
+    }
+
+    /**
+     * Processes a range of frames until its end or the deadline, moving the run's reader
+     * to the start of the range first unless it already stands there.
+     *
+     * @param reader the run's reader, which stays open
+     * @param from the zero-based index of the first frame
+     * @param to the zero-based index one past the last frame
+     * @param rows receives the centroids
+     * @param deadlineNanos the time after which no frame is started
+     * @return the number of frames processed
+     * @throws IOException if an error occurs while reading the video file
+     * @throws JCodecException if an error occurs while decoding video frames
+     */
+    private int process(JCodecFrameReader reader, int from, int to, Trajectory rows, long deadlineNanos)
+            throws IOException, JCodecException {
+        if (clock.getAsLong() - deadlineNanos >= 0) return 0;
+        if (readerFrame != from) {
+            reader.seek(from);
+            readerFrame = from;
+        }
+        // The range only shifts frame numbers to timestamps; frames come from the reader
+        FrameRangeVideoProcessor range = new FrameRangeVideoProcessor(video, from, to);
+        int[] decoded = new int[1];
+        FrameReader limited = new FrameReader() {
+            @Override
+            public Picture readFrame() throws IOException {
+                if (decoded[0] == to - from || clock.getAsLong() - deadlineNanos >= 0) return null;
+                Picture picture = reader.readFrame();
+                if (picture != null) {
+                    decoded[0]++;
+                    readerFrame++;
+                }
+                return picture;
+            }
+
+            @Override
+            public void close() {
+                // The reader stays open for the next range
+            }
+        };
+
+        try (CentroidCursor cursor = new CentroidCursor(limited, groupFinder, range)) {
+            cursor.setObserver(observer);
+            cursor.setStageRecorder(recorder);
+            while (cursor.next()) {
+                if (groupsPerFrame == 1) {
+                    rows.add(cursor.time(), cursor.x(), cursor.y());
+                } else {
+                    List<Group> groups = cursor.groups();
+                    int count = Math.min(groupsPerFrame, groups.size());
+                    for (int rank = 1; rank <= count; rank++) {
+                        Coordinate centroid = groups.get(rank - 1).centroid();
+                        rows.add(cursor.time(), centroid.x(), centroid.y(), rank);
+                    }
+                }
+            }
+        }
+        Arrays.fill(processed, from, from + decoded[0], true);
+        return decoded[0];
+    }
+
+    /**
+     * Appends the entries of one trajectory to another.
+     *
+     * @param trajectory the trajectory to append to
+     * @param rows the entries to append, or null for none
+     */
+    private static void append(Trajectory trajectory, Trajectory rows) {
+        if (rows == null) return;
+        for (int i = 0; i < rows.size(); i++) {
+            trajectory.add(rows.time(i), rows.x(i), rows.y(i), rows.rank(i));
+        }
+    }
+
+    /**
+     * Orders the indexes 0 to count - 1 so that every prefix is spread evenly over the
+     * range: the bit-reversal permutation of the next power of two, without the indexes
+     * past the end.
+     *
+     * @param count the number of indexes
+     * @return the indexes in visiting order
+     */
+    static int[] spreadOrder(int count) {
+        if (count <= 1) return count == 1 ? new int[] {0} : new int[0];
+        int bits = 32 - Integer.numberOfLeadingZeros(count - 1);
+        int[] order = new int[count];
+        int next = 0;
+        for (int i = 0; i < 1 << bits; i++) {
+            int index = Integer.reverse(i) >>> (32 - bits);
+            if (index < count) order[next++] = index;
+        }
+        return order;
+    }
+
+    /**
+     * Describes how much of the video the last run processed: the processed and total
+     * frame counts, the sampling density as their ratio, the keyframes and complete
+     * groups of pictures processed, the longest stretch of unprocessed video in seconds,
+     * whether every frame was processed, and how long the run took.
+     *
+     * @return the report members in order, ready for {@link Json#write(Object)}
+     */
+    public Map<String, Object> coverage() {
+        int done = 0;
+        int gap = 0;
+        int longestGap = 0;
+        for (boolean frame : processed) {
+            if (frame) {
+                done++;
+                gap = 0;
+            } else {
+                longestGap = Math.max(longestGap, ++gap);
+            }
+        }
+        double fps = video.getFps();
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("totalFrames", processed.length);
+        report.put("processedFrames", done);
+        report.put("density", processed.length == 0 ? 1.0 : Math.round(10_000.0 * done / processed.length) / 10_000.0);
+        report.put("keyframes", keyframes);
+        report.put("keyframesProcessed", keyframesProcessed);
+        report.put("segmentsCompleted", segmentsCompleted);
+        report.put("longestGapSeconds", fps > 0 ? Math.round(100 * longestGap / fps) / 100.0 : null);
+        report.put("complete", done == processed.length);
+        report.put("processingSeconds", Math.round(elapsedNanos / 1e7) / 100.0);
+        return report;
+    }
+
+    /**
+     * Writes the coverage of the last run as JSON.
+     *
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeCoverage(Path path) throws IOException {
+        Files.writeString(path, Json.write(coverage()) + System.lineSeparator());
+    }
+
+    /**
+     * Returns the path of the coverage report written next to an output file: the output
+     * path with its extension replaced by ".coverage.json".
+     *
+     * @param outputPath the output CSV path
+     * @return the report path
+     */
+    public static Path reportPathFor(String outputPath) {
+        return Path.of(PerformanceRecorder.sidecarPath(outputPath, ".coverage.json"));
+    }
+}
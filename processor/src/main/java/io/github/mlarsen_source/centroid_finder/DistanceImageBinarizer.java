@@ -1,6 +1,10 @@
 package io.github.mlarsen_source.centroid_finder;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.util.Arrays;
 
 /**
  * An implementation of the ImageBinarizer interface that uses color distance
@@ -47,17 +51,230 @@ public class DistanceImageBinarizer implements ImageBinarizer {
      */
     @Override
     public int[][] toBinaryArray(BufferedImage image) {
+        return toBinaryArray(image, null);
+    }
+
+    /**
+     * Converts the given BufferedImage into a binary 2D array, writing into the provided array
+     * when its dimensions match the image.
+     *
+     * Pixels are read a row at a time. TYPE_3BYTE_BGR and TYPE_INT_RGB images, which are what
+     * decoded frames and test images use, are read straight from their backing arrays; other
+     * image types go through getRGB with a reused row buffer.
+     *
+     * A binarization slower than the StageEvent threshold is reported to Flight Recorder.
+     *
+     * @param image the input RGB BufferedImage
+     * @param reuse an array of [height][width] to write into, or null to allocate a new one
+     * @return a 2D binary array where 1 represents white and 0 represents black
+     */
+    @Override
+    public int[][] toBinaryArray(BufferedImage image, int[][] reuse) {
+        StageEvent event = new StageEvent();
+        event.begin();
+        int[][] binary = binarize(image, reuse);
+        if (event.shouldCommit()) {
+            event.stage = Stage.BINARIZE.reportName();
+            event.width = image.getWidth();
+            event.height = image.getHeight();
+            event.commit();
+        }
+        return binary;
+    }
+
+    /**
+     * Binarizes only the pixels inside a region's spans, as described by
+     * {@link ImageBinarizer#toBinaryArray(BufferedImage, RegionMask, int[][])}. The distance
+     * to the target color is never computed for pixels outside the region.
+     *
+     * @param image the input RGB BufferedImage
+     * @param region the region to binarize, compiled for the image's size
+     * @param reuse an array of the bounding box size to write into, or null to allocate a new one
+     * @return a binary array of the region's bounding box
+     * @throws IllegalArgumentException if the region was compiled for another image size
+     */
+    @Override
+    public int[][] toBinaryArray(BufferedImage image, RegionMask region, int[][] reuse) {
         if (image == null) throw new NullPointerException("image cannot be null.");
-        if (image.getWidth() == 0 || image.getHeight() == 0) throw new IllegalArgumentException("image cannot have zero width or height.");
-        int[][] image2 = new int[image.getHeight()][image.getWidth()];
-        for (int row = 0; row < image.getHeight(); row++) {
-            for (int col = 0; col < image.getWidth(); col++) {
-                int color = image.getRGB(col, row);
-                int hexColor = color & 0x00ffffff;
-                double distance = distanceFinder.distance(hexColor,targetColor);
-                if(distance < threshold) image2[row][col] = 1;
+        region.checkFrameSize(image.getWidth(), image.getHeight());
+        StageEvent event = new StageEvent();
+        event.begin();
+        int[][] binary = region.boxArray(reuse);
+        binarizeRegionRows(image, region, binary, 0, region.height());
+        if (event.shouldCommit()) {
+            event.stage = Stage.BINARIZE.reportName();
+            event.width = region.width();
+            event.height = region.height();
+            event.commit();
+        }
+        return binary;
+    }
+
+    /**
+     * Binarizes a range of a region's bounding box rows into an existing array, leaving the
+     * other rows untouched. Disjoint ranges of the same image can be binarized concurrently.
+     *
+     * @param image the input RGB BufferedImage
+     * @param region the region, compiled for the image's size
+     * @param out an array of the bounding box size to write into
+     * @param fromRow the first bounding box row to binarize
+     * @param toRow one past the last bounding box row to binarize
+     * @throws IllegalArgumentException if out does not match the bounding box or the range is out of bounds
+     */
+    public void binarizeRegionRows(BufferedImage image, RegionMask region, int[][] out, int fromRow, int toRow) {
+        int width = image.getWidth();
+        int left = region.left();
+        if (out.length != region.height() || out[0].length != region.width()) {
+            throw new IllegalArgumentException("out must have the same dimensions as the region's bounding box.");
+        }
+        if (fromRow < 0 || toRow > out.length || fromRow > toRow) {
+            throw new IllegalArgumentException("Row range out of bounds: " + fromRow + " to " + toRow);
+        }
+
+        byte[] bgrData = directBgrData(image);
+        int[] rgbData = bgrData == null ? directRgbData(image) : null;
+        int[] rowBuffer = bgrData == null && rgbData == null ? new int[width] : null;
+
+        for (int boxRow = fromRow; boxRow < toRow; boxRow++) {
+            int row = region.top() + boxRow;
+            int[] binaryRow = out[boxRow];
+            if (rowBuffer != null) {
+                image.getRGB(0, row, width, 1, rowBuffer, 0, width);
+            }
+            int col = left;
+            for (int span = region.firstSpan(boxRow); span < region.endSpan(boxRow); span++) {
+                int from = region.spanFrom(span);
+                int to = region.spanTo(span);
+                Arrays.fill(binaryRow, col - left, from - left, 0);
+                binarizeSpan(image, bgrData, rgbData, rowBuffer, row, from, to, binaryRow, left);
+                col = to;
             }
+            Arrays.fill(binaryRow, col - left, binaryRow.length, 0);
+        }
+    }
+
+    /**
+     * Binarizes an image as described by {@link #toBinaryArray(BufferedImage, int[][])}.
+     *
+     * @param image the input RGB BufferedImage
+     * @param reuse an array of [height][width] to write into, or null to allocate a new one
+     * @return a 2D binary array where 1 represents white and 0 represents black
+     */
+    private int[][] binarize(BufferedImage image, int[][] reuse) {
+        if (image == null) throw new NullPointerException("image cannot be null.");
+        if (image.getWidth() == 0 || image.getHeight() == 0) throw new IllegalArgumentException("image cannot have zero width or height.");
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[][] image2 = reuse;
+        if (image2 == null || image2.length != height || image2[0].length != width) {
+            image2 = new int[height][width];
         }
+        binarizeRows(image, image2, 0, height);
         return image2;
     }
+
+    /**
+     * Binarizes a range of rows of an image into an existing array, leaving the other rows
+     * untouched. Disjoint ranges of the same image can be binarized concurrently.
+     *
+     * @param image the input RGB BufferedImage
+     * @param out an array of [height][width] to write into
+     * @param fromRow the first row to binarize
+     * @param toRow one past the last row to binarize
+     * @throws IllegalArgumentException if out does not match the image size or the range is out of bounds
+     */
+    public void binarizeRows(BufferedImage image, int[][] out, int fromRow, int toRow) {
+        int width = image.getWidth();
+        if (out.length != image.getHeight() || out[0].length != width) {
+            throw new IllegalArgumentException("out must have the same dimensions as the image.");
+        }
+        if (fromRow < 0 || toRow > out.length || fromRow > toRow) {
+            throw new IllegalArgumentException("Row range out of bounds: " + fromRow + " to " + toRow);
+        }
+
+        byte[] bgrData = directBgrData(image);
+        int[] rgbData = bgrData == null ? directRgbData(image) : null;
+        int[] rowBuffer = bgrData == null && rgbData == null ? new int[width] : null;
+
+        for (int row = fromRow; row < toRow; row++) {
+            int[] binaryRow = out[row];
+            if (rowBuffer != null) {
+                image.getRGB(0, row, width, 1, rowBuffer, 0, width);
+            }
+            binarizeSpan(image, bgrData, rgbData, rowBuffer, row, 0, width, binaryRow, 0);
+        }
+    }
+
+    /**
+     * Binarizes the pixels of one row between two columns.
+     *
+     * @param image the input RGB BufferedImage
+     * @param bgrData the image's BGR bytes, or null
+     * @param rgbData the image's packed pixels, or null
+     * @param rowBuffer the row's pixels read through getRGB, used when both arrays are null
+     * @param row the image row
+     * @param from the first column
+     * @param to one past the last column
+     * @param binaryRow the binary row to write into
+     * @param offset the image column of binaryRow's first cell
+     */
+    private void binarizeSpan(BufferedImage image, byte[] bgrData, int[] rgbData, int[] rowBuffer,
+            int row, int from, int to, int[] binaryRow, int offset) {
+        int width = image.getWidth();
+        for (int col = from; col < to; col++) {
+            int color;
+            if (bgrData != null) {
+                int i = (row * width + col) * 3;
+                color = ((bgrData[i + 2] & 0xff) << 16) | ((bgrData[i + 1] & 0xff) << 8) | (bgrData[i] & 0xff);
+            } else if (rgbData != null) {
+                color = rgbData[row * width + col];
+            } else {
+                color = rowBuffer[col];
+            }
+            int hexColor = color & 0x00ffffff;
+            double distance = distanceFinder.distance(hexColor,targetColor);
+            binaryRow[col - offset] = distance < threshold ? 1 : 0;
+        }
+    }
+
+    /**
+     * Returns the backing byte array of a TYPE_3BYTE_BGR image whose raster starts at the
+     * beginning of its data buffer, or null if the image cannot be read directly.
+     *
+     * @param image the image to inspect
+     * @return the BGR bytes in row-major order, or null
+     */
+    private static byte[] directBgrData(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_3BYTE_BGR || !isUnshiftedRaster(image)) return null;
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Returns the backing int array of a TYPE_INT_RGB or TYPE_INT_ARGB image whose raster
+     * starts at the beginning of its data buffer, or null if the image cannot be read directly.
+     *
+     * @param image the image to inspect
+     * @return the packed pixels in row-major order, or null
+     */
+    private static int[] directRgbData(BufferedImage image) {
+        int type = image.getType();
+        if ((type != BufferedImage.TYPE_INT_RGB && type != BufferedImage.TYPE_INT_ARGB) || !isUnshiftedRaster(image)) return null;
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Returns whether the image's raster covers its data buffer from the first element, which
+     * is not the case for sub-images.
+     *
+     * @param image the image to inspect
+     * @return true if pixel (0,0) is the first element of the data buffer
+     */
+    private static boolean isUnshiftedRaster(BufferedImage image) {
+        Raster raster = image.getRaster();
+        return raster.getParent() == null
+            && raster.getSampleModelTranslateX() == 0
+            && raster.getSampleModelTranslateY() == 0
+            && raster.getDataBuffer().getNumBanks() == 1
+            && raster.getDataBuffer().getOffset() == 0;
+    }
 }
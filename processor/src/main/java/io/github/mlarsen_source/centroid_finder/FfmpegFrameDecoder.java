@@ -0,0 +1,184 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A FrameDecoder that runs an ffmpeg process and reads its decoded frames as raw video
+ * from a pipe.
+ *
+ * FFmpeg decodes in native code, with every codec and profile it supports, and frame
+ * threading of its own, so the JVM only copies finished frames out of the pipe. Frames
+ * are sent in their stored orientation and at their stored timing, one per coded frame,
+ * so the output matches the JCodec backend's frame for frame. ffmpeg's own error
+ * messages go to this process's standard error.
+ */
+public class FfmpegFrameDecoder implements FrameDecoder {
+
+    /**
+     * The raw pixel layouts FFmpeg can send frames in.
+     */
+    public enum PixelFormat {
+
+        /**
+         * Packed 24-bit color, three bytes per pixel. FFmpeg sends the bytes in the BGR
+         * order of TYPE_3BYTE_BGR images, so no channel swap is needed in Java.
+         */
+        RGB24("rgb24", RawPixelFormat.BGR24),
+
+        /**
+         * Planar 4:2:0 YUV, 1.5 bytes per pixel. Half the pipe traffic of rgb24, at the
+         * cost of converting to RGB in Java.
+         */
+        YUV420P("yuv420p", RawPixelFormat.YUV420P);
+
+        /** The name given on the command line. */
+        private final String optionName;
+
+        /** The layout of the frames on the pipe. */
+        private final RawPixelFormat rawFormat;
+
+        PixelFormat(String optionName, RawPixelFormat rawFormat) {
+            this.optionName = optionName;
+            this.rawFormat = rawFormat;
+        }
+
+        /**
+         * Returns the name given on the command line.
+         *
+         * @return "rgb24" or "yuv420p"
+         */
+        public String getOptionName() {
+            return optionName;
+        }
+
+        /**
+         * Returns the layout of the frames on the pipe, whose name FFmpeg's -pix_fmt
+         * option takes.
+         *
+         * @return the raw pixel format
+         */
+        public RawPixelFormat getRawFormat() {
+            return rawFormat;
+        }
+
+        /**
+         * Returns the pixel format for a command line name.
+         *
+         * @param name "rgb24" or "yuv420p"
+         * @return the pixel format
+         * @throws IllegalArgumentException if the name is unknown
+         */
+        public static PixelFormat fromOptionName(String name) {
+            for (PixelFormat format : values()) {
+                if (format.optionName.equals(name)) return format;
+            }
+            throw new IllegalArgumentException("Unknown pixel format: " + name + " (expected rgb24 or yuv420p)");
+        }
+    }
+
+    /** The ffmpeg executable. */
+    private final Path executable;
+
+    /** The pixel format frames are sent in. */
+    private final PixelFormat pixelFormat;
+
+    /**
+     * Creates an FFmpeg decoder.
+     *
+     * @param executable the ffmpeg executable
+     * @param pixelFormat the pixel format frames are sent in
+     */
+    public FfmpegFrameDecoder(Path executable, PixelFormat pixelFormat) {
+        this.executable = executable;
+        this.pixelFormat = pixelFormat;
+    }
+
+    /**
+     * Starts ffmpeg on a video and returns a reader over its output.
+     *
+     * @param video the video file
+     * @param width the frame width ffmpeg will send
+     * @param height the frame height ffmpeg will send
+     * @return a new FrameReader positioned at the first frame
+     * @throws IOException if ffmpeg cannot be started
+     * @throws IllegalArgumentException if the frame size is unknown, or is odd with yuv420p
+     */
+    @Override
+    public FrameReader open(File video, int width, int height) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("The FFmpeg decoder needs the frame size, which " + video + " does not declare");
+        }
+        if (pixelFormat == PixelFormat.YUV420P && (width % 2 != 0 || height % 2 != 0)) {
+            throw new IllegalArgumentException("yuv420p needs an even frame size: " + width + "x" + height);
+        }
+        Process process = new ProcessBuilder(command(video))
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+        return new FfmpegFrameReader(process, width, height, pixelFormat);
+    }
+
+    /**
+     * Builds the ffmpeg command line that writes a video's frames to standard output.
+     *
+     * @param video the video file
+     * @return the command and its arguments
+     */
+    List<String> command(File video) {
+        return List.of(executable.toString(),
+            "-hide_banner", "-loglevel", "error", "-nostdin",
+            // Keep the stored orientation, as JCodec does
+            "-noautorotate",
+            "-i", video.getPath(),
+            "-map", "0:v:0",
+            // One output frame per coded frame, never duplicated or dropped
+            "-vsync", "passthrough",
+            "-f", "rawvideo", "-pix_fmt", pixelFormat.getRawFormat().getName(),
+            "pipe:1");
+    }
+
+    /**
+     * Returns "ffmpeg".
+     *
+     * @return the backend's name
+     */
+    @Override
+    public String getName() {
+        return FFMPEG;
+    }
+
+    /**
+     * Returns the pixel format frames are sent in.
+     *
+     * @return the pixel format
+     */
+    public PixelFormat getPixelFormat() {
+        return pixelFormat;
+    }
+
+    /**
+     * Looks for an ffmpeg executable in the directories of the PATH environment variable.
+     *
+     * @return the first executable found, or null if there is none
+     */
+    public static Path findExecutable() {
+        String path = System.getenv("PATH");
+        if (path == null) return null;
+        for (String directory : path.split(File.pathSeparator)) {
+            if (directory.isEmpty()) continue;
+            for (String name : List.of("ffmpeg", "ffmpeg.exe")) {
+                try {
+                    Path candidate = Path.of(directory, name);
+                    if (Files.isRegularFile(candidate) && Files.isExecutable(candidate)) return candidate;
+                } catch (InvalidPathException e) {
+                    // Skip PATH entries that are not valid paths on this platform
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A FrameReader over the raw video an ffmpeg process writes to its standard output.
+ *
+ * Frames are read like any other raw stream, into one reused picture. The reader owns
+ * the process: closing it before the last frame stops ffmpeg, and reaching the end checks
+ * that ffmpeg exited successfully.
+ */
+public class FfmpegFrameReader extends RawFrameReader {
+
+    /** How long close waits for a stopped ffmpeg to exit. */
+    private static final long EXIT_TIMEOUT_SECONDS = 5;
+
+    /** The ffmpeg process. */
+    private final Process process;
+
+    /**
+     * Creates a reader over a started ffmpeg process.
+     *
+     * @param process the ffmpeg process writing raw frames to its standard output
+     * @param width the frame width
+     * @param height the frame height
+     * @param pixelFormat the pixel format of the frames
+     * @throws IOException if the process's standard input cannot be closed
+     */
+    public FfmpegFrameReader(Process process, int width, int height, FfmpegFrameDecoder.PixelFormat pixelFormat)
+            throws IOException {
+        super(process.getInputStream(), width, height, pixelFormat.getRawFormat());
+        this.process = process;
+        // ffmpeg is started with -nostdin and never reads its input
+        process.getOutputStream().close();
+    }
+
+    /**
+     * Waits for ffmpeg to exit after its output ended.
+     *
+     * @throws IOException if ffmpeg exited with an error or the wait was interrupted
+     */
+    @Override
+    protected void endOfStream() throws IOException {
+        try {
+            int status = process.waitFor();
+            if (status != 0) throw new IOException("ffmpeg exited with status " + status);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for ffmpeg to exit", e);
+        }
+    }
+
+    /**
+     * Stops ffmpeg if it is still running and releases the pipe.
+     *
+     * @throws IOException if the pipe cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            if (process.isAlive()) {
+                process.destroy();
+                try {
+                    if (!process.waitFor(EXIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) process.destroyForcibly();
+                } catch (InterruptedException e) {
+                    process.destroyForcibly();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jcodec.codecs.h264.H264Decoder;
+import org.jcodec.codecs.h264.H264Utils;
+import org.jcodec.codecs.h264.io.model.SeqParameterSet;
+import org.jcodec.codecs.h264.mp4.AvcCBox;
+import org.jcodec.common.model.ColorSpace;
+import org.jcodec.common.model.Picture;
+import org.jcodec.common.model.Size;
+import org.jcodec.containers.mp4.BoxFactory;
+import org.jcodec.containers.mp4.boxes.Box;
+import org.jcodec.containers.mp4.boxes.Header;
+import org.jcodec.containers.mp4.boxes.MovieBox;
+import org.jcodec.containers.mp4.boxes.MovieFragmentBox;
+import org.jcodec.containers.mp4.boxes.NodeBox;
+import org.jcodec.containers.mp4.boxes.SampleEntry;
+import org.jcodec.containers.mp4.boxes.TrackExtendsBox;
+import org.jcodec.containers.mp4.boxes.TrackFragmentBox;
+import org.jcodec.containers.mp4.boxes.TrackFragmentHeaderBox;
+import org.jcodec.containers.mp4.boxes.TrakBox;
+import org.jcodec.containers.mp4.boxes.TrunBox;
+import org.jcodec.containers.mp4.boxes.VideoSampleEntry;
+
+/**
+ * A FrameReader over the H.264 video track of a fragmented MP4 file that may still be
+ * growing, such as a camera recording written with an empty movie header followed by
+ * moof/mdat fragments.
+ *
+ * The file is read box by box. The movie header gives the codec parameters, and each
+ * movie fragment lists the size and position of its samples, which are decoded as soon
+ * as their bytes are on disk. When the reader needs bytes that have not been written
+ * yet, it waits, polling the file size with a backoff from 10 ms up to one second. It
+ * stops at an mfra box, which recorders write when they close the file, once the end
+ * marker file exists and the file has nothing more to read, or when the file has not
+ * grown for the idle timeout. Samples cut short by the end of the recording are
+ * dropped. With an idle timeout of 0 the reader never waits, which reads a finished
+ * fragmented file.
+ */
+public class FragmentedMp4FrameReader implements FrameReader {
+
+    /** The first wait for new data. */
+    static final long MIN_BACKOFF_MILLIS = 10;
+
+    /** The longest wait for new data. */
+    static final long MAX_BACKOFF_MILLIS = 1000;
+
+    /** The largest movie header or fragment header accepted, so garbage cannot exhaust memory. */
+    private static final long MAX_HEADER_BOX_SIZE = 64L * 1024 * 1024;
+
+    /** The tfhd flag that makes sample offsets relative to the start of the moof box. */
+    private static final int DEFAULT_BASE_IS_MOOF = 0x020000;
+
+    /** The file being read. */
+    private final FileChannel channel;
+
+    /** How long the file may stop growing before the reader gives up, in milliseconds. */
+    private final long idleTimeoutMillis;
+
+    /** The file whose existence marks the end of the recording, or null. */
+    private final Path endMarker;
+
+    /** The position of the next top-level box. */
+    private long position;
+
+    /** The size of the file the last time it was checked. */
+    private long knownSize;
+
+    /** When the file last grew, from System.nanoTime. */
+    private long lastGrowth;
+
+    /** Whether the end of the recording has been reached. */
+    private boolean ended;
+
+    /** The ID of the video track. */
+    private int trackId;
+
+    /** The sample defaults of every track, by track ID. */
+    private final Map<Integer, TrackExtendsBox> trackDefaults = new HashMap<>();
+
+    /** The codec parameters of the video track. */
+    private AvcCBox avcC;
+
+    /** Decodes the samples. */
+    private H264Decoder decoder;
+
+    /** The buffer frames are decoded into. */
+    private byte[][] buffer;
+
+    /** The media time units per second of the video track. */
+    private int timescale;
+
+    /** The display size of the frames. */
+    private Size size;
+
+    /** The absolute file position of each sample in the current fragment. */
+    private long[] sampleOffsets = new long[0];
+
+    /** The size of each sample in the current fragment. */
+    private int[] sampleSizes = new int[0];
+
+    /** The duration of each sample in the current fragment, in media time units. */
+    private long[] sampleDurations = new long[0];
+
+    /** The number of samples in the current fragment. */
+    private int sampleCount;
+
+    /** The index of the next sample to decode in the current fragment. */
+    private int nextSample;
+
+    /** The reused buffer samples are read into. */
+    private ByteBuffer sample = ByteBuffer.allocate(0);
+
+    private FragmentedMp4FrameReader(FileChannel channel, long idleTimeoutMillis, Path endMarker) {
+        this.channel = channel;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.endMarker = endMarker;
+        this.lastGrowth = System.nanoTime();
+    }
+
+    /**
+     * Opens a fragmented MP4 file and reads up to its first fragment, waiting for the
+     * recorder to write them if needed.
+     *
+     * @param file the file
+     * @param idleTimeoutMillis how long the file may stop growing before the recording is
+     *                          considered finished, or 0 to stop at the end of the file
+     * @param endMarker a file whose existence marks the end of the recording, or null
+     * @return the reader, positioned at the first frame
+     * @throws IOException if the file cannot be read, ends before its movie header, is not
+     *                     fragmented, or has no H.264 video track
+     * @throws IllegalArgumentException if idleTimeoutMillis is negative
+     */
+    public static FragmentedMp4FrameReader open(Path file, long idleTimeoutMillis, Path endMarker) throws IOException {
+        if (idleTimeoutMillis < 0) throw new IllegalArgumentException("Idle timeout cannot be negative: " + idleTimeoutMillis);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        FragmentedMp4FrameReader reader = new FragmentedMp4FrameReader(channel, idleTimeoutMillis, endMarker);
+        try {
+            reader.readMovieHeader();
+            reader.nextFragment();
+            return reader;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes and returns the next frame, waiting for it to be written if needed.
+     *
+     * @return the next frame, or null once the recording has ended
+     * @throws IOException if the file cannot be read or a fragment is malformed
+     */
+    @Override
+    public Picture readFrame() throws IOException {
+        while (true) {
+            while (nextSample == sampleCount) {
+                if (!nextFragment()) return null;
+            }
+            int index = nextSample++;
+            int length = sampleSizes[index];
+            if (!read(sampleOffsets[index], length)) {
+                ended = true;
+                return null;
+            }
+            ByteBuffer annexB = H264Utils.decodeMOVPacket(sample, avcC);
+            Picture frame = decoder.decodeFrame(annexB, buffer);
+            if (frame != null) return frame;
+        }
+    }
+
+    /**
+     * Returns the display width of the frames.
+     *
+     * @return the width in pixels
+     */
+    public int getWidth() {
+        return size.getWidth();
+    }
+
+    /**
+     * Returns the display height of the frames.
+     *
+     * @return the height in pixels
+     */
+    public int getHeight() {
+        return size.getHeight();
+    }
+
+    /**
+     * Returns the frame rate, taken from the duration of the first sample of the first
+     * fragment, or from the track's default sample duration if there are no fragments yet.
+     *
+     * @return the frames per second, or 0 if the recording has no frames
+     */
+    public double getFps() {
+        long duration = sampleCount > 0 ? sampleDurations[0] : defaults(trackId).getDefaultSampleDuration();
+        return duration > 0 ? (double) timescale / duration : 0;
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Reads top-level boxes up to the movie header and sets up decoding for its video track.
+     *
+     * @throws IOException if the file ends or a fragment starts before the movie header,
+     *                     or the movie is not a fragmented H.264 movie
+     */
+    private void readMovieHeader() throws IOException {
+        while (true) {
+            Header header = nextBox();
+            if (header == null) throw new IOException("The file ended before its movie header");
+            String type = header.getFourcc();
+            if (type.equals("moof")) throw new IOException("A movie fragment comes before the movie header");
+            if (!type.equals("moov")) {
+                position += header.getSize();
+                continue;
+            }
+
+            MovieBox moov = (MovieBox) readBox(header);
+            if (moov == null) throw new IOException("The file ended inside its movie header");
+            TrakBox track = moov.getVideoTrack();
+            if (track == null) throw new IOException("The movie has no video track");
+            TrackExtendsBox[] extensions = NodeBox.findAllPath(moov, TrackExtendsBox.class, new String[] {"mvex", "trex"});
+            if (extensions.length == 0) {
+                throw new IOException("Not a fragmented MP4; process the finished file without following it");
+            }
+            for (TrackExtendsBox extension : extensions) {
+                trackDefaults.put(extension.getTrackId(), extension);
+            }
+
+            SampleEntry[] entries = track.getSampleEntries();
+            AvcCBox parameters = entries.length > 0 && entries[0] instanceof VideoSampleEntry video
+                ? H264Utils.parseAVCC(video)
+                : null;
+            if (parameters == null || parameters.getSpsList().isEmpty()) {
+                throw new IOException("Only H.264 video can be followed");
+            }
+            SeqParameterSet sps = H264Utils.readSPS(parameters.getSpsList().get(0).duplicate());
+            avcC = parameters;
+            trackId = track.getTrackHeader().getTrackId();
+            timescale = track.getTimescale();
+            size = H264Utils.getPicSize(sps);
+            decoder = H264Decoder.createH264DecoderFromCodecPrivate(H264Utils.avcCToAnnexB(parameters));
+            buffer = Picture.create((sps.picWidthInMbsMinus1 + 1) << 4,
+                SeqParameterSet.getPicHeightInMbs(sps) << 4, ColorSpace.YUV444).getData();
+            position += header.getSize();
+            return;
+        }
+    }
+
+    /**
+     * Reads top-level boxes up to the next movie fragment and lists the video track's
+     * samples in it.
+     *
+     * @return true if a fragment was read, false if the recording has ended
+     * @throws IOException if the file cannot be read or the fragment is malformed
+     */
+    private boolean nextFragment() throws IOException {
+        while (true) {
+            Header header = nextBox();
+            if (header == null) return false;
+            String type = header.getFourcc();
+            if (type.equals("mfra")) {
+                ended = true;
+                return false;
+            }
+            if (type.equals("moof")) {
+                long moofStart = position;
+                MovieFragmentBox moof = (MovieFragmentBox) readBox(header);
+                if (moof == null) return false;
+                position += header.getSize();
+                listSamples(moof, moofStart);
+                return true;
+            }
+            // The samples are read from mdat boxes by position, so every other box is skipped
+            position += header.getSize();
+        }
+    }
+
+    /**
+     * Lists the samples of the video track in a movie fragment.
+     *
+     * @param moof the fragment
+     * @param moofStart the file position of the fragment
+     * @throws IOException if a track run gives no sample sizes
+     */
+    private void listSamples(MovieFragmentBox moof, long moofStart) throws IOException {
+        sampleCount = 0;
+        nextSample = 0;
+        long dataEnd = moofStart;
+        for (TrackFragmentBox traf : moof.getTracks()) {
+            TrackFragmentHeaderBox tfhd = NodeBox.findFirst(traf, TrackFragmentHeaderBox.class, "tfhd");
+            if (tfhd == null) throw new IOException("A track fragment has no header");
+            TrackExtendsBox trex = defaults(tfhd.getTrackId());
+            boolean video = tfhd.getTrackId() == trackId;
+            long offset = tfhd.isBaseDataOffsetAvailable() ? tfhd.getBaseDataOffset()
+                : (tfhd.getFlags() & DEFAULT_BASE_IS_MOOF) != 0 ? moofStart
+                : dataEnd;
+            long base = offset;
+
+            for (TrunBox trun : NodeBox.findAll(traf, TrunBox.class, "trun")) {
+                if (trun.isDataOffsetAvailable()) offset = base + trun.getDataOffset();
+                int count = (int) trun.getSampleCount();
+                if (video) ensureSampleCapacity(sampleCount + count);
+                for (int i = 0; i < count; i++) {
+                    long length = trun.isSampleSizeAvailable() ? trun.getSampleSize(i)
+                        : tfhd.isDefaultSampleSizeAvailable() ? tfhd.getDefaultSampleSize()
+                        : trex.getDefaultSampleBytes();
+                    if (length <= 0) throw new IOException("A track run gives no sample size");
+                    if (video) {
+                        sampleOffsets[sampleCount] = offset;
+                        sampleSizes[sampleCount] = (int) length;
+                        sampleDurations[sampleCount] = trun.isSampleDurationAvailable() ? trun.getSampleDuration(i)
+                            : tfhd.isDefaultSampleDurationAvailable() ? tfhd.getDefaultSampleDuration()
+                            : trex.getDefaultSampleDuration();
+                        sampleCount++;
+                    }
+                    offset += length;
+                }
+            }
+            dataEnd = offset;
+        }
+    }
+
+    /**
+     * Returns the sample defaults of a track, or all-zero defaults if the movie header
+     * has none for it.
+     *
+     * @param track the track ID
+     * @return the defaults
+     */
+    private TrackExtendsBox defaults(int track) {
+        return trackDefaults.computeIfAbsent(track, id -> TrackExtendsBox.createTrackExtendsBox());
+    }
+
+    /**
+     * Grows the sample arrays to hold at least the given number of samples.
+     *
+     * @param capacity the number of samples
+     */
+    private void ensureSampleCapacity(int capacity) {
+        if (capacity <= sampleOffsets.length) return;
+        int grown = Math.max(capacity, sampleOffsets.length * 2);
+        sampleOffsets = Arrays.copyOf(sampleOffsets, grown);
+        sampleSizes = Arrays.copyOf(sampleSizes, grown);
+        sampleDurations = Arrays.copyOf(sampleDurations, grown);
+    }
+
+    /**
+     * Reads the header of the top-level box at the current position.
+     *
+     * @return the header, or null if the recording ended before the next box
+     * @throws IOException if the file cannot be read or the box has no size
+     */
+    private Header nextBox() throws IOException {
+        if (!read(position, 8)) return null;
+        long boxSize = Integer.toUnsignedLong(sample.getInt(0));
+        if (boxSize == 1) {
+            if (!read(position, 16)) return null;
+        } else if (boxSize == 0) {
+            throw new IOException("A box that runs to the end of the file cannot be followed");
+        } else if (boxSize < 8) {
+            throw new IOException("Malformed box at offset " + position);
+        }
+        return Header.read(sample.duplicate());
+    }
+
+    /**
+     * Reads a whole movie header or fragment header box and parses it.
+     *
+     * @param header the header of the box at the current position
+     * @return the parsed box, or null if the recording ended inside it
+     * @throws IOException if the file cannot be read or the box is too large
+     */
+    private Box readBox(Header header) throws IOException {
+        long boxSize = header.getSize();
+        if (boxSize > MAX_HEADER_BOX_SIZE) {
+            throw new IOException(header.getFourcc() + " box of " + boxSize + " bytes is too large");
+        }
+        if (!read(position, (int) boxSize)) return null;
+        ByteBuffer body = sample.duplicate();
+        body.position((int) header.headerSize());
+        return Box.parseBox(body, header, BoxFactory.getDefault());
+    }
+
+    /**
+     * Reads bytes into the sample buffer, waiting for them to be written if needed.
+     *
+     * @param offset the file position of the first byte
+     * @param length the number of bytes
+     * @return true if the bytes were read, false if the recording ended first
+     * @throws IOException if the file cannot be read
+     */
+    private boolean read(long offset, int length) throws IOException {
+        if (!awaitSize(offset + length)) return false;
+        if (sample.capacity() < length) {
+            sample = ByteBuffer.allocate(Math.max(length, sample.capacity() * 2));
+        }
+        sample.clear().limit(length);
+        while (sample.hasRemaining()) {
+            if (channel.read(sample, offset + sample.position()) < 0) {
+                throw new EOFException("The file was truncated while it was read");
+            }
+        }
+        sample.flip();
+        return true;
+    }
+
+    /**
+     * Waits until the file is at least the given size or the recording ends.
+     *
+     * @param required the file size needed
+     * @return true if the file is large enough, false if the recording ended first
+     * @throws IOException if the file size cannot be read or the wait is interrupted
+     */
+    private boolean awaitSize(long required) throws IOException {
+        long backoff = MIN_BACKOFF_MILLIS;
+        while (true) {
+            long fileSize = channel.size();
+            if (fileSize > knownSize) {
+                knownSize = fileSize;
+                lastGrowth = System.nanoTime();
+                backoff = MIN_BACKOFF_MILLIS;
+            }
+            if (fileSize >= required) return true;
+            if (ended || idleTimeoutMillis == 0) return false;
+
+            if (endMarker != null && Files.exists(endMarker)) {
+                // The marker may appear right after the last write, so look at the size once more
+                ended = channel.size() < required;
+                if (ended) return false;
+                continue;
+            }
+            long idle = (System.nanoTime() - lastGrowth) / 1_000_000;
+            if (idle >= idleTimeoutMillis) {
+                ended = true;
+                return false;
+            }
+            try {
+                Thread.sleep(Math.min(backoff, idleTimeoutMillis - idle));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the recording to grow", e);
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Arrays;
+
+import org.jcodec.common.model.ColorSpace;
+import org.jcodec.common.model.Picture;
+import org.jcodec.common.model.Rect;
+import org.jcodec.scale.AWTUtil;
+import org.jcodec.scale.ColorUtil;
+import org.jcodec.scale.RgbToBgr;
+import org.jcodec.scale.Transform;
+
+/**
+ * Owns the frame, mask and scratch buffers used while analyzing video frames on one thread.
+ *
+ * Every buffer is allocated the first time it is requested and reused for later frames
+ * of the same size, so once the pipeline has warmed up a frame can be converted,
+ * binarized and labeled without allocating large arrays. Buffers handed out by a context
+ * are only valid until the next request for the same buffer, and a context must not be
+ * shared between threads. Use {@link #current()} to get the context of the calling thread.
+ *
+ * A 4K frame needs about 100 MB of buffers, which a pooled thread would otherwise keep
+ * for as long as it lives, so code that finishes a job on a thread it does not own calls
+ * {@link #release()}.
+ */
+public class FrameContext {
+
+    /** One context per thread so concurrent pipelines never share buffers. */
+    private static final ThreadLocal<FrameContext> CURRENT = ThreadLocal.withInitial(FrameContext::new);
+
+    /** Converts RGB pictures into the BGR byte order used by TYPE_3BYTE_BGR images. */
+    private final RgbToBgr rgbToBgr = new RgbToBgr();
+
+    /** The color space the cached transform converts from. */
+    private ColorSpace transformSource;
+
+    /** The cached transform from {@link #transformSource} to RGB. */
+    private Transform transform;
+
+    /** The reused intermediate BGR picture. */
+    private Picture bgrPicture;
+
+    /** The reused image that converted frames are written into. */
+    private BufferedImage image;
+
+    /** The reused binary mask. */
+    private int[][] mask;
+
+    /** The reused visited flags for connected group labeling. */
+    private boolean[][] visited;
+
+    /** The reused queue of packed pixel indices for breadth-first search. */
+    private int[] queue;
+
+    /** The reused labels of the first and last rows of each stripe of a frame. */
+    private int[] labels;
+
+    /**
+     * Returns the frame context owned by the calling thread.
+     *
+     * @return the calling thread's context
+     */
+    public static FrameContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Drops the calling thread's context and its buffers. The next call to
+     * {@link #current()} on the thread starts with an empty context.
+     */
+    public static void release() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Converts a decoded picture into an RGB image, writing into a reused raster.
+     *
+     * This produces the same pixels as {@code AWTUtil.toBufferedImage(picture)} but reuses
+     * the intermediate picture, the color transform and the output image between calls.
+     *
+     * @param picture the decoded picture in any color space supported by JCodec
+     * @return a TYPE_3BYTE_BGR image that is overwritten by the next call
+     */
+    public BufferedImage toBufferedImage(Picture picture) {
+        Picture bgr = picture;
+        if (picture.getColor() != ColorSpace.BGR) {
+            bgr = bgrPicture(picture.getWidth(), picture.getHeight(), picture.getCrop());
+            if (picture.getColor() == ColorSpace.RGB) {
+                rgbToBgr.transform(picture, bgr);
+            } else {
+                transformFrom(picture.getColor()).transform(picture, bgr);
+                rgbToBgr.transform(bgr, bgr);
+            }
+        }
+
+        BufferedImage out = image(bgr.getCroppedWidth(), bgr.getCroppedHeight());
+        if (bgr.getCrop() == null) {
+            AWTUtil.toBufferedImage(bgr, out);
+        } else {
+            copyCropped(bgr, out);
+        }
+        return out;
+    }
+
+    /**
+     * Copies the cropped region of a BGR picture into an image of the cropped size.
+     *
+     * @param bgr the source picture with a crop rectangle
+     * @param out the destination image
+     */
+    private static void copyCropped(Picture bgr, BufferedImage out) {
+        byte[] dst = ((DataBufferByte) out.getRaster().getDataBuffer()).getData();
+        byte[] src = bgr.getPlaneData(0);
+        int width = out.getWidth();
+        int height = out.getHeight();
+        int srcStride = bgr.getWidth() * 3;
+        Rect crop = bgr.getCrop();
+        int srcOffset = crop.getY() * srcStride + crop.getX() * 3;
+        int dstOffset = 0;
+
+        for (int row = 0; row < height; row++) {
+            for (int i = 0; i < width * 3; i++) {
+                dst[dstOffset + i] = (byte) (src[srcOffset + i] + 128);
+            }
+            srcOffset += srcStride;
+            dstOffset += width * 3;
+        }
+    }
+
+    /**
+     * Returns the cached transform into RGB for the given color space.
+     *
+     * @param source the color space of the decoded picture
+     * @return a transform from source to RGB
+     */
+    private Transform transformFrom(ColorSpace source) {
+        if (transform == null || transformSource != source) {
+            transform = ColorUtil.getTransform(source, ColorSpace.RGB);
+            transformSource = source;
+        }
+        return transform;
+    }
+
+    /**
+     * Returns the reused BGR picture, reallocating it only when the frame geometry changes.
+     *
+     * @param width the full picture width
+     * @param height the full picture height
+     * @param crop the crop rectangle of the decoded picture, or null
+     * @return a BGR picture of the requested geometry
+     */
+    private Picture bgrPicture(int width, int height, Rect crop) {
+        if (bgrPicture == null
+                || bgrPicture.getWidth() != width
+                || bgrPicture.getHeight() != height
+                || !sameCrop(bgrPicture.getCrop(), crop)) {
+            bgrPicture = Picture.createCropped(width, height, ColorSpace.BGR, crop);
+        }
+        return bgrPicture;
+    }
+
+    /**
+     * Compares two crop rectangles, either of which may be null.
+     *
+     * @param a the first rectangle
+     * @param b the second rectangle
+     * @return true if both are null or both describe the same region
+     */
+    private static boolean sameCrop(Rect a, Rect b) {
+        if (a == null || b == null) return a == b;
+        return a.getX() == b.getX() && a.getY() == b.getY()
+                && a.getWidth() == b.getWidth() && a.getHeight() == b.getHeight();
+    }
+
+    /**
+     * Returns the reused output image, reallocating it only when the size changes.
+     *
+     * @param width the image width
+     * @param height the image height
+     * @return a TYPE_3BYTE_BGR image of the requested size
+     */
+    private BufferedImage image(int width, int height) {
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        }
+        return image;
+    }
+
+    /**
+     * Returns the reused binary mask for a frame of the given size. The contents are
+     * left over from the previous frame and must be overwritten by the caller.
+     *
+     * @param height the number of rows
+     * @param width the number of columns
+     * @return a height by width array
+     */
+    public int[][] mask(int height, int width) {
+        if (mask == null || mask.length != height || mask[0].length != width) {
+            mask = new int[height][width];
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the reused visited flags for a frame of the given size, cleared to false.
+     *
+     * @param height the number of rows
+     * @param width the number of columns
+     * @return a cleared height by width array
+     */
+    public boolean[][] visited(int height, int width) {
+        if (visited == null || visited.length != height || visited[0].length != width) {
+            visited = new boolean[height][width];
+        } else {
+            for (boolean[] row : visited) {
+                Arrays.fill(row, false);
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Returns the reused search queue with room for at least the given number of entries.
+     *
+     * @param capacity the number of entries required
+     * @return an array of at least the given length
+     */
+    public int[] queue(int capacity) {
+        if (queue == null || queue.length < capacity) {
+            queue = new int[capacity];
+        }
+        return queue;
+    }
+
+    /**
+     * Returns the reused stripe boundary labels with room for at least the given number
+     * of entries. The contents are left over from the previous frame.
+     *
+     * @param capacity the number of entries required
+     * @return an array of at least the given length
+     */
+    public int[] labels(int capacity) {
+        if (labels == null || labels.length < capacity) {
+            labels = new int[capacity];
+        }
+        return labels;
+    }
+}
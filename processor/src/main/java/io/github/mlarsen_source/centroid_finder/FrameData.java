@@ -1,9 +1,11 @@
 package io.github.mlarsen_source.centroid_finder;
 
 /**
- * Holds the total number of frames and the frames per second values.
+ * Holds the total number of frames, the frames per second and the frame size.
  *
  * @param totalFrames the number of frames in the video 
  * @param fps         the frame rate in frames per second
+ * @param width       the frame width in pixels, or 0 if unknown
+ * @param height      the frame height in pixels, or 0 if unknown
  */
-public record FrameData(int totalFrames, double fps) { }
+public record FrameData(int totalFrames, double fps, int width, int height) { }
@@ -0,0 +1,68 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.jcodec.api.JCodecException;
+
+/**
+ * Decodes a video file into frames for a VideoProcessor.
+ *
+ * The processor reads the container's metadata itself and hands the frame size to the
+ * decoder, which only has to produce the frames in order. Backends are interchangeable:
+ * the frames they produce are analyzed the same way, so switching backends only changes
+ * how fast, and with which codec support, a video is decoded.
+ */
+public interface FrameDecoder {
+
+    /** The decoder name that picks FFmpeg when it is on the PATH and JCodec otherwise. */
+    String AUTO = "auto";
+
+    /** The name of the pure Java JCodec backend. */
+    String JCODEC = "jcodec";
+
+    /** The name of the FFmpeg raw-frame pipe backend. */
+    String FFMPEG = "ffmpeg";
+
+    /**
+     * Opens a reader positioned at the first frame of a video.
+     *
+     * @param video the video file
+     * @param width the frame width from the container's metadata, or 0 if unknown
+     * @param height the frame height from the container's metadata, or 0 if unknown
+     * @return a new FrameReader that the caller must close
+     * @throws IOException if the video cannot be read or the decoder cannot be started
+     * @throws JCodecException if an error occurs while initializing frame extraction
+     */
+    FrameReader open(File video, int width, int height) throws IOException, JCodecException;
+
+    /**
+     * Returns the backend's name as given on the command line.
+     *
+     * @return the name, such as "jcodec" or "ffmpeg"
+     */
+    String getName();
+
+    /**
+     * Returns the decoder for a name given on the command line.
+     *
+     * @param name "auto", "jcodec" or "ffmpeg"
+     * @param pixelFormat the pixel format FFmpeg sends frames in
+     * @return the decoder
+     * @throws IllegalArgumentException if the name is unknown, or is "ffmpeg" and no
+     *                                  ffmpeg executable is on the PATH
+     */
+    static FrameDecoder select(String name, FfmpegFrameDecoder.PixelFormat pixelFormat) {
+        Path ffmpeg = FfmpegFrameDecoder.findExecutable();
+        return switch (name) {
+            case AUTO -> ffmpeg != null ? new FfmpegFrameDecoder(ffmpeg, pixelFormat) : new JCodecFrameDecoder(true);
+            case JCODEC -> new JCodecFrameDecoder(true);
+            case FFMPEG -> {
+                if (ffmpeg == null) throw new IllegalArgumentException("No ffmpeg executable found on the PATH");
+                yield new FfmpegFrameDecoder(ffmpeg, pixelFormat);
+            }
+            default -> throw new IllegalArgumentException("Unknown decoder: " + name);
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event spanning the processing of one frame: decoding, conversion,
+ * binarization and labeling. Only frames slower than the threshold are recorded by
+ * default; lower it, for example with
+ * -XX:StartFlightRecording:+centroid_finder.Frame#threshold=0ms, to record every frame.
+ */
+@Name("centroid_finder.Frame")
+@Label("Frame Processed")
+@Category("Centroid Finder")
+@Description("Decoding and analysis of one video frame")
+@StackTrace(false)
+@Threshold("20 ms")
+final class FrameEvent extends Event {
+
+    /** The one-based number of the frame. */
+    @Label("Frame Number")
+    int frameNumber;
+
+    /** The number of groups found in the frame. */
+    @Label("Group Count")
+    int groupCount;
+
+    /** The size in pixels of the frame's largest group, or 0 if it has none. */
+    @Label("Largest Group Size")
+    int largestSize;
+}
@@ -0,0 +1,58 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.util.List;
+
+/**
+ * Receives a callback for every frame a CentroidCursor decodes: {@link #frameProcessed}
+ * for a frame it analyzes, including frames in which no group was found, or
+ * {@link #frameSkipped} for a frame that sampling passed over. No frame gets both.
+ *
+ * Timing is only measured while an observer is attached, so a cursor without one does no
+ * extra work per frame. Callbacks run on the thread that advances the cursor and should
+ * return quickly.
+ */
+public interface FrameObserver {
+
+    /**
+     * Called after a frame has been decoded and its groups found.
+     *
+     * @param frameNumber the one-based number of the frame
+     * @param decodeNanos the time spent decoding the frame and converting it to an image
+     * @param analysisNanos the time spent binarizing the image and finding its groups
+     * @param groups the groups found in the frame, largest first
+     */
+    void frameProcessed(int frameNumber, long decodeNanos, long analysisNanos, List<Group> groups);
+
+    /**
+     * Called for a decoded frame that sampling passed over without analyzing it. Frames
+     * are reported once it is settled that they stay unanalyzed, in frame order.
+     *
+     * @param frameNumber the one-based number of the frame
+     */
+    default void frameSkipped(int frameNumber) {
+    }
+
+    /**
+     * Returns an observer that notifies this observer and then the other one.
+     *
+     * @param other the observer to notify second, or null
+     * @return the combined observer, or this observer if other is null
+     */
+    default FrameObserver andThen(FrameObserver other) {
+        if (other == null) return this;
+        FrameObserver first = this;
+        return new FrameObserver() {
+            @Override
+            public void frameProcessed(int frameNumber, long decodeNanos, long analysisNanos, List<Group> groups) {
+                first.frameProcessed(frameNumber, decodeNanos, analysisNanos, groups);
+                other.frameProcessed(frameNumber, decodeNanos, analysisNanos, groups);
+            }
+
+            @Override
+            public void frameSkipped(int frameNumber) {
+                first.frameSkipped(frameNumber);
+                other.frameSkipped(frameNumber);
+            }
+        };
+    }
+}
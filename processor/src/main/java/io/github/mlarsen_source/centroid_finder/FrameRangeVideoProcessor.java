@@ -0,0 +1,127 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.IOException;
+
+import org.jcodec.api.JCodecException;
+import org.jcodec.common.model.Picture;
+
+/**
+ * A VideoProcessor over a range of the frames of an MP4 video.
+ *
+ * Frames are decoded with JCodec from the first frame of the range and stop before its
+ * end. Frame numbers are shifted by the start of the range before they are converted
+ * to timestamps, so every frame has the same timestamp as in a run over the whole video
+ * and the CSVs of consecutive ranges concatenate to the CSV of the whole video.
+ */
+public class FrameRangeVideoProcessor implements VideoProcessor {
+
+    /** The whole video. */
+    private final Mp4VideoProcessor video;
+
+    /** The zero-based index of the first frame. */
+    private final int startFrame;
+
+    /** The zero-based index one past the last frame. */
+    private final int endFrame;
+
+    /**
+     * Creates a processor over a range of a video's frames.
+     *
+     * @param video the whole video
+     * @param startFrame the zero-based index of the first frame
+     * @param endFrame the zero-based index one past the last frame, or -1 for the end of the video
+     * @throws IllegalArgumentException if the range is empty or starts after the video ends
+     */
+    public FrameRangeVideoProcessor(Mp4VideoProcessor video, int startFrame, int endFrame) {
+        int totalFrames = video.getTotalFrames();
+        int end = endFrame == -1 ? totalFrames : Math.min(endFrame, totalFrames);
+        if (startFrame < 0 || startFrame >= end) {
+            throw new IllegalArgumentException("Frame range " + startFrame + " to " + endFrame
+                + " is outside the video's " + totalFrames + " frames");
+        }
+        this.video = video;
+        this.startFrame = startFrame;
+        this.endFrame = end;
+    }
+
+    /**
+     * Returns the video's frame rate.
+     *
+     * @return the frames per second
+     */
+    @Override
+    public double getFps() {
+        return video.getFps();
+    }
+
+    /**
+     * Converts a frame number counted from the start of the range to its timestamp in
+     * the whole video.
+     *
+     * @param frameNumber the frame number within the range
+     * @return the time in seconds from the start of the video
+     */
+    @Override
+    public double getTime(int frameNumber) {
+        return video.getTime(startFrame + frameNumber);
+    }
+
+    /**
+     * Opens a FrameReader that returns the frames of the range and then ends.
+     *
+     * @return a new FrameReader positioned at the first frame of the range
+     * @throws IOException if the video file cannot be read
+     * @throws JCodecException if an error occurs while seeking
+     */
+    @Override
+    public FrameReader openFrames() throws IOException, JCodecException {
+        FrameReader frames = video.openFrames(startFrame);
+        int count = endFrame - startFrame;
+        return new FrameReader() {
+            /** The number of frames returned so far. */
+            private int read;
+
+            @Override
+            public Picture readFrame() throws IOException {
+                if (read == count) return null;
+                read++;
+                return frames.readFrame();
+            }
+
+            @Override
+            public void close() throws IOException {
+                frames.close();
+            }
+        };
+    }
+
+    /**
+     * Returns the number of frames in the range.
+     *
+     * @return the frame count
+     */
+    @Override
+    public int getTotalFrames() {
+        return endFrame - startFrame;
+    }
+
+    /**
+     * Returns the frame width.
+     *
+     * @return the width in pixels, or 0 if the track does not declare it
+     */
+    @Override
+    public int getWidth() {
+        return video.getWidth();
+    }
+
+    /**
+     * Returns the frame height.
+     *
+     * @return the height in pixels, or 0 if the track does not declare it
+     */
+    @Override
+    public int getHeight() {
+        return video.getHeight();
+    }
+}
@@ -0,0 +1,27 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.jcodec.common.model.Picture;
+
+/**
+ * Reads decoded frames from a video one at a time and owns the resources used to decode them.
+ *
+ * A FrameReader is opened by a VideoProcessor and must be closed when the caller is done
+ * with it, whether or not every frame was read. Closing releases the underlying file
+ * channel immediately instead of leaving it for the garbage collector.
+ */
+public interface FrameReader extends Closeable {
+
+    /**
+     * Decodes and returns the next frame.
+     *
+     * The returned picture may be reused by the reader, so it is only valid until the
+     * next call to this method.
+     *
+     * @return the next decoded frame, or null if there are no more frames
+     * @throws IOException if the frame cannot be read or decoded
+     */
+    Picture readFrame() throws IOException;
+}
@@ -16,4 +16,38 @@ public interface ImageBinarizer {
      * @return a 2D array of integers where 1 represents white and 0 represents black
      */
     public int[][] toBinaryArray(BufferedImage image);
+
+    /**
+     * Converts the given BufferedImage into a binary 2D array, writing into the provided
+     * array when it has the same dimensions as the image.
+     *
+     * Every entry of the returned array is overwritten, so the provided array does not need
+     * to be cleared between frames. Implementations that cannot reuse the array may ignore it.
+     *
+     * @param image the input BufferedImage to convert
+     * @param reuse an array of [height][width] to write into, or null to allocate a new one
+     * @return a 2D array of integers where 1 represents white and 0 represents black
+     */
+    public default int[][] toBinaryArray(BufferedImage image, int[][] reuse) {
+        return toBinaryArray(image);
+    }
+
+    /**
+     * Binarizes only the pixels inside a region, into an array the size of the region's
+     * bounding box. Cell (row, col) of the result is pixel (region.left() + col,
+     * region.top() + row) of the image, and cells outside the region's spans are 0.
+     *
+     * The default implementation binarizes the whole image and copies the region out of
+     * it; implementations that can visit the spans directly should override it.
+     *
+     * @param image the input BufferedImage to convert
+     * @param region the region to binarize, compiled for the image's size
+     * @param reuse an array of the bounding box size to write into, or null to allocate a new one
+     * @return a 2D array of the bounding box size where 1 represents white and 0 represents black
+     * @throws IllegalArgumentException if the region was compiled for another image size
+     */
+    public default int[][] toBinaryArray(BufferedImage image, RegionMask region, int[][] reuse) {
+        region.checkFrameSize(image.getWidth(), image.getHeight());
+        return region.extract(toBinaryArray(image), reuse);
+    }
 }
@@ -0,0 +1,58 @@
+package io.github.mlarsen_source.centroid_finder;
+
+/**
+ * The kinds of input the processor reads.
+ */
+public enum InputFormat {
+
+    /** An MP4 file, demuxed with JCodec and decoded by a FrameDecoder. */
+    MP4("mp4"),
+
+    /** A YUV4MPEG2 stream whose header declares the frame size and rate. */
+    Y4M("y4m"),
+
+    /** Headerless raw frames of a size, rate and pixel format given on the command line. */
+    RAW("raw");
+
+    /** The name given on the command line. */
+    private final String name;
+
+    InputFormat(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name given on the command line.
+     *
+     * @return "mp4", "y4m" or "raw"
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the format with a command line name.
+     *
+     * @param name "mp4", "y4m" or "raw"
+     * @return the format
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static InputFormat fromName(String name) {
+        for (InputFormat format : values()) {
+            if (format.name.equals(name)) return format;
+        }
+        throw new IllegalArgumentException("Input format must be mp4, y4m or raw: " + name);
+    }
+
+    /**
+     * Returns the format of an input path when none was given: Y4M for standard input
+     * and ".y4m" files, MP4 otherwise.
+     *
+     * @param path the input path, or "-" for standard input
+     * @return the inferred format
+     */
+    public static InputFormat infer(String path) {
+        if (path.equals(StreamVideoProcessor.STDIN) || path.toLowerCase().endsWith(".y4m")) return Y4M;
+        return MP4;
+    }
+}
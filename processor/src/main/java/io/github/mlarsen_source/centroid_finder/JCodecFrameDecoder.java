@@ -0,0 +1,61 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.jcodec.api.FrameGrab;
+import org.jcodec.api.JCodecException;
+
+/**
+ * A FrameDecoder that decodes H.264 in pure Java with JCodec.
+ *
+ * The file is demuxed through a memory-mapped channel that the returned reader closes.
+ * This backend needs nothing outside the JVM, but only supports the codecs and profiles
+ * JCodec implements.
+ */
+public class JCodecFrameDecoder implements FrameDecoder {
+
+    /** Whether the next mapped window of the file is loaded in the background while demuxing. */
+    private final boolean readAhead;
+
+    /**
+     * Creates a JCodec decoder.
+     *
+     * @param readAhead true to fault in the next mapped window on a background thread
+     */
+    public JCodecFrameDecoder(boolean readAhead) {
+        this.readAhead = readAhead;
+    }
+
+    /**
+     * Opens a reader over a memory-mapped channel. JCodec reads the frame size from the
+     * stream, so the given size is not used.
+     *
+     * @param video the video file
+     * @param width the frame width, ignored
+     * @param height the frame height, ignored
+     * @return a new FrameReader positioned at the first frame
+     * @throws IOException if the video file cannot be read
+     * @throws JCodecException if an error occurs while initializing frame extraction
+     */
+    @Override
+    public FrameReader open(File video, int width, int height) throws IOException, JCodecException {
+        MappedFileChannel channel = new MappedFileChannel(video.toPath(), readAhead);
+        try {
+            return new JCodecFrameReader(FrameGrab.createFrameGrab(channel), channel);
+        } catch (IOException | JCodecException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns "jcodec".
+     *
+     * @return the backend's name
+     */
+    @Override
+    public String getName() {
+        return JCODEC;
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.jcodec.api.FrameGrab;
+import org.jcodec.api.JCodecException;
+import org.jcodec.common.model.Picture;
+
+/**
+ * A FrameReader that decodes frames with a JCodec FrameGrab.
+ *
+ * JCodec does not close the channel a FrameGrab reads from, so the reader holds on to it
+ * and closes it when the reader is closed.
+ */
+public class JCodecFrameReader implements FrameReader {
+
+    /** Decodes the frames. */
+    private final FrameGrab frames;
+
+    /** The channel the FrameGrab reads from, or null if the reader does not own one. */
+    private final Closeable channel;
+
+    /**
+     * Creates a reader over the given FrameGrab.
+     *
+     * @param frames the FrameGrab to read frames from
+     * @param channel the channel to close along with the reader, or null
+     */
+    public JCodecFrameReader(FrameGrab frames, Closeable channel) {
+        this.frames = frames;
+        this.channel = channel;
+    }
+
+    /**
+     * Decodes and returns the next frame.
+     *
+     * @return the next decoded frame, or null if there are no more frames
+     * @throws IOException if the frame cannot be read or decoded
+     */
+    @Override
+    public Picture readFrame() throws IOException {
+        return frames.getNativeFrame();
+    }
+
+    /**
+     * Moves the reader so that the next frame it returns is the given one. JCodec goes
+     * back to the closest keyframe and decodes forward from it, so the frame is the same
+     * as in a read from the start, and the open channel and decoder are kept.
+     *
+     * @param frame the zero-based index of the next frame returned
+     * @throws IOException if the video file cannot be read
+     * @throws JCodecException if an error occurs while seeking
+     */
+    public void seek(int frame) throws IOException, JCodecException {
+        frames.seekToFramePrecise(frame);
+    }
+
+    /**
+     * Closes the channel the frames are read from, if the reader owns one.
+     *
+     * @throws IOException if the channel cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
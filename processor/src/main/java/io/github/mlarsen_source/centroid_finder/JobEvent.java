@@ -0,0 +1,49 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning one video processing job, from opening the video until
+ * the output has been written or the job has failed. The event's start and end time mark
+ * the job's start and end, so it is recorded for every job while a recording is running.
+ */
+@Name("centroid_finder.Job")
+@Label("Video Processing Job")
+@Category("Centroid Finder")
+@Description("Processing of one video into a CSV of centroids")
+@StackTrace(false)
+final class JobEvent extends Event {
+
+    /** The input video path. */
+    @Label("Video")
+    String video;
+
+    /** The output CSV path. */
+    @Label("Output")
+    String output;
+
+    /** The target color as six hex digits. */
+    @Label("Target Color")
+    String targetColor;
+
+    /** The color distance threshold. */
+    @Label("Threshold")
+    int threshold;
+
+    /** The name of the decoder backend, or null if none was chosen. */
+    @Label("Decoder")
+    String decoder;
+
+    /** The number of frames in the video, or -1 if it could not be determined. */
+    @Label("Frames")
+    int frames = -1;
+
+    /** Whether the job completed without an error. */
+    @Label("Succeeded")
+    boolean succeeded;
+}
@@ -0,0 +1,136 @@
+package io.github.mlarsen_source.centroid_finder;
+
+/**
+ * A fixed-size histogram of durations in nanoseconds with log-linear buckets.
+ *
+ * Values below 32 get a bucket each. Above that, every power-of-two range is split into
+ * 32 equal sub-buckets, so a percentile is reported within about 3% of the true value
+ * regardless of magnitude. All buckets are allocated up front and recording a value only
+ * increments a counter, so recording never allocates.
+ *
+ * Instances are not thread-safe.
+ */
+public class LatencyHistogram {
+
+    /** The number of bits of precision kept within each power of two. */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /** The number of sub-buckets per power of two. */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** The number of buckets needed for every non-negative long value. */
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /** The number of values recorded in each bucket. */
+    private final long[] counts = new long[BUCKETS];
+
+    /** The number of values recorded. */
+    private long count;
+
+    /** The sum of all values recorded. */
+    private long total;
+
+    /** The largest value recorded. */
+    private long max;
+
+    /**
+     * Records a duration. Negative values are recorded as zero.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucketOf(value)]++;
+        count++;
+        total += value;
+        if (value > max) max = value;
+    }
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return the sample count
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the sum of all values recorded.
+     *
+     * @return the total in nanoseconds
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Returns the largest value recorded.
+     *
+     * @return the maximum in nanoseconds, or 0 if nothing was recorded
+     */
+    public long max() {
+        return max;
+    }
+
+    /**
+     * Returns the mean of the values recorded.
+     *
+     * @return the mean in nanoseconds, or 0 if nothing was recorded
+     */
+    public double mean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Returns the value at the given percentile: the upper bound of the bucket holding the
+     * sample at that rank, capped at the maximum.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the value in nanoseconds, or 0 if nothing was recorded
+     * @throws IllegalArgumentException if the percentile is outside 0 to 100
+     */
+    public long percentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        if (count == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(max, upperBound(bucket));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the bucket a value falls into.
+     *
+     * @param value a non-negative value
+     * @return the bucket index
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the largest value that falls into a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the bucket's inclusive upper bound
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,272 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import org.jcodec.common.io.SeekableByteChannel;
+
+/**
+ * A read-only SeekableByteChannel backed by memory-mapped windows of a file.
+ *
+ * The demuxer reads many small samples at arbitrary positions. Reading them through a
+ * FileChannel costs one positioned read syscall per sample, while reading them from a
+ * mapping is a plain memory copy once the pages are resident.
+ *
+ * A single mapping is limited to 2 GB, so the file is mapped in fixed-size windows
+ * aligned to multiples of the window size. When a read moves outside the current window,
+ * the window containing the new position is mapped. If read-ahead is enabled, the window
+ * after the current one is mapped and faulted in on a background thread so that
+ * sequential demuxing does not stall at window boundaries.
+ */
+public class MappedFileChannel implements SeekableByteChannel {
+
+    /** The default window size used for mapping the file (256 MB). */
+    static final long DEFAULT_WINDOW_SIZE = 256L * 1024 * 1024;
+
+
+    /** The underlying file channel that windows are mapped from. */
+    private final FileChannel channel;
+
+    /** The size of the file in bytes, captured when the channel was opened. */
+    private final long size;
+
+    /** The size of each mapped window in bytes. */
+    private final long windowSize;
+
+    /** Whether the next window should be mapped and loaded in the background. */
+    private final boolean readAhead;
+
+    /** The currently mapped window, or null before the first read. */
+    private MappedByteBuffer window;
+
+    /** The file offset of the first byte in the current window. */
+    private long windowStart = -1;
+
+    /** The pending background mapping of the next window, or null if none was requested. */
+    private CompletableFuture<MappedByteBuffer> nextWindow;
+
+    /** The file offset of the window being loaded in the background. */
+    private long nextWindowStart = -1;
+
+    /** The current read position in the file. */
+    private long position;
+
+    /**
+     * Opens the given file for memory-mapped reading using the default window size.
+     *
+     * @param path the file to read
+     * @param readAhead true to load the next window in the background
+     * @throws IOException if the file cannot be opened
+     */
+    public MappedFileChannel(Path path, boolean readAhead) throws IOException {
+        this(path, DEFAULT_WINDOW_SIZE, readAhead);
+    }
+
+    /**
+     * Opens the given file for memory-mapped reading using the given window size.
+     *
+     * @param path the file to read
+     * @param windowSize the number of bytes mapped at a time, between 1 and Integer.MAX_VALUE
+     * @param readAhead true to load the next window in the background
+     * @throws IOException if the file cannot be opened
+     * @throws IllegalArgumentException if the window size is out of range
+     */
+    MappedFileChannel(Path path, long windowSize, boolean readAhead) throws IOException {
+        if (windowSize <= 0 || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Window size must be between 1 and " + Integer.MAX_VALUE + ": " + windowSize);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        this.readAhead = readAhead;
+    }
+
+    /**
+     * Reads bytes from the current position into the given buffer, crossing window
+     * boundaries as needed.
+     *
+     * @param dst the buffer to fill
+     * @return the number of bytes read, or -1 if the position is at or past the end of the file
+     * @throws IOException if the channel is closed or a window cannot be mapped
+     */
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (position >= size) return -1;
+
+        int total = 0;
+        while (dst.hasRemaining() && position < size) {
+            mapWindowContaining(position);
+            int offset = (int) (position - windowStart);
+            int count = Math.min(dst.remaining(), window.limit() - offset);
+            dst.put(dst.position(), window, offset, count);
+            dst.position(dst.position() + count);
+            position += count;
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Makes sure the current window contains the given file offset, reusing the
+     * background mapping when it covers the offset.
+     *
+     * @param offset the file offset that must be readable
+     * @throws IOException if the window cannot be mapped
+     */
+    private void mapWindowContaining(long offset) throws IOException {
+        if (window != null && offset >= windowStart && offset < windowStart + window.limit()) {
+            return;
+        }
+
+        long start = offset - (offset % windowSize);
+        MappedByteBuffer loaded = null;
+        if (nextWindow != null && nextWindowStart == start) {
+            loaded = nextWindow.join();
+        }
+        // A failed background mapping falls back to mapping on demand
+        window = loaded != null ? loaded : map(start);
+        windowStart = start;
+        nextWindow = null;
+        nextWindowStart = -1;
+
+        long following = start + windowSize;
+        if (readAhead && following < size) {
+            nextWindowStart = following;
+            nextWindow = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return map(following).load();
+                } catch (IOException e) {
+                    return null;
+                }
+            }, ReadAhead.EXECUTOR);
+        }
+    }
+
+    /**
+     * Maps the window that starts at the given file offset.
+     *
+     * @param start the window start offset
+     * @return the mapped window
+     * @throws IOException if the mapping fails
+     */
+    private MappedByteBuffer map(long start) throws IOException {
+        long length = Math.min(windowSize, size - start);
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+    }
+
+    /**
+     * This channel is read-only.
+     *
+     * @throws NonWritableChannelException always
+     */
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    /**
+     * Returns the current read position.
+     *
+     * @return the position in bytes from the start of the file
+     * @throws IOException if the channel is closed
+     */
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    /**
+     * Moves the read position. Positions past the end of the file are allowed and
+     * cause subsequent reads to return -1.
+     *
+     * @param newPosition the new position in bytes from the start of the file
+     * @return this channel
+     * @throws IOException if the channel is closed
+     * @throws IllegalArgumentException if the position is negative
+     */
+    @Override
+    public SeekableByteChannel setPosition(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) throw new IllegalArgumentException("Position cannot be negative: " + newPosition);
+        this.position = newPosition;
+        return this;
+    }
+
+    /**
+     * Returns the size of the file when the channel was opened.
+     *
+     * @return the file size in bytes
+     * @throws IOException if the channel is closed
+     */
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return size;
+    }
+
+    /**
+     * This channel is read-only.
+     *
+     * @throws NonWritableChannelException always
+     */
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    /**
+     * Returns whether the channel is open.
+     *
+     * @return true if the channel has not been closed
+     */
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * Closes the underlying file channel and releases references to the mapped windows.
+     *
+     * @throws IOException if the file channel cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        window = null;
+        nextWindow = null;
+        channel.close();
+    }
+
+    /**
+     * Throws if the channel has been closed.
+     *
+     * @throws ClosedChannelException if the channel is closed
+     */
+    private void ensureOpen() throws ClosedChannelException {
+        if (!channel.isOpen()) throw new ClosedChannelException();
+    }
+
+    /**
+     * Holds the read-ahead thread pool, which is only created the first time a file
+     * larger than one window is read.
+     */
+    private static final class ReadAhead {
+
+        /** Daemon threads used to fault in upcoming windows. */
+        static final Executor EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "mapped-file-read-ahead");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
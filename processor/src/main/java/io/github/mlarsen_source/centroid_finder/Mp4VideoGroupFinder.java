@@ -1,14 +1,15 @@
 package io.github.mlarsen_source.centroid_finder;
 
-import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import org.jcodec.api.FrameGrab;
 import org.jcodec.api.JCodecException;
-import org.jcodec.common.model.Picture;
-import org.jcodec.scale.AWTUtil;
 
 /**
  * Extracts time-based centroid coordinates from a video by analyzing
@@ -23,16 +24,97 @@ public class Mp4VideoGroupFinder implements VideoGroupFinder {
   /** Finds connected white pixel groups in a binary image using BFS traversal. */
   private final ImageGroupFinder groupFinder;
 
+  /** The number of largest groups recorded per frame. */
+  private final int groupsPerFrame;
+
+  /** Notified of every processed frame, or null. */
+  private FrameObserver observer;
+
+  /** Receives the decode and convert time of every frame, or null. */
+  private StageRecorder recorder;
+
+  /** Every sampleInterval-th frame is analyzed while the target stands still. */
+  private int sampleInterval = 1;
+
+  /** The centroid displacement in pixels between samples above which skipped frames are analyzed. */
+  private double motionThreshold;
+
+  /** Accumulates where the largest group spent its time, or null. */
+  private OccupancyGrid occupancy;
+
   /**
-   * Constructs a VideoGroupFinder using the specified components.
+   * Constructs a VideoGroupFinder that records the largest group in each frame.
    *
    * @param processor the VideoProcessor responsible for frame extraction
-   * @param binarizer the DistanceImageBinarizer used to convert frames to binary images
    * @param groupFinder the BfsBinaryGroupFinder used to identify connected pixel groups
    */
   public Mp4VideoGroupFinder(VideoProcessor processor, ImageGroupFinder groupFinder) {
+    this(processor, groupFinder, 1);
+  }
+
+  /**
+   * Constructs a VideoGroupFinder that records up to the given number of largest groups
+   * in each frame. Each recorded group is stored with its rank within the frame.
+   *
+   * @param processor the VideoProcessor responsible for frame extraction
+   * @param groupFinder the BfsBinaryGroupFinder used to identify connected pixel groups
+   * @param groupsPerFrame the maximum number of groups recorded per frame, at least 1
+   * @throws IllegalArgumentException if groupsPerFrame is less than 1
+   */
+  public Mp4VideoGroupFinder(VideoProcessor processor, ImageGroupFinder groupFinder, int groupsPerFrame) {
+    if (groupsPerFrame < 1) throw new IllegalArgumentException("groupsPerFrame must be at least 1");
     this.processor = processor;
     this.groupFinder = groupFinder;
+    this.groupsPerFrame = groupsPerFrame;
+  }
+
+  /**
+   * Attaches an observer that is notified of every frame processed by later calls to
+   * {@link #getTrajectory()} or {@link #stream()}.
+   *
+   * @param observer the observer, or null to detach
+   */
+  public void setObserver(FrameObserver observer) {
+    this.observer = observer;
+  }
+
+  /**
+   * Attaches a recorder that receives the decode and convert time of every frame
+   * processed by later calls to {@link #getTrajectory()} or {@link #stream()}.
+   *
+   * @param recorder the recorder, or null to detach
+   */
+  public void setStageRecorder(StageRecorder recorder) {
+    this.recorder = recorder;
+  }
+
+  /**
+   * Makes later runs analyze only every interval-th frame while the target stands still,
+   * going back to the skipped frames whenever the centroid moves more than the threshold
+   * between samples or the target appears or disappears. See
+   * {@link CentroidCursor#setSampling(int, double)}.
+   *
+   * @param interval analyze every interval-th frame, 1 to analyze every frame
+   * @param motionThreshold the centroid displacement in pixels above which skipped frames are analyzed
+   * @throws IllegalArgumentException if interval is less than 1 or motionThreshold is negative
+   */
+  public void setSampling(int interval, double motionThreshold) {
+    if (interval < 1) throw new IllegalArgumentException("Sample interval must be at least 1: " + interval);
+    if (!(motionThreshold >= 0)) {
+      throw new IllegalArgumentException("Motion threshold cannot be negative: " + motionThreshold);
+    }
+    this.sampleInterval = interval;
+    this.motionThreshold = motionThreshold;
+  }
+
+  /**
+   * Makes later calls to {@link #getTrajectory()} and {@link #forEachFrame(Consumer)} add
+   * the largest group's centroid of every frame to the grid as the frame is processed.
+   *
+   * @param occupancy the grid to accumulate into, or null to stop accumulating
+   */
+  public void setOccupancyGrid(OccupancyGrid occupancy) {
+    this.occupancy = occupancy;
   }
 
   /**
@@ -40,51 +122,135 @@ public class Mp4VideoGroupFinder implements VideoGroupFinder {
    * Frames with no detected groups are skipped. The frame number is used to
    * compute the timestamp based on the video's frame rate (FPS).
    *
-   * @return a list of TimedCoordinate objects representing centroids over time
+   * When more than one group is recorded per frame, each frame contributes one entry per
+   * group, largest first, ranked from 1.
+   *
+   * @return a Trajectory of centroids over time
    * @throws IOException if an error occurs while reading the video file
    * @throws JCodecException if an error occurs while decoding video frames
    */
-  public List<TimedCoordinate> getTimeGroups() throws IOException, JCodecException {
+  public Trajectory getTrajectory() throws IOException, JCodecException {
 
-    List<TimedCoordinate> timedCoordinatesList = new ArrayList<>();
-    FrameGrab frames = processor.getFrames();
-    Picture picture;
-    int frameCount = 1;
+    Trajectory trajectory = new Trajectory(Math.max(0, processor.getTotalFrames()));
+    process(trajectory, null);
+    return trajectory;
+  }
 
-    System.out.println("Beginning video processing...");
+  /**
+   * Processes each frame like {@link #getTrajectory()}, but hands the entries of every
+   * frame with groups to the sink as soon as the frame is processed instead of collecting
+   * the whole video, so results can be written while a recording is still growing.
+   *
+   * @param sink receives a Trajectory holding the entries of one frame; it is cleared and
+   *             reused for the next frame once the sink returns
+   * @throws IOException if an error occurs while reading the video file
+   * @throws JCodecException if an error occurs while decoding video frames
+   */
+  public void forEachFrame(Consumer<Trajectory> sink) throws IOException, JCodecException {
+    process(new Trajectory(groupsPerFrame), sink);
+  }
 
-    while ((picture = frames.getNativeFrame()) != null) {
-      BufferedImage frame = AWTUtil.toBufferedImage(picture);
+  /**
+   * Processes each frame, adding its centroids to the trajectory.
+   *
+   * @param trajectory receives the entries
+   * @param sink receives the trajectory after every frame with groups, which is then
+   *             cleared, or null to keep every entry
+   * @throws IOException if an error occurs while reading the video file
+   * @throws JCodecException if an error occurs while decoding video frames
+   */
+  private void process(Trajectory trajectory, Consumer<Trajectory> sink) throws IOException, JCodecException {
+    try (CentroidCursor cursor = openCursor()) {
+      System.out.println("Beginning video processing...");
+      int reported = 0;
 
-      // Identify connected white pixel groups
-      List<Group> groups = groupFinder.findConnectedGroups(frame);
+      while (cursor.next()) {
+        // Store the centroids at this frame's timestamp
+        if (groupsPerFrame == 1) {
+          trajectory.add(cursor.time(), cursor.x(), cursor.y());
+        } else {
+          List<Group> groups = cursor.groups();
+          int count = Math.min(groupsPerFrame, groups.size());
+          for (int rank = 1; rank <= count; rank++) {
+            Coordinate centroid = groups.get(rank - 1).centroid();
+            trajectory.add(cursor.time(), centroid.x(), centroid.y(), rank);
+          }
+        }
+        if (occupancy != null) {
+          occupancy.add(cursor.frameNumber(), cursor.x(), cursor.y(), sampleInterval);
+        }
+        if (sink != null) {
+          sink.accept(trajectory);
+          trajectory.clear();
+        }
 
-      // Skip frames without any detected groups
-      if (groups.isEmpty()) {
-        frameCount++;
-        continue;
+        int framesRead = cursor.framesRead();
+        if (framesRead / 100 > reported) {
+          reported = framesRead / 100;
+          int totalFrames = processor.getTotalFrames();
+          // Streamed input does not know its length
+          System.out.println("Processed frame " + framesRead + (totalFrames > 0 ? " of " + totalFrames : ""));
+        }
       }
+      if (sampleInterval > 1) {
+        System.out.println("Analyzed " + cursor.framesAnalyzed() + " of " + cursor.framesRead() + " frames");
+      }
+    }
+  }
 
-      // Extract the largest group and its centroid location
-      Group largest = groups.get(0);
-      Coordinate location = largest.centroid();
-
-      // Calculate the timestamp for this frame
-      double timeFromStart = processor.getTime(frameCount);
-
-      // Create a new TimedCoordinate record and store it
-      TimedCoordinate tc = new TimedCoordinate(timeFromStart, location);
-      timedCoordinatesList.add(tc);
-
-      frameCount++;
+  /**
+   * Returns a lazy stream of time-based centroid coordinates of the largest group in
+   * each frame.
+   *
+   * Frames are decoded only as elements are pulled from the stream, so short-circuiting
+   * operations such as limit or takeWhile stop decoding early. The stream should be closed,
+   * for example with try-with-resources, to release the video file if it is not consumed to
+   * the end; the file is released automatically once the last frame has been read.
+   * Decoding errors are thrown as UncheckedIOException.
+   *
+   * @return a sequential, ordered stream of TimedCoordinate records
+   * @throws IOException if the video file cannot be opened
+   * @throws JCodecException if an error occurs while initializing frame extraction
+   */
+  @Override
+  public Stream<TimedCoordinate> stream() throws IOException, JCodecException {
+    CentroidCursor cursor = openCursor();
 
-      if (frameCount % 100 == 0) {
-        System.out.println("Processed frame " + frameCount + " of " + processor.getTotalFrames());
+    Spliterator<TimedCoordinate> spliterator = new Spliterators.AbstractSpliterator<>(
+        Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+      @Override
+      public boolean tryAdvance(Consumer<? super TimedCoordinate> action) {
+        try {
+          if (!cursor.next()) return false;
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        action.accept(cursor.current());
+        return true;
       }
-    }
+    };
 
-    return timedCoordinatesList;
+    return StreamSupport.stream(spliterator, false).onClose(() -> {
+      try {
+        cursor.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
 
+  /**
+   * Opens a cursor over the video's frames.
+   *
+   * @return a new cursor positioned before the first frame
+   * @throws IOException if the video file cannot be opened
+   * @throws JCodecException if an error occurs while initializing frame extraction
+   */
+  private CentroidCursor openCursor() throws IOException, JCodecException {
+    CentroidCursor cursor = new CentroidCursor(processor.openFrames(), groupFinder, processor);
+    cursor.setObserver(observer);
+    cursor.setStageRecorder(recorder);
+    cursor.setSampling(sampleInterval, motionThreshold);
+    return cursor;
   }
 }
-
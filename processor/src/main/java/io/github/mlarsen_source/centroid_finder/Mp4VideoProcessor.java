@@ -2,11 +2,14 @@ package io.github.mlarsen_source.centroid_finder;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.stream.IntStream;
 
 import org.jcodec.api.FrameGrab;
 import org.jcodec.api.JCodecException;
 import org.jcodec.common.DemuxerTrack;
-import org.jcodec.common.io.NIOUtils;
+import org.jcodec.common.VideoCodecMeta;
+import org.jcodec.common.model.Size;
 import org.jcodec.containers.mp4.demuxer.MP4Demuxer;
 
 /**
@@ -19,17 +22,58 @@ public class Mp4VideoProcessor implements VideoProcessor {
     /** The video file to be processed. */
     private final File video;
 
+    /** Whether the next mapped window of the file is loaded in the background while demuxing. */
+    private final boolean readAhead;
+
     private final FrameData frameData;
 
+    /** Decodes the frames returned by {@link #openFrames()}, or null to decode them with a JCodec FrameGrab. */
+    private final FrameDecoder decoder;
+
     /**
-     * Constructs a VideoProcessor for the specified video file.
+     * Constructs a VideoProcessor for the specified video file with background read-ahead enabled.
      *
      * @param video the video file to process
      * @throws IOException if the file cannot be read or metadata cannot be extracted
      * @throws JCodecException if an error occurs while parsing the video
      */
     public Mp4VideoProcessor(File video) throws IOException, JCodecException {
+        this(video, true);
+    }
+
+    /**
+     * Constructs a VideoProcessor for the specified video file.
+     *
+     * The file is demuxed through a memory-mapped channel. Read-ahead only has an effect
+     * on files larger than a single mapped window.
+     *
+     * @param video the video file to process
+     * @param readAhead true to fault in the next mapped window on a background thread
+     * @throws IOException if the file cannot be read or metadata cannot be extracted
+     * @throws JCodecException if an error occurs while parsing the video
+     */
+    public Mp4VideoProcessor(File video, boolean readAhead) throws IOException, JCodecException {
+        this(video, readAhead, null);
+    }
+
+    /**
+     * Constructs a VideoProcessor that reads metadata with JCodec and decodes frames with
+     * the given backend.
+     *
+     * @param video the video file to process
+     * @param decoder the backend that decodes the frames, or null to decode them with
+     *                a JCodec FrameGrab
+     * @throws IOException if the file cannot be read or metadata cannot be extracted
+     * @throws JCodecException if an error occurs while parsing the video
+     */
+    public Mp4VideoProcessor(File video, FrameDecoder decoder) throws IOException, JCodecException {
+        this(video, true, decoder);
+    }
+
+    private Mp4VideoProcessor(File video, boolean readAhead, FrameDecoder decoder) throws IOException, JCodecException {
         this.video = video;
+        this.readAhead = readAhead;
+        this.decoder = decoder;
         FrameData frameData = computeFrameData();
         this.frameData = frameData;
     }
@@ -41,12 +85,28 @@ public class Mp4VideoProcessor implements VideoProcessor {
      * @throws IOException if the video file cannot be accessed
      */
     private FrameData computeFrameData() throws IOException {
-        MP4Demuxer demuxer = MP4Demuxer.createMP4Demuxer(NIOUtils.readableChannel(video));
-        DemuxerTrack videoTrack = demuxer.getVideoTrack();
-        int totalFrames = videoTrack.getMeta().getTotalFrames();
-        double totalDuration = videoTrack.getMeta().getTotalDuration();
-        double fps = totalFrames / totalDuration;
-        return new FrameData(totalFrames, fps);
+        try (MappedFileChannel channel = openChannel()) {
+            MP4Demuxer demuxer = MP4Demuxer.createMP4Demuxer(channel);
+            DemuxerTrack videoTrack = demuxer.getVideoTrack();
+            int totalFrames = videoTrack.getMeta().getTotalFrames();
+            double totalDuration = videoTrack.getMeta().getTotalDuration();
+            double fps = totalFrames / totalDuration;
+            VideoCodecMeta codecMeta = videoTrack.getMeta().getVideoCodecMeta();
+            Size size = codecMeta != null ? codecMeta.getSize() : null;
+            return size != null
+                ? new FrameData(totalFrames, fps, size.getWidth(), size.getHeight())
+                : new FrameData(totalFrames, fps, 0, 0);
+        }
+    }
+
+    /**
+     * Opens a memory-mapped channel over the video file for demuxing.
+     *
+     * @return a new read-only channel positioned at the start of the file
+     * @throws IOException if the file cannot be opened
+     */
+    private MappedFileChannel openChannel() throws IOException {
+        return new MappedFileChannel(video.toPath(), readAhead);
     }
 
     /**
@@ -76,18 +136,132 @@ public class Mp4VideoProcessor implements VideoProcessor {
      *
      * Each call creates a new FrameGrab instance starting from the first frame.
      * This method does not reuse any internal state and should be called once per
-     * frame-processing session.
+     * frame-processing session. The memory-mapped channel behind the FrameGrab is only
+     * released when the grab is garbage collected; {@link #openFrames()} returns a reader
+     * that closes it.
      *
      * @return a new FrameGrab for sequential frame access
      * @throws IOException if the video file cannot be read
      * @throws JCodecException if an error occurs while initializing frame extraction
      */
     public FrameGrab getFrames() throws IOException, JCodecException {
-        return FrameGrab.createFrameGrab(NIOUtils.readableChannel(video));
+        return openGrab().frames();
+    }
+
+    /**
+     * Opens a memory-mapped channel over the video and a FrameGrab that reads from it.
+     *
+     * @return the grab and the channel the caller must close
+     * @throws IOException if the video file cannot be read
+     * @throws JCodecException if an error occurs while initializing frame extraction
+     */
+    private OpenGrab openGrab() throws IOException, JCodecException {
+        MappedFileChannel channel = openChannel();
+        try {
+            return new OpenGrab(FrameGrab.createFrameGrab(channel), channel);
+        } catch (IOException | JCodecException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a FrameReader that decodes the video from the first frame with this
+     * processor's decoder and releases the decoder's resources when it is closed.
+     * Without a decoder, frames come from a JCodec FrameGrab, like those of
+     * {@link #getFrames()}, and the reader closes its memory-mapped channel.
+     *
+     * @return a new FrameReader positioned at the first frame
+     * @throws IOException if the video file cannot be read
+     * @throws JCodecException if an error occurs while initializing frame extraction
+     */
+    @Override
+    public FrameReader openFrames() throws IOException, JCodecException {
+        if (decoder != null) {
+            return decoder.open(video, frameData.width(), frameData.height());
+        }
+        OpenGrab grab = openGrab();
+        return new JCodecFrameReader(grab.frames(), grab.channel());
+    }
+
+    /**
+     * Opens a FrameReader that decodes the video with JCodec from the given frame. The
+     * reader seeks to the closest keyframe at or before the frame and decodes forward, so
+     * the first frame it returns is the same as in a read from the start. The reader can
+     * be moved to other frames with {@link JCodecFrameReader#seek(int)}.
+     *
+     * @param startFrame the zero-based index of the first frame returned
+     * @return a new FrameReader positioned at the given frame
+     * @throws IOException if the video file cannot be read
+     * @throws JCodecException if an error occurs while seeking
+     */
+    public JCodecFrameReader openFrames(int startFrame) throws IOException, JCodecException {
+        OpenGrab grab = openGrab();
+        try {
+            if (startFrame > 0) grab.frames().seekToFramePrecise(startFrame);
+        } catch (IOException | JCodecException | RuntimeException e) {
+            grab.channel().close();
+            throw e;
+        }
+        return new JCodecFrameReader(grab.frames(), grab.channel());
+    }
+
+    /**
+     * Returns the keyframes of the video track, from which decoding can start without
+     * earlier frames. In a track without a keyframe table every frame is a keyframe.
+     *
+     * @return the zero-based indexes of the keyframes in ascending order
+     * @throws IOException if the video file cannot be read
+     */
+    public int[] getKeyframes() throws IOException {
+        try (MappedFileChannel channel = openChannel()) {
+            int[] keyframes = MP4Demuxer.createMP4Demuxer(channel).getVideoTrack().getMeta().getSeekFrames();
+            if (keyframes == null) return IntStream.range(0, frameData.totalFrames()).toArray();
+            int[] sorted = keyframes.clone();
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+
+    /**
+     * Returns the backend that decodes the frames.
+     *
+     * @return the decoder, or null if frames are decoded with a JCodec FrameGrab
+     */
+    public FrameDecoder getDecoder() {
+        return decoder;
     }
 
     public int getTotalFrames() {
         return frameData.totalFrames();
     }
-}
 
+    /**
+     * Returns the frame width from the video track's metadata.
+     *
+     * @return the width in pixels, or 0 if the track does not declare it
+     */
+    @Override
+    public int getWidth() {
+        return frameData.width();
+    }
+
+    /**
+     * Returns the frame height from the video track's metadata.
+     *
+     * @return the height in pixels, or 0 if the track does not declare it
+     */
+    @Override
+    public int getHeight() {
+        return frameData.height();
+    }
+
+    /**
+     * A FrameGrab together with the memory-mapped channel it reads from.
+     *
+     * @param frames the grab
+     * @param channel the channel to close when the grab is no longer used
+     */
+    private record OpenGrab(FrameGrab frames, MappedFileChannel channel) {
+    }
+}
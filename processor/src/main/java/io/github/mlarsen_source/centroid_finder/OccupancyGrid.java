@@ -0,0 +1,261 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Accumulates where the target spent its time while a video is processed: a coarse grid
+ * of how many frames the largest group's centroid was in each cell, the length of the path
+ * it travelled, and how long it was in the frame.
+ *
+ * Positions are added one frame at a time, so the statistics cost a few operations per
+ * frame and one int per cell, and no second pass over the CSV is needed. A frame stands
+ * for the frames since the previous position when sampling skipped them, so the dwell
+ * times stay right while a still target is only sampled. Steps between positions further
+ * apart than that, where the target left the frame, are not counted in the path length.
+ *
+ * The grid is written as a 16-bit grayscale PNG with one pixel per cell, scaled so the
+ * busiest cell is white, together with a JSON summary that gives the scale.
+ */
+public class OccupancyGrid {
+
+    /** The highest level of a 16-bit grayscale pixel. */
+    private static final int MAX_LEVEL = 0xFFFF;
+
+    /** The width of the frames in pixels. */
+    private final int frameWidth;
+
+    /** The height of the frames in pixels. */
+    private final int frameHeight;
+
+    /** The width and height of a cell in pixels. */
+    private final int cellSize;
+
+    /** The number of cell columns. */
+    private final int columns;
+
+    /** The number of cell rows. */
+    private final int rows;
+
+    /** The frame rate used to turn frame counts into seconds. */
+    private final double fps;
+
+    /** The number of frames spent in each cell, row by row. */
+    private final int[] cells;
+
+    /** The number of frames in which the target was in the frame. */
+    private long framesInFrame;
+
+    /** The number of positions added. */
+    private long positions;
+
+    /** The total distance between consecutive positions in pixels. */
+    private double pathLength;
+
+    /** The frame number of the previous position, or -1 before the first. */
+    private int previousFrame = -1;
+
+    /** The x coordinate of the previous position. */
+    private double previousX;
+
+    /** The y coordinate of the previous position. */
+    private double previousY;
+
+    /**
+     * Creates an empty grid for frames of the given size.
+     *
+     * @param frameWidth the frame width in pixels
+     * @param frameHeight the frame height in pixels
+     * @param cellSize the width and height of a cell in pixels
+     * @param fps the frame rate of the video
+     * @throws IllegalArgumentException if a size is not positive or the frame rate is not positive
+     */
+    public OccupancyGrid(int frameWidth, int frameHeight, int cellSize, double fps) {
+        if (frameWidth < 1 || frameHeight < 1) {
+            throw new IllegalArgumentException("Frame size must be positive: " + frameWidth + "x" + frameHeight);
+        }
+        if (cellSize < 1) throw new IllegalArgumentException("Cell size must be at least 1: " + cellSize);
+        if (!(fps > 0)) throw new IllegalArgumentException("Frame rate must be positive: " + fps);
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.cellSize = cellSize;
+        this.columns = (frameWidth + cellSize - 1) / cellSize;
+        this.rows = (frameHeight + cellSize - 1) / cellSize;
+        this.fps = fps;
+        this.cells = new int[columns * rows];
+    }
+
+    /**
+     * Adds the target's position in a frame. Positions must be added in frame order.
+     *
+     * @param frameNumber the one-based number of the frame
+     * @param x the centroid x coordinate
+     * @param y the centroid y coordinate
+     * @param maxGap the most frames a position can stand for: the sample interval, or 1
+     *               when every frame is analyzed
+     */
+    public void add(int frameNumber, double x, double y, int maxGap) {
+        int gap = previousFrame < 0 ? 1 : frameNumber - previousFrame;
+        if (previousFrame >= 0 && gap <= maxGap) {
+            pathLength += Math.hypot(x - previousX, y - previousY);
+        }
+        int weight = Math.max(1, Math.min(gap, maxGap));
+        int column = Math.max(0, Math.min(columns - 1, (int) Math.floor(x / cellSize)));
+        int row = Math.max(0, Math.min(rows - 1, (int) Math.floor(y / cellSize)));
+        cells[row * columns + column] += weight;
+        framesInFrame += weight;
+        positions++;
+        previousFrame = frameNumber;
+        previousX = x;
+        previousY = y;
+    }
+
+    /**
+     * Returns the number of frames the target spent in a cell.
+     *
+     * @param column the cell column
+     * @param row the cell row
+     * @return the frame count
+     */
+    public int frames(int column, int row) {
+        return cells[row * columns + column];
+    }
+
+    /**
+     * Returns the number of frames in which the target was in the frame.
+     *
+     * @return the frame count
+     */
+    public long framesInFrame() {
+        return framesInFrame;
+    }
+
+    /**
+     * Returns the total distance the target travelled while it stayed in the frame.
+     *
+     * @return the path length in pixels
+     */
+    public double pathLength() {
+        return pathLength;
+    }
+
+    /**
+     * Returns the number of cell columns.
+     *
+     * @return the width of the grid
+     */
+    public int columns() {
+        return columns;
+    }
+
+    /**
+     * Returns the number of cell rows.
+     *
+     * @return the height of the grid
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Returns the index of the cell the target spent the most frames in.
+     *
+     * @return the index row * columns() + column, the first such cell on ties
+     */
+    private int busiestCell() {
+        int busiest = 0;
+        for (int i = 1; i < cells.length; i++) {
+            if (cells[i] > cells[busiest]) busiest = i;
+        }
+        return busiest;
+    }
+
+    /**
+     * Draws the grid as a 16-bit grayscale image with one pixel per cell. A cell's level
+     * is its frame count scaled so the busiest cell is 65535.
+     *
+     * @return the heatmap image
+     */
+    public BufferedImage toImage() {
+        BufferedImage image = new BufferedImage(columns, rows, BufferedImage.TYPE_USHORT_GRAY);
+        WritableRaster raster = image.getRaster();
+        int max = cells[busiestCell()];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                long frames = cells[row * columns + column];
+                raster.setSample(column, row, 0, max == 0 ? 0 : (int) ((frames * MAX_LEVEL + max / 2) / max));
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Describes the statistics: the frame and grid sizes, how long the target was in the
+     * frame, how far it travelled, the busiest cell, and the seconds a white heatmap pixel
+     * stands for.
+     *
+     * @return the summary members in order, ready for {@link Json#write(Object)}
+     */
+    public Map<String, Object> summary() {
+        int busiest = busiestCell();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("frameWidth", frameWidth);
+        summary.put("frameHeight", frameHeight);
+        summary.put("cellSize", cellSize);
+        summary.put("columns", columns);
+        summary.put("rows", rows);
+        summary.put("positions", positions);
+        summary.put("framesInFrame", framesInFrame);
+        summary.put("timeInFrameSeconds", Math.round(100 * framesInFrame / fps) / 100.0);
+        summary.put("pathLengthPixels", Math.round(100 * pathLength) / 100.0);
+        summary.put("busiestColumn", busiest % columns);
+        summary.put("busiestRow", busiest / columns);
+        summary.put("maxCellSeconds", Math.round(100 * cells[busiest] / fps) / 100.0);
+        return summary;
+    }
+
+    /**
+     * Writes the heatmap PNG and the JSON summary next to an output file.
+     *
+     * @param outputPath the output CSV path
+     * @throws IOException if a file cannot be written
+     */
+    public void writeReport(String outputPath) throws IOException {
+        Path image = imagePathFor(outputPath);
+        if (!ImageIO.write(toImage(), "png", image.toFile())) {
+            throw new IOException("No PNG writer for " + image);
+        }
+        Map<String, Object> summary = summary();
+        summary.put("heatmap", image.getFileName().toString());
+        Files.writeString(reportPathFor(outputPath), Json.write(summary) + System.lineSeparator());
+    }
+
+    /**
+     * Returns the path of the JSON summary written next to an output file: the output path
+     * with its extension replaced by ".heatmap.json".
+     *
+     * @param outputPath the output CSV path
+     * @return the summary path
+     */
+    public static Path reportPathFor(String outputPath) {
+        return Path.of(PerformanceRecorder.sidecarPath(outputPath, ".heatmap.json"));
+    }
+
+    /**
+     * Returns the path of the heatmap PNG written next to an output file: the output path
+     * with its extension replaced by ".heatmap.png".
+     *
+     * @param outputPath the output CSV path
+     * @return the image path
+     */
+    public static Path imagePathFor(String outputPath) {
+        return Path.of(PerformanceRecorder.sidecarPath(outputPath, ".heatmap.png"));
+    }
+}
@@ -0,0 +1,185 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects per-stage latencies and frame counts for one job and writes them as a JSON
+ * performance report.
+ *
+ * Each stage has its own LatencyHistogram, so recording a sample is a few array updates
+ * and never allocates. The report gives p50, p95, p99, max, mean and total per stage in
+ * milliseconds, along with the number of frames, how many were skipped because they had
+ * no group, and the frames per second over the processing time.
+ *
+ * Instances are not thread-safe; each job uses its own recorder.
+ */
+public class PerformanceRecorder implements StageRecorder, FrameObserver {
+
+    /** One histogram per stage. */
+    private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+
+    /** The number of frames processed. */
+    private long frames;
+
+    /** The number of frames without any group. */
+    private long skippedFrames;
+
+    /** The time of the first processed frame's start, or -1 before it. */
+    private long firstFrameNanos = -1;
+
+    /** The time the last frame finished. */
+    private long lastFrameNanos;
+
+    /**
+     * Creates a recorder with an empty histogram for every stage.
+     */
+    public PerformanceRecorder() {
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new LatencyHistogram());
+        }
+    }
+
+    @Override
+    public void record(Stage stage, long nanos) {
+        histograms.get(stage).record(nanos);
+    }
+
+    /**
+     * Counts a processed frame and whether it was skipped.
+     *
+     * @param frameNumber the one-based number of the frame
+     * @param decodeNanos the time spent decoding the frame
+     * @param analysisNanos the time spent analyzing the frame
+     * @param groups the groups found in the frame
+     */
+    @Override
+    public void frameProcessed(int frameNumber, long decodeNanos, long analysisNanos, List<Group> groups) {
+        long now = System.nanoTime();
+        if (firstFrameNanos < 0) {
+            firstFrameNanos = now - decodeNanos - analysisNanos;
+        }
+        lastFrameNanos = now;
+        frames++;
+        if (groups.isEmpty()) skippedFrames++;
+    }
+
+    /**
+     * Returns the histogram of a stage.
+     *
+     * @param stage the stage
+     * @return the stage's histogram
+     */
+    public LatencyHistogram histogram(Stage stage) {
+        return histograms.get(stage);
+    }
+
+    /**
+     * Returns the number of frames processed.
+     *
+     * @return the frame count
+     */
+    public long frames() {
+        return frames;
+    }
+
+    /**
+     * Returns the number of frames that had no group.
+     *
+     * @return the skipped frame count
+     */
+    public long skippedFrames() {
+        return skippedFrames;
+    }
+
+    /**
+     * Builds the report.
+     *
+     * @return the report members in order, ready for {@link Json#write(Object)}
+     */
+    public Map<String, Object> report() {
+        double processingSeconds = frames == 0 ? 0 : (lastFrameNanos - firstFrameNanos) / 1e9;
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("frames", frames);
+        report.put("skippedFrames", skippedFrames);
+        report.put("processingSeconds", round(processingSeconds));
+        report.put("framesPerSecond", processingSeconds > 0 ? round(frames / processingSeconds) : null);
+
+        Map<String, Object> stages = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = histograms.get(stage);
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", histogram.count());
+            summary.put("p50Millis", millis(histogram.percentile(50)));
+            summary.put("p95Millis", millis(histogram.percentile(95)));
+            summary.put("p99Millis", millis(histogram.percentile(99)));
+            summary.put("maxMillis", millis(histogram.max()));
+            summary.put("meanMillis", millis(histogram.mean()));
+            summary.put("totalMillis", millis(histogram.total()));
+            stages.put(stage.reportName(), summary);
+        }
+        report.put("stages", stages);
+        return report;
+    }
+
+    /**
+     * Writes the report as JSON.
+     *
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeReport(Path path) throws IOException {
+        Files.writeString(path, Json.write(report()) + System.lineSeparator());
+    }
+
+    /**
+     * Returns the path of the report written next to an output file: the output path with
+     * its extension replaced by ".perf.json".
+     *
+     * @param outputPath the output CSV path
+     * @return the report path
+     */
+    public static Path reportPathFor(String outputPath) {
+        return Path.of(sidecarPath(outputPath, ".perf.json"));
+    }
+
+    /**
+     * Replaces the extension of a path's file name with a suffix.
+     *
+     * @param path the original path
+     * @param suffix the suffix to use, including its leading dot
+     * @return the path with the new suffix
+     */
+    static String sidecarPath(String path, String suffix) {
+        int dot = path.lastIndexOf('.');
+        int separator = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+        String base = dot > separator ? path.substring(0, dot) : path;
+        return base + suffix;
+    }
+
+    /**
+     * Converts nanoseconds to milliseconds rounded to three decimals.
+     *
+     * @param nanos the duration in nanoseconds
+     * @return the duration in milliseconds
+     */
+    private static double millis(double nanos) {
+        return Math.round(nanos / 1e3) / 1e3;
+    }
+
+    /**
+     * Rounds to two decimals.
+     *
+     * @param value the value to round
+     * @return the rounded value
+     */
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
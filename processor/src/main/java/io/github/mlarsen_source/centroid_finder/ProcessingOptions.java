@@ -0,0 +1,756 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.awt.Rectangle;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Holds the optional settings for a processing job.
+ *
+ * Every setting has a default that reproduces the behavior of the four-argument command
+ * line, so a new ProcessingOptions object can be passed wherever no options were given.
+ * Setters validate their argument and throw IllegalArgumentException for invalid values.
+ */
+public class ProcessingOptions {
+
+    /** The number of largest groups reported per frame. */
+    private int topK = 1;
+
+    /** The minimum number of pixels a group needs to be reported. */
+    private int minGroupSize = 1;
+
+    /** The minimum time between progress events in milliseconds, or -1 if they are disabled. */
+    private long progressIntervalMillis = -1;
+
+    /** Whether a performance report is written next to the output CSV. */
+    private boolean perfReport;
+
+    /** Whether a resource usage report is written next to the output CSV. */
+    private boolean resourceReport;
+
+    /** The name of the decoder backend: auto, jcodec or ffmpeg. */
+    private String decoder = FrameDecoder.AUTO;
+
+    /** The pixel format FFmpeg sends frames in. */
+    private FfmpegFrameDecoder.PixelFormat pixelFormat = FfmpegFrameDecoder.PixelFormat.RGB24;
+
+    /** The kind of input, or null to infer it from the input path. */
+    private InputFormat inputFormat;
+
+    /** The width of raw input frames, or 0 if not given. */
+    private int frameWidth;
+
+    /** The height of raw input frames, or 0 if not given. */
+    private int frameHeight;
+
+    /** The frame rate of raw input, or 0 if not given. */
+    private double frameRate;
+
+    /** The pixel format of raw input frames. */
+    private RawPixelFormat rawPixelFormat = RawPixelFormat.YUV420P;
+
+    /** The number of threads that binarize and label the stripes of each frame. */
+    private int frameThreads = 1;
+
+    /** The first frame processed, counted from 0. */
+    private int startFrame;
+
+    /** One past the last frame processed, or -1 to process to the end of the video. */
+    private int endFrame = -1;
+
+    /** Whether the input is a fragmented MP4 recording that is followed as it grows. */
+    private boolean follow;
+
+    /** How long a followed recording may stop growing before it is considered finished. */
+    private long idleTimeoutMillis = 30_000;
+
+    /** The file whose existence marks the end of a followed recording, or null. */
+    private String endMarker;
+
+    /** The wall-clock budget for the whole job in milliseconds, or 0 for no budget. */
+    private long timeBudgetMillis;
+
+    /** Every sampleInterval-th frame is analyzed while the target stands still. */
+    private int sampleInterval = 1;
+
+    /** The centroid displacement in pixels between samples above which skipped frames are analyzed. */
+    private double motionThreshold = 3;
+
+    /** The rectangle of each frame that is analyzed, or null for whole frames. */
+    private Rectangle crop;
+
+    /** The vertices of the polygon of each frame that is analyzed, or null for whole frames. */
+    private List<Coordinate> maskPolygon;
+
+    /** The number of frames sampled to learn the static background, or 0 to not learn one. */
+    private int backgroundSamples;
+
+    /** The fraction of sampled frames a pixel must match the target in to be static background. */
+    private double backgroundFraction = 0.9;
+
+    /** The cell size in pixels of the occupancy heatmap, or 0 to not write one. */
+    private int heatmapCellSize;
+
+    /** The centroid movement in pixels that starts a new row in change-only output, or -1 for a row per frame. */
+    private double changeEpsilon = -1;
+
+    /**
+     * Returns the number of largest groups reported per frame.
+     *
+     * @return the maximum number of groups per frame, at least 1
+     */
+    public int getTopK() {
+        return topK;
+    }
+
+    /**
+     * Sets the number of largest groups reported per frame. When more than one group is
+     * reported, the CSV gains a rank column.
+     *
+     * @param topK the maximum number of groups per frame
+     * @throws IllegalArgumentException if topK is less than 1
+     */
+    public void setTopK(int topK) {
+        if (topK < 1) throw new IllegalArgumentException("Top-K must be at least 1: " + topK);
+        this.topK = topK;
+    }
+
+    /**
+     * Returns the minimum number of pixels a group needs to be reported.
+     *
+     * @return the minimum group size, at least 1
+     */
+    public int getMinGroupSize() {
+        return minGroupSize;
+    }
+
+    /**
+     * Sets the minimum number of pixels a group needs to be reported. Smaller groups are
+     * ignored as if they were not in the frame.
+     *
+     * @param minGroupSize the minimum group size in pixels
+     * @throws IllegalArgumentException if minGroupSize is less than 1
+     */
+    public void setMinGroupSize(int minGroupSize) {
+        if (minGroupSize < 1) throw new IllegalArgumentException("Minimum group size must be at least 1: " + minGroupSize);
+        this.minGroupSize = minGroupSize;
+    }
+
+    /**
+     * Returns whether JSON-lines progress events are written.
+     *
+     * @return true if progress events are enabled
+     */
+    public boolean isProgressEvents() {
+        return progressIntervalMillis >= 0;
+    }
+
+    /**
+     * Returns the minimum time between progress events.
+     *
+     * @return the interval in milliseconds, or -1 if progress events are disabled
+     */
+    public long getProgressIntervalMillis() {
+        return progressIntervalMillis;
+    }
+
+    /**
+     * Enables JSON-lines progress events on standard output, written at most once per
+     * interval. The free-text log then moves to standard error.
+     *
+     * @param progressIntervalMillis the minimum time between progress events in milliseconds
+     * @throws IllegalArgumentException if the interval is negative
+     */
+    public void setProgressIntervalMillis(long progressIntervalMillis) {
+        if (progressIntervalMillis < 0) throw new IllegalArgumentException("Progress interval cannot be negative: " + progressIntervalMillis);
+        this.progressIntervalMillis = progressIntervalMillis;
+    }
+
+    /**
+     * Returns whether a performance report is written next to the output CSV.
+     *
+     * @return true if the report is enabled
+     */
+    public boolean isPerfReport() {
+        return perfReport;
+    }
+
+    /**
+     * Enables or disables the per-stage performance report. When enabled, a JSON file with
+     * the output's base name and a ".perf.json" extension is written next to the CSV.
+     *
+     * @param perfReport true to write the report
+     */
+    public void setPerfReport(boolean perfReport) {
+        this.perfReport = perfReport;
+    }
+
+    /**
+     * Returns whether a resource usage report is written next to the output CSV.
+     *
+     * @return true if the report is enabled
+     */
+    public boolean isResourceReport() {
+        return resourceReport;
+    }
+
+    /**
+     * Enables or disables the resource usage report. When enabled, a JSON file with the
+     * output's base name and a ".resources.json" extension is written next to the CSV.
+     *
+     * @param resourceReport true to write the report
+     */
+    public void setResourceReport(boolean resourceReport) {
+        this.resourceReport = resourceReport;
+    }
+
+    /**
+     * Returns the name of the decoder backend.
+     *
+     * @return "auto", "jcodec" or "ffmpeg"
+     */
+    public String getDecoder() {
+        return decoder;
+    }
+
+    /**
+     * Sets the decoder backend. "auto" uses FFmpeg when an ffmpeg executable is on the
+     * PATH and JCodec otherwise.
+     *
+     * @param decoder "auto", "jcodec" or "ffmpeg"
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public void setDecoder(String decoder) {
+        if (!decoder.equals(FrameDecoder.AUTO) && !decoder.equals(FrameDecoder.JCODEC) && !decoder.equals(FrameDecoder.FFMPEG)) {
+            throw new IllegalArgumentException("Decoder must be auto, jcodec or ffmpeg: " + decoder);
+        }
+        this.decoder = decoder;
+    }
+
+    /**
+     * Returns the pixel format FFmpeg sends frames in.
+     *
+     * @return the pixel format
+     */
+    public FfmpegFrameDecoder.PixelFormat getPixelFormat() {
+        return pixelFormat;
+    }
+
+    /**
+     * Sets the pixel format FFmpeg sends frames in. It has no effect on the JCodec backend.
+     *
+     * @param pixelFormat the pixel format
+     * @throws NullPointerException if pixelFormat is null
+     */
+    public void setPixelFormat(FfmpegFrameDecoder.PixelFormat pixelFormat) {
+        this.pixelFormat = Objects.requireNonNull(pixelFormat, "pixelFormat");
+    }
+
+    /**
+     * Returns the kind of input given on the command line.
+     *
+     * @return the input format, or null if it is inferred from the input path
+     */
+    public InputFormat getInputFormat() {
+        return inputFormat;
+    }
+
+    /**
+     * Returns the kind of input for an input path: the format given on the command line,
+     * or the one inferred from the path.
+     *
+     * @param path the input path
+     * @return the input format
+     */
+    public InputFormat inputFormatFor(String path) {
+        return inputFormat != null ? inputFormat : InputFormat.infer(path);
+    }
+
+    /**
+     * Sets the kind of input, overriding the format inferred from the input path.
+     *
+     * @param inputFormat the input format
+     * @throws NullPointerException if inputFormat is null
+     */
+    public void setInputFormat(InputFormat inputFormat) {
+        this.inputFormat = Objects.requireNonNull(inputFormat, "inputFormat");
+    }
+
+    /**
+     * Returns the width of raw input frames.
+     *
+     * @return the width in pixels, or 0 if not given
+     */
+    public int getFrameWidth() {
+        return frameWidth;
+    }
+
+    /**
+     * Returns the height of raw input frames.
+     *
+     * @return the height in pixels, or 0 if not given
+     */
+    public int getFrameHeight() {
+        return frameHeight;
+    }
+
+    /**
+     * Sets the size of raw input frames.
+     *
+     * @param frameWidth the width in pixels
+     * @param frameHeight the height in pixels
+     * @throws IllegalArgumentException if either dimension is less than 1
+     */
+    public void setFrameSize(int frameWidth, int frameHeight) {
+        if (frameWidth < 1 || frameHeight < 1) {
+            throw new IllegalArgumentException("Frame size must be positive: " + frameWidth + "x" + frameHeight);
+        }
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+    }
+
+    /**
+     * Returns the frame rate of raw input.
+     *
+     * @return the frames per second, or 0 if not given
+     */
+    public double getFrameRate() {
+        return frameRate;
+    }
+
+    /**
+     * Sets the frame rate of raw input, from which timestamps are computed.
+     *
+     * @param frameRate the frames per second
+     * @throws IllegalArgumentException if the rate is not positive and finite
+     */
+    public void setFrameRate(double frameRate) {
+        if (!(frameRate > 0) || Double.isInfinite(frameRate)) {
+            throw new IllegalArgumentException("Frame rate must be positive: " + frameRate);
+        }
+        this.frameRate = frameRate;
+    }
+
+    /**
+     * Returns the pixel format of raw input frames.
+     *
+     * @return the pixel format
+     */
+    public RawPixelFormat getRawPixelFormat() {
+        return rawPixelFormat;
+    }
+
+    /**
+     * Sets the pixel format of raw input frames.
+     *
+     * @param rawPixelFormat the pixel format
+     * @throws NullPointerException if rawPixelFormat is null
+     */
+    public void setRawPixelFormat(RawPixelFormat rawPixelFormat) {
+        this.rawPixelFormat = Objects.requireNonNull(rawPixelFormat, "rawPixelFormat");
+    }
+
+    /**
+     * Returns the number of threads that binarize and label the stripes of each frame.
+     *
+     * @return the number of threads, 1 if frames are processed on the decoding thread
+     */
+    public int getFrameThreads() {
+        return frameThreads;
+    }
+
+    /**
+     * Sets the number of threads that binarize and label each frame. With more than one,
+     * every frame is split into horizontal stripes processed in parallel, which shortens
+     * the time per frame of high resolution video without changing the results.
+     *
+     * @param frameThreads the number of threads
+     * @throws IllegalArgumentException if frameThreads is less than 1
+     */
+    public void setFrameThreads(int frameThreads) {
+        if (frameThreads < 1) throw new IllegalArgumentException("Frame threads must be at least 1: " + frameThreads);
+        this.frameThreads = frameThreads;
+    }
+
+    /**
+     * Returns the first frame processed.
+     *
+     * @return the zero-based index of the first frame
+     */
+    public int getStartFrame() {
+        return startFrame;
+    }
+
+    /**
+     * Sets the first frame processed. Earlier frames are skipped by seeking, and the
+     * timestamps of later frames are the same as in a run over the whole video.
+     *
+     * @param startFrame the zero-based index of the first frame
+     * @throws IllegalArgumentException if startFrame is negative
+     */
+    public void setStartFrame(int startFrame) {
+        if (startFrame < 0) throw new IllegalArgumentException("Start frame cannot be negative: " + startFrame);
+        this.startFrame = startFrame;
+    }
+
+    /**
+     * Returns the end of the processed frames.
+     *
+     * @return the zero-based index one past the last frame, or -1 for the end of the video
+     */
+    public int getEndFrame() {
+        return endFrame;
+    }
+
+    /**
+     * Sets the end of the processed frames. Processing stops before this frame.
+     *
+     * @param endFrame the zero-based index one past the last frame, or -1 for the end of the video
+     * @throws IllegalArgumentException if endFrame is less than 1 and not -1
+     */
+    public void setEndFrame(int endFrame) {
+        if (endFrame < 1 && endFrame != -1) throw new IllegalArgumentException("End frame must be at least 1: " + endFrame);
+        this.endFrame = endFrame;
+    }
+
+    /**
+     * Returns whether only part of the video is processed.
+     *
+     * @return true if a start or end frame was set
+     */
+    public boolean hasFrameRange() {
+        return startFrame > 0 || endFrame != -1;
+    }
+
+    /**
+     * Returns whether the input is followed as it grows.
+     *
+     * @return true if the input is a growing fragmented MP4 recording
+     */
+    public boolean isFollow() {
+        return follow;
+    }
+
+    /**
+     * Sets whether the input is a fragmented MP4 recording that is processed while it is
+     * being written. Rows are appended to the CSV as frames are processed, and processing
+     * ends at the end of the recording, when the end marker appears, or after the idle timeout.
+     *
+     * @param follow true to follow the input
+     */
+    public void setFollow(boolean follow) {
+        this.follow = follow;
+    }
+
+    /**
+     * Returns how long a followed recording may stop growing before it is considered finished.
+     *
+     * @return the idle timeout in milliseconds
+     */
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    /**
+     * Sets how long a followed recording may stop growing before it is considered finished.
+     *
+     * @param idleTimeoutMillis the idle timeout in milliseconds
+     * @throws IllegalArgumentException if idleTimeoutMillis is less than 1
+     */
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        if (idleTimeoutMillis < 1) throw new IllegalArgumentException("Idle timeout must be positive: " + idleTimeoutMillis);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Returns the file whose existence marks the end of a followed recording.
+     *
+     * @return the path of the marker, or null if there is none
+     */
+    public String getEndMarker() {
+        return endMarker;
+    }
+
+    /**
+     * Sets a file whose existence marks the end of a followed recording. Once it exists,
+     * processing ends after the frames already written.
+     *
+     * @param endMarker the path of the marker, or null for none
+     */
+    public void setEndMarker(String endMarker) {
+        this.endMarker = endMarker;
+    }
+
+    /**
+     * Returns the wall-clock budget for the whole job.
+     *
+     * @return the budget in milliseconds, or 0 if the whole video is processed
+     */
+    public long getTimeBudgetMillis() {
+        return timeBudgetMillis;
+    }
+
+    /**
+     * Sets a wall-clock budget for the whole job. Frames are then sampled sparsely first
+     * and more densely as time allows, and processing stops when the budget runs out.
+     *
+     * @param timeBudgetMillis the budget in milliseconds
+     * @throws IllegalArgumentException if timeBudgetMillis is less than 1
+     */
+    public void setTimeBudgetMillis(long timeBudgetMillis) {
+        if (timeBudgetMillis < 1) throw new IllegalArgumentException("Time budget must be positive: " + timeBudgetMillis);
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    /**
+     * Returns whether processing is limited by a wall-clock budget.
+     *
+     * @return true if a time budget was set
+     */
+    public boolean hasTimeBudget() {
+        return timeBudgetMillis > 0;
+    }
+
+    /**
+     * Returns how many frames apart the samples are while the target stands still.
+     *
+     * @return the sample interval, 1 if every frame is analyzed
+     */
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * Sets how many frames apart the samples are while the target stands still. Frames
+     * between two samples are analyzed only if the target moved between them.
+     *
+     * @param sampleInterval the sample interval, 1 to analyze every frame
+     * @throws IllegalArgumentException if sampleInterval is less than 1
+     */
+    public void setSampleInterval(int sampleInterval) {
+        if (sampleInterval < 1) throw new IllegalArgumentException("Sample interval must be at least 1: " + sampleInterval);
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Returns the centroid displacement between samples above which the frames between
+     * them are analyzed.
+     *
+     * @return the threshold in pixels
+     */
+    public double getMotionThreshold() {
+        return motionThreshold;
+    }
+
+    /**
+     * Sets the centroid displacement between samples above which the frames between them
+     * are analyzed.
+     *
+     * @param motionThreshold the threshold in pixels
+     * @throws IllegalArgumentException if motionThreshold is negative
+     */
+    public void setMotionThreshold(double motionThreshold) {
+        if (!(motionThreshold >= 0)) throw new IllegalArgumentException("Motion threshold cannot be negative: " + motionThreshold);
+        this.motionThreshold = motionThreshold;
+    }
+
+    /**
+     * Returns the rectangle of each frame that is analyzed.
+     *
+     * @return the crop rectangle, or null to analyze whole frames
+     */
+    public Rectangle getCrop() {
+        return crop == null ? null : new Rectangle(crop);
+    }
+
+    /**
+     * Restricts analysis to a rectangle of each frame. Centroids are still reported in
+     * full-frame coordinates.
+     *
+     * @param x the left column of the rectangle
+     * @param y the top row of the rectangle
+     * @param width the width of the rectangle
+     * @param height the height of the rectangle
+     * @throws IllegalArgumentException if x or y is negative or the size is not positive
+     */
+    public void setCrop(int x, int y, int width, int height) {
+        if (x < 0 || y < 0) throw new IllegalArgumentException("Crop position cannot be negative: " + x + "," + y);
+        if (width < 1 || height < 1) throw new IllegalArgumentException("Crop size must be positive: " + width + "x" + height);
+        this.crop = new Rectangle(x, y, width, height);
+    }
+
+    /**
+     * Returns the polygon of each frame that is analyzed.
+     *
+     * @return the polygon's vertices, or null to analyze whole frames
+     */
+    public List<Coordinate> getMaskPolygon() {
+        return maskPolygon;
+    }
+
+    /**
+     * Restricts analysis to the pixels whose centers lie inside a polygon. Combined with a
+     * crop rectangle, only pixels inside both are analyzed.
+     *
+     * @param maskPolygon the polygon's vertices in frame pixel coordinates, or null for none
+     * @throws IllegalArgumentException if the polygon has fewer than 3 vertices
+     */
+    public void setMaskPolygon(List<Coordinate> maskPolygon) {
+        if (maskPolygon != null && maskPolygon.size() < 3) {
+            throw new IllegalArgumentException("A mask polygon needs at least 3 vertices: " + maskPolygon.size());
+        }
+        this.maskPolygon = maskPolygon == null ? null : List.copyOf(maskPolygon);
+    }
+
+    /**
+     * Returns whether analysis is restricted to a crop rectangle or a polygon.
+     *
+     * @return true if a crop or mask polygon was set
+     */
+    public boolean hasRegion() {
+        return crop != null || maskPolygon != null;
+    }
+
+    /**
+     * Compiles the crop rectangle and mask polygon for frames of the given size.
+     *
+     * @param frameWidth the frame width
+     * @param frameHeight the frame height
+     * @return the region, or null if analysis is not restricted
+     * @throws IllegalArgumentException if the region does not cover any pixel of the frame
+     */
+    public RegionMask regionFor(int frameWidth, int frameHeight) {
+        return hasRegion() ? RegionMask.compile(frameWidth, frameHeight, crop, maskPolygon) : null;
+    }
+
+    /**
+     * Compiles the crop rectangle and mask polygon for frames of the given size, leaving
+     * out the pixels of a learned static background.
+     *
+     * @param frameWidth the frame width
+     * @param frameHeight the frame height
+     * @param background the static background pixels to leave out, or null for none
+     * @return the region, or null if analysis is not restricted
+     * @throws IllegalArgumentException if the region does not cover any pixel of the frame
+     */
+    public RegionMask regionFor(int frameWidth, int frameHeight, StaticBackgroundMask background) {
+        if (background == null || background.excludedCount() == 0) return regionFor(frameWidth, frameHeight);
+        return RegionMask.compile(frameWidth, frameHeight, crop, maskPolygon, background);
+    }
+
+    /**
+     * Returns the number of frames sampled to learn the static background.
+     *
+     * @return the sample count, or 0 if no background is learned
+     */
+    public int getBackgroundSamples() {
+        return backgroundSamples;
+    }
+
+    /**
+     * Learns the pixels that match the target in nearly every frame from a sample of
+     * frames before processing, and leaves them out of the analysis.
+     *
+     * @param backgroundSamples the number of frames to sample
+     * @throws IllegalArgumentException if backgroundSamples is less than 1
+     */
+    public void setBackgroundSamples(int backgroundSamples) {
+        if (backgroundSamples < 1) {
+            throw new IllegalArgumentException("Background samples must be at least 1: " + backgroundSamples);
+        }
+        this.backgroundSamples = backgroundSamples;
+    }
+
+    /**
+     * Returns whether a static background is learned before processing.
+     *
+     * @return true if background samples were set
+     */
+    public boolean hasBackgroundLearning() {
+        return backgroundSamples > 0;
+    }
+
+    /**
+     * Returns the fraction of sampled frames a pixel must match the target in to be
+     * static background.
+     *
+     * @return the fraction, above 0 and at most 1
+     */
+    public double getBackgroundFraction() {
+        return backgroundFraction;
+    }
+
+    /**
+     * Sets the fraction of sampled frames a pixel must match the target in to be static
+     * background.
+     *
+     * @param backgroundFraction the fraction, above 0 and at most 1
+     * @throws IllegalArgumentException if backgroundFraction is out of range
+     */
+    public void setBackgroundFraction(double backgroundFraction) {
+        if (!(backgroundFraction > 0 && backgroundFraction <= 1)) {
+            throw new IllegalArgumentException("Background fraction must be above 0 and at most 1: " + backgroundFraction);
+        }
+        this.backgroundFraction = backgroundFraction;
+    }
+
+    /**
+     * Returns the cell size of the occupancy heatmap.
+     *
+     * @return the cell size in pixels, or 0 if no heatmap is written
+     */
+    public int getHeatmapCellSize() {
+        return heatmapCellSize;
+    }
+
+    /**
+     * Accumulates a heatmap of where the target spent its time, with its path length and
+     * time in frame, and writes it next to the output CSV.
+     *
+     * @param heatmapCellSize the width and height of a heatmap cell in pixels
+     * @throws IllegalArgumentException if heatmapCellSize is less than 1
+     */
+    public void setHeatmapCellSize(int heatmapCellSize) {
+        if (heatmapCellSize < 1) throw new IllegalArgumentException("Heatmap cell size must be at least 1: " + heatmapCellSize);
+        this.heatmapCellSize = heatmapCellSize;
+    }
+
+    /**
+     * Returns whether an occupancy heatmap is written.
+     *
+     * @return true if a heatmap cell size was set
+     */
+    public boolean hasHeatmap() {
+        return heatmapCellSize > 0;
+    }
+
+    /**
+     * Returns the centroid movement that starts a new row in change-only output.
+     *
+     * @return the epsilon in pixels, or -1 if a row is written for every frame
+     */
+    public double getChangeEpsilon() {
+        return changeEpsilon;
+    }
+
+    /**
+     * Writes one row per run of frames in which the centroid stays within epsilon pixels,
+     * with the run's duration, instead of one row per frame.
+     *
+     * @param changeEpsilon the movement in pixels that starts a new row
+     * @throws IllegalArgumentException if changeEpsilon is negative
+     */
+    public void setChangeEpsilon(double changeEpsilon) {
+        if (!(changeEpsilon >= 0)) throw new IllegalArgumentException("Change epsilon cannot be negative: " + changeEpsilon);
+        this.changeEpsilon = changeEpsilon;
+    }
+
+    /**
+     * Returns whether only changes of the centroid are written.
+     *
+     * @return true if a change epsilon was set
+     */
+    public boolean isChangeOnly() {
+        return changeEpsilon >= 0;
+    }
+}
@@ -0,0 +1,229 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Writes machine-readable progress of a processing job as JSON lines.
+ *
+ * Two kinds of events are written. A phase event marks a transition between the steps
+ * of a job ("opening", "processing", "writing", "done" or "failed"):
+ *
+ * {"event":"phase","phase":"processing","elapsedMillis":42}
+ *
+ * A progress event reports the frames done so far, including frames that sampling passed
+ * over, the decode and analysis rates over the frames analyzed since the previous progress
+ * event, and the estimated time left:
+ *
+ * {"event":"progress","framesDone":300,"totalFrames":900,"decodeFps":212.4,"analysisFps":655.0,"etaSeconds":4.1}
+ *
+ * Progress events are rate-limited to at most one per interval. A final progress event is
+ * always written before the next phase event, so the last progress line is exact.
+ */
+public class ProgressEventWriter implements FrameObserver {
+
+    /** Receives the event lines. */
+    private final PrintStream out;
+
+    /** The minimum time between progress events in nanoseconds. */
+    private final long intervalNanos;
+
+    /** Returns the current time in nanoseconds. */
+    private final LongSupplier clock;
+
+    /** The time the writer was created. */
+    private final long startNanos;
+
+    /** The total number of frames in the video, or 0 if unknown. */
+    private int totalFrames;
+
+    /** The number of frames processed or skipped so far. */
+    private int framesDone;
+
+    /** The value of {@link #framesDone} in the last progress event. */
+    private int framesReported;
+
+    /** The time the first frame started, used for the time estimate. */
+    private long processingStartNanos = -1;
+
+    /** The time the last progress event was written. */
+    private long lastEventNanos;
+
+    /** Frames analyzed since the last progress event. */
+    private int windowFrames;
+
+    /** Decode time of the frames since the last progress event. */
+    private long windowDecodeNanos;
+
+    /** Analysis time of the frames since the last progress event. */
+    private long windowAnalysisNanos;
+
+    /**
+     * Creates a writer that rate-limits progress events to the given interval.
+     *
+     * @param out receives the event lines
+     * @param intervalMillis the minimum time between progress events in milliseconds
+     * @throws IllegalArgumentException if the interval is negative
+     */
+    public ProgressEventWriter(PrintStream out, long intervalMillis) {
+        this(out, intervalMillis, System::nanoTime);
+    }
+
+    /**
+     * Creates a writer with the given clock.
+     *
+     * @param out receives the event lines
+     * @param intervalMillis the minimum time between progress events in milliseconds
+     * @param clock returns the current time in nanoseconds
+     * @throws IllegalArgumentException if the interval is negative
+     */
+    ProgressEventWriter(PrintStream out, long intervalMillis, LongSupplier clock) {
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException("Progress interval cannot be negative: " + intervalMillis);
+        }
+        this.out = out;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.clock = clock;
+        this.startNanos = clock.getAsLong();
+        this.lastEventNanos = startNanos;
+    }
+
+    /**
+     * Sets the total number of frames used for the percentage and the time estimate.
+     *
+     * @param totalFrames the number of frames in the video
+     */
+    public void setTotalFrames(int totalFrames) {
+        this.totalFrames = Math.max(0, totalFrames);
+    }
+
+    /**
+     * Writes a phase event, preceded by a final progress event if frames were processed
+     * since the last one.
+     *
+     * @param phase the phase that starts now
+     */
+    public void phase(String phase) {
+        phase(phase, null);
+    }
+
+    /**
+     * Writes a failed phase event with the reason.
+     *
+     * @param error the failure message
+     */
+    public void failed(String error) {
+        phase("failed", error);
+    }
+
+    /**
+     * Writes a phase event with an optional error.
+     *
+     * @param phase the phase that starts now
+     * @param error the failure message, or null
+     */
+    private void phase(String phase, String error) {
+        long now = clock.getAsLong();
+        if (framesDone > framesReported) {
+            writeProgress(now);
+        }
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("event", "phase");
+        event.put("phase", phase);
+        event.put("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(now - startNanos));
+        if (error != null) event.put("error", error);
+        out.println(Json.write(event));
+    }
+
+    /**
+     * Counts a processed frame and writes a progress event once the interval has passed.
+     *
+     * @param frameNumber the one-based number of the frame
+     * @param decodeNanos the time spent decoding the frame
+     * @param analysisNanos the time spent analyzing the frame
+     * @param groups the groups found in the frame
+     */
+    @Override
+    public void frameProcessed(int frameNumber, long decodeNanos, long analysisNanos, List<Group> groups) {
+        long now = clock.getAsLong();
+        if (processingStartNanos < 0) {
+            processingStartNanos = now - decodeNanos - analysisNanos;
+        }
+        framesDone++;
+        windowFrames++;
+        windowDecodeNanos += decodeNanos;
+        windowAnalysisNanos += analysisNanos;
+
+        if (now - lastEventNanos >= intervalNanos) {
+            writeProgress(now);
+        }
+    }
+
+    /**
+     * Counts a frame that sampling skipped, so that the frames done reach the total, and
+     * writes a progress event once the interval has passed.
+     *
+     * @param frameNumber the one-based number of the frame
+     */
+    @Override
+    public void frameSkipped(int frameNumber) {
+        framesDone++;
+        long now = clock.getAsLong();
+        if (processingStartNanos >= 0 && now - lastEventNanos >= intervalNanos) {
+            writeProgress(now);
+        }
+    }
+
+    /**
+     * Writes a progress event for the frames since the last one and starts a new window.
+     *
+     * @param now the current time in nanoseconds
+     */
+    private void writeProgress(long now) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("event", "progress");
+        event.put("framesDone", framesDone);
+        event.put("totalFrames", totalFrames);
+        event.put("decodeFps", rate(windowFrames, windowDecodeNanos));
+        event.put("analysisFps", rate(windowFrames, windowAnalysisNanos));
+
+        Double eta = null;
+        if (totalFrames > 0 && framesDone > 0) {
+            double secondsPerFrame = (now - processingStartNanos) / 1e9 / framesDone;
+            eta = round(Math.max(0, totalFrames - framesDone) * secondsPerFrame);
+        }
+        event.put("etaSeconds", eta);
+        out.println(Json.write(event));
+
+        lastEventNanos = now;
+        framesReported = framesDone;
+        windowFrames = 0;
+        windowDecodeNanos = 0;
+        windowAnalysisNanos = 0;
+    }
+
+    /**
+     * Returns frames per second rounded to one decimal, or null if no time was measured.
+     *
+     * @param frames the number of frames
+     * @param nanos the time they took
+     * @return the rate, or null
+     */
+    private static Double rate(int frames, long nanos) {
+        return nanos > 0 ? round(frames / (nanos / 1e9)) : null;
+    }
+
+    /**
+     * Rounds to one decimal.
+     *
+     * @param value the value to round
+     * @return the rounded value
+     */
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
@@ -0,0 +1,151 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.jcodec.common.model.Picture;
+
+/**
+ * A FrameReader over a stream of uncompressed frames of a known size and pixel format.
+ *
+ * Every frame is read straight into the planes of one picture that is reused for the
+ * whole stream, so reading allocates nothing after the reader is created. Reads are
+ * issued in chunks of a pipe's capacity. The stream may only end between frames; a
+ * stream that ends inside a frame is an error.
+ *
+ * Subclasses can consume per-frame headers by overriding {@link #startFrame(byte[])}
+ * and check how the producer ended by overriding {@link #endOfStream()}.
+ */
+public class RawFrameReader implements FrameReader {
+
+    /** The largest single read, the capacity of a Linux pipe. */
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    /** The stream the frames are read from. */
+    protected final InputStream in;
+
+    /** The reused frame, whose planes are filled in place. */
+    private final Picture picture;
+
+    /** The number of leading picture planes each frame fills. */
+    private final int planes;
+
+    /** Whether the end of the stream has been reached. */
+    private boolean finished;
+
+    /**
+     * Creates a reader of frames in a pixel format.
+     *
+     * @param in the stream of frames, which the reader closes
+     * @param width the frame width
+     * @param height the frame height
+     * @param format the pixel format of the frames
+     * @throws IllegalArgumentException if the size does not suit the format
+     */
+    public RawFrameReader(InputStream in, int width, int height, RawPixelFormat format) {
+        this(in, format.createPicture(width, height), format.getPlanes());
+    }
+
+    /**
+     * Creates a reader that fills the leading planes of a given picture.
+     *
+     * @param in the stream of frames, which the reader closes
+     * @param picture the reused picture frames are read into
+     * @param planes the number of leading planes each frame fills
+     */
+    protected RawFrameReader(InputStream in, Picture picture, int planes) {
+        this.in = in;
+        this.picture = picture;
+        this.planes = planes;
+    }
+
+    /**
+     * Reads the next frame into the reused picture.
+     *
+     * @return the frame, valid until the next call, or null after the last frame
+     * @throws IOException if the stream ends inside a frame or cannot be read
+     */
+    @Override
+    public Picture readFrame() throws IOException {
+        if (finished) return null;
+        byte[][] data = picture.getData();
+        int offset = startFrame(data[0]);
+        if (offset < 0) {
+            finished = true;
+            endOfStream();
+            return null;
+        }
+        for (int plane = 0; plane < planes; plane++) {
+            if (readFully(data[plane], plane == 0 ? offset : 0) < data[plane].length) {
+                finished = true;
+                throw new IOException("Stream ended inside a frame");
+            }
+            toSigned(data[plane]);
+        }
+        return picture;
+    }
+
+    /**
+     * Consumes whatever precedes a frame's samples. Raw video has no frame headers, so
+     * this only checks for the end of the stream, by reading the first sample.
+     *
+     * @param firstPlane the first plane of the frame, into which samples already read
+     *                   must be stored
+     * @return the number of samples of the first plane already read, or -1 if the stream
+     *         ended before another frame
+     * @throws IOException if the stream cannot be read or the header is malformed
+     */
+    protected int startFrame(byte[] firstPlane) throws IOException {
+        int sample = in.read();
+        if (sample < 0) return -1;
+        firstPlane[0] = (byte) sample;
+        return 1;
+    }
+
+    /**
+     * Called once when the stream ends between frames. Does nothing by default.
+     *
+     * @throws IOException if the producer of the stream reports a failure
+     */
+    protected void endOfStream() throws IOException {
+    }
+
+    /**
+     * Fills an array from the stream, stopping early only at the end of the stream.
+     *
+     * @param buffer the array to fill
+     * @param offset the number of bytes already filled
+     * @return the number of bytes filled
+     * @throws IOException if the stream cannot be read
+     */
+    private int readFully(byte[] buffer, int offset) throws IOException {
+        while (offset < buffer.length) {
+            int read = in.read(buffer, offset, Math.min(CHUNK_SIZE, buffer.length - offset));
+            if (read < 0) break;
+            offset += read;
+        }
+        return offset;
+    }
+
+    /**
+     * Converts unsigned samples to JCodec's signed representation, which stores each
+     * sample minus 128.
+     *
+     * @param plane the samples to convert in place
+     */
+    private static void toSigned(byte[] plane) {
+        for (int i = 0; i < plane.length; i++) {
+            plane[i] ^= (byte) 0x80;
+        }
+    }
+
+    /**
+     * Closes the stream.
+     *
+     * @throws IOException if the stream cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import org.jcodec.common.model.ColorSpace;
+import org.jcodec.common.model.Picture;
+
+/**
+ * The layouts of uncompressed frames the processor can read from a stream.
+ *
+ * Names match FFmpeg's pixel format names, so "-f rawvideo -pix_fmt NAME" on the
+ * producing side describes exactly the bytes expected here. Samples are 8 bits and planes
+ * follow each other without padding.
+ */
+public enum RawPixelFormat {
+
+    /** Packed red, green and blue bytes. */
+    RGB24("rgb24", ColorSpace.RGB, 1),
+
+    /** Packed blue, green and red bytes, the layout of TYPE_3BYTE_BGR images. */
+    BGR24("bgr24", ColorSpace.BGR, 1),
+
+    /** Planar YUV with chroma halved in both directions. */
+    YUV420P("yuv420p", ColorSpace.YUV420, 3),
+
+    /** Planar YUV with chroma halved horizontally. */
+    YUV422P("yuv422p", ColorSpace.YUV422, 3),
+
+    /** Luma only. Frames are read into a 4:2:0 picture whose chroma is left neutral. */
+    GRAY("gray", ColorSpace.YUV420, 1);
+
+    /** The FFmpeg name of the format. */
+    private final String name;
+
+    /** The color space of the pictures frames are read into. */
+    private final ColorSpace color;
+
+    /** The number of planes a frame has in the stream. */
+    private final int planes;
+
+    RawPixelFormat(String name, ColorSpace color, int planes) {
+        this.name = name;
+        this.color = color;
+        this.planes = planes;
+    }
+
+    /**
+     * Returns the FFmpeg name of the format.
+     *
+     * @return a name such as "yuv420p"
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of planes a frame has in the stream. These are the leading
+     * planes of the picture from {@link #createPicture(int, int)}.
+     *
+     * @return the plane count
+     */
+    public int getPlanes() {
+        return planes;
+    }
+
+    /**
+     * Creates a picture that frames of this format can be read into, plane by plane.
+     * Planes that are not in the stream hold neutral values.
+     *
+     * @param width the frame width
+     * @param height the frame height
+     * @return a new picture with one array per plane
+     * @throws IllegalArgumentException if the size is not positive, or is odd where
+     *                                  chroma is subsampled
+     */
+    public Picture createPicture(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Frame size must be positive: " + width + "x" + height);
+        }
+        boolean planar = color != ColorSpace.RGB && color != ColorSpace.BGR;
+        boolean halfHeightChroma = color == ColorSpace.YUV420;
+        if ((planar && width % 2 != 0) || (halfHeightChroma && height % 2 != 0)) {
+            throw new IllegalArgumentException(name + " needs an even frame size: " + width + "x" + height);
+        }
+        int size = width * height;
+        byte[][] data = switch (this) {
+            case RGB24, BGR24 -> new byte[][] { new byte[size * 3] };
+            case YUV422P -> new byte[][] { new byte[size], new byte[size / 2], new byte[size / 2] };
+            // Zero is 128 in JCodec's signed samples, so fresh chroma planes are neutral gray
+            case YUV420P, GRAY -> new byte[][] { new byte[size], new byte[size / 4], new byte[size / 4] };
+        };
+        return Picture.createPicture(width, height, data, color);
+    }
+
+    /**
+     * Returns the format with an FFmpeg name.
+     *
+     * @param name a name such as "rgb24" or "yuv420p"
+     * @return the format
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static RawPixelFormat fromName(String name) {
+        for (RawPixelFormat format : values()) {
+            if (format.name.equals(name)) return format;
+        }
+        throw new IllegalArgumentException("Unknown raw pixel format: " + name
+            + " (expected rgb24, bgr24, yuv420p, yuv422p or gray)");
+    }
+}
@@ -0,0 +1,357 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The part of a frame that is analyzed, compiled into spans of columns per row.
+ *
+ * A region is the intersection of an optional crop rectangle and an optional polygon.
+ * A pixel is inside the polygon when its center is, by the even-odd rule, so polygons may
+ * be concave. The region is compiled once for a frame size. Binarizers then visit only
+ * the pixels inside the spans, and the binary array covers only the rows and columns of
+ * the region's bounding box: binary cell (row, col) is pixel (left() + col, top() + row)
+ * of the frame. Cells of the box outside the spans are always 0.
+ *
+ * A learned {@link StaticBackgroundMask} can also be subtracted from the region, which
+ * splits the spans around the excluded pixels.
+ *
+ * Spans are stored in two int arrays, so the region costs 8 bytes per span and looking
+ * up a row's spans does not allocate.
+ */
+public final class RegionMask {
+
+    /** The width of the frames the region was compiled for. */
+    private final int frameWidth;
+
+    /** The height of the frames the region was compiled for. */
+    private final int frameHeight;
+
+    /** The first frame row of the bounding box. */
+    private final int top;
+
+    /** The first frame column of the bounding box. */
+    private final int left;
+
+    /** The number of rows in the bounding box. */
+    private final int height;
+
+    /** The number of columns in the bounding box. */
+    private final int width;
+
+    /** The index of each box row's first span, followed by the total span count. */
+    private final int[] rowStarts;
+
+    /** Start and end columns of every span, in frame coordinates, as pairs. */
+    private final int[] spans;
+
+    /**
+     * Creates a compiled region.
+     *
+     * @param frameWidth the frame width
+     * @param frameHeight the frame height
+     * @param top the first frame row of the bounding box
+     * @param left the first frame column of the bounding box
+     * @param height the number of rows in the bounding box
+     * @param width the number of columns in the bounding box
+     * @param rowStarts the index of each box row's first span, followed by the span count
+     * @param spans start and end columns of every span as pairs
+     */
+    private RegionMask(int frameWidth, int frameHeight, int top, int left, int height, int width,
+            int[] rowStarts, int[] spans) {
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.top = top;
+        this.left = left;
+        this.height = height;
+        this.width = width;
+        this.rowStarts = rowStarts;
+        this.spans = spans;
+    }
+
+    /**
+     * Compiles the region of a frame inside a crop rectangle and a polygon.
+     *
+     * @param frameWidth the frame width
+     * @param frameHeight the frame height
+     * @param crop the rectangle to analyze, or null for the whole frame
+     * @param polygon the polygon's vertices in frame pixel coordinates, or null for no polygon
+     * @return the compiled region
+     * @throws IllegalArgumentException if the frame size is not positive, the polygon has
+     *                                  fewer than 3 vertices, or the region covers no pixel
+     */
+    public static RegionMask compile(int frameWidth, int frameHeight, Rectangle crop, List<Coordinate> polygon) {
+        return compile(frameWidth, frameHeight, crop, polygon, null);
+    }
+
+    /**
+     * Compiles the region of a frame inside a crop rectangle and a polygon, without the
+     * pixels of a static background mask.
+     *
+     * @param frameWidth the frame width
+     * @param frameHeight the frame height
+     * @param crop the rectangle to analyze, or null for the whole frame
+     * @param polygon the polygon's vertices in frame pixel coordinates, or null for no polygon
+     * @param exclude the pixels left out of the region, or null for none
+     * @return the compiled region
+     * @throws IllegalArgumentException if the frame size is not positive, the polygon has
+     *                                  fewer than 3 vertices, the mask was learned from frames
+     *                                  of another size, or the region covers no pixel
+     */
+    public static RegionMask compile(int frameWidth, int frameHeight, Rectangle crop, List<Coordinate> polygon,
+            StaticBackgroundMask exclude) {
+        if (frameWidth < 1 || frameHeight < 1) {
+            throw new IllegalArgumentException("Frame size must be positive: " + frameWidth + "x" + frameHeight);
+        }
+        if (polygon != null && polygon.size() < 3) {
+            throw new IllegalArgumentException("A polygon needs at least 3 vertices: " + polygon.size());
+        }
+        if (exclude != null && (exclude.width() != frameWidth || exclude.height() != frameHeight)) {
+            throw new IllegalArgumentException("The background mask was learned from " + exclude.width() + "x"
+                    + exclude.height() + " frames, not " + frameWidth + "x" + frameHeight);
+        }
+        Rectangle clip = new Rectangle(0, 0, frameWidth, frameHeight);
+        if (crop != null) clip = clip.intersection(crop);
+
+        int[] rowStarts = new int[frameHeight + 1];
+        int[] spans = new int[16];
+        int count = 0;
+        double[] crossings = new double[polygon == null ? 0 : polygon.size()];
+        int top = -1;
+        int bottom = -1;
+        int left = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE;
+
+        for (int row = 0; row < frameHeight; row++) {
+            rowStarts[row] = count;
+            if (clip.isEmpty() || row < clip.y || row >= clip.y + clip.height) continue;
+            int clipFrom = clip.x;
+            int clipTo = clip.x + clip.width;
+
+            int pairs = polygon == null ? 1 : crossings(polygon, row + 0.5, crossings) / 2;
+            for (int pair = 0; pair < pairs; pair++) {
+                int from;
+                int to;
+                if (polygon == null) {
+                    from = clipFrom;
+                    to = clipTo;
+                } else {
+                    // Pixels whose centers lie between the two crossings
+                    from = Math.max(clipFrom, (int) Math.ceil(crossings[2 * pair] - 0.5));
+                    to = Math.min(clipTo, (int) Math.ceil(crossings[2 * pair + 1] - 0.5));
+                }
+                // Excluded pixels split the span into the runs between them
+                int next = from;
+                while (next < to) {
+                    int runFrom = exclude == null ? next : exclude.nextIncluded(next, row, to);
+                    int runTo = exclude == null ? to : exclude.nextExcluded(runFrom, row, to);
+                    next = runTo;
+                    if (runFrom >= runTo) continue;
+                    if (rowStarts[row] < count && spans[2 * count - 1] >= runFrom) {
+                        // Touching spans of the same row are merged
+                        spans[2 * count - 1] = Math.max(spans[2 * count - 1], runTo);
+                    } else {
+                        if (2 * count + 2 > spans.length) spans = Arrays.copyOf(spans, spans.length * 2);
+                        spans[2 * count] = runFrom;
+                        spans[2 * count + 1] = runTo;
+                        count++;
+                    }
+                    if (top < 0) top = row;
+                    bottom = row + 1;
+                    left = Math.min(left, runFrom);
+                    right = Math.max(right, runTo);
+                }
+            }
+        }
+        rowStarts[frameHeight] = count;
+        if (count == 0) {
+            throw new IllegalArgumentException("The region does not cover any pixel of the "
+                    + frameWidth + "x" + frameHeight + " frame");
+        }
+
+        return new RegionMask(frameWidth, frameHeight, top, left, bottom - top, right - left,
+                Arrays.copyOfRange(rowStarts, top, bottom + 1), Arrays.copyOf(spans, 2 * count));
+    }
+
+    /**
+     * Finds where a horizontal line crosses the edges of a polygon.
+     *
+     * @param polygon the polygon's vertices
+     * @param y the height of the line
+     * @param out receives the x coordinates of the crossings in ascending order
+     * @return the number of crossings, which is even
+     */
+    private static int crossings(List<Coordinate> polygon, double y, double[] out) {
+        int count = 0;
+        int n = polygon.size();
+        for (int i = 0; i < n; i++) {
+            Coordinate a = polygon.get(i);
+            Coordinate b = polygon.get((i + 1) % n);
+            // Half-open in y, so a vertex on the line is counted once
+            if ((a.y() <= y) != (b.y() <= y)) {
+                out[count++] = a.x() + (y - a.y()) * (b.x() - a.x()) / (b.y() - a.y());
+            }
+        }
+        Arrays.sort(out, 0, count);
+        return count;
+    }
+
+    /**
+     * Returns whether a pixel of the frame is inside the region.
+     *
+     * @param x the pixel column
+     * @param y the pixel row
+     * @return true if the pixel is analyzed
+     */
+    public boolean contains(int x, int y) {
+        if (y < top || y >= top + height) return false;
+        for (int span = firstSpan(y - top); span < endSpan(y - top); span++) {
+            if (x >= spanFrom(span) && x < spanTo(span)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Copies the region of a full-frame binary array into a bounding-box sized array,
+     * clearing the cells outside the spans. This lets binarizers that cannot visit spans
+     * themselves still produce a region's binary array.
+     *
+     * @param binary a binary array of the frame size
+     * @param reuse an array of the bounding box size to write into, or null to allocate one
+     * @return the bounding box's binary array
+     * @throws IllegalArgumentException if binary does not have the frame size
+     */
+    public int[][] extract(int[][] binary, int[][] reuse) {
+        if (binary.length != frameHeight || binary[0].length != frameWidth) {
+            throw new IllegalArgumentException("binary must be " + frameWidth + "x" + frameHeight);
+        }
+        int[][] out = boxArray(reuse);
+        for (int row = 0; row < height; row++) {
+            int[] source = binary[top + row];
+            int[] target = out[row];
+            int col = left;
+            for (int span = firstSpan(row); span < endSpan(row); span++) {
+                Arrays.fill(target, col - left, spanFrom(span) - left, 0);
+                System.arraycopy(source, spanFrom(span), target, spanFrom(span) - left, spanTo(span) - spanFrom(span));
+                col = spanTo(span);
+            }
+            Arrays.fill(target, col - left, width, 0);
+        }
+        return out;
+    }
+
+    /**
+     * Returns the given array if it has the bounding box size, or a new one.
+     *
+     * @param reuse an array to reuse, or null
+     * @return an array of [height()][width()]
+     */
+    int[][] boxArray(int[][] reuse) {
+        if (reuse != null && reuse.length == height && reuse[0].length == width) return reuse;
+        return new int[height][width];
+    }
+
+    /**
+     * Checks that an image has the size the region was compiled for.
+     *
+     * @param imageWidth the image width
+     * @param imageHeight the image height
+     * @throws IllegalArgumentException if the size differs
+     */
+    void checkFrameSize(int imageWidth, int imageHeight) {
+        if (imageWidth != frameWidth || imageHeight != frameHeight) {
+            throw new IllegalArgumentException("The region was compiled for " + frameWidth + "x" + frameHeight
+                    + " frames, not " + imageWidth + "x" + imageHeight);
+        }
+    }
+
+    /**
+     * Returns the index of the first span of a bounding box row.
+     *
+     * @param boxRow the row within the bounding box
+     * @return the span index
+     */
+    public int firstSpan(int boxRow) {
+        return rowStarts[boxRow];
+    }
+
+    /**
+     * Returns one past the index of the last span of a bounding box row.
+     *
+     * @param boxRow the row within the bounding box
+     * @return the span index
+     */
+    public int endSpan(int boxRow) {
+        return rowStarts[boxRow + 1];
+    }
+
+    /**
+     * Returns the first frame column of a span.
+     *
+     * @param span the span index
+     * @return the column
+     */
+    public int spanFrom(int span) {
+        return spans[2 * span];
+    }
+
+    /**
+     * Returns one past the last frame column of a span.
+     *
+     * @param span the span index
+     * @return the column
+     */
+    public int spanTo(int span) {
+        return spans[2 * span + 1];
+    }
+
+    /**
+     * Returns the number of pixels inside the region.
+     *
+     * @return the pixel count
+     */
+    public long area() {
+        long area = 0;
+        for (int span = 0; span < spans.length / 2; span++) {
+            area += spanTo(span) - spanFrom(span);
+        }
+        return area;
+    }
+
+    /**
+     * Returns the first frame row of the bounding box.
+     *
+     * @return the row offset of the binary array
+     */
+    public int top() {
+        return top;
+    }
+
+    /**
+     * Returns the first frame column of the bounding box.
+     *
+     * @return the column offset of the binary array
+     */
+    public int left() {
+        return left;
+    }
+
+    /**
+     * Returns the number of rows in the bounding box.
+     *
+     * @return the height of the binary array
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Returns the number of columns in the bounding box.
+     *
+     * @return the width of the binary array
+     */
+    public int width() {
+        return width;
+    }
+}
@@ -0,0 +1,323 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures what one job costs in CPU time, allocation, heap and garbage collection, and
+ * writes it with the input's size as a JSON resource report.
+ *
+ * The recorder takes a snapshot when it is created and another when {@link #finish()} is
+ * called. Thread CPU time and allocated bytes belong to the thread that created the
+ * recorder, which is the thread that runs the job; the JVM does not measure them for
+ * virtual threads. The CPU time and allocation of the job's stripe pool, whose threads
+ * come from {@link #workerThreadFactory()}, are reported separately. Process CPU time and
+ * garbage collection are shared by the whole JVM, so they include other jobs running at
+ * the same time in the worker daemon or in batch mode. The peak heap is the highest heap
+ * use since the JVM started; it is not reset per job, because that would lower the peak
+ * reported by jobs already running. Values the JVM cannot measure are reported as null.
+ */
+public class ResourceUsageRecorder {
+
+    /** The id of the thread that runs the job. */
+    private final long threadId;
+
+    /** Reads thread CPU time and, on HotSpot, allocated bytes. */
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    /** The wall clock time when the job started. */
+    private final long startNanos;
+
+    /** The process CPU time when the job started, or -1 if unsupported. */
+    private final long startProcessCpu;
+
+    /** The job thread's CPU time when the job started, or -1 if unsupported. */
+    private final long startThreadCpu;
+
+    /** The job thread's allocated bytes when the job started, or -1 if unsupported. */
+    private final long startAllocated;
+
+    /** The number of collections when the job started. */
+    private final long startGcCount;
+
+    /** The collection time in milliseconds when the job started. */
+    private final long startGcMillis;
+
+    /** The input frame width. */
+    private int width;
+
+    /** The input frame height. */
+    private int height;
+
+    /** The input frame count. */
+    private int frames;
+
+    /** The stripe pool threads working for the job that are still running. */
+    private final Set<Thread> workers = ConcurrentHashMap.newKeySet();
+
+    /** The CPU time of stripe pool threads that have ended, or -1 if unsupported. */
+    private final AtomicLong endedWorkerCpu = new AtomicLong();
+
+    /** The bytes allocated by stripe pool threads that have ended, or -1 if unsupported. */
+    private final AtomicLong endedWorkerAllocated = new AtomicLong();
+
+    /** The wall clock time of the job, set by {@link #finish()}. */
+    private long wallNanos;
+
+    /** The process CPU time used during the job, or -1 if unsupported. */
+    private long processCpu = -1;
+
+    /** The job thread's CPU time used during the job, or -1 if unsupported. */
+    private long threadCpu = -1;
+
+    /** The bytes allocated by the job thread during the job, or -1 if unsupported. */
+    private long allocated = -1;
+
+    /** The CPU time used by the job's stripe pool threads, or -1 if unsupported. */
+    private long workerCpu = -1;
+
+    /** The bytes allocated by the job's stripe pool threads, or -1 if unsupported. */
+    private long workerAllocated = -1;
+
+    /** The highest heap use since the JVM started. */
+    private long peakHeap;
+
+    /** The number of collections during the job. */
+    private long gcCount;
+
+    /** The collection time in milliseconds during the job. */
+    private long gcMillis;
+
+    /**
+     * Starts measuring a job on the calling thread.
+     */
+    public ResourceUsageRecorder() {
+        threadId = Thread.currentThread().threadId();
+        startGcCount = gcCount();
+        startGcMillis = gcMillis();
+        startProcessCpu = processCpuTime();
+        startThreadCpu = threadCpuTime(threadId);
+        startAllocated = allocatedBytes(threadId);
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Sets the size of the input video.
+     *
+     * @param width the frame width in pixels, or 0 if unknown
+     * @param height the frame height in pixels, or 0 if unknown
+     * @param frames the number of frames
+     */
+    public void setInput(int width, int height, int frames) {
+        this.width = width;
+        this.height = height;
+        this.frames = frames;
+    }
+
+    /**
+     * Returns a thread factory for the job's stripe pool whose threads are measured as
+     * part of the job. A thread that ends before {@link #finish()} adds what it used as it
+     * ends.
+     *
+     * @return the factory to pass to the ForkJoinPool constructor
+     */
+    public ForkJoinPool.ForkJoinWorkerThreadFactory workerThreadFactory() {
+        return pool -> new ForkJoinWorkerThread(pool) {
+            @Override
+            protected void onStart() {
+                super.onStart();
+                workers.add(this);
+            }
+
+            @Override
+            protected void onTermination(Throwable exception) {
+                add(endedWorkerCpu, threadCpuTime(threadId()));
+                add(endedWorkerAllocated, allocatedBytes(threadId()));
+                workers.remove(this);
+                super.onTermination(exception);
+            }
+        };
+    }
+
+    /**
+     * Ends the measurement. Later calls measure again from the same start.
+     */
+    public void finish() {
+        wallNanos = System.nanoTime() - startNanos;
+        processCpu = difference(processCpuTime(), startProcessCpu);
+        threadCpu = difference(threadCpuTime(threadId), startThreadCpu);
+        allocated = difference(allocatedBytes(threadId), startAllocated);
+        // Stripe pool threads are created for the job, so everything they used counts
+        AtomicLong cpu = new AtomicLong(endedWorkerCpu.get());
+        AtomicLong bytes = new AtomicLong(endedWorkerAllocated.get());
+        for (Thread worker : workers) {
+            add(cpu, threadCpuTime(worker.threadId()));
+            add(bytes, allocatedBytes(worker.threadId()));
+        }
+        workerCpu = cpu.get();
+        workerAllocated = bytes.get();
+        gcCount = gcCount() - startGcCount;
+        gcMillis = gcMillis() - startGcMillis;
+
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        peakHeap = peak;
+    }
+
+    /**
+     * Builds the report from the last call to {@link #finish()}.
+     *
+     * @return the report members in order, ready for {@link Json#write(Object)}
+     */
+    public Map<String, Object> report() {
+        double megapixelFrames = (double) width * height * frames / 1e6;
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("width", width);
+        report.put("height", height);
+        report.put("frames", frames);
+        report.put("megapixelFrames", Math.round(megapixelFrames * 1000) / 1000.0);
+        report.put("wallMillis", nanosToMillis(wallNanos));
+        report.put("processCpuMillis", processCpu < 0 ? null : nanosToMillis(processCpu));
+        report.put("threadCpuMillis", threadCpu < 0 ? null : nanosToMillis(threadCpu));
+        report.put("allocatedBytes", allocated < 0 ? null : allocated);
+        report.put("allocatedBytesPerFrame", allocated < 0 || frames == 0 ? null : allocated / frames);
+        report.put("stripeCpuMillis", workerCpu < 0 ? null : nanosToMillis(workerCpu));
+        report.put("stripeAllocatedBytes", workerAllocated < 0 ? null : workerAllocated);
+        report.put("peakHeapBytes", peakHeap);
+        report.put("gcCount", gcCount);
+        report.put("gcMillis", gcMillis);
+        return report;
+    }
+
+    /**
+     * Writes the report as JSON.
+     *
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeReport(Path path) throws IOException {
+        Files.writeString(path, Json.write(report()) + System.lineSeparator());
+    }
+
+    /**
+     * Returns the path of the report written next to an output file: the output path with
+     * its extension replaced by ".resources.json".
+     *
+     * @param outputPath the output CSV path
+     * @return the report path
+     */
+    public static Path reportPathFor(String outputPath) {
+        return Path.of(PerformanceRecorder.sidecarPath(outputPath, ".resources.json"));
+    }
+
+    /**
+     * Returns the CPU time used by the whole process.
+     *
+     * @return the time in nanoseconds, or -1 if unsupported
+     */
+    private static long processCpuTime() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return os.getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the CPU time used by a thread.
+     *
+     * @param id the thread id
+     * @return the time in nanoseconds, or -1 if unsupported
+     */
+    private long threadCpuTime(long id) {
+        return threads.isThreadCpuTimeSupported() ? threads.getThreadCpuTime(id) : -1;
+    }
+
+    /**
+     * Returns the bytes allocated by a thread.
+     *
+     * @param id the thread id
+     * @return the byte count, or -1 if unsupported
+     */
+    private long allocatedBytes(long id) {
+        if (threads instanceof com.sun.management.ThreadMXBean hotspot && hotspot.isThreadAllocatedMemorySupported()) {
+            return hotspot.getThreadAllocatedBytes(id);
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a measured value to a total. Once a value cannot be measured, the total stays
+     * -1.
+     *
+     * @param total the total, or -1 if unsupported
+     * @param value the value to add, or -1 if unsupported
+     */
+    private static void add(AtomicLong total, long value) {
+        total.accumulateAndGet(value, (sum, next) -> sum < 0 || next < 0 ? -1 : sum + next);
+    }
+
+    /**
+     * Returns the number of collections of all collectors.
+     *
+     * @return the collection count
+     */
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * Returns the accumulated collection time of all collectors.
+     *
+     * @return the time in milliseconds
+     */
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * Subtracts a start value from an end value when both were measurable.
+     *
+     * @param end the end value, or -1
+     * @param start the start value, or -1
+     * @return the difference, or -1 if either value is unsupported
+     */
+    private static long difference(long end, long start) {
+        return end < 0 || start < 0 ? -1 : end - start;
+    }
+
+    /**
+     * Converts nanoseconds to milliseconds rounded to three decimals.
+     *
+     * @param nanos the duration in nanoseconds
+     * @return the duration in milliseconds
+     */
+    private static double nanosToMillis(long nanos) {
+        return Math.round(nanos / 1e3) / 1e3;
+    }
+}
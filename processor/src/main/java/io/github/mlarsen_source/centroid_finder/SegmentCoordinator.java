@@ -0,0 +1,437 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.jcodec.api.JCodecException;
+
+/**
+ * Processes one long MP4 video with several worker processes and merges their results.
+ *
+ * The video is split into keyframe-aligned segments, and every segment becomes a job in
+ * a SegmentSpool. The coordinator can start SegmentWorker processes on this machine,
+ * and workers on other machines or containers that share the spool directory take jobs
+ * from it too. A segment whose attempt failed, or whose worker stopped renewing its
+ * claim, is queued again until it has used up its attempts. Once every segment is done,
+ * the segment CSVs are concatenated in order with FileChannel.transferTo, which lets the
+ * kernel copy them without passing the bytes through the JVM.
+ *
+ * Segments are processed with --start-frame and --end-frame, which keep every frame's
+ * timestamp, so the merged CSV is the same as that of a single process decoding the
+ * video with JCodec.
+ */
+public class SegmentCoordinator {
+
+    /** The usage message shown when the coordinator arguments are malformed. */
+    private static final String USAGE =
+        "Usage: java -jar app.jar --coordinate <video.mp4> <output.csv> <color> <threshold>"
+        + " [--segments N] [--workers N] [--spool DIR] [--max-attempts N] [--lease-seconds N]"
+        + " [processing flags]";
+
+    /** How long workers get to stop after the run has ended. */
+    private static final long WORKER_EXIT_SECONDS = 10;
+
+    /** The spool jobs are published to. */
+    private final SegmentSpool spool;
+
+    /** The number of worker processes started on this machine. */
+    private final int localWorkers;
+
+    /** The number of attempts a segment gets before the run fails. */
+    private final int maxAttempts;
+
+    /** How long a claim stays valid without a heartbeat. */
+    private final long leaseMillis;
+
+    /** How long to wait between looks at the spool. */
+    private long pollMillis = 200;
+
+    /**
+     * Creates a coordinator.
+     *
+     * @param spool the spool jobs are published to
+     * @param localWorkers the number of worker processes to start on this machine; 0 to
+     *                     rely on workers started elsewhere
+     * @param maxAttempts the number of attempts a segment gets, at least 1
+     * @param leaseMillis how long a claim stays valid without a heartbeat, longer than
+     *                    the workers' heartbeat interval
+     * @throws IllegalArgumentException if a count or the lease is out of range
+     */
+    public SegmentCoordinator(SegmentSpool spool, int localWorkers, int maxAttempts, long leaseMillis) {
+        if (localWorkers < 0) throw new IllegalArgumentException("Local workers cannot be negative: " + localWorkers);
+        if (maxAttempts < 1) throw new IllegalArgumentException("Max attempts must be at least 1: " + maxAttempts);
+        if (leaseMillis <= SegmentWorker.HEARTBEAT_MILLIS) {
+            throw new IllegalArgumentException("Lease must be longer than the " + SegmentWorker.HEARTBEAT_MILLIS
+                + " ms heartbeat: " + leaseMillis);
+        }
+        this.spool = spool;
+        this.localWorkers = localWorkers;
+        this.maxAttempts = maxAttempts;
+        this.leaseMillis = leaseMillis;
+    }
+
+    /**
+     * Sets how long to wait between looks at the spool.
+     *
+     * @param pollMillis the wait in milliseconds, at least 1
+     * @throws IllegalArgumentException if pollMillis is less than 1
+     */
+    public void setPollMillis(long pollMillis) {
+        if (pollMillis < 1) throw new IllegalArgumentException("Poll interval must be at least 1 ms: " + pollMillis);
+        this.pollMillis = pollMillis;
+    }
+
+    /**
+     * Runs a coordinator from the command line. Without --spool, a temporary spool
+     * directory is used and deleted afterwards.
+     *
+     * @param args the arguments following --coordinate
+     * @throws IOException if the video cannot be read, a segment fails, or the output
+     *                     cannot be written
+     * @throws JCodecException if the video cannot be parsed
+     * @throws InterruptedException if the coordinator is interrupted
+     * @throws IllegalArgumentException if the arguments are malformed
+     */
+    public static void run(String[] args) throws IOException, JCodecException, InterruptedException {
+        if (args.length < 4) {
+            throw new IllegalArgumentException(USAGE);
+        }
+        List<String> jobArgs = new ArrayList<>(Arrays.asList(args).subList(0, 4));
+        int workers = Runtime.getRuntime().availableProcessors();
+        Integer segments = null;
+        Path spoolDir = null;
+        int maxAttempts = 3;
+        long leaseSeconds = 30;
+
+        int i = 4;
+        while (i < args.length) {
+            String flag = args[i++];
+            if (!flag.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + flag + "\n" + USAGE);
+            }
+            if (CommandLineParser.isSwitch(flag)) {
+                jobArgs.add(flag);
+                continue;
+            }
+            if (i >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + flag);
+            }
+            String value = args[i++];
+            switch (flag) {
+                case "--segments" -> segments = checkInteger(flag, value);
+                case "--workers" -> workers = checkInteger(flag, value);
+                case "--spool" -> spoolDir = Path.of(value);
+                case "--max-attempts" -> maxAttempts = checkInteger(flag, value);
+                case "--lease-seconds" -> leaseSeconds = checkInteger(flag, value);
+                default -> {
+                    // Processing flags such as --top-k apply to every segment
+                    jobArgs.add(flag);
+                    jobArgs.add(value);
+                }
+            }
+        }
+
+        Path tempSpool = spoolDir == null ? Files.createTempDirectory("segments-") : null;
+        try {
+            SegmentSpool spool = new SegmentSpool(spoolDir != null ? spoolDir : tempSpool);
+            SegmentCoordinator coordinator = new SegmentCoordinator(spool, workers, maxAttempts,
+                TimeUnit.SECONDS.toMillis(leaseSeconds));
+            long start = System.nanoTime();
+            List<VideoSegment> done = coordinator.coordinate(jobArgs.toArray(new String[0]),
+                segments != null ? segments : Math.max(1, workers) * 2);
+            System.out.println("Merged " + done.size() + " segments into " + args[1] + " in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } finally {
+            if (tempSpool != null) deleteRecursively(tempSpool);
+        }
+    }
+
+    /**
+     * Deletes a directory and everything left inside it.
+     *
+     * @param directory the directory to delete
+     * @throws IOException if a file cannot be deleted
+     */
+    private static void deleteRecursively(Path directory) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            // Deepest paths first, so every directory is empty when it is deleted
+            paths = walk.sorted(Comparator.reverseOrder()).toList();
+        }
+        for (Path path : paths) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Processes a video in segments and writes the merged CSV.
+     *
+     * @param jobArgs the arguments of a single-process run: video, output, color,
+     *                threshold and processing flags
+     * @param segmentCount the number of segments wanted; fewer are used when the video
+     *                     has too few keyframes
+     * @return the segments that were processed, in order
+     * @throws IOException if the video cannot be read, a segment fails on every attempt,
+     *                     local workers keep exiting, or the output cannot be written
+     * @throws JCodecException if the video cannot be parsed
+     * @throws InterruptedException if the coordinator is interrupted
+     * @throws IllegalArgumentException if the arguments are invalid or the input is not MP4
+     */
+    public List<VideoSegment> coordinate(String[] jobArgs, int segmentCount)
+            throws IOException, JCodecException, InterruptedException {
+        ArgumentParser parser = new CommandLineParser(jobArgs);
+        ProcessingOptions options = parser.getOptions();
+        if (options.hasFrameRange()) {
+            throw new IllegalArgumentException("--start-frame and --end-frame are set per segment by the coordinator");
+        }
+        if (options.getSampleInterval() > 1) {
+            // Each segment would restart the sampling phase and always analyze its last frame
+            throw new IllegalArgumentException("--sample-every cannot be combined with --coordinate");
+        }
+        if (options.isChangeOnly()) {
+            // Runs would be cut at every segment boundary
+            throw new IllegalArgumentException("--change-only cannot be combined with --coordinate");
+        }
+        if (options.hasHeatmap()) {
+            // Every segment would write its own heatmap into the spool
+            throw new IllegalArgumentException("--heatmap cannot be combined with --coordinate");
+        }
+        if (options.isPerfReport() || options.isResourceReport()) {
+            // Every segment would write its own report, and they cannot be merged into one
+            throw new IllegalArgumentException("--perf-report and --resource-report cannot be combined with --coordinate");
+        }
+        // Checks the flags as every segment will use them, including the input format and decoder
+        String[] probe = Arrays.copyOf(jobArgs, jobArgs.length + 2);
+        probe[jobArgs.length] = "--end-frame";
+        probe[jobArgs.length + 1] = "1";
+        new CommandLineParser(probe);
+
+        Mp4VideoProcessor video = new Mp4VideoProcessor(new File(parser.getVideoPath()));
+        List<VideoSegment> segments = VideoSegment.plan(video.getKeyframes(), video.getTotalFrames(), segmentCount);
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        Path stopFile = spool.getDirectory().resolve(run + ".finished");
+        System.out.println("Split " + parser.getVideoPath() + " into " + segments.size() + " segments as run " + run);
+
+        List<Process> workers = new ArrayList<>();
+        try {
+            List<Map<String, Object>> requests = submit(run, segments, jobArgs);
+            for (int i = 0; i < localWorkers; i++) {
+                workers.add(startWorker(stopFile));
+            }
+            await(run, segments, requests, workers, stopFile);
+            merge(run, segments, Path.of(parser.getOutputPath()));
+            return segments;
+        } finally {
+            try {
+                Files.createFile(stopFile);
+            } catch (FileAlreadyExistsException e) {
+                // Already stopped
+            }
+            stopWorkers(workers);
+            for (VideoSegment segment : segments) {
+                spool.remove(name(run, segment));
+            }
+            Files.deleteIfExists(stopFile);
+        }
+    }
+
+    /**
+     * Publishes a job for every segment.
+     *
+     * @param run the run id
+     * @param segments the segments
+     * @param jobArgs the arguments of a single-process run
+     * @return the request of each segment, by segment index
+     * @throws IOException if a job cannot be written
+     */
+    private List<Map<String, Object>> submit(String run, List<VideoSegment> segments, String[] jobArgs) throws IOException {
+        Map<String, Object> flags = new LinkedHashMap<>();
+        for (int i = 4; i < jobArgs.length; i++) {
+            String flag = jobArgs[i];
+            if (CommandLineParser.isSwitch(flag)) {
+                flags.put(flag.substring(2), true);
+            } else {
+                flags.put(flag.substring(2), jobArgs[++i]);
+            }
+        }
+
+        // Segments are planned in index order, so the list is indexed by segment
+        List<Map<String, Object>> requests = new ArrayList<>(segments.size());
+        for (VideoSegment segment : segments) {
+            String name = name(run, segment);
+            Map<String, Object> options = new LinkedHashMap<>(flags);
+            options.put("start-frame", segment.startFrame());
+            options.put("end-frame", segment.endFrame());
+            Map<String, Object> request = new LinkedHashMap<>();
+            request.put("video", new File(jobArgs[0]).getAbsolutePath());
+            request.put("color", jobArgs[2]);
+            request.put("threshold", jobArgs[3]);
+            request.put("options", options);
+            requests.add(request);
+            spool.submit(name, request);
+        }
+        return requests;
+    }
+
+    /**
+     * Waits until every segment is done, queueing failed and abandoned segments again
+     * and replacing local workers that exit.
+     *
+     * @param run the run id
+     * @param segments the segments
+     * @param requests the request of each segment, by segment index
+     * @param workers the local worker processes, replaced in place
+     * @param stopFile the file that stops local workers
+     * @throws IOException if a segment fails on every attempt or local workers keep exiting
+     * @throws InterruptedException if the coordinator is interrupted
+     */
+    private void await(String run, List<VideoSegment> segments, List<Map<String, Object>> requests,
+            List<Process> workers, Path stopFile) throws IOException, InterruptedException {
+        boolean[] done = new boolean[segments.size()];
+        int[] attempts = new int[segments.size()];
+        int remaining = segments.size();
+        int restarts = 0;
+
+        while (remaining > 0) {
+            for (VideoSegment segment : segments) {
+                int index = segment.index();
+                if (done[index]) continue;
+                String name = name(run, segment);
+                if (Files.exists(spool.output(name))) {
+                    done[index] = true;
+                    remaining--;
+                    continue;
+                }
+
+                String error = null;
+                boolean requeued = false;
+                if (Files.exists(spool.failure(name))) {
+                    error = Files.readString(spool.failure(name));
+                    Files.delete(spool.failure(name));
+                } else if (spool.requeueIfStale(name, leaseMillis)) {
+                    error = "worker stopped renewing its claim";
+                    requeued = true;
+                }
+                if (error != null) {
+                    attempts[index]++;
+                    if (attempts[index] >= maxAttempts) {
+                        throw new IOException("Segment " + index + " (frames " + segment.startFrame() + " to "
+                            + segment.endFrame() + ") failed after " + attempts[index] + " attempts: " + error);
+                    }
+                    System.out.println("Retrying segment " + index + " after: " + error);
+                    if (!requeued) spool.submit(name, requests.get(index));
+                }
+            }
+
+            for (int i = 0; i < workers.size(); i++) {
+                if (workers.get(i).isAlive()) continue;
+                if (++restarts > maxAttempts * localWorkers) {
+                    throw new IOException("Local workers keep exiting; last exit status " + workers.get(i).exitValue());
+                }
+                System.out.println("Restarting a local worker that exited with status " + workers.get(i).exitValue());
+                workers.set(i, startWorker(stopFile));
+            }
+
+            if (remaining > 0) Thread.sleep(pollMillis);
+        }
+    }
+
+    /**
+     * Concatenates the segment CSVs in order into the output file.
+     *
+     * @param run the run id
+     * @param segments the segments
+     * @param output the output CSV
+     * @throws IOException if a segment cannot be read or the output cannot be written
+     */
+    private void merge(String run, List<VideoSegment> segments, Path output) throws IOException {
+        try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (VideoSegment segment : segments) {
+                try (FileChannel in = FileChannel.open(spool.output(name(run, segment)), StandardOpenOption.READ)) {
+                    long position = 0;
+                    long size = in.size();
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts a worker process on this machine with the same Java runtime and class path.
+     *
+     * @param stopFile the file that stops the worker
+     * @return the worker process
+     * @throws IOException if the process cannot be started
+     */
+    private Process startWorker(Path stopFile) throws IOException {
+        List<String> command = List.of(
+            Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp", System.getProperty("java.class.path"),
+            VideoProcessingApp.class.getName(),
+            "--segment-worker",
+            "--spool", spool.getDirectory().toString(),
+            "--until", stopFile.toString(),
+            "--poll-millis", String.valueOf(pollMillis));
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    /**
+     * Waits for local workers to notice the stop file, and kills those that do not.
+     *
+     * @param workers the local worker processes
+     * @throws InterruptedException if the coordinator is interrupted while waiting
+     */
+    private static void stopWorkers(List<Process> workers) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(WORKER_EXIT_SECONDS);
+        for (Process worker : workers) {
+            long left = deadline - System.nanoTime();
+            if (!worker.waitFor(Math.max(0, left), TimeUnit.NANOSECONDS)) {
+                worker.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * Returns the spool name of a segment's job.
+     *
+     * @param run the run id
+     * @param segment the segment
+     * @return the job name
+     */
+    private static String name(String run, VideoSegment segment) {
+        return String.format("%s-%05d", run, segment.index());
+    }
+
+    /**
+     * Converts a flag value from string to integer.
+     *
+     * @param flag the flag the value belongs to, used in the error message
+     * @param value the value provided as a string
+     * @return the value as an integer
+     * @throws IllegalArgumentException if the value is not an integer
+     */
+    private static int checkInteger(String flag, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(flag + " must be an integer: " + value);
+        }
+    }
+}
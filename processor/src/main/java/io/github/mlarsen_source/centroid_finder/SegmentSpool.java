@@ -0,0 +1,302 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * A directory shared by a SegmentCoordinator and its workers, standing in for a job
+ * queue. Every segment job moves through files named after it:
+ *
+ * NAME.job              waiting, holding the job as a WorkerDaemon JSON request
+ * NAME.TOKEN.claimed    taken by a worker, which touches it regularly as a heartbeat
+ * NAME.TOKEN.part.csv   the output of that claim while it is being written
+ * NAME.csv              the finished output
+ * NAME.failed           the error message of a failed attempt
+ *
+ * Jobs are published and claimed by atomic renames, so two workers never take the same
+ * job, and several machines can share the directory over a network file system that
+ * supports atomic rename. Every claim gets a token of its own, so a worker whose claim
+ * was taken back and given to another worker can neither renew, publish nor fail the
+ * new claim, and never touches the other worker's output.
+ */
+public class SegmentSpool {
+
+    /** The suffix of waiting jobs. */
+    private static final String JOB = ".job";
+
+    /** The suffix of claimed jobs. */
+    private static final String CLAIMED = ".claimed";
+
+    /** The suffix of the output of a claim while it is being written. */
+    private static final String PART = ".part.csv";
+
+    /** The directory the files live in. */
+    private final Path directory;
+
+    /**
+     * Opens a spool directory, creating it if needed.
+     *
+     * @param directory the directory
+     * @throws IOException if the directory cannot be created
+     */
+    public SegmentSpool(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory.toAbsolutePath());
+    }
+
+    /**
+     * Returns the spool directory.
+     *
+     * @return the absolute path of the directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * A worker's claim on a job.
+     *
+     * @param name the job name
+     * @param token the token that tells this claim apart from later claims on the same job
+     */
+    public record Claim(String name, String token) {
+    }
+
+    /**
+     * Publishes a job. The request is written to a temporary file first so workers never
+     * see a partial job. Its output is set when the job is read by the worker that
+     * claimed it.
+     *
+     * @param name the job name
+     * @param request the job as a WorkerDaemon request
+     * @throws IOException if the job cannot be written
+     */
+    public void submit(String name, Map<String, Object> request) throws IOException {
+        Path temp = directory.resolve(name + JOB + ".tmp");
+        Files.writeString(temp, Json.write(request));
+        move(temp, job(name));
+    }
+
+    /**
+     * Claims the waiting job whose name sorts first.
+     *
+     * @return the claim, or null if no job is waiting
+     * @throws IOException if the directory cannot be listed
+     */
+    public Claim claim() throws IOException {
+        List<Path> waiting;
+        try (Stream<Path> files = Files.list(directory)) {
+            waiting = files.filter(file -> file.getFileName().toString().endsWith(JOB)).sorted().toList();
+        }
+        for (Path job : waiting) {
+            String file = job.getFileName().toString();
+            Claim claim = new Claim(file.substring(0, file.length() - JOB.length()),
+                UUID.randomUUID().toString().substring(0, 8));
+            try {
+                move(job, claimed(claim));
+                return claim;
+            } catch (NoSuchFileException | FileAlreadyExistsException e) {
+                // Another worker claimed it first
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads a claimed job, with its output pointed at the claim's partial output.
+     *
+     * @param claim the claim
+     * @return the parsed request
+     * @throws IOException if the job cannot be read
+     * @throws IllegalArgumentException if the job is not a JSON object
+     */
+    public Map<String, Object> read(Claim claim) throws IOException {
+        Map<String, Object> request = new LinkedHashMap<>(Json.parseObject(Files.readString(claimed(claim))));
+        request.put("output", partialOutput(claim).toString());
+        return request;
+    }
+
+    /**
+     * Renews a claim. Does nothing if the claim was taken back.
+     *
+     * @param claim the claim
+     * @throws IOException if the claim cannot be touched
+     */
+    public void heartbeat(Claim claim) throws IOException {
+        try {
+            Files.setLastModifiedTime(claimed(claim), FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            // The coordinator gave the job to another worker or finished the run
+        }
+    }
+
+    /**
+     * Publishes the output of a claim and releases it. If the claim was taken back in the
+     * meantime, the output is discarded.
+     *
+     * @param claim the claim
+     * @throws IOException if the output cannot be published
+     */
+    public void complete(Claim claim) throws IOException {
+        if (!Files.exists(claimed(claim))) {
+            Files.deleteIfExists(partialOutput(claim));
+            return;
+        }
+        // Should the claim be taken back right now, the output is still this claim's own
+        // complete output, so publishing it is harmless
+        move(partialOutput(claim), output(claim.name()));
+        Files.deleteIfExists(claimed(claim));
+    }
+
+    /**
+     * Records a failed attempt and releases the claim. If the claim was taken back in the
+     * meantime, the failure belongs to no current attempt and is not recorded.
+     *
+     * @param claim the claim
+     * @param message the error message
+     * @throws IOException if the failure cannot be recorded
+     */
+    public void fail(Claim claim, String message) throws IOException {
+        Files.deleteIfExists(partialOutput(claim));
+        if (!Files.exists(claimed(claim))) return;
+        Path temp = directory.resolve(claim.name() + "." + claim.token() + ".failed.tmp");
+        Files.writeString(temp, message);
+        move(temp, failure(claim.name()));
+        Files.deleteIfExists(claimed(claim));
+    }
+
+    /**
+     * Puts a claimed job back in the queue if its worker has not renewed the claim
+     * within the lease, as happens when the worker died.
+     *
+     * @param name the job name
+     * @param leaseMillis how long a claim stays valid without a heartbeat
+     * @return true if the job was put back
+     * @throws IOException if the claim cannot be inspected or moved
+     */
+    public boolean requeueIfStale(String name, long leaseMillis) throws IOException {
+        for (Path claim : claimFiles(name, CLAIMED)) {
+            try {
+                long age = System.currentTimeMillis() - Files.getLastModifiedTime(claim).toMillis();
+                if (age <= leaseMillis) continue;
+                move(claim, job(name));
+                return true;
+            } catch (NoSuchFileException e) {
+                // The worker finished or failed the job in the meantime
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Deletes every file of a job, including those of every claim on it.
+     *
+     * @param name the job name
+     * @throws IOException if a file cannot be deleted
+     */
+    public void remove(String name) throws IOException {
+        List<Path> files = new ArrayList<>(List.of(job(name), output(name), failure(name)));
+        files.addAll(claimFiles(name, CLAIMED));
+        files.addAll(claimFiles(name, PART));
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Returns the file a waiting job is stored in.
+     *
+     * @param name the job name
+     * @return the path of NAME.job
+     */
+    public Path job(String name) {
+        return directory.resolve(name + JOB);
+    }
+
+    /**
+     * Returns the file a claimed job is stored in.
+     *
+     * @param claim the claim
+     * @return the path of NAME.TOKEN.claimed
+     */
+    public Path claimed(Claim claim) {
+        return directory.resolve(claim.name() + "." + claim.token() + CLAIMED);
+    }
+
+    /**
+     * Returns the file the worker holding a claim writes the job's output to.
+     *
+     * @param claim the claim
+     * @return the path of NAME.TOKEN.part.csv
+     */
+    public Path partialOutput(Claim claim) {
+        return directory.resolve(claim.name() + "." + claim.token() + PART);
+    }
+
+    /**
+     * Returns the finished output of a job.
+     *
+     * @param name the job name
+     * @return the path of NAME.csv
+     */
+    public Path output(String name) {
+        return directory.resolve(name + ".csv");
+    }
+
+    /**
+     * Returns the file that holds the error of a failed attempt.
+     *
+     * @param name the job name
+     * @return the path of NAME.failed
+     */
+    public Path failure(String name) {
+        return directory.resolve(name + ".failed");
+    }
+
+    /**
+     * Lists the files of every claim on a job that end with a suffix.
+     *
+     * @param name the job name
+     * @param suffix the suffix of the files
+     * @return the matching files
+     * @throws IOException if the directory cannot be listed
+     */
+    private List<Path> claimFiles(String name, String suffix) throws IOException {
+        String prefix = name + ".";
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                String fileName = file.getFileName().toString();
+                // A token holds no dot, which keeps NAME.TOKEN.part.csv out of the claims
+                return fileName.startsWith(prefix) && fileName.endsWith(suffix)
+                    && fileName.indexOf('.', prefix.length()) == fileName.length() - suffix.length();
+            }).toList();
+        }
+    }
+
+    /**
+     * Renames a file atomically. Of several processes renaming the same file, only one
+     * succeeds and the others get a NoSuchFileException.
+     *
+     * @param source the file to rename
+     * @param target the new name
+     * @throws IOException if the file does not exist or the file system cannot rename atomically
+     */
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            throw new IOException("The spool directory must support atomic rename: " + source.getParent(), e);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Processes segment jobs from a SegmentSpool until told to stop.
+ *
+ * A worker claims one job at a time, runs it like a WorkerDaemon job and publishes the
+ * output or the error. While a job runs, the claim is renewed every few seconds so the
+ * coordinator can tell a slow worker from a dead one. Workers started by a
+ * SegmentCoordinator on the same machine stop when the run's stop file appears; workers
+ * started by hand, for example in containers sharing the spool directory, run until they
+ * are killed.
+ */
+public class SegmentWorker {
+
+    /** The usage message shown when the worker arguments are malformed. */
+    private static final String USAGE =
+        "Usage: java -jar app.jar --segment-worker --spool DIR [--until FILE] [--poll-millis N]";
+
+    /** How often the claim on a running job is renewed. */
+    static final long HEARTBEAT_MILLIS = 2000;
+
+    /** Runs each job. */
+    private final VideoProcessingAppRunner runner;
+
+    /** The spool jobs are taken from. */
+    private final SegmentSpool spool;
+
+    /**
+     * Creates a worker.
+     *
+     * @param runner runs each job
+     * @param spool the spool jobs are taken from
+     */
+    public SegmentWorker(VideoProcessingAppRunner runner, SegmentSpool spool) {
+        this.runner = runner;
+        this.spool = spool;
+    }
+
+    /**
+     * Starts a worker from the command line.
+     *
+     * @param args the arguments following --segment-worker
+     * @throws IOException if the spool cannot be read
+     * @throws InterruptedException if the worker is interrupted while waiting for jobs
+     * @throws IllegalArgumentException if the arguments are malformed
+     */
+    public static void run(String[] args) throws IOException, InterruptedException {
+        Path spool = null;
+        Path until = null;
+        long pollMillis = 500;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i] + "\n" + USAGE);
+            }
+            switch (args[i]) {
+                case "--spool" -> spool = Path.of(args[i + 1]);
+                case "--until" -> until = Path.of(args[i + 1]);
+                case "--poll-millis" -> {
+                    try {
+                        pollMillis = Long.parseLong(args[i + 1]);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("--poll-millis must be an integer: " + args[i + 1]);
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i] + "\n" + USAGE);
+            }
+        }
+        if (spool == null) throw new IllegalArgumentException(USAGE);
+
+        new SegmentWorker(new VideoProcessingAppRunner(), new SegmentSpool(spool)).serve(until, pollMillis);
+    }
+
+    /**
+     * Processes jobs, polling the spool while it is empty, until the stop file exists.
+     *
+     * @param until the stop file, or null to run until interrupted
+     * @param pollMillis how long to wait between looks at an empty spool
+     * @throws IOException if the spool cannot be read
+     * @throws InterruptedException if the worker is interrupted while waiting for jobs
+     */
+    public void serve(Path until, long pollMillis) throws IOException, InterruptedException {
+        while (until == null || !Files.exists(until)) {
+            if (!processNext()) {
+                Thread.sleep(pollMillis);
+            }
+        }
+    }
+
+    /**
+     * Claims and runs one job, if one is waiting. A failing job is recorded in the spool
+     * and never stops the worker.
+     *
+     * @return true if a job was run, false if the spool had none
+     * @throws IOException if the spool cannot be read or the outcome cannot be recorded
+     */
+    public boolean processNext() throws IOException {
+        SegmentSpool.Claim claim = spool.claim();
+        if (claim == null) return false;
+
+        Thread heartbeat = Thread.ofVirtual().start(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(HEARTBEAT_MILLIS);
+                    spool.heartbeat(claim);
+                }
+            } catch (InterruptedException e) {
+                // The job has finished
+            } catch (IOException e) {
+                System.err.println("Cannot renew the claim on " + claim.name() + ": " + e.getMessage());
+            }
+        });
+        try {
+            ArgumentParser args = WorkerDaemon.parseJob(claim.name(), spool.read(claim)).args();
+            System.out.println("Processing segment " + claim.name());
+            runner.processVideo(args.getVideoPath(), args.getOutputPath(), args.getTargetColor(),
+                args.getThreshold(), args.getOptions());
+            heartbeat.interrupt();
+            spool.complete(claim);
+        } catch (Exception e) {
+            heartbeat.interrupt();
+            spool.fail(claim, String.valueOf(e.getMessage()));
+        }
+        return true;
+    }
+}
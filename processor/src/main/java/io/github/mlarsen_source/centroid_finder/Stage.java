@@ -0,0 +1,38 @@
+package io.github.mlarsen_source.centroid_finder;
+
+/**
+ * The steps of the processing pipeline that are timed separately.
+ */
+public enum Stage {
+
+    /** Demuxing and decoding a frame into a Picture. */
+    DECODE("decode"),
+
+    /** Converting a decoded Picture into a BufferedImage. */
+    CONVERT("convert"),
+
+    /** Turning an image into a binary mask by color distance. */
+    BINARIZE("binarize"),
+
+    /** Finding connected groups in a binary mask. */
+    LABEL("label"),
+
+    /** Writing the results to the output file. */
+    WRITE("write");
+
+    /** The name used in reports. */
+    private final String reportName;
+
+    Stage(String reportName) {
+        this.reportName = reportName;
+    }
+
+    /**
+     * Returns the lower-case name used in reports.
+     *
+     * @return the stage's report name
+     */
+    public String reportName() {
+        return reportName;
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event spanning one pipeline stage of a frame: decode, convert,
+ * binarize or label. Only stages slower than the threshold are recorded by default, so
+ * slow stages can be lined up with garbage collection pauses in JDK Mission Control.
+ */
+@Name("centroid_finder.Stage")
+@Label("Pipeline Stage")
+@Category("Centroid Finder")
+@Description("One pipeline stage applied to a frame")
+@StackTrace(false)
+@Threshold("10 ms")
+final class StageEvent extends Event {
+
+    /** The stage's report name, such as "decode" or "label". */
+    @Label("Stage")
+    String stage;
+
+    /** The width in pixels of the frame, or 0 if not yet known. */
+    @Label("Width")
+    int width;
+
+    /** The height in pixels of the frame, or 0 if not yet known. */
+    @Label("Height")
+    int height;
+}
@@ -0,0 +1,18 @@
+package io.github.mlarsen_source.centroid_finder;
+
+/**
+ * Receives the duration of each pipeline stage as it completes.
+ *
+ * Components only read the clock while a recorder is attached, so an unset recorder
+ * costs nothing per frame. Calls arrive on the thread that runs the stage.
+ */
+public interface StageRecorder {
+
+    /**
+     * Records one execution of a stage.
+     *
+     * @param stage the stage that completed
+     * @param nanos how long it took in nanoseconds
+     */
+    void record(Stage stage, long nanos);
+}
@@ -0,0 +1,159 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jcodec.api.JCodecException;
+import org.jcodec.common.model.Picture;
+
+/**
+ * Measures how long a fresh JVM takes to decode and analyze the first frame of a video.
+ *
+ * The server starts one JVM per job, so for short clips startup dominates the total time.
+ * This benchmark starts a number of child JVMs on the same classpath, each of which runs
+ * the processing pipeline up to the first frame and then exits. The parent measures the
+ * wall time from starting the child until the child reports its first frame, and until it
+ * exits. When a shared archive is given, every run is repeated with
+ * -XX:SharedArchiveFile so the two launch modes can be compared.
+ *
+ * Usage: java -cp app.jar io.github.mlarsen_source.centroid_finder.StartupBenchmark
+ * &lt;input_video&gt; [runs] [shared_archive]
+ */
+public class StartupBenchmark {
+
+    /** The argument that makes a child JVM run the first-frame probe. */
+    private static final String PROBE = "--probe";
+
+    /** The line a probe prints once its first frame has been analyzed. */
+    private static final String FIRST_FRAME = "first-frame";
+
+    /** The number of child JVMs started per launch mode when no count is given. */
+    private static final int DEFAULT_RUNS = 5;
+
+    /** The target color used by the probe, the orange of the bundled sample clip. */
+    private static final int TARGET_COLOR = 0xFFA500;
+
+    /** The color distance threshold used by the probe. */
+    private static final int THRESHOLD = 60;
+
+    /**
+     * Runs the benchmark, or the first-frame probe when started by the benchmark itself.
+     *
+     * @param args the input video, optionally followed by the number of runs and a shared
+     *             archive file to compare against the default launch
+     * @throws Exception if a child JVM cannot be started or the probe fails
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && PROBE.equals(args[0])) {
+            VideoProcessingApp.useHeadlessAwt();
+            decodeFirstFrame(new File(args[1]));
+            System.out.println(FIRST_FRAME);
+            return;
+        }
+        if (args.length < 1 || args.length > 3) {
+            System.err.println("Usage: java StartupBenchmark <input_video> [runs] [shared_archive]");
+            System.exit(1);
+        }
+
+        String video = new File(args[0]).getAbsolutePath();
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_RUNS;
+        if (runs < 1) throw new IllegalArgumentException("Run count must be at least 1: " + runs);
+
+        report("default", measure(List.of(), video, runs));
+        if (args.length > 2) {
+            String archive = new File(args[2]).getAbsolutePath();
+            report("shared archive", measure(List.of("-XX:SharedArchiveFile=" + archive), video, runs));
+        }
+    }
+
+    /**
+     * Runs the processing pipeline on the first frame of a video: decoding, conversion,
+     * binarization and group detection.
+     *
+     * @param video the video to open
+     * @return the groups found in the first frame, largest first, or an empty list if the
+     *         video has no frames
+     * @throws IOException if the video cannot be read
+     * @throws JCodecException if the video cannot be decoded
+     */
+    static List<Group> decodeFirstFrame(File video) throws IOException, JCodecException {
+        ImageBinarizer binarizer = new DistanceImageBinarizer(new EuclideanColorDistance(), TARGET_COLOR, THRESHOLD);
+        ImageGroupFinder groupFinder = new BinarizingImageGroupFinder(binarizer, new BfsBinaryGroupFinder());
+        VideoProcessor processor = new Mp4VideoProcessor(video);
+
+        try (FrameReader frames = processor.openFrames()) {
+            Picture picture = frames.readFrame();
+            if (picture == null) return List.of();
+            return groupFinder.findConnectedGroups(FrameContext.current().toBufferedImage(picture));
+        }
+    }
+
+    /**
+     * Starts the given number of probe JVMs one after another and times each of them.
+     *
+     * @param jvmOptions extra options passed to each child JVM
+     * @param video the absolute path of the video to probe
+     * @param runs the number of child JVMs to start
+     * @return one row per run holding the time to first frame and the time to exit in nanoseconds
+     * @throws IOException if a child JVM cannot be started or fails
+     * @throws InterruptedException if interrupted while waiting for a child JVM
+     */
+    private static long[][] measure(List<String> jvmOptions, String video, int runs)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"),
+                StartupBenchmark.class.getName(), PROBE, video));
+
+        long[][] timings = new long[runs][];
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            Process child = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+
+            long firstFrame = -1;
+            try (BufferedReader output = new BufferedReader(
+                    new InputStreamReader(child.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = output.readLine()) != null) {
+                    if (firstFrame < 0 && line.equals(FIRST_FRAME)) {
+                        firstFrame = System.nanoTime() - start;
+                    }
+                }
+            }
+            int status = child.waitFor();
+            long exit = System.nanoTime() - start;
+            if (status != 0 || firstFrame < 0) {
+                throw new IOException("Probe JVM failed with exit status " + status);
+            }
+            timings[run] = new long[] { firstFrame, exit };
+        }
+        return timings;
+    }
+
+    /**
+     * Prints the median and minimum time to first frame and time to exit of a launch mode.
+     *
+     * @param mode the name of the launch mode
+     * @param timings one row per run holding the time to first frame and the time to exit
+     */
+    private static void report(String mode, long[][] timings) {
+        long[] firstFrame = Arrays.stream(timings).mapToLong(timing -> timing[0]).sorted().toArray();
+        long[] exit = Arrays.stream(timings).mapToLong(timing -> timing[1]).sorted().toArray();
+        System.out.printf("%-15s time-to-first-frame median %d ms, min %d ms; time-to-exit median %d ms (%d runs)%n",
+                mode,
+                TimeUnit.NANOSECONDS.toMillis(firstFrame[firstFrame.length / 2]),
+                TimeUnit.NANOSECONDS.toMillis(firstFrame[0]),
+                TimeUnit.NANOSECONDS.toMillis(exit[exit.length / 2]),
+                timings.length);
+    }
+}
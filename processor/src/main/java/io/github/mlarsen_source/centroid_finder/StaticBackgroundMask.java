@@ -0,0 +1,221 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.jcodec.api.JCodecException;
+import org.jcodec.common.model.Picture;
+
+/**
+ * The pixels of a video that match the target color in nearly every frame, such as a
+ * sign or a wall painted in the target color.
+ *
+ * The mask is learned once by binarizing a small sample of frames spread over the whole
+ * video and keeping the pixels that are set in at least a given fraction of them. Those
+ * pixels, grown by one pixel to cover compression fringes, are then left out of the
+ * analyzed region (see {@link RegionMask#compile(int, int, java.awt.Rectangle, java.util.List, StaticBackgroundMask)}),
+ * so they are never binarized or labeled and a static blob cannot be reported in place of
+ * the moving target.
+ *
+ * The mask is a bit set with bit {@code y * width + x} set for every excluded pixel.
+ */
+public final class StaticBackgroundMask {
+
+    /** The width of the frames the mask was learned from. */
+    private final int width;
+
+    /** The height of the frames the mask was learned from. */
+    private final int height;
+
+    /** The excluded pixels, one bit per pixel in row-major order. */
+    private final BitSet excluded;
+
+    /** The number of frames the mask was learned from. */
+    private final int samples;
+
+    /**
+     * Creates a mask from its bits.
+     *
+     * @param width the frame width
+     * @param height the frame height
+     * @param excluded the excluded pixels, with bit y * width + x for pixel (x, y)
+     * @param samples the number of frames the mask was learned from
+     */
+    StaticBackgroundMask(int width, int height, BitSet excluded, int samples) {
+        this.width = width;
+        this.height = height;
+        this.excluded = excluded;
+        this.samples = samples;
+    }
+
+    /**
+     * Learns the static pixels of a video from frames spread evenly over it. Keyframes are
+     * sampled when the video has enough of them, because they decode without their
+     * predecessors.
+     *
+     * @param video the video, whose frames are decoded with JCodec
+     * @param binarizer turns a frame into the pixels that match the target
+     * @param samples the number of frames to sample, at least 1
+     * @param minFraction the fraction of sampled frames, above 0 and at most 1, a pixel
+     *                    must be set in to be excluded
+     * @return the learned mask
+     * @throws IllegalArgumentException if samples or minFraction is out of range
+     * @throws IOException if an error occurs while reading the video file
+     * @throws JCodecException if an error occurs while decoding video frames
+     */
+    public static StaticBackgroundMask learn(Mp4VideoProcessor video, ImageBinarizer binarizer, int samples,
+            double minFraction) throws IOException, JCodecException {
+        if (samples < 1) throw new IllegalArgumentException("samples must be at least 1: " + samples);
+        if (!(minFraction > 0 && minFraction <= 1)) {
+            throw new IllegalArgumentException("minFraction must be above 0 and at most 1: " + minFraction);
+        }
+        int width = video.getWidth();
+        int height = video.getHeight();
+        int[] frames = sampleFrames(video, samples);
+        int[] counts = new int[width * height];
+        int sampled = 0;
+        for (int frame : frames) {
+            try (FrameReader reader = new FrameRangeVideoProcessor(video, frame, frame + 1).openFrames()) {
+                Picture picture = reader.readFrame();
+                if (picture == null) continue;
+                BufferedImage image = FrameContext.current().toBufferedImage(picture);
+                int[][] binary = binarizer.toBinaryArray(image, FrameContext.current().mask(height, width));
+                for (int y = 0; y < height; y++) {
+                    int[] row = binary[y];
+                    int offset = y * width;
+                    for (int x = 0; x < width; x++) {
+                        counts[offset + x] += row[x];
+                    }
+                }
+                sampled++;
+            }
+        }
+        if (sampled == 0) return new StaticBackgroundMask(width, height, new BitSet(), 0);
+
+        int minCount = (int) Math.ceil(minFraction * sampled - 1e-9);
+        BitSet excluded = new BitSet(width * height);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] >= minCount) excluded.set(i);
+        }
+        return new StaticBackgroundMask(width, height, dilate(excluded, width, height), sampled);
+    }
+
+    /**
+     * Chooses the frames to sample: evenly spaced keyframes if there are enough of them,
+     * otherwise evenly spaced frames.
+     *
+     * @param video the video
+     * @param samples the number of frames wanted
+     * @return the distinct zero-based frame indexes in ascending order
+     * @throws IOException if the keyframe table cannot be read
+     */
+    private static int[] sampleFrames(Mp4VideoProcessor video, int samples) throws IOException {
+        int total = video.getTotalFrames();
+        int[] keyframes = Arrays.stream(video.getKeyframes()).filter(frame -> frame < total).toArray();
+        int[] frames = new int[samples];
+        for (int i = 0; i < samples; i++) {
+            frames[i] = keyframes.length >= samples
+                ? keyframes[(int) ((long) i * keyframes.length / samples)]
+                : (int) ((long) i * total / samples);
+        }
+        return Arrays.stream(frames).filter(frame -> frame < total).distinct().toArray();
+    }
+
+    /**
+     * Grows a set of pixels by one pixel to the left, right, top and bottom.
+     *
+     * @param pixels the pixels, one bit per pixel in row-major order
+     * @param width the frame width
+     * @param height the frame height
+     * @return the grown set
+     */
+    private static BitSet dilate(BitSet pixels, int width, int height) {
+        BitSet grown = (BitSet) pixels.clone();
+        for (int i = pixels.nextSetBit(0); i >= 0; i = pixels.nextSetBit(i + 1)) {
+            int x = i % width;
+            int y = i / width;
+            if (x > 0) grown.set(i - 1);
+            if (x + 1 < width) grown.set(i + 1);
+            if (y > 0) grown.set(i - width);
+            if (y + 1 < height) grown.set(i + width);
+        }
+        return grown;
+    }
+
+    /**
+     * Returns whether a pixel is excluded from analysis.
+     *
+     * @param x the pixel column
+     * @param y the pixel row
+     * @return true if the pixel is part of the static background
+     */
+    public boolean isExcluded(int x, int y) {
+        return excluded.get(y * width + x);
+    }
+
+    /**
+     * Returns the first column at or after x, and before to, of a pixel of row y that is not
+     * excluded.
+     *
+     * @param x the first column to look at
+     * @param y the row
+     * @param to one past the last column to look at
+     * @return the column, or to if every pixel in between is excluded
+     */
+    int nextIncluded(int x, int y, int to) {
+        int offset = y * width;
+        return Math.min(to, excluded.nextClearBit(offset + x) - offset);
+    }
+
+    /**
+     * Returns the first column at or after x, and before to, of an excluded pixel of row y.
+     *
+     * @param x the first column to look at
+     * @param y the row
+     * @param to one past the last column to look at
+     * @return the column, or to if no pixel in between is excluded
+     */
+    int nextExcluded(int x, int y, int to) {
+        int offset = y * width;
+        int next = excluded.nextSetBit(offset + x);
+        return next < 0 ? to : Math.min(to, next - offset);
+    }
+
+    /**
+     * Returns the number of excluded pixels.
+     *
+     * @return the pixel count
+     */
+    public int excludedCount() {
+        return excluded.cardinality();
+    }
+
+    /**
+     * Returns the number of frames the mask was learned from.
+     *
+     * @return the sample count
+     */
+    public int samples() {
+        return samples;
+    }
+
+    /**
+     * Returns the width of the frames the mask was learned from.
+     *
+     * @return the frame width
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the frames the mask was learned from.
+     *
+     * @return the frame height
+     */
+    public int height() {
+        return height;
+    }
+}
@@ -0,0 +1,183 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A VideoProcessor over already decoded frames streamed from standard input, a FIFO or
+ * a file, so the processor can sit at the end of a pipeline without a temporary file or
+ * a re-encode, or over a fragmented MP4 recording that is decoded while it is written.
+ *
+ * Timestamps come from the frame rate declared by the Y4M header, given for raw input, or
+ * taken from the first sample of a recording.
+ * A stream can only be read once and its length is not known in advance, so
+ * {@link #openFrames()} may only be called once and {@link #getTotalFrames()} returns 0.
+ */
+public class StreamVideoProcessor implements VideoProcessor {
+
+    /** The input path that stands for standard input. */
+    public static final String STDIN = "-";
+
+    /** The size of the buffer between the input and the frame reader. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The reader over the stream, handed out by the first call to {@link #openFrames()}. */
+    private FrameReader frames;
+
+    /** The frame width. */
+    private final int width;
+
+    /** The frame height. */
+    private final int height;
+
+    /** The frame rate. */
+    private final double fps;
+
+    /**
+     * Creates a processor over an opened frame reader.
+     *
+     * @param frames the reader positioned at the first frame
+     * @param width the frame width
+     * @param height the frame height
+     * @param fps the frame rate
+     */
+    public StreamVideoProcessor(FrameReader frames, int width, int height, double fps) {
+        this.frames = frames;
+        this.width = width;
+        this.height = height;
+        this.fps = fps;
+    }
+
+    /**
+     * Opens a Y4M stream and reads its header.
+     *
+     * @param in the stream, which is closed along with the frame reader
+     * @return the processor
+     * @throws IOException if the stream cannot be read or its header is invalid
+     */
+    public static StreamVideoProcessor y4m(InputStream in) throws IOException {
+        Y4mFrameReader reader = Y4mFrameReader.open(in);
+        return new StreamVideoProcessor(reader, reader.getWidth(), reader.getHeight(), reader.getFps());
+    }
+
+    /**
+     * Opens a stream of raw frames.
+     *
+     * @param in the stream, which is closed along with the frame reader
+     * @param width the frame width
+     * @param height the frame height
+     * @param fps the frame rate
+     * @param format the pixel format of the frames
+     * @return the processor
+     * @throws IllegalArgumentException if the size does not suit the format or the rate is not positive
+     */
+    public static StreamVideoProcessor raw(InputStream in, int width, int height, double fps, RawPixelFormat format) {
+        if (!(fps > 0)) throw new IllegalArgumentException("Frame rate must be positive: " + fps);
+        return new StreamVideoProcessor(new RawFrameReader(in, width, height, format), width, height, fps);
+    }
+
+    /**
+     * Opens a fragmented MP4 recording that may still be growing, waiting for its movie
+     * header and first fragment to be written.
+     *
+     * @param file the recording
+     * @param idleTimeoutMillis how long the recording may stop growing before it is
+     *                          considered finished
+     * @param endMarker a file whose existence marks the end of the recording, or null
+     * @return the processor
+     * @throws IOException if the file cannot be read or is not a fragmented H.264 recording
+     */
+    public static StreamVideoProcessor follow(Path file, long idleTimeoutMillis, Path endMarker) throws IOException {
+        FragmentedMp4FrameReader reader = FragmentedMp4FrameReader.open(file, idleTimeoutMillis, endMarker);
+        return new StreamVideoProcessor(reader, reader.getWidth(), reader.getHeight(), reader.getFps());
+    }
+
+    /**
+     * Opens an input path as a stream: "-" for standard input, otherwise a FIFO or file.
+     * Standard input is not closed when the reader is.
+     *
+     * @param path the input path
+     * @return a buffered stream over the input
+     * @throws IOException if the path cannot be opened
+     */
+    public static InputStream openInput(String path) throws IOException {
+        if (path.equals(STDIN)) {
+            return new BufferedInputStream(new FilterInputStream(System.in) {
+                @Override
+                public void close() {
+                    // Standard input belongs to the process
+                }
+            }, BUFFER_SIZE);
+        }
+        return new BufferedInputStream(Files.newInputStream(Path.of(path)), BUFFER_SIZE);
+    }
+
+    /**
+     * Returns the frame rate of the stream.
+     *
+     * @return the frames per second
+     */
+    @Override
+    public double getFps() {
+        return fps;
+    }
+
+    /**
+     * Converts a frame number to a timestamp in seconds using the stream's frame rate.
+     *
+     * @param frameNumber the frame number
+     * @return the time in seconds
+     */
+    @Override
+    public double getTime(int frameNumber) {
+        return frameNumber / fps;
+    }
+
+    /**
+     * Returns the reader over the stream. The caller owns it and must close it.
+     *
+     * @return the reader positioned at the first frame
+     * @throws IllegalStateException if the stream was already opened
+     */
+    @Override
+    public FrameReader openFrames() {
+        if (frames == null) throw new IllegalStateException("A stream can only be read once");
+        FrameReader reader = frames;
+        frames = null;
+        return reader;
+    }
+
+    /**
+     * Returns 0, because the length of a stream is not known in advance.
+     *
+     * @return 0
+     */
+    @Override
+    public int getTotalFrames() {
+        return 0;
+    }
+
+    /**
+     * Returns the frame width.
+     *
+     * @return the width in pixels
+     */
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the frame height.
+     *
+     * @return the height in pixels
+     */
+    @Override
+    public int getHeight() {
+        return height;
+    }
+}
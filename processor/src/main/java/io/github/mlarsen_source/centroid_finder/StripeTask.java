@@ -0,0 +1,85 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs a piece of work once per horizontal stripe of a frame on a ForkJoinPool.
+ *
+ * The range of stripes is split in halves until each task holds one stripe, so idle
+ * workers steal whole stripes from busy ones. A frame of height h split into n stripes
+ * gives stripe i the rows from {@code start(i, n, h)} up to {@code start(i + 1, n, h)}.
+ */
+final class StripeTask extends RecursiveAction {
+
+    /** Tasks are never serialized; declared to satisfy Serializable. */
+    private static final long serialVersionUID = 1L;
+
+    /** The fewest rows worth handing to a worker of their own. */
+    static final int MIN_STRIPE_ROWS = 32;
+
+    /** The work done for each stripe, given the stripe index. */
+    private final transient IntConsumer body;
+
+    /** The first stripe of this task. */
+    private final int from;
+
+    /** One past the last stripe of this task. */
+    private final int to;
+
+    private StripeTask(IntConsumer body, int from, int to) {
+        this.body = body;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Runs the body once for every stripe and waits for all of them. A RuntimeException
+     * thrown by any stripe is rethrown to the caller.
+     *
+     * @param pool the pool that runs the stripes
+     * @param stripes the number of stripes
+     * @param body the work for one stripe, given the stripe index
+     */
+    static void forEach(ForkJoinPool pool, int stripes, IntConsumer body) {
+        pool.invoke(new StripeTask(body, 0, stripes));
+    }
+
+    /**
+     * Returns how many stripes a frame is split into: one per thread of the pool, but never
+     * so many that a stripe has fewer than {@link #MIN_STRIPE_ROWS} rows.
+     *
+     * @param height the frame height
+     * @param parallelism the parallelism of the pool
+     * @return the number of stripes, at least 1
+     */
+    static int count(int height, int parallelism) {
+        return Math.max(1, Math.min(parallelism, height / MIN_STRIPE_ROWS));
+    }
+
+    /**
+     * Returns the first row of a stripe. Stripes differ in height by at most one row.
+     *
+     * @param stripe the stripe index, or the number of stripes for the end of the frame
+     * @param stripes the number of stripes
+     * @param height the frame height
+     * @return the first row of the stripe
+     */
+    static int start(int stripe, int stripes, int height) {
+        return (int) ((long) stripe * height / stripes);
+    }
+
+    /**
+     * Runs the body for a single stripe, or splits the range and runs both halves.
+     */
+    @Override
+    protected void compute() {
+        if (to - from == 1) {
+            body.accept(from);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new StripeTask(body, from, middle), new StripeTask(body, middle, to));
+    }
+}
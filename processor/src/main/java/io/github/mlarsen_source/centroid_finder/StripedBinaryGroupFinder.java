@@ -0,0 +1,309 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Implementation of BinaryGroupFinder that labels horizontal stripes of the image in
+ * parallel on a ForkJoinPool and then joins the components that cross stripe boundaries.
+ *
+ * Each stripe is searched breadth-first on its own, recording the size and coordinate
+ * sums of every component it finds along with the labels of its first and last rows.
+ * Components that touch across a boundary are merged with union-find and their sums are
+ * added, so the sizes and centroids are exactly those BfsBinaryGroupFinder computes for
+ * the whole image, and so are the minimum size, top-K and ordering rules applied to them.
+ * Images too short to split are labeled by a BfsBinaryGroupFinder on the calling thread.
+ */
+public class StripedBinaryGroupFinder implements BinaryGroupFinder {
+
+    /** The maximum number of groups returned per image. */
+    private final int maxGroups;
+
+    /** The minimum number of pixels a component needs to be returned as a group. */
+    private final int minGroupSize;
+
+    /** The pool the stripes run on. */
+    private final ForkJoinPool pool;
+
+    /** Labels images that are too short to split. */
+    private final BfsBinaryGroupFinder serial;
+
+    /**
+     * Creates a finder that returns at most the given number of largest groups, ignoring
+     * groups smaller than the given size, and labels stripes on the given pool.
+     *
+     * @param maxGroups the maximum number of groups to return, at least 1
+     * @param minGroupSize the minimum group size in pixels, at least 1
+     * @param pool the pool the stripes run on
+     * @throws IllegalArgumentException if either limit is less than 1
+     * @throws NullPointerException if pool is null
+     */
+    public StripedBinaryGroupFinder(int maxGroups, int minGroupSize, ForkJoinPool pool) {
+        this.serial = new BfsBinaryGroupFinder(maxGroups, minGroupSize);
+        this.maxGroups = maxGroups;
+        this.minGroupSize = minGroupSize;
+        this.pool = Objects.requireNonNull(pool, "pool");
+    }
+
+    /**
+     * Finds connected groups of 1's in a binary 2D array, with the same connectivity,
+     * coordinate system and centroid rounding as BfsBinaryGroupFinder.
+     *
+     * The visited flags, search queue and boundary labels come from the calling thread's
+     * FrameContext; each stripe uses the rows of the visited flags and the slice of the
+     * queue that cover its own pixels. A search slower than the StageEvent threshold is
+     * reported to Flight Recorder.
+     *
+     * @param image rectangular 2D array containing only 1s and 0s
+     * @return the largest groups of connected pixels in descending order by Group's compareTo
+     * @throws NullPointerException if image or any subarray is null
+     * @throws IllegalArgumentException if array is empty or contains values other than 0 or 1
+     */
+    @Override
+    public List<Group> findConnectedGroups(int[][] image) {
+        if (image == null) throw new NullPointerException("array cannot be null");
+        if (image.length == 0 || image[0].length == 0) throw new IllegalArgumentException("array cannot be empty");
+        int height = image.length;
+        int width = image[0].length;
+        for (int[] subarray : image) {
+            if (subarray == null) throw new NullPointerException("subarray cannot be null");
+            if (subarray.length != width) throw new IllegalArgumentException("array must be rectangular");
+        }
+        int stripes = StripeTask.count(height, pool.getParallelism());
+        if (stripes == 1) return serial.findConnectedGroups(image);
+
+        StageEvent event = new StageEvent();
+        event.begin();
+        FrameContext context = FrameContext.current();
+        boolean[][] visited = context.visited(height, width);
+        int[] queue = context.queue(height * width);
+        int[] labels = context.labels(2 * stripes * width);
+        Components[] parts = new Components[stripes];
+        StripeTask.forEach(pool, stripes, stripe -> parts[stripe] = labelStripe(image,
+                StripeTask.start(stripe, stripes, height), StripeTask.start(stripe + 1, stripes, height),
+                visited, queue, labels, 2 * stripe * width));
+
+        int[] offsets = new int[stripes];
+        int total = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            offsets[stripe] = total;
+            total += parts[stripe].count;
+        }
+        int[] parent = new int[total];
+        int[] sizes = new int[total];
+        long[] rowSums = new long[total];
+        long[] colSums = new long[total];
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            Components part = parts[stripe];
+            int offset = offsets[stripe];
+            System.arraycopy(part.sizes, 0, sizes, offset, part.count);
+            System.arraycopy(part.rowSums, 0, rowSums, offset, part.count);
+            System.arraycopy(part.colSums, 0, colSums, offset, part.count);
+        }
+        for (int label = 0; label < total; label++) {
+            parent[label] = label;
+        }
+
+        for (int stripe = 0; stripe + 1 < stripes; stripe++) {
+            int boundary = StripeTask.start(stripe + 1, stripes, height);
+            int[] above = image[boundary - 1];
+            int[] below = image[boundary];
+            int lastRowLabels = (2 * stripe + 1) * width;
+            int firstRowLabels = 2 * (stripe + 1) * width;
+            for (int col = 0; col < width; col++) {
+                if (above[col] == 1 && below[col] == 1) {
+                    union(parent, offsets[stripe] + labels[lastRowLabels + col],
+                            offsets[stripe + 1] + labels[firstRowLabels + col]);
+                }
+            }
+        }
+        for (int label = 0; label < total; label++) {
+            int root = find(parent, label);
+            if (root != label) {
+                sizes[root] += sizes[label];
+                rowSums[root] += rowSums[label];
+                colSums[root] += colSums[label];
+            }
+        }
+
+        boolean bounded = maxGroups != Integer.MAX_VALUE;
+        List<Group> groups = new ArrayList<>();
+        PriorityQueue<Group> largest = bounded ? new PriorityQueue<>(Math.min(maxGroups, 64)) : null;
+        for (int label = 0; label < total; label++) {
+            int size = sizes[label];
+            if (parent[label] != label || size < minGroupSize) continue;
+            Group group = new Group(size, new Coordinate((int) (colSums[label] / size), (int) (rowSums[label] / size)));
+            if (!bounded) {
+                groups.add(group);
+            } else if (largest.size() < maxGroups) {
+                largest.offer(group);
+            } else if (group.compareTo(largest.peek()) > 0) {
+                largest.poll();
+                largest.offer(group);
+            }
+        }
+        if (bounded) {
+            groups.addAll(largest);
+        }
+        if (!groups.isEmpty()) {
+            groups.sort(Collections.reverseOrder());
+        }
+
+        if (event.shouldCommit()) {
+            event.stage = Stage.LABEL.reportName();
+            event.width = width;
+            event.height = height;
+            event.commit();
+        }
+        return groups;
+    }
+
+    /**
+     * Labels the components of one stripe, treating the stripe's first and last rows as
+     * the edges of the image.
+     *
+     * Pixels are queued as row * width + col starting at the stripe's first pixel, so the
+     * stripe only uses the part of the queue that covers its own pixels.
+     *
+     * @param image the binary 2D array
+     * @param fromRow the first row of the stripe
+     * @param toRow one past the last row of the stripe
+     * @param visited flags marking pixels that already belong to a component
+     * @param queue scratch space with room for every pixel in the image
+     * @param labels the boundary labels; the stripe writes the labels of its first row at
+     *               labelOffset and those of its last row at labelOffset + width
+     * @param labelOffset where the stripe's boundary labels start
+     * @return the size and coordinate sums of each component, indexed by label
+     * @throws IllegalArgumentException if the stripe contains values other than 0 or 1
+     */
+    private static Components labelStripe(int[][] image, int fromRow, int toRow, boolean[][] visited,
+            int[] queue, int[] labels, int labelOffset) {
+        int width = image[0].length;
+        int firstRowLabels = labelOffset;
+        int lastRowLabels = labelOffset + width;
+        int start = fromRow * width;
+        Components components = new Components();
+
+        for (int row = fromRow; row < toRow; row++) {
+            int[] pixels = image[row];
+            for (int col = 0; col < width; col++) {
+                int value = pixels[col];
+                if (value == 1) {
+                    if (visited[row][col]) continue;
+                    int label = components.count;
+                    int head = start;
+                    int tail = start;
+                    long rowSum = 0;
+                    long colSum = 0;
+                    visited[row][col] = true;
+                    queue[tail++] = row * width + col;
+
+                    while (head < tail) {
+                        int current = queue[head++];
+                        int r = current / width;
+                        int c = current - r * width;
+                        rowSum += r;
+                        colSum += c;
+                        if (r == fromRow) labels[firstRowLabels + c] = label;
+                        if (r == toRow - 1) labels[lastRowLabels + c] = label;
+
+                        if (r > fromRow && image[r - 1][c] == 1 && !visited[r - 1][c]) {
+                            visited[r - 1][c] = true;
+                            queue[tail++] = current - width;
+                        }
+                        if (r < toRow - 1 && image[r + 1][c] == 1 && !visited[r + 1][c]) {
+                            visited[r + 1][c] = true;
+                            queue[tail++] = current + width;
+                        }
+                        if (c < width - 1 && image[r][c + 1] == 1 && !visited[r][c + 1]) {
+                            visited[r][c + 1] = true;
+                            queue[tail++] = current + 1;
+                        }
+                        if (c > 0 && image[r][c - 1] == 1 && !visited[r][c - 1]) {
+                            visited[r][c - 1] = true;
+                            queue[tail++] = current - 1;
+                        }
+                    }
+                    components.add(tail - start, rowSum, colSum);
+                } else if (value != 0) {
+                    throw new IllegalArgumentException("array can only contain values of 1 or 0");
+                }
+            }
+        }
+        return components;
+    }
+
+    /**
+     * Returns the root of a label's set, halving the path on the way.
+     *
+     * @param parent the parent of every label
+     * @param label the label
+     * @return the root label
+     */
+    private static int find(int[] parent, int label) {
+        while (parent[label] != label) {
+            parent[label] = parent[parent[label]];
+            label = parent[label];
+        }
+        return label;
+    }
+
+    /**
+     * Joins the sets of two labels, keeping the smaller root.
+     *
+     * @param parent the parent of every label
+     * @param a the first label
+     * @param b the second label
+     */
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+
+    /**
+     * The size and coordinate sums of the components found in one stripe, indexed by label.
+     */
+    private static final class Components {
+
+        /** The number of components. */
+        private int count;
+
+        /** The number of pixels in each component. */
+        private int[] sizes = new int[16];
+
+        /** The sum of the row of every pixel in each component. */
+        private long[] rowSums = new long[16];
+
+        /** The sum of the column of every pixel in each component. */
+        private long[] colSums = new long[16];
+
+        /**
+         * Adds a component under the next label.
+         *
+         * @param size the number of pixels
+         * @param rowSum the sum of their rows
+         * @param colSum the sum of their columns
+         */
+        private void add(int size, long rowSum, long colSum) {
+            if (count == sizes.length) {
+                sizes = Arrays.copyOf(sizes, count * 2);
+                rowSums = Arrays.copyOf(rowSums, count * 2);
+                colSums = Arrays.copyOf(colSums, count * 2);
+            }
+            sizes[count] = size;
+            rowSums[count] = rowSum;
+            colSums[count] = colSum;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.awt.image.BufferedImage;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * An ImageBinarizer that splits each image into horizontal stripes and binarizes the
+ * stripes in parallel on a ForkJoinPool.
+ *
+ * Every pixel is binarized by the wrapped DistanceImageBinarizer, so the result is the
+ * same as binarizing the whole image on one thread. Images too short to split are
+ * binarized on the calling thread.
+ */
+public class StripedImageBinarizer implements ImageBinarizer {
+
+    /** Binarizes the rows of each stripe. */
+    private final DistanceImageBinarizer binarizer;
+
+    /** The pool the stripes run on. */
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a binarizer that runs the given binarizer over stripes on the given pool.
+     *
+     * @param binarizer the binarizer applied to every stripe
+     * @param pool the pool the stripes run on
+     * @throws NullPointerException if either argument is null
+     */
+    public StripedImageBinarizer(DistanceImageBinarizer binarizer, ForkJoinPool pool) {
+        this.binarizer = Objects.requireNonNull(binarizer, "binarizer");
+        this.pool = Objects.requireNonNull(pool, "pool");
+    }
+
+    /**
+     * Converts the given BufferedImage into a binary 2D array.
+     *
+     * @param image the input RGB BufferedImage
+     * @return a 2D binary array where 1 represents white and 0 represents black
+     */
+    @Override
+    public int[][] toBinaryArray(BufferedImage image) {
+        return toBinaryArray(image, null);
+    }
+
+    /**
+     * Converts the given BufferedImage into a binary 2D array, binarizing its stripes in
+     * parallel and writing into the provided array when its dimensions match the image.
+     *
+     * A binarization slower than the StageEvent threshold is reported to Flight Recorder.
+     *
+     * @param image the input RGB BufferedImage
+     * @param reuse an array of [height][width] to write into, or null to allocate a new one
+     * @return a 2D binary array where 1 represents white and 0 represents black
+     */
+    @Override
+    public int[][] toBinaryArray(BufferedImage image, int[][] reuse) {
+        if (image == null) throw new NullPointerException("image cannot be null.");
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int stripes = StripeTask.count(height, pool.getParallelism());
+        if (stripes == 1) return binarizer.toBinaryArray(image, reuse);
+
+        StageEvent event = new StageEvent();
+        event.begin();
+        int[][] binary = reuse;
+        if (binary == null || binary.length != height || binary[0].length != width) {
+            binary = new int[height][width];
+        }
+        int[][] out = binary;
+        StripeTask.forEach(pool, stripes, stripe -> binarizer.binarizeRows(image, out,
+                StripeTask.start(stripe, stripes, height), StripeTask.start(stripe + 1, stripes, height)));
+        if (event.shouldCommit()) {
+            event.stage = Stage.BINARIZE.reportName();
+            event.width = width;
+            event.height = height;
+            event.commit();
+        }
+        return binary;
+    }
+
+    /**
+     * Binarizes the pixels inside a region, splitting the rows of its bounding box into
+     * stripes like {@link #toBinaryArray(BufferedImage, int[][])}.
+     *
+     * @param image the input RGB BufferedImage
+     * @param region the region to binarize, compiled for the image's size
+     * @param reuse an array of the bounding box size to write into, or null to allocate a new one
+     * @return a binary array of the region's bounding box
+     * @throws IllegalArgumentException if the region was compiled for another image size
+     */
+    @Override
+    public int[][] toBinaryArray(BufferedImage image, RegionMask region, int[][] reuse) {
+        if (image == null) throw new NullPointerException("image cannot be null.");
+        int height = region.height();
+        int stripes = StripeTask.count(height, pool.getParallelism());
+        if (stripes == 1) return binarizer.toBinaryArray(image, region, reuse);
+
+        region.checkFrameSize(image.getWidth(), image.getHeight());
+        StageEvent event = new StageEvent();
+        event.begin();
+        int[][] binary = region.boxArray(reuse);
+        StripeTask.forEach(pool, stripes, stripe -> binarizer.binarizeRegionRows(image, region, binary,
+                StripeTask.start(stripe, stripes, height), StripeTask.start(stripe + 1, stripes, height)));
+        if (event.shouldCommit()) {
+            event.stage = Stage.BINARIZE.reportName();
+            event.width = region.width();
+            event.height = height;
+            event.commit();
+        }
+        return binary;
+    }
+}
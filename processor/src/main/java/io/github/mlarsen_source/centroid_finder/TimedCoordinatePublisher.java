@@ -0,0 +1,201 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * A Flow.Publisher that decodes a video lazily and pushes its time-based centroid
+ * coordinates to subscribers.
+ *
+ * Every subscriber gets its own pass over the video through {@link VideoGroupFinder#stream()}.
+ * The video is not opened until the subscriber first requests items, and frames are only
+ * decoded while the subscriber has outstanding demand. Decoding runs on the given executor,
+ * never on the thread that calls request, and at most one task per subscription runs at a
+ * time. The video is closed as soon as the subscription completes, fails or is cancelled.
+ */
+public class TimedCoordinatePublisher implements Flow.Publisher<TimedCoordinate> {
+
+    /** Opens a fresh stream of coordinates for each subscriber. */
+    private final VideoGroupFinder finder;
+
+    /** Runs the decoding for every subscription. */
+    private final Executor executor;
+
+    /**
+     * Creates a publisher for the given video.
+     *
+     * @param finder opens the stream of coordinates for each subscriber
+     * @param executor runs the decoding for each subscription
+     */
+    public TimedCoordinatePublisher(VideoGroupFinder finder, Executor executor) {
+        this.finder = Objects.requireNonNull(finder, "finder cannot be null");
+        this.executor = Objects.requireNonNull(executor, "executor cannot be null");
+    }
+
+    /**
+     * Subscribes to the video's coordinates. Nothing is decoded until the subscriber
+     * requests items.
+     *
+     * @param subscriber the subscriber to receive the coordinates
+     * @throws NullPointerException if the subscriber is null
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super TimedCoordinate> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber cannot be null");
+        subscriber.onSubscribe(new VideoSubscription(subscriber));
+    }
+
+    /**
+     * One subscriber's pass over the video.
+     *
+     * Signals from request and cancel only update state and schedule a drain; the drain
+     * loop runs on the executor and is the only code that touches the stream. The wip
+     * counter makes sure a single drain runs at a time and that signals arriving while it
+     * runs are picked up before it exits.
+     */
+    private class VideoSubscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super TimedCoordinate> subscriber;
+
+        /** Items requested but not yet delivered. */
+        private final AtomicLong demand = new AtomicLong();
+
+        /** The number of times a drain has been requested but not yet handled. */
+        private final AtomicInteger wip = new AtomicInteger();
+
+        /** Set when the subscriber cancels. */
+        private volatile boolean cancelled;
+
+        /** An invalid request, reported to the subscriber on the next drain. */
+        private volatile IllegalArgumentException badRequest;
+
+        /** Set once a terminal signal has been sent or the subscription was cancelled. Only used by the drain. */
+        private boolean done;
+
+        /** The open stream, or null before the first request. Only used by the drain. */
+        private Stream<TimedCoordinate> stream;
+
+        /** Iterates over {@link #stream}. Only used by the drain. */
+        private Iterator<TimedCoordinate> iterator;
+
+        VideoSubscription(Flow.Subscriber<? super TimedCoordinate> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = new IllegalArgumentException("Requested item count must be positive: " + n);
+            } else {
+                demand.getAndUpdate(current -> {
+                    long sum = current + n;
+                    return sum < 0 ? Long.MAX_VALUE : sum;
+                });
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        /**
+         * Starts a drain on the executor unless one is already running.
+         */
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    cancelled = true;
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Delivers items while there is demand, and handles cancellation, completion and errors.
+         */
+        private void drain() {
+            if (done) return;
+            if (cancelled) {
+                finish();
+                return;
+            }
+            if (badRequest != null) {
+                finish();
+                subscriber.onError(badRequest);
+                return;
+            }
+
+            TimedCoordinate next;
+            while (demand.get() > 0) {
+                try {
+                    if (stream == null) {
+                        stream = finder.stream();
+                        iterator = stream.iterator();
+                    }
+                    if (!iterator.hasNext()) {
+                        finish();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    next = iterator.next();
+                } catch (Exception e) {
+                    finish();
+                    subscriber.onError(e);
+                    return;
+                }
+
+                demand.decrementAndGet();
+                try {
+                    subscriber.onNext(next);
+                } catch (RuntimeException e) {
+                    // A subscriber that throws is treated as having cancelled
+                    finish();
+                    return;
+                }
+
+                if (cancelled) {
+                    finish();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Marks the subscription as done and closes the stream, which stops decoding and
+         * releases the video file and the executor thread's frame buffers.
+         */
+        private void finish() {
+            done = true;
+            if (stream != null) {
+                FrameContext.release();
+                try {
+                    stream.close();
+                } catch (RuntimeException e) {
+                    System.err.println("Error closing video stream: " + e.getMessage());
+                }
+                stream = null;
+                iterator = null;
+            }
+        }
+    }
+}
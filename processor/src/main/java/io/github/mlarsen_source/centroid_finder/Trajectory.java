@@ -0,0 +1,262 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * A growable sequence of timed centroid positions stored as parallel primitive arrays.
+ *
+ * Each entry holds the same data as a TimedCoordinate: the time in seconds from the start
+ * of the video and the x and y coordinates of the centroid. Storing them in a double array
+ * and two int arrays takes 16 bytes per entry instead of a TimedCoordinate record, a
+ * Coordinate record and a list slot, and appending does not allocate once the arrays
+ * have grown to fit the video.
+ *
+ * Entries are kept in the order they were added. {@link #asList()} exposes the trajectory
+ * as a read-only List of TimedCoordinate for code that still works with records.
+ *
+ * When several groups are reported per frame, each entry also carries the group's rank
+ * within its frame, starting at 1 for the largest. The rank array is only allocated once
+ * an entry with a rank other than 1 is added.
+ */
+public class Trajectory {
+
+    /** The capacity used when none is given. */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /** Entry times in seconds from the start of the video. */
+    private double[] times;
+
+    /** Entry centroid x coordinates. */
+    private int[] xs;
+
+    /** Entry centroid y coordinates. */
+    private int[] ys;
+
+    /** Entry ranks within their frame, or null while every entry has rank 1. */
+    private int[] ranks;
+
+    /** The number of entries in use. */
+    private int size;
+
+    /**
+     * Creates an empty trajectory with a small default capacity.
+     */
+    public Trajectory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty trajectory with room for the given number of entries.
+     *
+     * @param initialCapacity the number of entries to allocate space for
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public Trajectory(int initialCapacity) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("Capacity cannot be negative: " + initialCapacity);
+        this.times = new double[initialCapacity];
+        this.xs = new int[initialCapacity];
+        this.ys = new int[initialCapacity];
+    }
+
+    /**
+     * Creates a trajectory holding the entries of the given list, in list order.
+     *
+     * @param timedCoordinates the records to copy
+     * @return a new trajectory with one entry per record
+     */
+    public static Trajectory of(List<TimedCoordinate> timedCoordinates) {
+        Trajectory trajectory = new Trajectory(timedCoordinates.size());
+        for (TimedCoordinate tc : timedCoordinates) {
+            trajectory.add(tc.time(), tc.centroid().x(), tc.centroid().y());
+        }
+        return trajectory;
+    }
+
+    /**
+     * Appends an entry, growing the backing arrays when they are full.
+     *
+     * @param time the time in seconds from the start of the video
+     * @param x the centroid x coordinate
+     * @param y the centroid y coordinate
+     */
+    public void add(double time, int x, int y) {
+        add(time, x, y, 1);
+    }
+
+    /**
+     * Appends an entry for a group with the given rank within its frame.
+     *
+     * @param time the time in seconds from the start of the video
+     * @param x the centroid x coordinate
+     * @param y the centroid y coordinate
+     * @param rank the group's rank within its frame, 1 for the largest
+     */
+    public void add(double time, int x, int y, int rank) {
+        if (size == times.length) {
+            int capacity = Math.max(DEFAULT_CAPACITY, size + (size >> 1));
+            times = Arrays.copyOf(times, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            if (ranks != null) ranks = Arrays.copyOf(ranks, capacity);
+        }
+        if (rank != 1 && ranks == null) {
+            ranks = new int[times.length];
+            Arrays.fill(ranks, 0, size, 1);
+        }
+        times[size] = time;
+        xs[size] = x;
+        ys[size] = y;
+        if (ranks != null) ranks[size] = rank;
+        size++;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the entry count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the trajectory has no entries.
+     *
+     * @return true if no entries have been added
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every entry, keeping the allocated capacity for reuse.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns the time of the entry at the given index.
+     *
+     * @param index the entry index
+     * @return the time in seconds from the start of the video
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public double time(int index) {
+        return times[checkIndex(index)];
+    }
+
+    /**
+     * Returns the centroid x coordinate of the entry at the given index.
+     *
+     * @param index the entry index
+     * @return the x coordinate
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int x(int index) {
+        return xs[checkIndex(index)];
+    }
+
+    /**
+     * Returns the centroid y coordinate of the entry at the given index.
+     *
+     * @param index the entry index
+     * @return the y coordinate
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int y(int index) {
+        return ys[checkIndex(index)];
+    }
+
+    /**
+     * Returns the rank of the entry at the given index within its frame.
+     *
+     * @param index the entry index
+     * @return the rank, 1 for the largest group in the frame
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int rank(int index) {
+        checkIndex(index);
+        return ranks == null ? 1 : ranks[index];
+    }
+
+    /**
+     * Returns the entry at the given index as a new TimedCoordinate record.
+     *
+     * @param index the entry index
+     * @return a record holding the entry's time and centroid
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public TimedCoordinate get(int index) {
+        checkIndex(index);
+        return new TimedCoordinate(times[index], new Coordinate(xs[index], ys[index]));
+    }
+
+    /**
+     * Returns the entry at the given index formatted as a CSV row, in the same
+     * "time,x,y" format as {@link TimedCoordinate#toCsvRow()}.
+     *
+     * @param index the entry index
+     * @return a CSV row string for the entry
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public String toCsvRow(int index) {
+        checkIndex(index);
+        return String.format("%.2f,%d,%d", times[index], xs[index], ys[index]);
+    }
+
+    /**
+     * Returns the entry at the given index formatted as a CSV row, optionally followed
+     * by the entry's rank as "time,x,y,rank".
+     *
+     * @param index the entry index
+     * @param includeRank true to append the rank column
+     * @return a CSV row string for the entry
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public String toCsvRow(int index, boolean includeRank) {
+        if (!includeRank) return toCsvRow(index);
+        return toCsvRow(index) + "," + rank(index);
+    }
+
+    /**
+     * Returns a read-only List view of this trajectory. Records are created when elements
+     * are read, and entries added to the trajectory later are visible through the view.
+     *
+     * @return a List of TimedCoordinate backed by this trajectory
+     */
+    public List<TimedCoordinate> asList() {
+        return new TimedCoordinateView();
+    }
+
+    /**
+     * Checks that an index refers to an entry in use.
+     *
+     * @param index the index to check
+     * @return the index
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    private int checkIndex(int index) {
+        return Objects.checkIndex(index, size);
+    }
+
+    /**
+     * Read-only List view over the trajectory's entries.
+     */
+    private class TimedCoordinateView extends AbstractList<TimedCoordinate> implements RandomAccess {
+
+        @Override
+        public TimedCoordinate get(int index) {
+            return Trajectory.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -2,6 +2,9 @@ package io.github.mlarsen_source.centroid_finder;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
 
 import org.jcodec.api.JCodecException;
 
@@ -16,9 +19,51 @@ public interface VideoGroupFinder {
      * Frames with no detected groups are skipped. The frame number is used to
      * compute the timestamp based on the video's frame rate (FPS).
      *
+     * @return a Trajectory holding one entry per frame with a detected group, in frame order
+     * @throws IOException if an error occurs while reading the video file
+     * @throws JCodecException if an error occurs while decoding video frames
+     */
+    Trajectory getTrajectory() throws IOException, JCodecException;
+
+    /**
+     * Processes each frame in the video to find time-based centroid coordinates.
+     * Frames with no detected groups are skipped. The frame number is used to
+     * compute the timestamp based on the video's frame rate (FPS).
+     *
+     * This is a compatibility view over {@link #getTrajectory()}.
+     *
      * @return a list of TimedCoordinate objects representing centroids over time
      * @throws IOException if an error occurs while reading the video file
      * @throws JCodecException if an error occurs while decoding video frames
      */
-    List<TimedCoordinate> getTimeGroups() throws IOException, JCodecException;
+    default List<TimedCoordinate> getTimeGroups() throws IOException, JCodecException {
+        return getTrajectory().asList();
+    }
+
+    /**
+     * Returns a lazy, pull-based stream of time-based centroid coordinates.
+     *
+     * Frames are decoded only as elements are consumed, so a caller can stop after the
+     * first few seconds without decoding the rest of the video. Closing the stream stops
+     * decoding and releases the video file.
+     *
+     * @return a sequential, ordered stream of TimedCoordinate records
+     * @throws IOException if the video file cannot be opened
+     * @throws JCodecException if an error occurs while initializing frame extraction
+     */
+    Stream<TimedCoordinate> stream() throws IOException, JCodecException;
+
+    /**
+     * Returns a push-based publisher of time-based centroid coordinates.
+     *
+     * Each subscriber gets its own pass over the video. Frames are decoded on the given
+     * executor only while the subscriber has outstanding demand, and cancelling the
+     * subscription stops decoding and releases the video file.
+     *
+     * @param executor runs the decoding for each subscription
+     * @return a publisher of TimedCoordinate records
+     */
+    default Flow.Publisher<TimedCoordinate> publisher(Executor executor) {
+        return new TimedCoordinatePublisher(this, executor);
+    }
 }
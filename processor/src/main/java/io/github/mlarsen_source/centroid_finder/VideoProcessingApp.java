@@ -1,8 +1,52 @@
 package io.github.mlarsen_source.centroid_finder;
 
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Command line entry point that processes one video and writes its centroid CSV.
+ *
+ * The server starts a new JVM for every job, so startup time counts towards every video.
+ * main only touches the classes needed to validate the arguments before handing over to
+ * the runner, and AWT runs headless so no display or desktop toolkit is probed. Together
+ * with the class-data-sharing archive built by the appcds profile this keeps the time to
+ * the first decoded frame low for short clips.
+ *
+ * Started with --daemon as the first argument, the JVM instead stays up and processes
+ * jobs sent to a {@link WorkerDaemon}; with --batch it processes a manifest or directory
+ * of videos through a {@link BatchProcessor}; with --coordinate it splits one video
+ * across worker processes through a {@link SegmentCoordinator}, and --segment-worker
+ * starts one of those workers. Those classes are only loaded in their mode.
+ */
 public class VideoProcessingApp {
 
+    /**
+     * Parses the arguments, processes the video and exits with status 0 on success or 1
+     * on failure.
+     *
+     * @param args the input video, output CSV, target color and threshold, followed by
+     *             optional flags, or --daemon, --batch, --coordinate or --segment-worker
+     *             followed by that mode's options
+     */
     public static void main(String[] args) {
+        useHeadlessAwt();
+
+        if (args.length > 0 && args[0].equals("--daemon")) {
+            runDaemon(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--batch")) {
+            runBatch(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--coordinate")) {
+            runCoordinator(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--segment-worker")) {
+            runSegmentWorker(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
 
         try {
             ArgumentParser parser = new CommandLineParser(args);
@@ -22,12 +66,20 @@ public class VideoProcessingApp {
                 System.exit(1);
             }
 
-            VideoProcessingAppRunner runner = new VideoProcessingAppRunner();
+            // Keep stdout for the JSON event stream and move the free-text log to stderr
+            PrintStream events = null;
+            if (parser.getOptions().isProgressEvents()) {
+                events = System.out;
+                System.setOut(System.err);
+            }
+
+            VideoProcessingAppRunner runner = new VideoProcessingAppRunner(events);
             runner.processVideo(
                 videoPath,      
                 outputPath,    
                 targetColor,    
-                threshold      
+                threshold,
+                parser.getOptions()
             );
 
            
@@ -40,4 +92,76 @@ public class VideoProcessingApp {
             System.exit(1);
         }
     }
+
+    /**
+     * Runs the worker daemon until its input ends, then exits with status 0, or with
+     * status 1 if it could not be started.
+     *
+     * @param args the daemon options
+     */
+    private static void runDaemon(String[] args) {
+        try {
+            WorkerDaemon.run(args);
+            System.exit(0);
+        } catch (Exception ex) {
+            System.err.println("ERROR: Worker failed: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs a batch and exits with status 0 if every job succeeded, or 1 otherwise.
+     *
+     * @param args the batch options
+     */
+    private static void runBatch(String[] args) {
+        try {
+            System.exit(BatchProcessor.run(args));
+        } catch (Exception ex) {
+            System.err.println("ERROR: Batch failed: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Processes a video in segments on several worker processes and exits with status 0
+     * if the merged CSV was written, or 1 otherwise.
+     *
+     * @param args the coordinator arguments
+     */
+    private static void runCoordinator(String[] args) {
+        try {
+            SegmentCoordinator.run(args);
+            System.exit(0);
+        } catch (Exception ex) {
+            System.err.println("ERROR: Coordinator failed: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs a segment worker until it is told to stop, then exits with status 0, or with
+     * status 1 if it could not read its spool.
+     *
+     * @param args the worker options
+     */
+    private static void runSegmentWorker(String[] args) {
+        try {
+            SegmentWorker.run(args);
+            System.exit(0);
+        } catch (Exception ex) {
+            System.err.println("ERROR: Segment worker failed: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs AWT headless unless the caller chose otherwise. Frames are only converted to
+     * BufferedImages, which never needs a display.
+     */
+    static void useHeadlessAwt() {
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+    }
 }
@@ -2,16 +2,42 @@ package io.github.mlarsen_source.centroid_finder;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
 
 import org.jcodec.api.JCodecException;
 
+import jdk.jfr.FlightRecorder;
+
 /**
  * Coordinates all necessary video processing steps.
  * 
  */
 public class VideoProcessingAppRunner {
 
+    /** Receives progress events when they are enabled, or null to use the current System.out. */
+    private final PrintStream eventStream;
+
+    /**
+     * Creates a runner that writes progress events, when enabled, to System.out.
+     */
+    public VideoProcessingAppRunner() {
+        this(null);
+    }
+
+    /**
+     * Creates a runner that writes progress events, when enabled, to the given stream.
+     *
+     * @param eventStream receives the JSON-lines progress events, or null for System.out
+     */
+    public VideoProcessingAppRunner(PrintStream eventStream) {
+        this.eventStream = eventStream;
+    }
+
     /**
      * Executes the video processing steps.
      * 
@@ -24,17 +50,211 @@ public class VideoProcessingAppRunner {
      */
     public void processVideo(String videoPath, String outputPath, int targetColor, int threshold)
             throws IOException, JCodecException {
+        processVideo(videoPath, outputPath, targetColor, threshold, new ProcessingOptions());
+    }
 
-        ColorDistanceFinder distanceFinder = new EuclideanColorDistance();
-        ImageBinarizer binarizer = new DistanceImageBinarizer(distanceFinder, targetColor, threshold);
-        ImageGroupFinder groupFinder = new BinarizingImageGroupFinder(binarizer, new BfsBinaryGroupFinder());
+    /**
+     * Executes the video processing steps with the given optional settings.
+     *
+     * While Flight Recorder is running, the job is reported as a JobEvent spanning its
+     * start and end. With more than one frame thread, each frame is binarized and labeled
+     * in stripes on a pool that lives as long as the job.
+     *
+     * With a time budget, frames are sampled sparsely first and more densely as time
+     * allows, the CSV holds whatever was processed when the budget ran out, and the
+     * achieved coverage is written to a .coverage.json file next to it.
+     *
+     * When background learning is enabled, a sample of frames is binarized first and the
+     * pixels that match the target in nearly all of them are left out of the analysis.
+     * With a heatmap cell size, where the target spent its time is accumulated during
+     * processing and written to .heatmap.png and .heatmap.json files next to the CSV.
+     * In change-only mode, a row with a duration is written per run of frames in which the
+     * target stayed put.
+     * 
+     * @param videoPath the path to the input mp4 video file
+     * @param outputPath the path where the CSV file will be written
+     * @param targetColor the target color as an integer
+     * @param threshold the color distance threshold
+     * @param options the optional processing settings
+     * @throws IOException if a file cannot be read or written
+     * @throws JCodecException if a video processing error occurs
+     */
+    public void processVideo(String videoPath, String outputPath, int targetColor, int threshold,
+            ProcessingOptions options) throws IOException, JCodecException {
+
+        long deadline = System.nanoTime() + options.getTimeBudgetMillis() * 1_000_000;
+        ProgressEventWriter events = options.isProgressEvents()
+                ? new ProgressEventWriter(eventStream != null ? eventStream : System.out, options.getProgressIntervalMillis())
+                : null;
+        PerformanceRecorder perf = options.isPerfReport() ? new PerformanceRecorder() : null;
+        ResourceUsageRecorder resources = options.isResourceReport() ? new ResourceUsageRecorder() : null;
+        // Event classes are only loaded once Flight Recorder is up, keeping them off startup
+        JobEvent job = FlightRecorder.isInitialized() ? new JobEvent() : null;
+        if (job != null) job.begin();
+        ForkJoinPool stripePool = null;
+
+        try {
+            if (events != null) events.phase("opening");
 
-        VideoProcessor videoProcessor = new Mp4VideoProcessor(new File(videoPath));
-        VideoGroupFinder videoGroupFinder = new Mp4VideoGroupFinder(videoProcessor, groupFinder);
+            int topK = options.getTopK();
+            ColorDistanceFinder distanceFinder = new EuclideanColorDistance();
+            DistanceImageBinarizer distanceBinarizer = new DistanceImageBinarizer(distanceFinder, targetColor, threshold);
+            ImageBinarizer binarizer = distanceBinarizer;
+            BinaryGroupFinder binaryGroupFinder = new BfsBinaryGroupFinder(topK, options.getMinGroupSize());
+            if (options.getFrameThreads() > 1) {
+                stripePool = resources != null
+                    ? new ForkJoinPool(options.getFrameThreads(), resources.workerThreadFactory(), null, false)
+                    : new ForkJoinPool(options.getFrameThreads());
+                binarizer = new StripedImageBinarizer(distanceBinarizer, stripePool);
+                binaryGroupFinder = new StripedBinaryGroupFinder(topK, options.getMinGroupSize(), stripePool);
+            }
+            BinarizingImageGroupFinder groupFinder = new BinarizingImageGroupFinder(binarizer, binaryGroupFinder);
 
-        List<TimedCoordinate> timedCoordinatesList = videoGroupFinder.getTimeGroups();
+            VideoProcessor videoProcessor = openVideo(videoPath, options, job);
+            Mp4VideoGroupFinder videoGroupFinder = new Mp4VideoGroupFinder(videoProcessor, groupFinder, topK);
+            StaticBackgroundMask background = null;
+            if (options.hasBackgroundLearning()) {
+                // Sampling seeks to keyframes, so the samples are decoded by a separate JCodec reader
+                background = StaticBackgroundMask.learn(new Mp4VideoProcessor(new File(videoPath)), distanceBinarizer,
+                    options.getBackgroundSamples(), options.getBackgroundFraction());
+                System.out.println("Excluded " + background.excludedCount() + " static background pixels learned from "
+                    + background.samples() + " frames");
+            }
+            if (options.hasRegion() || background != null) {
+                groupFinder.setRegion(options.regionFor(videoProcessor.getWidth(), videoProcessor.getHeight(), background));
+            }
+            videoGroupFinder.setSampling(options.getSampleInterval(), options.getMotionThreshold());
+            OccupancyGrid occupancy = options.hasHeatmap()
+                ? new OccupancyGrid(videoProcessor.getWidth(), videoProcessor.getHeight(),
+                    options.getHeatmapCellSize(), videoProcessor.getFps())
+                : null;
+            videoGroupFinder.setOccupancyGrid(occupancy);
+            ChangeOnlyCsvWriter changes = options.isChangeOnly()
+                ? new ChangeOnlyCsvWriter(options.getChangeEpsilon(), videoProcessor.getFps(), options.getSampleInterval())
+                : null;
+            DeadlineVideoGroupFinder deadlineFinder = options.hasTimeBudget()
+                ? new DeadlineVideoGroupFinder((Mp4VideoProcessor) videoProcessor, groupFinder, topK)
+                : null;
+            if (job != null) job.frames = videoProcessor.getTotalFrames();
+            if (resources != null) {
+                resources.setInput(videoProcessor.getWidth(), videoProcessor.getHeight(), videoProcessor.getTotalFrames());
+            }
 
-        DataWriter writer = new CsvWriter();
-        writer.writeToCsv(outputPath, timedCoordinatesList);
+            if (perf != null) {
+                groupFinder.setStageRecorder(perf);
+                videoGroupFinder.setStageRecorder(perf);
+                videoGroupFinder.setObserver(events != null ? perf.andThen(events) : perf);
+                if (deadlineFinder != null) {
+                    deadlineFinder.setStageRecorder(perf);
+                    deadlineFinder.setObserver(events != null ? perf.andThen(events) : perf);
+                }
+            }
+            if (events != null) {
+                events.setTotalFrames(videoProcessor.getTotalFrames());
+                if (perf == null) videoGroupFinder.setObserver(events);
+                if (perf == null && deadlineFinder != null) deadlineFinder.setObserver(events);
+                events.phase("processing");
+            }
+            if (options.isFollow()) {
+                // Rows are appended as frames arrive, so there is no separate writing phase
+                CsvWriter writer = new CsvWriter(topK > 1);
+                try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Path.of(outputPath)))) {
+                    if (changes != null) {
+                        videoGroupFinder.forEachFrame(rows -> changes.appendToCsv(out, rows));
+                        changes.finish(out);
+                    } else {
+                        videoGroupFinder.forEachFrame(rows -> writer.appendToCsv(out, rows));
+                    }
+                    if (out.checkError()) throw new IOException("Error writing " + outputPath);
+                }
+                if (perf != null) perf.writeReport(PerformanceRecorder.reportPathFor(outputPath));
+            } else {
+                Trajectory trajectory = deadlineFinder != null
+                    ? deadlineFinder.getTrajectory(deadline)
+                    : videoGroupFinder.getTrajectory();
+
+                if (events != null) events.phase("writing");
+                DataWriter writer = changes != null ? changes : new CsvWriter(topK > 1);
+                long writeStart = perf != null ? System.nanoTime() : 0;
+                writer.writeToCsv(outputPath, trajectory);
+                if (perf != null) {
+                    perf.record(Stage.WRITE, System.nanoTime() - writeStart);
+                    perf.writeReport(PerformanceRecorder.reportPathFor(outputPath));
+                }
+                if (deadlineFinder != null) deadlineFinder.writeCoverage(DeadlineVideoGroupFinder.reportPathFor(outputPath));
+            }
+            if (occupancy != null) occupancy.writeReport(outputPath);
+            if (resources != null) {
+                resources.finish();
+                resources.writeReport(ResourceUsageRecorder.reportPathFor(outputPath));
+            }
+
+            if (events != null) events.phase("done");
+            if (job != null) job.succeeded = true;
+        } catch (IOException | JCodecException | RuntimeException e) {
+            if (events != null) events.failed(String.valueOf(e.getMessage()));
+            throw e;
+        } finally {
+            if (stripePool != null) stripePool.shutdown();
+            // Batch, daemon and segment workers run many jobs on pooled threads
+            FrameContext.release();
+            if (job != null && job.shouldCommit()) {
+                job.video = videoPath;
+                job.output = outputPath;
+                job.targetColor = String.format("%06X", targetColor & 0xFFFFFF);
+                job.threshold = threshold;
+                job.commit();
+            }
+        }
+    }
+
+    /**
+     * Opens the input as an MP4 file, a range of an MP4 file's frames, a growing fragmented
+     * MP4 recording, or a stream of decoded frames.
+     *
+     * @param videoPath the input path, or "-" for standard input
+     * @param options the processing settings that describe the input
+     * @param job the job event, which records the decoder, or null if no event is recorded
+     * @return the video processor
+     * @throws IOException if the input cannot be opened or its header is invalid
+     * @throws JCodecException if an MP4 file cannot be parsed
+     */
+    private static VideoProcessor openVideo(String videoPath, ProcessingOptions options, JobEvent job)
+            throws IOException, JCodecException {
+        InputFormat format = options.inputFormatFor(videoPath);
+        if (format == InputFormat.MP4 && options.isFollow()) {
+            // Fragments are demuxed as they are written, and only JCodec decodes without a finished file
+            if (job != null) job.decoder = FrameDecoder.JCODEC;
+            String marker = options.getEndMarker();
+            return StreamVideoProcessor.follow(Path.of(videoPath), options.getIdleTimeoutMillis(),
+                marker != null ? Path.of(marker) : null);
+        }
+        if (format == InputFormat.MP4 && options.hasTimeBudget()) {
+            // Sampling seeks to keyframes, which needs the demuxer
+            if (job != null) job.decoder = FrameDecoder.JCODEC;
+            return new Mp4VideoProcessor(new File(videoPath));
+        }
+        if (format == InputFormat.MP4 && options.hasFrameRange()) {
+            // Seeking needs the demuxer, so a frame range is always decoded with JCodec
+            if (job != null) job.decoder = FrameDecoder.JCODEC;
+            return new FrameRangeVideoProcessor(new Mp4VideoProcessor(new File(videoPath)),
+                options.getStartFrame(), options.getEndFrame());
+        }
+        if (format == InputFormat.MP4) {
+            FrameDecoder decoder = FrameDecoder.select(options.getDecoder(), options.getPixelFormat());
+            if (job != null) job.decoder = decoder.getName();
+            return new Mp4VideoProcessor(new File(videoPath), decoder);
+        }
+        if (job != null) job.decoder = format.getName();
+        InputStream in = StreamVideoProcessor.openInput(videoPath);
+        try {
+            return format == InputFormat.Y4M
+                ? StreamVideoProcessor.y4m(in)
+                : StreamVideoProcessor.raw(in, options.getFrameWidth(), options.getFrameHeight(),
+                    options.getFrameRate(), options.getRawPixelFormat());
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
     }
 }
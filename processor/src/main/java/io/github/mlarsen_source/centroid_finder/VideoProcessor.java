@@ -2,7 +2,6 @@ package io.github.mlarsen_source.centroid_finder;
 
 import java.io.IOException;
 
-import org.jcodec.api.FrameGrab;
 import org.jcodec.api.JCodecException;
 
 /**
@@ -30,17 +29,17 @@ public interface VideoProcessor {
     double getTime(int frameNumber);
 
     /**
-     * Returns a new FrameGrab object that can iterate through the frames of the video.
+     * Opens a FrameReader that decodes the video from the first frame.
      *
-     * Each call creates a new FrameGrab instance starting from the first frame.
-     * This method does not reuse any internal state and should be called once per
-     * frame-processing session.
+     * The caller owns the returned reader and must close it, which releases the resources
+     * used for decoding even if not every frame was read. Implementations decide which
+     * FrameDecoder backend produces the frames.
      *
-     * @return a new FrameGrab for sequential frame access
+     * @return a new FrameReader positioned at the first frame
      * @throws IOException if the video file cannot be read
      * @throws JCodecException if an error occurs while initializing frame extraction
      */
-    FrameGrab getFrames() throws IOException, JCodecException;
+    FrameReader openFrames() throws IOException, JCodecException;
 
     /**
      * Returns the total number of frames in the video.
@@ -48,4 +47,22 @@ public interface VideoProcessor {
      * @return the total frame count
      */
     int getTotalFrames();
+
+    /**
+     * Returns the width of the video's frames.
+     *
+     * @return the width in pixels, or 0 if unknown
+     */
+    default int getWidth() {
+        return 0;
+    }
+
+    /**
+     * Returns the height of the video's frames.
+     *
+     * @return the height in pixels, or 0 if unknown
+     */
+    default int getHeight() {
+        return 0;
+    }
 }
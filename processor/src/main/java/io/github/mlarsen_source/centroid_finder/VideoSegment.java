@@ -0,0 +1,59 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A range of a video's frames that starts at a keyframe, so it can be decoded without
+ * the frames before it.
+ *
+ * @param index the position of the segment in the video, counted from 0
+ * @param startFrame the zero-based index of the first frame, a keyframe
+ * @param endFrame the zero-based index one past the last frame
+ */
+public record VideoSegment(int index, int startFrame, int endFrame) {
+
+    /**
+     * Splits a video into at most the given number of segments of roughly equal length.
+     * Each boundary is moved to the nearest keyframe after the previous boundary, so
+     * segments can come out uneven or fewer when keyframes are sparse; a video with a
+     * single keyframe is one segment.
+     *
+     * @param keyframes the zero-based indexes of the keyframes in ascending order
+     * @param totalFrames the number of frames in the video
+     * @param count the number of segments wanted
+     * @return the segments in order, covering every frame exactly once
+     * @throws IllegalArgumentException if totalFrames or count is less than 1
+     */
+    public static List<VideoSegment> plan(int[] keyframes, int totalFrames, int count) {
+        if (totalFrames < 1) throw new IllegalArgumentException("A video to split needs at least one frame");
+        if (count < 1) throw new IllegalArgumentException("Segment count must be at least 1: " + count);
+        List<VideoSegment> segments = new ArrayList<>(count);
+        int start = 0;
+        int next = 0;
+        for (int i = 1; i < count; i++) {
+            long target = (long) i * totalFrames / count;
+            while (next < keyframes.length && keyframes[next] <= start) {
+                next++;
+            }
+            while (next + 1 < keyframes.length && keyframes[next + 1] < totalFrames
+                    && Math.abs(keyframes[next + 1] - target) <= Math.abs(keyframes[next] - target)) {
+                next++;
+            }
+            if (next == keyframes.length || keyframes[next] >= totalFrames) break;
+            segments.add(new VideoSegment(segments.size(), start, keyframes[next]));
+            start = keyframes[next];
+        }
+        segments.add(new VideoSegment(segments.size(), start, totalFrames));
+        return segments;
+    }
+
+    /**
+     * Returns the number of frames in the segment.
+     *
+     * @return the frame count
+     */
+    public int frameCount() {
+        return endFrame - startFrame;
+    }
+}
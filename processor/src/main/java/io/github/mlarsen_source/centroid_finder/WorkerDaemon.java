@@ -0,0 +1,397 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-lived worker that processes jobs sent as newline-delimited JSON, so that a single
+ * warm JVM serves many videos.
+ *
+ * Jobs are read from a Unix domain socket, where every connection is an independent
+ * session, or from standard input. Each line is one job:
+ *
+ * {"id":"job-1","video":"in.mp4","output":"out.csv","color":"FFA500","threshold":164,"options":{"top-k":2}}
+ *
+ * "id" is optional and defaults to a sequence number. "options" holds the command line
+ * flags without their leading dashes, with true or false for switches. Jobs are
+ * validated exactly like command line arguments and run on virtual threads, with at most
+ * the configured number running at once across all sessions. For every job the worker
+ * answers on the same session with status lines: "queued" when accepted, "running" when
+ * it starts, then "done" or "failed". A line that is not a valid job is answered with
+ * "rejected". A session ends when its input ends, after its remaining jobs have finished.
+ */
+public class WorkerDaemon {
+
+    /** The usage message shown when the daemon arguments are malformed. */
+    private static final String USAGE =
+        "Usage: java -jar app.jar --daemon [--socket PATH] [--max-jobs N]";
+
+    /** Runs each job. */
+    private final VideoProcessingAppRunner runner;
+
+    /** Limits the number of jobs running at once across all sessions. */
+    private final Semaphore slots;
+
+    /** Numbers jobs that were sent without an id. */
+    private final AtomicLong jobSequence = new AtomicLong();
+
+    /**
+     * Creates a worker.
+     *
+     * @param runner runs each job
+     * @param maxConcurrentJobs the maximum number of jobs running at once
+     * @throws IllegalArgumentException if maxConcurrentJobs is less than 1
+     */
+    public WorkerDaemon(VideoProcessingAppRunner runner, int maxConcurrentJobs) {
+        if (maxConcurrentJobs < 1) {
+            throw new IllegalArgumentException(
+                "Maximum concurrent jobs must be at least 1: " + maxConcurrentJobs);
+        }
+        this.runner = runner;
+        this.slots = new Semaphore(maxConcurrentJobs, true);
+    }
+
+    /**
+     * Starts the worker from the command line. Without --socket, jobs are read from
+     * standard input and status lines are written to standard output, while the jobs'
+     * own log output is moved to standard error.
+     *
+     * @param args the arguments following --daemon
+     * @throws IOException if the socket cannot be opened
+     * @throws IllegalArgumentException if the arguments are malformed
+     */
+    public static void run(String[] args) throws IOException {
+        Path socket = null;
+        int maxJobs = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i] + "\n" + USAGE);
+            }
+            switch (args[i]) {
+                case "--socket" -> socket = Path.of(args[i + 1]);
+                case "--max-jobs" -> {
+                    try {
+                        maxJobs = Integer.parseInt(args[i + 1]);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("--max-jobs must be an integer: " + args[i + 1]);
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i] + "\n" + USAGE);
+            }
+        }
+
+        WorkerDaemon daemon = new WorkerDaemon(new VideoProcessingAppRunner(), maxJobs);
+        if (socket != null) {
+            System.out.println("Worker listening on " + socket.toAbsolutePath());
+            daemon.listen(socket);
+        } else {
+            PrintStream protocol = System.out;
+            System.setOut(System.err);
+            BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            daemon.serve(in, new OutputStreamWriter(protocol, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Accepts connections on a Unix domain socket until the calling thread is interrupted.
+     * Each connection is served as its own session on a virtual thread. A stale socket
+     * file left by a previous worker is replaced, and the socket file is removed on return.
+     *
+     * @param socketPath the path of the socket file
+     * @throws IOException if the socket cannot be bound
+     */
+    public void listen(Path socketPath) throws IOException {
+        Files.deleteIfExists(socketPath);
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+             ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor()) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            while (true) {
+                SocketChannel client;
+                try {
+                    client = server.accept();
+                } catch (ClosedByInterruptException e) {
+                    Thread.interrupted();
+                    sessions.shutdownNow();
+                    return;
+                }
+                sessions.submit(() -> {
+                    try (client) {
+                        BufferedReader in = new BufferedReader(
+                            new InputStreamReader(inputStream(client), StandardCharsets.UTF_8));
+                        serve(in, new OutputStreamWriter(outputStream(client), StandardCharsets.UTF_8));
+                    } catch (IOException e) {
+                        System.err.println("Worker session failed: " + e.getMessage());
+                    }
+                    return null;
+                });
+            }
+        } finally {
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    /**
+     * Serves one session: reads jobs until the input ends, answers with status lines and
+     * returns once every job of the session has finished.
+     *
+     * @param in the job requests, one JSON object per line
+     * @param out receives the status lines
+     * @throws IOException if the requests cannot be read
+     */
+    public void serve(BufferedReader in, Writer out) throws IOException {
+        Session session = new Session(out);
+        try (ExecutorService jobs = Executors.newVirtualThreadPerTaskExecutor()) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+
+                String id = null;
+                Job job;
+                try {
+                    Map<String, Object> request = Json.parseObject(line);
+                    Object requestId = request.get("id");
+                    id = requestId != null
+                        ? String.valueOf(requestId)
+                        : String.valueOf(jobSequence.incrementAndGet());
+                    job = parseJob(id, request);
+                } catch (IllegalArgumentException e) {
+                    session.send(status(id, "rejected", "error", e.getMessage()));
+                    continue;
+                }
+
+                session.send(status(job.id(), "queued"));
+                jobs.submit(() -> {
+                    if (job.args().getOptions().isResourceReport()) {
+                        // The JVM measures thread CPU time and allocation only on platform threads
+                        Thread platform = Thread.ofPlatform().name("job-" + job.id())
+                            .start(() -> execute(job, session));
+                        platform.join();
+                    } else {
+                        execute(job, session);
+                    }
+                    return null;
+                });
+            }
+        }
+    }
+
+    /**
+     * Converts a parsed request into a validated job.
+     *
+     * @param id the job id
+     * @param request the parsed JSON request
+     * @return the job
+     * @throws IllegalArgumentException if the request is malformed or its arguments are invalid
+     */
+    static Job parseJob(String id, Map<String, Object> request) {
+        List<String> args = new ArrayList<>();
+        String video = required(request, "video");
+        if (video.equals(StreamVideoProcessor.STDIN)) {
+            // The daemon's standard input may carry its own jobs
+            throw new IllegalArgumentException("A daemon job cannot read its video from standard input");
+        }
+        args.add(video);
+        args.add(required(request, "output"));
+        args.add(required(request, "color"));
+        args.add(required(request, "threshold"));
+
+        Object options = request.get("options");
+        if (options instanceof Map<?, ?> flags) {
+            for (Map.Entry<?, ?> flag : flags.entrySet()) {
+                String name = "--" + flag.getKey();
+                if (CommandLineParser.isSwitch(name)) {
+                    // Switches are given as true or false
+                    if (Boolean.TRUE.equals(flag.getValue())) args.add(name);
+                } else {
+                    args.add(name);
+                    args.add(String.valueOf(flag.getValue()));
+                }
+            }
+        } else if (options != null) {
+            throw new IllegalArgumentException("\"options\" must be an object");
+        }
+
+        CommandLineParser parser = new CommandLineParser(args.toArray(new String[0]));
+        if (parser.getOptions().isProgressEvents()) {
+            // Events carry no job id and would not reach the session that sent the job
+            throw new IllegalArgumentException("progress-events is not supported for daemon jobs");
+        }
+        return new Job(id, parser);
+    }
+
+    /**
+     * Returns a required request member as a string.
+     *
+     * @param request the parsed request
+     * @param name the member name
+     * @return the member's value as a string
+     * @throws IllegalArgumentException if the member is missing
+     */
+    private static String required(Map<String, Object> request, String name) {
+        Object value = request.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing \"" + name + "\"");
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * Runs a job once a slot is free and reports its outcome. A failing job never affects
+     * other jobs or the session.
+     *
+     * @param job the job to run
+     * @param session the session to report to
+     */
+    private void execute(Job job, Session session) {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            session.send(status(job.id(), "failed", "error", "Worker shutting down"));
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        try {
+            session.send(status(job.id(), "running"));
+            long start = System.nanoTime();
+            ArgumentParser args = job.args();
+            runner.processVideo(args.getVideoPath(), args.getOutputPath(), args.getTargetColor(),
+                args.getThreshold(), args.getOptions());
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            session.send(status(job.id(), "done", "output", args.getOutputPath(), "elapsedMillis", millis));
+        } catch (Exception e) {
+            session.send(status(job.id(), "failed", "error", String.valueOf(e.getMessage())));
+        } finally {
+            slots.release();
+        }
+    }
+
+    /**
+     * Builds a status message.
+     *
+     * @param id the job id, or null if the request had none
+     * @param status the job status
+     * @param extra additional members as alternating names and values
+     * @return the message members in order
+     */
+    private static Map<String, Object> status(String id, String status, Object... extra) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        if (id != null) message.put("id", id);
+        message.put("status", status);
+        for (int i = 0; i < extra.length; i += 2) {
+            message.put((String) extra[i], extra[i + 1]);
+        }
+        return message;
+    }
+
+    /**
+     * Reads from a socket channel through its own read method. Channels.newInputStream is
+     * avoided because its reads lock out concurrent writes of status lines.
+     *
+     * @param channel the connected channel
+     * @return an input stream over the channel
+     */
+    private static InputStream inputStream(SocketChannel channel) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                return length == 0 ? 0 : channel.read(ByteBuffer.wrap(bytes, offset, length));
+            }
+        };
+    }
+
+    /**
+     * Writes to a socket channel through its own write method.
+     *
+     * @param channel the connected channel
+     * @return an output stream over the channel
+     */
+    private static OutputStream outputStream(SocketChannel channel) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        };
+    }
+
+    /**
+     * A validated job.
+     *
+     * @param id the job id used in status messages
+     * @param args the job's arguments, validated like the command line
+     */
+    record Job(String id, ArgumentParser args) {
+    }
+
+    /**
+     * Writes status lines for one session. Lines from concurrent jobs never interleave,
+     * and a client that has gone away only stops the messages, not the jobs.
+     */
+    private static class Session {
+
+        private final Writer out;
+
+        /** Set once writing has failed, after which messages are dropped. */
+        private boolean broken;
+
+        Session(Writer out) {
+            this.out = out;
+        }
+
+        /**
+         * Sends one status message as a JSON line.
+         *
+         * @param message the message members
+         */
+        synchronized void send(Map<String, Object> message) {
+            if (broken) return;
+            try {
+                out.write(Json.write(message));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                broken = true;
+                System.err.println("Worker client disconnected: " + e.getMessage());
+            }
+        }
+    }
+}
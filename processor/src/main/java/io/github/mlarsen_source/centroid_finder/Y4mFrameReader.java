@@ -0,0 +1,191 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.jcodec.common.model.ColorSpace;
+import org.jcodec.common.model.Picture;
+
+/**
+ * A FrameReader over a YUV4MPEG2 (Y4M) stream, such as the output of
+ * "ffmpeg -i input -f yuv4mpegpipe -".
+ *
+ * The stream header declares the frame size, frame rate and chroma layout, so nothing
+ * has to be given on the command line. 4:2:0 in any chroma siting, 4:2:2 and mono
+ * streams of 8-bit samples are supported; a 4:2:0 or mono header with
+ * XCOLORRANGE=FULL is converted with the full-range matrix. Interlacing, aspect ratio
+ * and other header parameters are ignored, as are the parameters of each FRAME line.
+ */
+public class Y4mFrameReader extends RawFrameReader {
+
+    /** The first token of every Y4M stream. */
+    private static final String MAGIC = "YUV4MPEG2";
+
+    /** The first token of every frame header. */
+    private static final String FRAME = "FRAME";
+
+    /** The longest header line accepted, so garbage input cannot exhaust memory. */
+    private static final int MAX_HEADER_LENGTH = 4096;
+
+    /** The frame width in pixels. */
+    private final int width;
+
+    /** The frame height in pixels. */
+    private final int height;
+
+    /** The frame rate numerator. */
+    private final int rateNumerator;
+
+    /** The frame rate denominator. */
+    private final int rateDenominator;
+
+    /** The reused buffer FRAME lines are read into. */
+    private final byte[] frameLine = new byte[MAX_HEADER_LENGTH];
+
+    private Y4mFrameReader(InputStream in, Picture picture, int planes, int rateNumerator, int rateDenominator) {
+        super(in, picture, planes);
+        this.width = picture.getWidth();
+        this.height = picture.getHeight();
+        this.rateNumerator = rateNumerator;
+        this.rateDenominator = rateDenominator;
+    }
+
+    /**
+     * Reads the stream header and returns a reader positioned at the first frame.
+     *
+     * @param in the Y4M stream, which the reader closes
+     * @return the reader
+     * @throws IOException if the stream cannot be read, is not Y4M, or uses an
+     *                     unsupported chroma layout
+     */
+    public static Y4mFrameReader open(InputStream in) throws IOException {
+        byte[] buffer = new byte[MAX_HEADER_LENGTH];
+        int length = readLine(in, buffer);
+        String header = length < 0 ? "" : new String(buffer, 0, length, StandardCharsets.US_ASCII);
+        if (!header.startsWith(MAGIC + " ")) {
+            throw new IOException("Not a YUV4MPEG2 stream");
+        }
+
+        int width = 0;
+        int height = 0;
+        int numerator = 0;
+        int denominator = 0;
+        String chroma = "420jpeg";
+        boolean fullRange = false;
+        for (String parameter : header.substring(MAGIC.length()).trim().split(" +")) {
+            if (parameter.isEmpty()) continue;
+            String value = parameter.substring(1);
+            try {
+                switch (parameter.charAt(0)) {
+                    case 'W' -> width = Integer.parseInt(value);
+                    case 'H' -> height = Integer.parseInt(value);
+                    case 'F' -> {
+                        int colon = value.indexOf(':');
+                        numerator = Integer.parseInt(value.substring(0, colon));
+                        denominator = Integer.parseInt(value.substring(colon + 1));
+                    }
+                    case 'C' -> chroma = value;
+                    case 'X' -> fullRange |= value.equalsIgnoreCase("COLORRANGE=FULL");
+                    default -> {
+                        // Interlacing, aspect ratio and unknown parameters do not affect decoding
+                    }
+                }
+            } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                throw new IOException("Malformed Y4M header parameter: " + parameter);
+            }
+        }
+        if (width <= 0 || height <= 0) throw new IOException("Y4M header has no valid frame size: " + header);
+        if (numerator <= 0 || denominator <= 0) throw new IOException("Y4M header has no valid frame rate: " + header);
+
+        RawPixelFormat format = switch (chroma) {
+            case "420jpeg", "420paldv", "420mpeg2", "420" -> RawPixelFormat.YUV420P;
+            case "422" -> RawPixelFormat.YUV422P;
+            case "mono" -> RawPixelFormat.GRAY;
+            default -> throw new IOException("Unsupported Y4M chroma layout C" + chroma + "; convert the stream to yuv420p");
+        };
+        if (fullRange && format == RawPixelFormat.YUV422P) {
+            throw new IOException("Full-range 4:2:2 Y4M is not supported; convert the stream to yuv420p");
+        }
+
+        Picture picture;
+        try {
+            picture = format.createPicture(width, height);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+        if (fullRange) {
+            picture = Picture.createPicture(width, height, picture.getData(), ColorSpace.YUV420J);
+        }
+        return new Y4mFrameReader(in, picture, format.getPlanes(), numerator, denominator);
+    }
+
+    /**
+     * Consumes a FRAME line.
+     *
+     * @param firstPlane the first plane of the frame, unused
+     * @return 0, or -1 if the stream ended before another frame
+     * @throws IOException if the line is not a frame header
+     */
+    @Override
+    protected int startFrame(byte[] firstPlane) throws IOException {
+        int length = readLine(in, frameLine);
+        if (length < 0) return -1;
+        boolean frame = length >= FRAME.length() && (length == FRAME.length() || frameLine[FRAME.length()] == ' ');
+        for (int i = 0; frame && i < FRAME.length(); i++) {
+            frame = frameLine[i] == FRAME.charAt(i);
+        }
+        if (!frame) throw new IOException("Expected a Y4M FRAME header");
+        return 0;
+    }
+
+    /**
+     * Reads one header line into a buffer.
+     *
+     * @param in the stream
+     * @param buffer the buffer, whose length is the longest line accepted
+     * @return the length of the line without its newline, or -1 if the stream ended
+     *         before the line started
+     * @throws IOException if the stream ends inside the line or the line is too long
+     */
+    private static int readLine(InputStream in, byte[] buffer) throws IOException {
+        int length = 0;
+        while (true) {
+            int b = in.read();
+            if (b < 0) {
+                if (length == 0) return -1;
+                throw new IOException("Y4M stream ended inside a header");
+            }
+            if (b == '\n') return length;
+            if (length == buffer.length) throw new IOException("Y4M header line is too long");
+            buffer[length++] = (byte) b;
+        }
+    }
+
+    /**
+     * Returns the frame width declared by the header.
+     *
+     * @return the width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the frame height declared by the header.
+     *
+     * @return the height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the frame rate declared by the header.
+     *
+     * @return the frames per second
+     */
+    public double getFps() {
+        return (double) rateNumerator / rateDenominator;
+    }
+}
@@ -0,0 +1,95 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BatchProcessorTest {
+
+  private static final Path SAMPLE_VIDEO = Path.of("sampleInput/training.mp4");
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void process_matchesSingleVideoOutputAndIsolatesFailures() throws Exception {
+    Path first = Files.copy(SAMPLE_VIDEO, tempDir.resolve("first.mp4"));
+    Path second = Files.copy(SAMPLE_VIDEO, tempDir.resolve("second.mp4"));
+    Path broken = Files.write(tempDir.resolve("broken.mp4"), new byte[] { 0, 1, 2, 3 });
+    Path out = Files.createDirectory(tempDir.resolve("out"));
+
+    List<String[]> jobs = BatchProcessor.findVideos(tempDir.resolve("*.mp4").toString(), out, "FFA500", "60", List.of());
+    List<BatchProcessor.Result> results = new BatchProcessor(new VideoProcessingAppRunner(), 2).process(jobs);
+
+    assertEquals(3, results.size());
+    assertFalse(results.get(0).succeeded(), "broken.mp4 sorts first and cannot be decoded");
+    assertTrue(results.get(1).succeeded());
+    assertTrue(results.get(2).succeeded());
+
+    Path single = tempDir.resolve("single.csv");
+    new VideoProcessingAppRunner().processVideo(first.toString(), single.toString(), 0xFFA500, 60);
+    assertArrayEquals(Files.readAllBytes(single), Files.readAllBytes(out.resolve("first.csv")));
+    assertArrayEquals(Files.readAllBytes(single), Files.readAllBytes(out.resolve("second.csv")));
+    assertEquals(broken.toString(), results.get(0).video());
+    assertEquals(second.toString(), results.get(2).video());
+  }
+
+  @Test
+  void concurrentJobs_splitsTheCoresBetweenVideosAndFrameThreads() {
+    assertEquals(8, BatchProcessor.concurrentJobs(null, 1, 8));
+    assertEquals(2, BatchProcessor.concurrentJobs(null, 4, 8));
+    assertEquals(2, BatchProcessor.concurrentJobs(null, 3, 8));
+    assertEquals(1, BatchProcessor.concurrentJobs(null, 16, 8));
+    assertEquals(3, BatchProcessor.concurrentJobs(3, 1, 8));
+    assertEquals(2, BatchProcessor.concurrentJobs(6, 4, 8));
+    assertEquals(1, BatchProcessor.concurrentJobs(1, 4, 8));
+  }
+
+  @Test
+  void run_rejectsProgressEvents_whoseLinesWouldInterleave() {
+    assertThrows(IllegalArgumentException.class, () -> BatchProcessor.run(new String[] {
+        tempDir.toString(), "--color", "FFA500", "--threshold", "60", "--progress-events", "100" }));
+  }
+
+  @Test
+  void readManifest_resolvesPathsAndSkipsHeaderAndComments() throws Exception {
+    Path manifest = Files.writeString(tempDir.resolve("jobs.txt"),
+        "video,output,color,threshold\n# backfill\n\na.mp4, out/a.csv ,FFA500,60\n");
+
+    List<String[]> jobs = BatchProcessor.readManifest(manifest, List.of("--top-k", "2"));
+
+    assertEquals(1, jobs.size());
+    assertArrayEquals(new String[] {
+        tempDir.resolve("a.mp4").toString(), tempDir.resolve("out/a.csv").toString(), "FFA500", "60", "--top-k", "2"
+    }, jobs.get(0));
+  }
+
+  @Test
+  void readManifest_rejectsLinesWithoutFourFields() throws Exception {
+    Path manifest = Files.writeString(tempDir.resolve("jobs.txt"), "a.mp4,a.csv,FFA500\n");
+    assertThrows(IllegalArgumentException.class, () -> BatchProcessor.readManifest(manifest, List.of()));
+  }
+
+  @Test
+  void findVideos_listsDirectoryAndWritesCsvNextToVideoByDefault() throws Exception {
+    Files.writeString(tempDir.resolve("b.mp4"), "x");
+    Files.writeString(tempDir.resolve("a.mp4"), "x");
+    Files.writeString(tempDir.resolve("notes.txt"), "x");
+
+    List<String[]> jobs = BatchProcessor.findVideos(tempDir.toString(), null, "FFA500", "60", List.of());
+
+    assertEquals(2, jobs.size());
+    assertEquals(tempDir.resolve("a.mp4").toString(), jobs.get(0)[0]);
+    assertEquals(tempDir.resolve("a.csv").toString(), jobs.get(0)[1]);
+    assertEquals(tempDir.resolve("b.csv").toString(), jobs.get(1)[1]);
+  }
+}
@@ -155,4 +155,43 @@ public class BfsBinaryGroupFinderTest {
     assertEquals(0, g.centroid().x());
     assertEquals(1, g.centroid().y());
   }
+
+  @Test
+  void testFindConnectedGroupsKeepsOnlyLargestGroupsInDescendingOrder() {
+    BinaryGroupFinder finder = new BfsBinaryGroupFinder(2, 1);
+    int[][] image = {
+      {1, 0, 1, 1, 0, 1},
+      {0, 0, 1, 1, 0, 1},
+      {1, 0, 0, 0, 0, 1}
+    };
+
+    List<Group> groups = finder.findConnectedGroups(image);
+
+    assertEquals(2, groups.size());
+    assertEquals(4, groups.get(0).size());
+    assertEquals(3, groups.get(1).size());
+    assertEquals(new BfsBinaryGroupFinder().findConnectedGroups(image).subList(0, 2), groups);
+  }
+
+  @Test
+  void testFindConnectedGroupsSkipsGroupsBelowMinimumSize() {
+    BinaryGroupFinder finder = new BfsBinaryGroupFinder(Integer.MAX_VALUE, 3);
+    int[][] image = {
+      {1, 0, 1, 1, 0, 1},
+      {0, 0, 1, 1, 0, 1},
+      {1, 0, 0, 0, 0, 1}
+    };
+
+    List<Group> groups = finder.findConnectedGroups(image);
+
+    assertEquals(2, groups.size());
+    assertEquals(4, groups.get(0).size());
+    assertEquals(3, groups.get(1).size());
+  }
+
+  @Test
+  void testConstructorRejectsInvalidLimits() {
+    assertThrows(IllegalArgumentException.class, () -> new BfsBinaryGroupFinder(0, 1));
+    assertThrows(IllegalArgumentException.class, () -> new BfsBinaryGroupFinder(1, 0));
+  }
 }
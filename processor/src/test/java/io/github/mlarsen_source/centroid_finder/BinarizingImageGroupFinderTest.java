@@ -1,6 +1,7 @@
 package io.github.mlarsen_source.centroid_finder;
 
 import static org.junit.jupiter.api.Assertions.*;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
@@ -98,6 +99,27 @@ public class BinarizingImageGroupFinderTest {
     assertEquals(1, mockBinarizer.toBinaryCalls);
     assertEquals(1, mockGroupFinder.calls);
   }
-}
 
+  @Test
+  void findConnectedGroups_reportsFullFrameCentroids_andIgnoresBlobsOutsideTheRegion() {
+    // A blob in the top-left corner, outside the region, and one inside it
+    BufferedImage image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < 4; y++) {
+      for (int x = 0; x < 4; x++) {
+        image.setRGB(x, y, 0xFF0000);
+      }
+    }
+    for (int y = 5; y < 8; y++) {
+      for (int x = 12; x < 15; x++) {
+        image.setRGB(x, y, 0xFF0000);
+      }
+    }
+    BinarizingImageGroupFinder finder = new BinarizingImageGroupFinder(
+        new DistanceImageBinarizer(new EuclideanColorDistance(), 0xFF0000, 10), new BfsBinaryGroupFinder());
+    assertEquals(2, finder.findConnectedGroups(image).size());
 
+    finder.setRegion(RegionMask.compile(20, 10, new Rectangle(8, 2, 12, 8), null));
+
+    assertEquals(List.of(new Group(9, new Coordinate(13, 6))), finder.findConnectedGroups(image));
+  }
+}
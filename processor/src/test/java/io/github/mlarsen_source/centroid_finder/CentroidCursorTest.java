@@ -0,0 +1,120 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import org.junit.jupiter.api.Test;
+
+public class CentroidCursorTest {
+
+  private static final int FRAMES = 10;
+
+  /**
+   * Group finder that reads the frame index from the gray level of the image and reports
+   * the scripted position for it.
+   */
+  private static class IndexedGroupFinder implements ImageGroupFinder {
+    private final IntFunction<Coordinate> positions;
+    final List<Integer> analyzed = new ArrayList<>();
+
+    IndexedGroupFinder(IntFunction<Coordinate> positions) {
+      this.positions = positions;
+    }
+
+    @Override
+    public List<Group> findConnectedGroups(BufferedImage image) {
+      int index = image.getRGB(0, 0) & 0xFF;
+      analyzed.add(index);
+      Coordinate position = positions.apply(index);
+      return position == null ? List.of() : List.of(new Group(10, position));
+    }
+  }
+
+  /** Opens a raw RGB stream whose frame i is filled with gray level i. */
+  private static StreamVideoProcessor indexedVideo() {
+    int frameSize = 4 * 4 * 3;
+    byte[] data = new byte[FRAMES * frameSize];
+    for (int i = 0; i < FRAMES; i++) {
+      Arrays.fill(data, i * frameSize, (i + 1) * frameSize, (byte) i);
+    }
+    return StreamVideoProcessor.raw(new ByteArrayInputStream(data), 4, 4, 10, RawPixelFormat.RGB24);
+  }
+
+  /** Returns the zero-based frame index of every position the cursor stops at. */
+  private static List<Integer> run(IndexedGroupFinder finder, int interval, double threshold) throws Exception {
+    StreamVideoProcessor video = indexedVideo();
+    List<Integer> frames = new ArrayList<>();
+    try (CentroidCursor cursor = new CentroidCursor(video.openFrames(), finder, video)) {
+      cursor.setSampling(interval, threshold);
+      while (cursor.next()) {
+        frames.add((int) Math.round(cursor.time() * 10) - 1);
+      }
+      assertEquals(FRAMES, cursor.framesRead());
+      assertEquals(finder.analyzed.size(), cursor.framesAnalyzed());
+    }
+    return frames;
+  }
+
+  @Test
+  void next_analyzesEveryFrame_withoutSampling() throws Exception {
+    IndexedGroupFinder finder = new IndexedGroupFinder(i -> new Coordinate(5, 5));
+
+    assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), run(finder, 1, 3));
+    assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), finder.analyzed);
+  }
+
+  @Test
+  void next_analyzesOnlySamplesAndTheLastFrame_whileTheTargetStandsStill() throws Exception {
+    IndexedGroupFinder finder = new IndexedGroupFinder(i -> new Coordinate(5, 5));
+
+    assertEquals(List.of(0, 4, 8, 9), run(finder, 4, 3));
+    assertEquals(List.of(0, 4, 8, 9), finder.analyzed);
+  }
+
+  @Test
+  void next_backfillsSkippedFramesInOrder_whenTheTargetMoves() throws Exception {
+    IndexedGroupFinder finder = new IndexedGroupFinder(i -> new Coordinate(i < 6 ? 5 : 20, 5));
+
+    assertEquals(List.of(0, 4, 5, 6, 7, 8, 9), run(finder, 4, 3));
+    assertEquals(List.of(0, 4, 8, 5, 6, 7, 9), finder.analyzed);
+  }
+
+  @Test
+  void next_ignoresMovementWithinTheThreshold() throws Exception {
+    IndexedGroupFinder finder = new IndexedGroupFinder(i -> new Coordinate(5 + i / 4, 5));
+
+    assertEquals(List.of(0, 4, 8, 9), run(finder, 4, 3));
+  }
+
+  @Test
+  void next_backfillsSkippedFrames_whenTheTargetAppears() throws Exception {
+    IndexedGroupFinder finder = new IndexedGroupFinder(i -> i < 6 ? null : new Coordinate(5, 5));
+
+    assertEquals(List.of(6, 7, 8, 9), run(finder, 4, 3));
+    assertEquals(List.of(0, 4, 8, 5, 6, 7, 9), finder.analyzed);
+  }
+
+  @Test
+  void next_samplesTheLastFrame_soMotionAtTheEndIsNotMissed() throws Exception {
+    IndexedGroupFinder finder = new IndexedGroupFinder(i -> new Coordinate(i < 7 ? 5 : 20, 5));
+
+    assertEquals(List.of(0, 5, 6, 7, 8, 9), run(finder, 5, 3));
+    assertEquals(List.of(0, 5, 9, 6, 7, 8), finder.analyzed);
+  }
+
+  @Test
+  void setSampling_rejectsInvalidSettings() throws Exception {
+    StreamVideoProcessor video = indexedVideo();
+    CentroidCursor cursor = new CentroidCursor(video.openFrames(), new IndexedGroupFinder(i -> null), video);
+
+    assertThrows(IllegalArgumentException.class, () -> cursor.setSampling(0, 3));
+    assertThrows(IllegalArgumentException.class, () -> cursor.setSampling(2, -1));
+  }
+}
@@ -0,0 +1,117 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ChangeOnlyCsvWriterTest {
+
+  @TempDir
+  Path tempDir;
+
+  /** Returns a trajectory with one entry per frame at 10 frames per second. */
+  private static Trajectory frames(int firstFrame, int... xy) {
+    Trajectory trajectory = new Trajectory();
+    for (int i = 0; i < xy.length / 2; i++) {
+      trajectory.add((firstFrame + i) / 10.0, xy[2 * i], xy[2 * i + 1]);
+    }
+    return trajectory;
+  }
+
+  private List<String> write(ChangeOnlyCsvWriter writer, Trajectory trajectory) throws Exception {
+    Path output = tempDir.resolve("changes.csv");
+    writer.writeToCsv(output.toString(), trajectory);
+    return Files.readAllLines(output);
+  }
+
+  @Test
+  void writeToCsv_collapsesAStillTargetIntoOneRowWithItsDuration() throws Exception {
+    List<String> rows = write(new ChangeOnlyCsvWriter(2, 10), frames(1, 5, 5, 6, 5, 5, 6, 6, 6));
+
+    assertEquals(List.of("0.10,5,5,0.40"), rows);
+  }
+
+  @Test
+  void writeToCsv_startsANewRow_whenTheTargetMovesFurtherThanEpsilonFromTheRunsStart() throws Exception {
+    // Each step is within epsilon, but the drift from the first position is not
+    List<String> rows = write(new ChangeOnlyCsvWriter(2, 10), frames(1, 0, 0, 1, 0, 2, 0, 3, 0, 4, 0));
+
+    assertEquals(List.of("0.10,0,0,0.30", "0.40,3,0,0.20"), rows);
+  }
+
+  @Test
+  void writeToCsv_startsANewRow_whenTheTargetReappears() throws Exception {
+    Trajectory trajectory = frames(1, 5, 5, 5, 5);
+    // Frames 3 and 4 had no target
+    trajectory.add(0.5, 5, 5);
+
+    List<String> rows = write(new ChangeOnlyCsvWriter(2, 10), trajectory);
+
+    assertEquals(List.of("0.10,5,5,0.20", "0.50,5,5,0.10"), rows);
+  }
+
+  @Test
+  void writeToCsv_keepsTheRunAcrossSkippedFrames_upToTheSampleInterval() throws Exception {
+    Trajectory trajectory = new Trajectory();
+    trajectory.add(0.1, 5, 5);
+    trajectory.add(0.5, 5, 5);
+    trajectory.add(0.9, 5, 5);
+
+    assertEquals(List.of("0.10,5,5,0.90"), write(new ChangeOnlyCsvWriter(0, 10, 4), trajectory));
+    assertEquals(3, write(new ChangeOnlyCsvWriter(0, 10, 3), trajectory).size());
+  }
+
+  @Test
+  void writeToCsv_writesOnlyTheLargestGroup() throws Exception {
+    Trajectory trajectory = new Trajectory();
+    trajectory.add(0.1, 5, 5, 1);
+    trajectory.add(0.1, 50, 50, 2);
+    trajectory.add(0.2, 5, 5, 1);
+    trajectory.add(0.2, 60, 60, 2);
+
+    assertEquals(List.of("0.10,5,5,0.20"), write(new ChangeOnlyCsvWriter(0, 10), trajectory));
+  }
+
+  @Test
+  void writeToCsv_listMatchesTrajectoryOutput() throws Exception {
+    Trajectory trajectory = frames(1, 0, 0, 0, 0, 9, 9);
+    Path output = tempDir.resolve("list.csv");
+
+    new ChangeOnlyCsvWriter(1, 10).writeToCsv(output.toString(), trajectory.asList());
+
+    assertEquals(write(new ChangeOnlyCsvWriter(1, 10), trajectory), Files.readAllLines(output));
+  }
+
+  @Test
+  void appendToCsv_writesRunsAsTheyEndAndTheOpenRunOnFinish() {
+    ChangeOnlyCsvWriter writer = new ChangeOnlyCsvWriter(1, 10);
+    StringWriter text = new StringWriter();
+    PrintWriter out = new PrintWriter(text);
+
+    writer.appendToCsv(out, frames(1, 5, 5));
+    writer.appendToCsv(out, frames(2, 5, 5));
+    assertEquals("", text.toString());
+
+    writer.appendToCsv(out, frames(3, 20, 5));
+    assertEquals(List.of("0.10,5,5,0.20"), text.toString().lines().toList());
+
+    writer.finish(out);
+    assertEquals(List.of("0.10,5,5,0.20", "0.30,20,5,0.10"), text.toString().lines().toList());
+    assertEquals(2, writer.rowsWritten());
+  }
+
+  @Test
+  void constructor_rejectsInvalidSettings() {
+    assertThrows(IllegalArgumentException.class, () -> new ChangeOnlyCsvWriter(-1, 10));
+    assertThrows(IllegalArgumentException.class, () -> new ChangeOnlyCsvWriter(1, 0));
+    assertThrows(IllegalArgumentException.class, () -> new ChangeOnlyCsvWriter(1, 10, 0));
+  }
+}
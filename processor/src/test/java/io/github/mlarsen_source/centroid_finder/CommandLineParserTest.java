@@ -2,11 +2,15 @@ package io.github.mlarsen_source.centroid_finder;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.awt.Rectangle;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
@@ -195,4 +199,292 @@ public class CommandLineParserTest {
     String[] args = { video.getAbsolutePath(), output, "FFA500", "25", "EXTRA" };
     assertThrows(IllegalArgumentException.class, () -> new CommandLineParser(args));
   }
+
+  @Test
+  void options_defaultWhenNoFlagsGiven() throws IOException {
+    File video = createTempMp4();
+    CommandLineParser parser = new CommandLineParser(baseArgs(video, createValidCsvPath(), "FFA500", "25"));
+    assertEquals(1, parser.getOptions().getTopK());
+    assertEquals(1, parser.getOptions().getMinGroupSize());
+  }
+
+  @Test
+  void options_parsesTopKAndMinGroupSize() throws IOException {
+    File video = createTempMp4();
+    String output = createValidCsvPath();
+    String[] args = { video.getAbsolutePath(), output, "FFA500", "25", "--top-k", "3", "--min-group-size", "20" };
+    CommandLineParser parser = new CommandLineParser(args);
+    assertEquals(3, parser.getOptions().getTopK());
+    assertEquals(20, parser.getOptions().getMinGroupSize());
+  }
+
+  @Test
+  void options_rejectInvalidFlags() throws IOException {
+    File video = createTempMp4();
+    String output = createValidCsvPath();
+    String path = video.getAbsolutePath();
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--top-k" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--top-k", "0" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--min-group-size", "x" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--unknown", "1" }));
+  }
+
+  @Test
+  void options_parsesProgressEventsInterval() throws IOException {
+    File video = createTempMp4();
+    String[] args = { video.getAbsolutePath(), createValidCsvPath(), "FFA500", "25", "--progress-events", "250" };
+    CommandLineParser parser = new CommandLineParser(args);
+    assertEquals(true, parser.getOptions().isProgressEvents());
+    assertEquals(250, parser.getOptions().getProgressIntervalMillis());
+    assertEquals(false, new ProcessingOptions().isProgressEvents());
+  }
+
+  @Test
+  void options_parsesPerfReportSwitchAnywhereAmongFlags() throws IOException {
+    File video = createTempMp4();
+    String output = createValidCsvPath();
+    String path = video.getAbsolutePath();
+    assertFalse(new CommandLineParser(baseArgs(video, output, "FFA500", "25")).getOptions().isPerfReport());
+
+    CommandLineParser last = new CommandLineParser(new String[] { path, output, "FFA500", "25", "--top-k", "2", "--perf-report" });
+    assertTrue(last.getOptions().isPerfReport());
+    assertEquals(2, last.getOptions().getTopK());
+
+    CommandLineParser between = new CommandLineParser(
+        new String[] { path, output, "FFA500", "25", "--top-k", "2", "--perf-report", "--min-group-size", "5" });
+    assertTrue(between.getOptions().isPerfReport());
+    assertEquals(5, between.getOptions().getMinGroupSize());
+  }
+
+  @Test
+  void options_parsesResourceReportSwitch() throws IOException {
+    File video = createTempMp4();
+    String[] args = { video.getAbsolutePath(), createValidCsvPath(), "FFA500", "25", "--resource-report", "--perf-report" };
+    CommandLineParser parser = new CommandLineParser(args);
+    assertTrue(parser.getOptions().isResourceReport());
+    assertTrue(parser.getOptions().isPerfReport());
+    assertFalse(new ProcessingOptions().isResourceReport());
+  }
+
+  @Test
+  void options_parsesDecoderAndPixelFormat() throws IOException {
+    File video = createTempMp4();
+    String output = createValidCsvPath();
+    String path = video.getAbsolutePath();
+    ProcessingOptions defaults = new ProcessingOptions();
+    assertEquals("auto", defaults.getDecoder());
+    assertEquals(FfmpegFrameDecoder.PixelFormat.RGB24, defaults.getPixelFormat());
+
+    CommandLineParser parser = new CommandLineParser(
+        new String[] { path, output, "FFA500", "25", "--decoder", "jcodec", "--pixel-format", "yuv420p" });
+    assertEquals("jcodec", parser.getOptions().getDecoder());
+    assertEquals(FfmpegFrameDecoder.PixelFormat.YUV420P, parser.getOptions().getPixelFormat());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--decoder", "gstreamer" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--pixel-format", "nv12" }));
+  }
+
+  @Test
+  void options_parsesFrameThreads() throws IOException {
+    String path = createTempMp4().getAbsolutePath();
+    String output = createValidCsvPath();
+    assertEquals(1, new ProcessingOptions().getFrameThreads());
+    assertEquals(4, new CommandLineParser(new String[] { path, output, "FFA500", "25", "--frame-threads", "4" })
+        .getOptions().getFrameThreads());
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--frame-threads", "0" }));
+  }
+
+  @Test
+  void options_acceptStreamedInput() throws IOException {
+    String output = createValidCsvPath();
+    File y4m = Files.createTempFile("parser-test-", ".y4m").toFile();
+    y4m.deleteOnExit();
+
+    assertEquals(InputFormat.Y4M, new CommandLineParser(new String[] { "-", output, "FFA500", "25" })
+        .getOptions().inputFormatFor("-"));
+    assertEquals(InputFormat.Y4M, new CommandLineParser(new String[] { y4m.getPath(), output, "FFA500", "25" })
+        .getOptions().inputFormatFor(y4m.getPath()));
+
+    CommandLineParser raw = new CommandLineParser(new String[] { "-", output, "FFA500", "25",
+        "--input-format", "raw", "--frame-size", "640x480", "--frame-rate", "29.97", "--raw-pixel-format", "bgr24" });
+    assertEquals(640, raw.getOptions().getFrameWidth());
+    assertEquals(480, raw.getOptions().getFrameHeight());
+    assertEquals(29.97, raw.getOptions().getFrameRate());
+    assertEquals(RawPixelFormat.BGR24, raw.getOptions().getRawPixelFormat());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { "-", output, "FFA500", "25", "--input-format", "raw" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { "-", output, "FFA500", "25", "--input-format", "mp4" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { "-", output, "FFA500", "25", "--frame-size", "640" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { "-", output, "FFA500", "25", "--frame-rate", "0" }));
+  }
+
+  @Test
+  void options_parsesFollowMode() throws IOException {
+    String path = createTempMp4().getAbsolutePath();
+    String output = createValidCsvPath();
+    assertFalse(new ProcessingOptions().isFollow());
+    assertEquals(30_000, new ProcessingOptions().getIdleTimeoutMillis());
+
+    ProcessingOptions options = new CommandLineParser(new String[] { path, output, "FFA500", "25",
+        "--follow", "--idle-timeout", "5", "--end-marker", "recording.done" }).getOptions();
+    assertTrue(options.isFollow());
+    assertEquals(5_000, options.getIdleTimeoutMillis());
+    assertEquals("recording.done", options.getEndMarker());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--follow", "--idle-timeout", "0" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--follow", "--decoder", "ffmpeg" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--follow", "--start-frame", "10" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { "-", output, "FFA500", "25", "--follow" }));
+  }
+
+  @Test
+  void options_parsesTimeBudget() throws IOException {
+    String path = createTempMp4().getAbsolutePath();
+    String output = createValidCsvPath();
+    assertFalse(new ProcessingOptions().hasTimeBudget());
+
+    ProcessingOptions options = new CommandLineParser(new String[] { path, output, "FFA500", "25",
+        "--time-budget", "1500" }).getOptions();
+    assertTrue(options.hasTimeBudget());
+    assertEquals(1500, options.getTimeBudgetMillis());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--time-budget", "0" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--time-budget", "100", "--decoder", "ffmpeg" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--time-budget", "100", "--end-frame", "10" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--time-budget", "100", "--follow" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { "-", output, "FFA500", "25", "--time-budget", "100" }));
+  }
+
+  @Test
+  void options_parsesAdaptiveSampling() throws IOException {
+    String path = createTempMp4().getAbsolutePath();
+    String output = createValidCsvPath();
+    assertEquals(1, new ProcessingOptions().getSampleInterval());
+    assertEquals(3.0, new ProcessingOptions().getMotionThreshold());
+
+    ProcessingOptions options = new CommandLineParser(new String[] { path, output, "FFA500", "25",
+        "--sample-every", "4", "--motion-threshold", "8" }).getOptions();
+    assertEquals(4, options.getSampleInterval());
+    assertEquals(8.0, options.getMotionThreshold());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--sample-every", "0" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--motion-threshold", "-1" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--sample-every", "4", "--time-budget", "100" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--motion-threshold", "Infinity" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--motion-threshold", "far" }));
+
+    ProcessingOptions subPixel = new CommandLineParser(new String[] { path, output, "FFA500", "25",
+        "--motion-threshold", "0.5" }).getOptions();
+    assertEquals(0.5, subPixel.getMotionThreshold());
+  }
+
+  @Test
+  void options_parsesCropAndMaskPolygon() throws IOException {
+    String path = createTempMp4().getAbsolutePath();
+    String output = createValidCsvPath();
+    assertFalse(new ProcessingOptions().hasRegion());
+
+    ProcessingOptions options = new CommandLineParser(new String[] { path, output, "FFA500", "25",
+        "--crop", "10,20,300,200", "--mask-polygon", "0,0,100,0,50,80" }).getOptions();
+    assertTrue(options.hasRegion());
+    assertEquals(new Rectangle(10, 20, 300, 200), options.getCrop());
+    assertEquals(List.of(new Coordinate(0, 0), new Coordinate(100, 0), new Coordinate(50, 80)), options.getMaskPolygon());
+    assertTrue(options.regionFor(640, 480).contains(50, 25));
+
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--crop", "10,20,300" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--crop", "10,20,0,200" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--crop", "a,20,30,200" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--mask-polygon", "0,0,100,0" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--mask-polygon", "0,0,100,0,50" }));
+  }
+
+  @Test
+  void options_parsesBackgroundLearning() throws IOException {
+    String path = createTempMp4().getAbsolutePath();
+    String output = createValidCsvPath();
+    assertFalse(new ProcessingOptions().hasBackgroundLearning());
+
+    ProcessingOptions options = new CommandLineParser(new String[] { path, output, "FFA500", "25",
+        "--learn-background", "12", "--background-threshold", "75" }).getOptions();
+    assertTrue(options.hasBackgroundLearning());
+    assertEquals(12, options.getBackgroundSamples());
+    assertEquals(0.75, options.getBackgroundFraction());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--learn-background", "0" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--background-threshold", "101" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--learn-background", "5", "--follow" }));
+  }
+
+  @Test
+  void options_parsesHeatmapCellSize() throws IOException {
+    String path = createTempMp4().getAbsolutePath();
+    String output = createValidCsvPath();
+    assertFalse(new ProcessingOptions().hasHeatmap());
+
+    ProcessingOptions options = new CommandLineParser(new String[] { path, output, "FFA500", "25",
+        "--heatmap", "16" }).getOptions();
+    assertTrue(options.hasHeatmap());
+    assertEquals(16, options.getHeatmapCellSize());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--heatmap", "0" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--heatmap", "16", "--time-budget", "500" }));
+  }
+
+  @Test
+  void options_parsesChangeOnly() throws IOException {
+    String path = createTempMp4().getAbsolutePath();
+    String output = createValidCsvPath();
+    assertFalse(new ProcessingOptions().isChangeOnly());
+
+    ProcessingOptions options = new CommandLineParser(new String[] { path, output, "FFA500", "25",
+        "--change-only", "2" }).getOptions();
+    assertTrue(options.isChangeOnly());
+    assertEquals(2.0, options.getChangeEpsilon());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--change-only", "-1" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--change-only", "NaN" }));
+    assertEquals(0.5, new CommandLineParser(new String[] { path, output, "FFA500", "25",
+        "--change-only", "0.5" }).getOptions().getChangeEpsilon());
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--change-only", "2", "--top-k", "3" }));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CommandLineParser(new String[] { path, output, "FFA500", "25", "--change-only", "2", "--time-budget", "500" }));
+  }
 }
@@ -1,6 +1,7 @@
 package io.github.mlarsen_source.centroid_finder;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -102,4 +103,29 @@ public class CsvWriterTest {
             "CsvWriter should log runtime exception but not throw");
         assertTrue(Files.exists(output), "File should exist even if writing failed midway");
     }
+
+    @Test
+    void writeToCsv_trajectoryMatchesListOutput() throws IOException {
+        DataWriter writer = new CsvWriter();
+        Path fromList = tempDir.resolve("list.csv");
+        Path fromTrajectory = tempDir.resolve("trajectory.csv");
+
+        writer.writeToCsv(fromList.toString(), sampleData());
+        writer.writeToCsv(fromTrajectory.toString(), Trajectory.of(sampleData()));
+
+        assertEquals(Files.readString(fromList), Files.readString(fromTrajectory));
+    }
+
+    @Test
+    void writeToCsv_appendsRankColumnWhenEnabled() throws IOException {
+        DataWriter writer = new CsvWriter(true);
+        Path output = tempDir.resolve("ranked.csv");
+        Trajectory trajectory = new Trajectory();
+        trajectory.add(1.0, 10, 20, 1);
+        trajectory.add(1.0, 30, 40, 2);
+
+        writer.writeToCsv(output.toString(), trajectory);
+
+        assertEquals(List.of("1.00,10,20,1", "1.00,30,40,2"), Files.readAllLines(output));
+    }
 }
@@ -0,0 +1,163 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import org.jcodec.api.JCodecException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DeadlineVideoGroupFinderTest {
+
+  private static final File VIDEO = new File("sampleInput/training.mp4");
+
+  @TempDir
+  Path tempDir;
+
+  private static ImageGroupFinder groupFinder() {
+    return new BinarizingImageGroupFinder(
+        new DistanceImageBinarizer(new EuclideanColorDistance(), 0xFFA500, 60),
+        new BfsBinaryGroupFinder(2, 1));
+  }
+
+  private static List<String> rows(Trajectory trajectory) {
+    List<String> rows = new ArrayList<>();
+    for (int i = 0; i < trajectory.size(); i++) {
+      rows.add(trajectory.toCsvRow(i, true));
+    }
+    return rows;
+  }
+
+  @Test
+  void getTrajectory_matchesAWholeRun_whenTheBudgetIsLargeEnough() throws Exception {
+    Mp4VideoProcessor video = new Mp4VideoProcessor(VIDEO);
+    Trajectory whole = new Mp4VideoGroupFinder(video, groupFinder(), 2).getTrajectory();
+
+    DeadlineVideoGroupFinder finder = new DeadlineVideoGroupFinder(video, groupFinder(), 2);
+    Trajectory sampled = finder.getTrajectory(System.nanoTime() + 600_000_000_000L);
+
+    assertEquals(rows(whole), rows(sampled));
+    Map<String, Object> coverage = finder.coverage();
+    assertEquals(30, coverage.get("processedFrames"));
+    assertEquals(1.0, coverage.get("density"));
+    assertEquals(2, coverage.get("keyframesProcessed"));
+    assertEquals(2, coverage.get("segmentsCompleted"));
+    assertEquals(0.0, coverage.get("longestGapSeconds"));
+    assertEquals(true, coverage.get("complete"));
+  }
+
+  @Test
+  void getTrajectory_samplesKeyframesFirstAndKeepsRowsInTimeOrder() throws Exception {
+    Mp4VideoProcessor video = new Mp4VideoProcessor(VIDEO);
+    Trajectory whole = new Mp4VideoGroupFinder(video, groupFinder(), 2).getTrajectory();
+
+    // The clock advances by one for every analyzed frame, so the deadline is a frame count
+    AtomicLong clock = new AtomicLong();
+    ImageGroupFinder counting = image -> {
+      clock.incrementAndGet();
+      return groupFinder().findConnectedGroups(image);
+    };
+    DeadlineVideoGroupFinder finder = new DeadlineVideoGroupFinder(video, counting, 2, clock::get);
+    Trajectory sampled = finder.getTrajectory(12);
+
+    // Both keyframes, then frames 1 to 10 of the first group of pictures
+    Set<Double> times = new HashSet<>();
+    IntStream.concat(IntStream.of(0, 25), IntStream.rangeClosed(1, 10))
+        .forEach(frame -> times.add(video.getTime(frame + 1)));
+    Trajectory expected = new Trajectory();
+    for (int i = 0; i < whole.size(); i++) {
+      if (times.contains(whole.time(i))) expected.add(whole.time(i), whole.x(i), whole.y(i), whole.rank(i));
+    }
+    assertEquals(rows(expected), rows(sampled));
+    for (int i = 1; i < sampled.size(); i++) {
+      assertTrue(sampled.time(i - 1) <= sampled.time(i));
+    }
+
+    Map<String, Object> coverage = finder.coverage();
+    assertEquals(30, coverage.get("totalFrames"));
+    assertEquals(12, coverage.get("processedFrames"));
+    assertEquals(0.4, coverage.get("density"));
+    assertEquals(2, coverage.get("keyframesProcessed"));
+    assertEquals(0, coverage.get("segmentsCompleted"));
+    // Frames 11 to 24 were never analyzed
+    assertEquals(Math.round(100 * 14 / video.getFps()) / 100.0, coverage.get("longestGapSeconds"));
+    assertEquals(false, coverage.get("complete"));
+  }
+
+  @Test
+  void getTrajectory_opensOneReaderPerRun() throws Exception {
+    AtomicInteger opened = new AtomicInteger();
+    Mp4VideoProcessor video = new Mp4VideoProcessor(VIDEO) {
+      @Override
+      public FrameReader openFrames() throws IOException, JCodecException {
+        opened.incrementAndGet();
+        return super.openFrames();
+      }
+
+      @Override
+      public JCodecFrameReader openFrames(int startFrame) throws IOException, JCodecException {
+        opened.incrementAndGet();
+        return super.openFrames(startFrame);
+      }
+    };
+    DeadlineVideoGroupFinder finder = new DeadlineVideoGroupFinder(video, groupFinder(), 1);
+
+    finder.getTrajectory(System.nanoTime() + 600_000_000_000L);
+    assertEquals(1, opened.get());
+    assertEquals(true, finder.coverage().get("complete"));
+  }
+
+  @Test
+  void getTrajectory_returnsNothing_whenTheDeadlineHasPassed() throws Exception {
+    Mp4VideoProcessor video = new Mp4VideoProcessor(VIDEO);
+    DeadlineVideoGroupFinder finder = new DeadlineVideoGroupFinder(video, groupFinder(), 1);
+
+    assertTrue(finder.getTrajectory(System.nanoTime()).isEmpty());
+    assertEquals(0, finder.coverage().get("processedFrames"));
+    assertEquals(0.0, finder.coverage().get("density"));
+  }
+
+  @Test
+  void writeCoverage_writesTheReportNextToTheCsv() throws Exception {
+    DeadlineVideoGroupFinder finder = new DeadlineVideoGroupFinder(new Mp4VideoProcessor(VIDEO), groupFinder(), 1);
+    finder.getTrajectory(System.nanoTime() + 600_000_000_000L);
+    Path report = DeadlineVideoGroupFinder.reportPathFor(tempDir.resolve("out.csv").toString());
+
+    finder.writeCoverage(report);
+
+    assertEquals(tempDir.resolve("out.coverage.json"), report);
+    Map<String, Object> json = Json.parseObject(Files.readString(report).strip());
+    assertEquals(30L, json.get("processedFrames"));
+    assertEquals(true, json.get("complete"));
+  }
+
+  @Test
+  void spreadOrder_visitsIndexesInBisectionOrder() {
+    assertArrayEquals(new int[0], DeadlineVideoGroupFinder.spreadOrder(0));
+    assertArrayEquals(new int[] {0}, DeadlineVideoGroupFinder.spreadOrder(1));
+    assertArrayEquals(new int[] {0, 1}, DeadlineVideoGroupFinder.spreadOrder(2));
+    assertArrayEquals(new int[] {0, 4, 2, 1, 3}, DeadlineVideoGroupFinder.spreadOrder(5));
+    assertArrayEquals(new int[] {0, 4, 2, 6, 1, 5, 3, 7}, DeadlineVideoGroupFinder.spreadOrder(8));
+  }
+
+  @Test
+  void constructor_rejectsGroupsPerFrameBelowOne() throws Exception {
+    Mp4VideoProcessor video = new Mp4VideoProcessor(VIDEO);
+    assertThrows(IllegalArgumentException.class, () -> new DeadlineVideoGroupFinder(video, groupFinder(), 0));
+  }
+}
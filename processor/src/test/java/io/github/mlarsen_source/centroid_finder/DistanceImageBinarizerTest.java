@@ -1,8 +1,11 @@
 package io.github.mlarsen_source.centroid_finder;
 
 import static org.junit.jupiter.api.Assertions.*;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.List;
+import java.util.Random;
 import javax.imageio.ImageIO;
 import org.junit.jupiter.api.Test;
 
@@ -101,6 +104,58 @@ public class DistanceImageBinarizerTest {
       }
     }
   }
-}
 
+  @Test
+  void testToBinaryArrayWritesIntoReusedArrayAndClearsStaleValues() {
+    int target = 0x00FF00;
+    BufferedImage img = new BufferedImage(2, 2, BufferedImage.TYPE_3BYTE_BGR);
+    img.setRGB(0, 1, target);
+
+    int[][] reuse = { {1, 1}, {1, 1} };
+    ImageBinarizer b = new DistanceImageBinarizer(new EuclideanColorDistance(), target, 2);
+    int[][] actual = b.toBinaryArray(img, reuse);
+
+    assertSame(reuse, actual);
+    assertEquals(0, actual[0][0]);
+    assertEquals(0, actual[0][1]);
+    assertEquals(1, actual[1][0]);
+    assertEquals(0, actual[1][1]);
+  }
+
+  @Test
+  void toBinaryArray_binarizesOnlyTheRegion_intoItsBoundingBox() {
+    int[] types = {BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_USHORT_565_RGB};
+    Random random = new Random(3);
+    RegionMask region = RegionMask.compile(12, 9, new Rectangle(1, 2, 10, 6),
+        List.of(new Coordinate(0, 2), new Coordinate(12, 2), new Coordinate(6, 9)));
+    for (int type : types) {
+      BufferedImage image = new BufferedImage(12, 9, type);
+      for (int y = 0; y < 9; y++) {
+        for (int x = 0; x < 12; x++) {
+          image.setRGB(x, y, random.nextBoolean() ? 0xFF0000 : 0x0000FF);
+        }
+      }
+      // Counts every pixel whose distance is computed
+      int[] distances = new int[1];
+      ColorDistanceFinder counting = (a, b) -> {
+        distances[0]++;
+        return new EuclideanColorDistance().distance(a, b);
+      };
+      DistanceImageBinarizer binarizer = new DistanceImageBinarizer(counting, 0xFF0000, 50);
+      int[][] full = new DistanceImageBinarizer(new EuclideanColorDistance(), 0xFF0000, 50).toBinaryArray(image);
+
+      int[][] box = binarizer.toBinaryArray(image, region, null);
+
+      assertArrayEquals(region.extract(full, null), box);
+      assertEquals(region.area(), distances[0]);
+    }
+  }
 
+  @Test
+  void toBinaryArray_rejectsARegionCompiledForAnotherSize() {
+    DistanceImageBinarizer binarizer = new DistanceImageBinarizer(new EuclideanColorDistance(), 0xFF0000, 50);
+    RegionMask region = RegionMask.compile(10, 10, new Rectangle(0, 0, 5, 5), null);
+    assertThrows(IllegalArgumentException.class,
+        () -> binarizer.toBinaryArray(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), region, null));
+  }
+}
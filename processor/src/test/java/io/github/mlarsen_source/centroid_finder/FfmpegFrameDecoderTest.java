@@ -0,0 +1,184 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+
+import org.jcodec.common.model.ColorSpace;
+import org.jcodec.common.model.Picture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs the FFmpeg backend against a shell script that stands in for ffmpeg, records its
+ * arguments and writes prepared raw frames, so the tests do not need ffmpeg installed.
+ */
+@DisabledOnOs(OS.WINDOWS)
+public class FfmpegFrameDecoderTest {
+
+  @TempDir
+  Path tempDir;
+
+  private Path fakeFfmpeg(byte[] output, int exitStatus) throws IOException {
+    Path frames = tempDir.resolve("frames.raw");
+    Files.write(frames, output);
+    Path script = tempDir.resolve("ffmpeg");
+    Files.writeString(script, "#!/bin/sh\n"
+        + "echo \"$@\" > '" + tempDir.resolve("args.txt") + "'\n"
+        + "cat '" + frames + "'\n"
+        + "exit " + exitStatus + "\n");
+    Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+    return script;
+  }
+
+  private static byte[] bgrFrame(int width, int height, int red, int green, int blue) {
+    byte[] frame = new byte[width * height * 3];
+    for (int i = 0; i < frame.length; i += 3) {
+      frame[i] = (byte) blue;
+      frame[i + 1] = (byte) green;
+      frame[i + 2] = (byte) red;
+    }
+    return frame;
+  }
+
+  private static byte[] concat(byte[]... parts) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (byte[] part : parts) out.writeBytes(part);
+    return out.toByteArray();
+  }
+
+  @Test
+  void rgb24_readsEveryFrameIntoTheReusedPicture() throws Exception {
+    byte[] orange = bgrFrame(4, 2, 0xFF, 0xA5, 0x00);
+    byte[] blue = bgrFrame(4, 2, 0x20, 0x40, 0xE0);
+    FfmpegFrameDecoder decoder = new FfmpegFrameDecoder(fakeFfmpeg(concat(orange, blue), 0),
+        FfmpegFrameDecoder.PixelFormat.RGB24);
+
+    try (FrameReader reader = decoder.open(new File("clip.mp4"), 4, 2)) {
+      Picture first = reader.readFrame();
+      assertEquals(ColorSpace.BGR, first.getColor());
+      assertEquals(0xFFA500, FrameContext.current().toBufferedImage(first).getRGB(3, 1) & 0xFFFFFF);
+
+      Picture second = reader.readFrame();
+      assertSame(first, second);
+      assertEquals(0x2040E0, FrameContext.current().toBufferedImage(second).getRGB(0, 0) & 0xFFFFFF);
+
+      assertNull(reader.readFrame());
+      assertNull(reader.readFrame());
+    }
+
+    String args = Files.readString(tempDir.resolve("args.txt"));
+    assertTrue(args.contains("-i clip.mp4"), args);
+    assertTrue(args.contains("-f rawvideo -pix_fmt bgr24 pipe:1"), args);
+    assertTrue(args.contains("-noautorotate"), args);
+  }
+
+  @Test
+  void yuv420p_readsPlanesAndConvertsToRgb() throws Exception {
+    byte[] y = new byte[16];
+    byte[] chroma = new byte[4];
+    Arrays.fill(y, (byte) 128);
+    Arrays.fill(chroma, (byte) 128);
+    FfmpegFrameDecoder decoder = new FfmpegFrameDecoder(fakeFfmpeg(concat(y, chroma, chroma), 0),
+        FfmpegFrameDecoder.PixelFormat.YUV420P);
+
+    try (FrameReader reader = decoder.open(new File("clip.mp4"), 4, 4)) {
+      Picture picture = reader.readFrame();
+      assertEquals(ColorSpace.YUV420, picture.getColor());
+      int rgb = FrameContext.current().toBufferedImage(picture).getRGB(2, 2);
+      // Mid gray in limited range YUV is about 130 in every RGB channel
+      for (int shift : new int[] { 0, 8, 16 }) {
+        assertEquals(130, (rgb >> shift) & 0xFF, 3);
+      }
+      assertNull(reader.readFrame());
+    }
+    assertTrue(Files.readString(tempDir.resolve("args.txt")).contains("-pix_fmt yuv420p"));
+  }
+
+  @Test
+  void readFrame_throwsWhenOutputEndsInsideAFrame() throws Exception {
+    byte[] frame = bgrFrame(4, 2, 1, 2, 3);
+    FfmpegFrameDecoder decoder = new FfmpegFrameDecoder(fakeFfmpeg(Arrays.copyOf(frame, 10), 0),
+        FfmpegFrameDecoder.PixelFormat.RGB24);
+    try (FrameReader reader = decoder.open(new File("clip.mp4"), 4, 2)) {
+      assertThrows(IOException.class, reader::readFrame);
+    }
+  }
+
+  @Test
+  void readFrame_throwsWhenFfmpegFails() throws Exception {
+    FfmpegFrameDecoder decoder = new FfmpegFrameDecoder(fakeFfmpeg(bgrFrame(4, 2, 1, 2, 3), 3),
+        FfmpegFrameDecoder.PixelFormat.RGB24);
+    try (FrameReader reader = decoder.open(new File("clip.mp4"), 4, 2)) {
+      reader.readFrame();
+      IOException e = assertThrows(IOException.class, reader::readFrame);
+      assertTrue(e.getMessage().contains("status 3"), e.getMessage());
+    }
+  }
+
+  @Test
+  void open_rejectsUnknownOrOddFrameSizes() throws Exception {
+    Path script = fakeFfmpeg(new byte[0], 0);
+    FfmpegFrameDecoder rgb = new FfmpegFrameDecoder(script, FfmpegFrameDecoder.PixelFormat.RGB24);
+    FfmpegFrameDecoder yuv = new FfmpegFrameDecoder(script, FfmpegFrameDecoder.PixelFormat.YUV420P);
+    assertThrows(IllegalArgumentException.class, () -> rgb.open(new File("clip.mp4"), 0, 0));
+    assertThrows(IllegalArgumentException.class, () -> yuv.open(new File("clip.mp4"), 5, 4));
+  }
+
+  @Test
+  void openFrames_matchesJCodecFrameForFrame() throws Exception {
+    File video = new File("sampleInput/training.mp4");
+    ByteArrayOutputStream raw = new ByteArrayOutputStream();
+    int frames = 0;
+    try (FrameReader reader = new JCodecFrameDecoder(false).open(video, 0, 0)) {
+      for (Picture picture = reader.readFrame(); picture != null; picture = reader.readFrame()) {
+        BufferedImage image = FrameContext.current().toBufferedImage(picture);
+        raw.writeBytes(((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+        frames++;
+      }
+    }
+
+    Mp4VideoProcessor jcodec = new Mp4VideoProcessor(video);
+    Mp4VideoProcessor ffmpeg = new Mp4VideoProcessor(video,
+        new FfmpegFrameDecoder(fakeFfmpeg(raw.toByteArray(), 0), FfmpegFrameDecoder.PixelFormat.RGB24));
+    assertEquals("ffmpeg", ffmpeg.getDecoder().getName());
+
+    int compared = 0;
+    try (FrameReader expected = jcodec.openFrames(); FrameReader actual = ffmpeg.openFrames()) {
+      for (Picture picture = expected.readFrame(); picture != null; picture = expected.readFrame()) {
+        byte[] expectedBytes = ((DataBufferByte) FrameContext.current().toBufferedImage(picture)
+            .getRaster().getDataBuffer()).getData().clone();
+        byte[] actualBytes = ((DataBufferByte) FrameContext.current().toBufferedImage(actual.readFrame())
+            .getRaster().getDataBuffer()).getData();
+        assertArrayEquals(expectedBytes, actualBytes);
+        compared++;
+      }
+      assertNull(actual.readFrame());
+    }
+    assertEquals(frames, compared);
+  }
+
+  @Test
+  void select_choosesBackendByName() {
+    assertEquals("jcodec", FrameDecoder.select("jcodec", FfmpegFrameDecoder.PixelFormat.RGB24).getName());
+    String expected = FfmpegFrameDecoder.findExecutable() != null ? "ffmpeg" : "jcodec";
+    assertEquals(expected, FrameDecoder.select("auto", FfmpegFrameDecoder.PixelFormat.RGB24).getName());
+    assertThrows(IllegalArgumentException.class,
+        () -> FrameDecoder.select("gstreamer", FfmpegFrameDecoder.PixelFormat.RGB24));
+  }
+}
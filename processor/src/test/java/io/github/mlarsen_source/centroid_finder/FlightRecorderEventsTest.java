@@ -0,0 +1,84 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Recording;
+import jdk.jfr.SettingDescriptor;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FlightRecorderEventsTest {
+
+  @TempDir
+  Path tempDir;
+
+  private List<RecordedEvent> recordJob(String output) throws Exception {
+    Path file = tempDir.resolve("job.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("centroid_finder.Job");
+      recording.enable("centroid_finder.Frame").withThreshold(Duration.ZERO);
+      recording.enable("centroid_finder.Stage").withThreshold(Duration.ZERO);
+      recording.start();
+      new VideoProcessingAppRunner().processVideo("sampleInput/training.mp4", output, 0xFFA500, 60);
+      recording.stop();
+      recording.dump(file);
+    }
+    return RecordingFile.readAllEvents(file);
+  }
+
+  @Test
+  void processVideo_emitsJobFrameAndStageEvents() throws Exception {
+    String output = tempDir.resolve("out.csv").toString();
+    List<RecordedEvent> events = recordJob(output);
+
+    List<RecordedEvent> jobs = events.stream().filter(e -> e.getEventType().getName().equals("centroid_finder.Job")).toList();
+    assertEquals(1, jobs.size());
+    RecordedEvent job = jobs.get(0);
+    assertEquals(output, job.getString("output"));
+    assertEquals("FFA500", job.getString("targetColor"));
+    assertEquals(30, job.getInt("frames"));
+    assertTrue(job.getBoolean("succeeded"));
+
+    List<RecordedEvent> frames = events.stream().filter(e -> e.getEventType().getName().equals("centroid_finder.Frame")).toList();
+    assertEquals(30, frames.size());
+    for (RecordedEvent frame : frames) {
+      assertTrue(frame.getInt("groupCount") >= 1);
+      assertTrue(frame.getInt("largestSize") > 0);
+    }
+
+    Map<String, Integer> stages = new TreeMap<>();
+    for (RecordedEvent event : events) {
+      if (event.getEventType().getName().equals("centroid_finder.Stage")) {
+        stages.merge(event.getString("stage"), 1, Integer::sum);
+        assertEquals(320, event.getInt("width"));
+      }
+    }
+    assertEquals(Map.of("decode", 30, "convert", 30, "binarize", 30, "label", 30), stages);
+  }
+
+  @Test
+  void frameAndStageEvents_onlyRecordSlowSpansByDefault() {
+    assertEquals("20 ms", defaultThreshold(FrameEvent.class));
+    assertEquals("10 ms", defaultThreshold(StageEvent.class));
+    assertEquals("0 ns", defaultThreshold(JobEvent.class));
+  }
+
+  private static String defaultThreshold(Class<? extends Event> eventClass) {
+    for (SettingDescriptor setting : EventType.getEventType(eventClass).getSettingDescriptors()) {
+      if (setting.getName().equals("threshold")) return setting.getDefaultValue();
+    }
+    throw new AssertionError("No threshold setting for " + eventClass);
+  }
+}
@@ -0,0 +1,265 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jcodec.common.DemuxerTrack;
+import org.jcodec.common.io.NIOUtils;
+import org.jcodec.common.io.SeekableByteChannel;
+import org.jcodec.common.model.Packet;
+import org.jcodec.common.model.Picture;
+import org.jcodec.containers.mp4.MP4Util;
+import org.jcodec.containers.mp4.boxes.MovieBox;
+import org.jcodec.containers.mp4.boxes.MovieExtendsBox;
+import org.jcodec.containers.mp4.boxes.TrackExtendsBox;
+import org.jcodec.containers.mp4.demuxer.MP4Demuxer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FragmentedMp4FrameReaderTest {
+
+  private static final Path SAMPLE_VIDEO = Path.of("sampleInput/training.mp4");
+
+  @TempDir
+  Path tempDir;
+
+  /**
+   * Rewrites an MP4 file as a fragmented recording the way a camera would write it:
+   * ftyp, a moov with an mvex box, then a moof/mdat pair per fragment and, if the
+   * recording is finished, an mfra box. The source's sample tables are left in the moov;
+   * a fragmented reader only uses its sample entry.
+   *
+   * @return the parts of the file in order: the header, each fragment, and the mfra box if finished
+   */
+  static List<byte[]> fragmentedParts(Path source, int samplesPerFragment, boolean finished) throws IOException {
+    List<byte[]> parts = new ArrayList<>();
+    MovieBox moov = MP4Util.parseMovie(source.toFile());
+    int trackId = moov.getVideoTrack().getTrackHeader().getTrackId();
+    MovieExtendsBox mvex = MovieExtendsBox.createMovieExtendsBox();
+    TrackExtendsBox trex = TrackExtendsBox.createTrackExtendsBox();
+    trex.setTrackId(trackId);
+    trex.setDefaultSampleDescriptionIndex(1);
+    mvex.add(trex);
+    moov.add(mvex);
+
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    ByteBuffer ftyp = ByteBuffer.allocate(20);
+    ftyp.putInt(20).put(ascii("ftyp")).put(ascii("isom")).putInt(0x200).put(ascii("isom"));
+    header.writeBytes(ftyp.array());
+    header.writeBytes(toArray(MP4Util.writeBox(moov, 1 << 20)));
+    parts.add(header.toByteArray());
+
+    try (SeekableByteChannel channel = NIOUtils.readableChannel(source.toFile())) {
+      DemuxerTrack track = MP4Demuxer.createRawMP4Demuxer(channel).getVideoTrack();
+      List<Packet> fragment = new ArrayList<>();
+      int sequence = 1;
+      for (Packet packet = track.nextFrame(); packet != null; packet = track.nextFrame()) {
+        fragment.add(Packet.createPacketWithData(packet, NIOUtils.clone(packet.getData())));
+        if (fragment.size() == samplesPerFragment) {
+          parts.add(fragment(sequence++, trackId, fragment));
+          fragment.clear();
+        }
+      }
+      if (!fragment.isEmpty()) parts.add(fragment(sequence, trackId, fragment));
+    }
+
+    if (finished) {
+      ByteBuffer mfra = ByteBuffer.allocate(24);
+      mfra.putInt(24).put(ascii("mfra")).putInt(16).put(ascii("mfro")).putInt(0).putInt(24);
+      parts.add(mfra.array());
+    }
+    return parts;
+  }
+
+  /** Writes the parts of a fragmented recording to a file. */
+  static Path writeFragmented(Path target, List<byte[]> parts) throws IOException {
+    try (OutputStream out = Files.newOutputStream(target)) {
+      for (byte[] part : parts) {
+        out.write(part);
+      }
+    }
+    return target;
+  }
+
+  /** Builds a moof box with one track run whose offsets are relative to the moof, and its mdat. */
+  private static byte[] fragment(int sequence, int trackId, List<Packet> samples) {
+    int count = samples.size();
+    int trunSize = 20 + 8 * count;
+    int trafSize = 8 + 16 + 20 + trunSize;
+    int moofSize = 8 + 16 + trafSize;
+    int dataSize = samples.stream().mapToInt(sample -> sample.getData().remaining()).sum();
+
+    ByteBuffer out = ByteBuffer.allocate(moofSize + 8 + dataSize);
+    out.putInt(moofSize).put(ascii("moof"));
+    out.putInt(16).put(ascii("mfhd")).putInt(0).putInt(sequence);
+    out.putInt(trafSize).put(ascii("traf"));
+    // default-base-is-moof
+    out.putInt(16).put(ascii("tfhd")).putInt(0x020000).putInt(trackId);
+    out.putInt(20).put(ascii("tfdt")).putInt(1 << 24).putLong(samples.get(0).getPts());
+    // data-offset, sample-duration and sample-size present
+    out.putInt(trunSize).put(ascii("trun")).putInt(0x000301).putInt(count).putInt(moofSize + 8);
+    for (Packet sample : samples) {
+      out.putInt((int) sample.getDuration()).putInt(sample.getData().remaining());
+    }
+    out.putInt(8 + dataSize).put(ascii("mdat"));
+    for (Packet sample : samples) {
+      out.put(sample.getData().duplicate());
+    }
+    return out.array();
+  }
+
+  private static byte[] ascii(String fourcc) {
+    return fourcc.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static byte[] toArray(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+
+  /** Returns the luma plane of every frame the reader decodes. */
+  private static List<byte[]> lumaPlanes(FrameReader reader) throws IOException {
+    List<byte[]> planes = new ArrayList<>();
+    try (reader) {
+      for (Picture frame = reader.readFrame(); frame != null; frame = reader.readFrame()) {
+        planes.add(frame.getPlaneData(0).clone());
+      }
+    }
+    return planes;
+  }
+
+  @Test
+  void readFrame_decodesTheSameFramesAsTheUnfragmentedFile() throws Exception {
+    Path video = writeFragmented(tempDir.resolve("recording.mp4"), fragmentedParts(SAMPLE_VIDEO, 10, true));
+
+    List<byte[]> expected = lumaPlanes(new Mp4VideoProcessor(SAMPLE_VIDEO.toFile()).openFrames());
+    List<byte[]> actual = lumaPlanes(FragmentedMp4FrameReader.open(video, 0, null));
+
+    assertEquals(30, actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertArrayEquals(expected.get(i), actual.get(i), "frame " + i);
+    }
+  }
+
+  @Test
+  void open_readsSizeAndFrameRateOfTheVideoTrack() throws Exception {
+    Path video = writeFragmented(tempDir.resolve("recording.mp4"), fragmentedParts(SAMPLE_VIDEO, 10, true));
+    Mp4VideoProcessor source = new Mp4VideoProcessor(SAMPLE_VIDEO.toFile());
+
+    try (FragmentedMp4FrameReader reader = FragmentedMp4FrameReader.open(video, 0, null)) {
+      assertEquals(source.getWidth(), reader.getWidth());
+      assertEquals(source.getHeight(), reader.getHeight());
+      assertEquals(source.getFps(), reader.getFps(), 1e-9);
+    }
+  }
+
+  @Test
+  void readFrame_followsARecordingAsItIsWritten_untilTheEndMarkerAppears() throws Exception {
+    List<byte[]> parts = fragmentedParts(SAMPLE_VIDEO, 5, false);
+    Path video = tempDir.resolve("recording.mp4");
+    Path marker = tempDir.resolve("recording.done");
+    Files.createFile(video);
+
+    Thread recorder = Thread.ofPlatform().start(() -> {
+      try (OutputStream out = Files.newOutputStream(video)) {
+        for (byte[] part : parts) {
+          // Write every part in two halves so the reader sees boxes cut in the middle
+          int half = part.length / 2;
+          Thread.sleep(40);
+          out.write(part, 0, half);
+          out.flush();
+          Thread.sleep(40);
+          out.write(part, half, part.length - half);
+          out.flush();
+        }
+        Files.createFile(marker);
+      } catch (IOException | InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    });
+
+    long start = System.nanoTime();
+    List<byte[]> frames = lumaPlanes(FragmentedMp4FrameReader.open(video, 10_000, marker));
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+    recorder.join();
+
+    assertEquals(30, frames.size());
+    assertTrue(elapsedMillis < 10_000, "the end marker should stop the reader before the idle timeout");
+  }
+
+  @Test
+  void readFrame_stopsAtTheMfraBoxWithoutWaiting() throws Exception {
+    List<byte[]> parts = new ArrayList<>(fragmentedParts(SAMPLE_VIDEO, 10, true));
+    // Anything after the mfra box is never read
+    parts.add(new byte[] {0, 0, 0, 100, 'j', 'u', 'n', 'k'});
+    Path video = writeFragmented(tempDir.resolve("recording.mp4"), parts);
+
+    long start = System.nanoTime();
+    List<byte[]> frames = lumaPlanes(FragmentedMp4FrameReader.open(video, 10_000, null));
+
+    assertEquals(30, frames.size());
+    assertTrue((System.nanoTime() - start) / 1_000_000 < 10_000);
+  }
+
+  @Test
+  void readFrame_stopsAfterTheIdleTimeout() throws Exception {
+    Path video = writeFragmented(tempDir.resolve("recording.mp4"), fragmentedParts(SAMPLE_VIDEO, 10, false));
+
+    long start = System.nanoTime();
+    List<byte[]> frames = lumaPlanes(FragmentedMp4FrameReader.open(video, 300, null));
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+    assertEquals(30, frames.size());
+    assertTrue(elapsedMillis >= 300, "the reader should wait for more data before giving up");
+  }
+
+  @Test
+  void readFrame_dropsAFragmentCutShortByTheEndOfTheRecording() throws Exception {
+    List<byte[]> parts = fragmentedParts(SAMPLE_VIDEO, 10, false);
+    byte[] second = parts.get(2);
+    parts.set(2, Arrays.copyOf(second, 20));
+    Path video = writeFragmented(tempDir.resolve("recording.mp4"), parts.subList(0, 3));
+
+    try (FragmentedMp4FrameReader reader = FragmentedMp4FrameReader.open(video, 0, null)) {
+      for (int i = 0; i < 10; i++) {
+        reader.readFrame();
+      }
+      assertNull(reader.readFrame());
+    }
+  }
+
+  @Test
+  void open_rejectsAnUnfragmentedFile() {
+    IOException e = assertThrows(IOException.class, () -> FragmentedMp4FrameReader.open(SAMPLE_VIDEO, 0, null));
+    assertTrue(e.getMessage().contains("Not a fragmented MP4"));
+  }
+
+  @Test
+  void open_rejectsAFileThatEndsBeforeTheMovieHeader() throws Exception {
+    Path video = tempDir.resolve("empty.mp4");
+    Files.write(video, Arrays.copyOf(fragmentedParts(SAMPLE_VIDEO, 10, false).get(0), 20));
+
+    assertThrows(IOException.class, () -> FragmentedMp4FrameReader.open(video, 0, null));
+  }
+
+  @Test
+  void open_rejectsNegativeIdleTimeout() {
+    assertThrows(IllegalArgumentException.class,
+        () -> FragmentedMp4FrameReader.open(SAMPLE_VIDEO, -1, null));
+  }
+}
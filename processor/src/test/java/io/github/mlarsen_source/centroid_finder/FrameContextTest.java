@@ -0,0 +1,114 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import org.jcodec.common.model.ColorSpace;
+import org.jcodec.common.model.Picture;
+import org.jcodec.scale.AWTUtil;
+import org.junit.jupiter.api.Test;
+
+public class FrameContextTest {
+
+  private static Picture createYuvPicture(int width, int height) {
+    BufferedImage source = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+    Graphics2D g = source.createGraphics();
+    try {
+      g.setColor(new Color(20, 40, 60));
+      g.fillRect(0, 0, width, height);
+      g.setColor(Color.RED);
+      g.fillRect(width / 4, height / 4, width / 8, height / 8);
+      g.setColor(Color.RED);
+      g.fillRect(width / 2, height / 2, width / 16, height / 16);
+    } finally {
+      g.dispose();
+    }
+    return AWTUtil.fromBufferedImage(source, ColorSpace.YUV420J);
+  }
+
+  @Test
+  void toBufferedImage_matchesAwtUtilConversion() {
+    Picture picture = createYuvPicture(64, 48);
+    BufferedImage expected = AWTUtil.toBufferedImage(picture);
+
+    BufferedImage actual = new FrameContext().toBufferedImage(picture);
+
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    for (int y = 0; y < expected.getHeight(); y++) {
+      for (int x = 0; x < expected.getWidth(); x++) {
+        assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel (" + x + "," + y + ")");
+      }
+    }
+  }
+
+  @Test
+  void buffers_areReusedForFramesOfTheSameSize() {
+    FrameContext context = new FrameContext();
+    Picture picture = createYuvPicture(32, 32);
+
+    assertSame(context.toBufferedImage(picture), context.toBufferedImage(picture));
+    assertSame(context.mask(4, 5), context.mask(4, 5));
+    assertSame(context.queue(10), context.queue(8));
+  }
+
+  @Test
+  void visited_isClearedBetweenRequests() {
+    FrameContext context = new FrameContext();
+    boolean[][] visited = context.visited(2, 2);
+    visited[1][1] = true;
+
+    boolean[][] again = context.visited(2, 2);
+    assertSame(visited, again);
+    assertEquals(false, again[1][1]);
+  }
+
+  @Test
+  void release_dropsTheCallingThreadsContext() {
+    FrameContext context = FrameContext.current();
+    assertSame(context, FrameContext.current());
+
+    FrameContext.release();
+
+    assertNotSame(context, FrameContext.current());
+  }
+
+  @Test
+  void steadyStatePipeline_allocatesAlmostNothingPerFrame() {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().threadId();
+
+    int width = 640;
+    int height = 480;
+    Picture picture = createYuvPicture(width, height);
+    ImageGroupFinder finder = new BinarizingImageGroupFinder(
+        new DistanceImageBinarizer(new EuclideanColorDistance(), 0xFF0000, 100),
+        new BfsBinaryGroupFinder());
+    FrameContext context = FrameContext.current();
+
+    for (int i = 0; i < 50; i++) {
+      finder.findConnectedGroups(context.toBufferedImage(picture));
+    }
+
+    int frames = 20;
+    long before = threads.getThreadAllocatedBytes(threadId);
+    List<Group> groups = null;
+    for (int i = 0; i < frames; i++) {
+      groups = finder.findConnectedGroups(context.toBufferedImage(picture));
+    }
+    long perFrame = (threads.getThreadAllocatedBytes(threadId) - before) / frames;
+
+    assertEquals(2, groups.size());
+    long frameBytes = (long) width * height * 3;
+    assertTrue(perFrame < frameBytes / 100,
+        "Expected under 1% of a frame allocated per frame but was " + perFrame + " bytes");
+  }
+}
@@ -0,0 +1,73 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FrameRangeVideoProcessorTest {
+
+  private static final String VIDEO = "sampleInput/training.mp4";
+
+  @TempDir
+  Path tempDir;
+
+  private List<String> run(String name, int startFrame, int endFrame) throws Exception {
+    ProcessingOptions options = new ProcessingOptions();
+    options.setDecoder(FrameDecoder.JCODEC);
+    options.setTopK(2);
+    if (startFrame > 0) options.setStartFrame(startFrame);
+    if (endFrame > 0) options.setEndFrame(endFrame);
+    Path output = tempDir.resolve(name + ".csv");
+    new VideoProcessingAppRunner().processVideo(VIDEO, output.toString(), 0xFFA500, 60, options);
+    return Files.readAllLines(output);
+  }
+
+  @Test
+  void processVideo_rangesConcatenateToWholeVideo() throws Exception {
+    List<String> whole = run("whole", 0, -1);
+    List<String> joined = new ArrayList<>(run("first", 0, 25));
+    joined.addAll(run("second", 25, -1));
+    assertEquals(whole, joined);
+  }
+
+  @Test
+  void processVideo_rangeBetweenKeyframesKeepsTimestamps() throws Exception {
+    List<String> whole = run("whole", 0, -1);
+    List<String> middle = run("middle", 10, 20);
+    // Frames 10 to 19 counted from 0 are frames 11 to 20 of the whole run
+    Mp4VideoProcessor video = new Mp4VideoProcessor(new File(VIDEO));
+    double first = video.getTime(11) - 1e-6;
+    double last = video.getTime(20) + 1e-6;
+    List<String> expected = whole.stream()
+        .filter(row -> {
+          double time = Double.parseDouble(row.split(",")[0]);
+          return time >= first && time <= last;
+        })
+        .toList();
+    assertEquals(expected, middle);
+  }
+
+  @Test
+  void constructor_rejectsRangeOutsideVideo() throws Exception {
+    Mp4VideoProcessor video = new Mp4VideoProcessor(new File(VIDEO));
+    assertEquals(30, video.getTotalFrames());
+    assertEquals(5, new FrameRangeVideoProcessor(video, 25, 40).getTotalFrames());
+    assertThrows(IllegalArgumentException.class, () -> new FrameRangeVideoProcessor(video, 30, -1));
+    assertThrows(IllegalArgumentException.class, () -> new FrameRangeVideoProcessor(video, 5, 5));
+  }
+
+  @Test
+  void getKeyframes_listsSyncSamples() throws Exception {
+    assertEquals(List.of(0, 25), Arrays.stream(new Mp4VideoProcessor(new File(VIDEO)).getKeyframes())
+        .boxed().toList());
+  }
+}
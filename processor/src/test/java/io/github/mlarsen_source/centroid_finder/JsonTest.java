@@ -0,0 +1,55 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class JsonTest {
+
+  @Test
+  void parseObject_readsNestedValuesInOrder() {
+    Map<String, Object> object = Json.parseObject(
+        "{ \"name\": \"a\\\"b\\u0041\", \"count\": 3, \"ratio\": -1.5e0, \"ok\": true,"
+        + " \"none\": null, \"list\": [1, \"x\", {}], \"inner\": {\"k\": false} }");
+
+    assertEquals(List.of("name", "count", "ratio", "ok", "none", "list", "inner"), List.copyOf(object.keySet()));
+    assertEquals("a\"bA", object.get("name"));
+    assertEquals(3L, object.get("count"));
+    assertEquals(-1.5, object.get("ratio"));
+    assertEquals(true, object.get("ok"));
+    assertNull(object.get("none"));
+    assertEquals(List.of(1L, "x", Map.of()), object.get("list"));
+    assertEquals(Map.of("k", false), object.get("inner"));
+  }
+
+  @Test
+  void parse_rejectsMalformedInput() {
+    assertThrows(IllegalArgumentException.class, () -> Json.parse("{\"a\":}"));
+    assertThrows(IllegalArgumentException.class, () -> Json.parse("{\"a\":1} x"));
+    assertThrows(IllegalArgumentException.class, () -> Json.parse("\"open"));
+    assertThrows(IllegalArgumentException.class, () -> Json.parseObject("[1]"));
+  }
+
+  @Test
+  void write_producesSingleLineThatParsesBack() {
+    Map<String, Object> object = new LinkedHashMap<>();
+    object.put("text", "line\nbreak \"quoted\"");
+    object.put("count", 42);
+    object.put("fps", 29.97);
+    object.put("whole", 2.0);
+    object.put("missing", Double.NaN);
+    object.put("items", List.of(1, true));
+
+    String json = Json.write(object);
+
+    assertEquals("{\"text\":\"line\\nbreak \\\"quoted\\\"\",\"count\":42,\"fps\":29.97,\"whole\":2,"
+        + "\"missing\":null,\"items\":[1,true]}", json);
+    assertEquals("line\nbreak \"quoted\"", Json.parseObject(json).get("text"));
+  }
+}
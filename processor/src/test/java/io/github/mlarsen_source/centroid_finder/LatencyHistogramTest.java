@@ -0,0 +1,61 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  void bucketBounds_coverEveryValueWithoutGaps() {
+    long previousUpper = -1;
+    for (int bucket = 0; bucket < 40 * 32; bucket++) {
+      long upper = LatencyHistogram.upperBound(bucket);
+      assertEquals(bucket, LatencyHistogram.bucketOf(previousUpper + 1));
+      assertEquals(bucket, LatencyHistogram.bucketOf(upper));
+      previousUpper = upper;
+    }
+    assertEquals(LatencyHistogram.bucketOf(Long.MAX_VALUE), 59 * 32 - 1);
+  }
+
+  @Test
+  void percentile_isWithinRelativePrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 1; value <= 10_000; value++) {
+      histogram.record(value * 1_000);
+    }
+    assertWithin(5_000_000, histogram.percentile(50));
+    assertWithin(9_500_000, histogram.percentile(95));
+    assertWithin(9_900_000, histogram.percentile(99));
+    assertEquals(10_000_000, histogram.percentile(100));
+  }
+
+  @Test
+  void summary_tracksCountTotalMaxAndMean() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.percentile(50));
+    assertEquals(0, histogram.mean());
+
+    histogram.record(10);
+    histogram.record(30);
+    histogram.record(-5);
+    assertEquals(3, histogram.count());
+    assertEquals(40, histogram.total());
+    assertEquals(30, histogram.max());
+    assertEquals(40 / 3.0, histogram.mean(), 1e-9);
+    assertEquals(10, histogram.percentile(50));
+  }
+
+  @Test
+  void percentile_rejectsOutOfRange() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertThrows(IllegalArgumentException.class, () -> histogram.percentile(-1));
+    assertThrows(IllegalArgumentException.class, () -> histogram.percentile(100.5));
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue(Math.abs(actual - expected) <= expected * 0.035, "expected about " + expected + " but was " + actual);
+  }
+}
@@ -0,0 +1,120 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedFileChannelTest {
+
+  @TempDir
+  Path tempDir;
+
+  private Path createFile(int length) throws IOException {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (i * 31 + 7);
+    }
+    Path file = tempDir.resolve("data.bin");
+    Files.write(file, data);
+    return file;
+  }
+
+  private static byte[] readFully(MappedFileChannel channel, int chunkSize) throws IOException {
+    ByteBuffer out = ByteBuffer.allocate((int) channel.size());
+    ByteBuffer chunk = ByteBuffer.allocate(chunkSize);
+    while (channel.read(chunk) != -1) {
+      chunk.flip();
+      out.put(chunk);
+      chunk.clear();
+    }
+    return out.array();
+  }
+
+  @Test
+  void read_returnsFileContents_acrossWindowBoundaries() throws IOException {
+    Path file = createFile(10_000);
+    byte[] expected = Files.readAllBytes(file);
+
+    try (MappedFileChannel channel = new MappedFileChannel(file, 1024, false)) {
+      assertArrayEquals(expected, readFully(channel, 700));
+    }
+  }
+
+  @Test
+  void read_withReadAhead_returnsSameContents() throws IOException {
+    Path file = createFile(10_000);
+    byte[] expected = Files.readAllBytes(file);
+
+    try (MappedFileChannel channel = new MappedFileChannel(file, 1024, true)) {
+      assertArrayEquals(expected, readFully(channel, 333));
+    }
+  }
+
+  @Test
+  void setPosition_readsFromArbitraryOffsets() throws IOException {
+    Path file = createFile(5_000);
+    byte[] expected = Files.readAllBytes(file);
+
+    try (MappedFileChannel channel = new MappedFileChannel(file, 512, true)) {
+      for (int offset : new int[] { 4000, 10, 1020, 4990, 0 }) {
+        channel.setPosition(offset);
+        ByteBuffer buffer = ByteBuffer.allocate(100);
+        int read = channel.read(buffer);
+        int expectedRead = Math.min(100, expected.length - offset);
+        assertEquals(expectedRead, read);
+        assertArrayEquals(Arrays.copyOfRange(expected, offset, offset + expectedRead),
+            Arrays.copyOf(buffer.array(), read));
+        assertEquals(offset + expectedRead, channel.position());
+      }
+    }
+  }
+
+  @Test
+  void read_returnsMinusOne_atOrPastEndOfFile() throws IOException {
+    Path file = createFile(100);
+
+    try (MappedFileChannel channel = new MappedFileChannel(file, 64, false)) {
+      channel.setPosition(100);
+      assertEquals(-1, channel.read(ByteBuffer.allocate(10)));
+      channel.setPosition(500);
+      assertEquals(-1, channel.read(ByteBuffer.allocate(10)));
+    }
+  }
+
+  @Test
+  void write_andTruncate_areRejected() throws IOException {
+    Path file = createFile(100);
+
+    try (MappedFileChannel channel = new MappedFileChannel(file, false)) {
+      assertThrows(NonWritableChannelException.class, () -> channel.write(ByteBuffer.allocate(1)));
+      assertThrows(NonWritableChannelException.class, () -> channel.truncate(0));
+    }
+  }
+
+  @Test
+  void close_preventsFurtherReads() throws IOException {
+    Path file = createFile(100);
+    MappedFileChannel channel = new MappedFileChannel(file, false);
+    channel.close();
+
+    assertFalse(channel.isOpen());
+    assertThrows(ClosedChannelException.class, () -> channel.read(ByteBuffer.allocate(1)));
+  }
+
+  @Test
+  void constructor_throwsWhenFileMissing() {
+    assertThrows(IOException.class, () -> new MappedFileChannel(tempDir.resolve("missing.mp4"), false));
+  }
+}
@@ -0,0 +1,115 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OccupancyGridTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void add_countsFramesPerCellAndThePathLength() {
+    OccupancyGrid grid = new OccupancyGrid(100, 50, 10, 10);
+
+    grid.add(1, 5, 5, 1);
+    grid.add(2, 8, 9, 1);
+    grid.add(3, 25, 45, 1);
+
+    assertEquals(10, grid.columns());
+    assertEquals(5, grid.rows());
+    assertEquals(2, grid.frames(0, 0));
+    assertEquals(1, grid.frames(2, 4));
+    assertEquals(3, grid.framesInFrame());
+    assertEquals(5 + Math.hypot(17, 36), grid.pathLength(), 1e-9);
+  }
+
+  @Test
+  void add_skipsTheStep_whenTheTargetLeftTheFrame() {
+    OccupancyGrid grid = new OccupancyGrid(100, 50, 10, 10);
+
+    grid.add(1, 5, 5, 1);
+    grid.add(5, 95, 45, 1);
+
+    assertEquals(0.0, grid.pathLength());
+    assertEquals(2, grid.framesInFrame());
+  }
+
+  @Test
+  void add_weightsASampleByTheFramesItStandsFor() {
+    OccupancyGrid grid = new OccupancyGrid(100, 50, 10, 10);
+
+    // Every fourth frame is sampled while the target stands still
+    grid.add(1, 5, 5, 4);
+    grid.add(5, 6, 5, 4);
+    grid.add(9, 7, 5, 4);
+    grid.add(10, 7, 5, 4);
+
+    assertEquals(10, grid.frames(0, 0));
+    assertEquals(10, grid.framesInFrame());
+    assertEquals(2.0, grid.pathLength(), 1e-9);
+  }
+
+  @Test
+  void add_clampsPositionsOnTheFrameEdgeIntoTheLastCell() {
+    OccupancyGrid grid = new OccupancyGrid(95, 50, 10, 10);
+
+    grid.add(1, 95, 50, 1);
+
+    assertEquals(1, grid.frames(9, 4));
+  }
+
+  @Test
+  void toImage_scalesTheBusiestCellToWhite() {
+    OccupancyGrid grid = new OccupancyGrid(20, 10, 10, 10);
+    for (int frame = 1; frame <= 4; frame++) grid.add(frame, 1, 1, 1);
+    grid.add(5, 15, 1, 1);
+
+    BufferedImage image = grid.toImage();
+
+    assertEquals(2, image.getWidth());
+    assertEquals(1, image.getHeight());
+    assertEquals(0xFFFF, image.getRaster().getSample(0, 0, 0));
+    assertEquals(0x4000, image.getRaster().getSample(1, 0, 0));
+  }
+
+  @Test
+  void writeReport_writesThePngAndSummaryNextToTheCsv() throws Exception {
+    OccupancyGrid grid = new OccupancyGrid(40, 20, 10, 20);
+    for (int frame = 1; frame <= 30; frame++) grid.add(frame, 32, 12, 1);
+    String output = tempDir.resolve("out.csv").toString();
+
+    grid.writeReport(output);
+
+    BufferedImage image = ImageIO.read(tempDir.resolve("out.heatmap.png").toFile());
+    assertEquals(4, image.getWidth());
+    assertEquals(2, image.getHeight());
+    assertEquals(0xFFFF, image.getRaster().getSample(3, 1, 0));
+    assertEquals(0, image.getRaster().getSample(0, 0, 0));
+
+    assertEquals(tempDir.resolve("out.heatmap.json"), OccupancyGrid.reportPathFor(output));
+    Map<String, Object> summary = Json.parseObject(Files.readString(OccupancyGrid.reportPathFor(output)).strip());
+    assertEquals(30L, summary.get("framesInFrame"));
+    assertEquals(1.5, summary.get("timeInFrameSeconds"));
+    assertEquals(3L, summary.get("busiestColumn"));
+    assertEquals(1L, summary.get("busiestRow"));
+    assertEquals("out.heatmap.png", summary.get("heatmap"));
+  }
+
+  @Test
+  void constructor_rejectsInvalidSizes() {
+    assertThrows(IllegalArgumentException.class, () -> new OccupancyGrid(0, 50, 10, 10));
+    assertThrows(IllegalArgumentException.class, () -> new OccupancyGrid(100, 50, 0, 10));
+    assertThrows(IllegalArgumentException.class, () -> new OccupancyGrid(100, 50, 10, 0));
+  }
+}
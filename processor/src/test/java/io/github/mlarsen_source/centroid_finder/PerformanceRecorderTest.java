@@ -0,0 +1,57 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PerformanceRecorderTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void report_summarizesFramesAndStages() {
+    PerformanceRecorder recorder = new PerformanceRecorder();
+    recorder.record(Stage.DECODE, 2_000_000);
+    recorder.record(Stage.DECODE, 4_000_000);
+    recorder.record(Stage.WRITE, 1_500_000);
+    recorder.frameProcessed(1, 0, 0, List.of(new Group(5, new Coordinate(1, 1))));
+    recorder.frameProcessed(2, 0, 0, List.of());
+
+    Map<String, Object> report = recorder.report();
+    assertEquals(2L, report.get("frames"));
+    assertEquals(1L, report.get("skippedFrames"));
+
+    Map<?, ?> stages = (Map<?, ?>) report.get("stages");
+    assertEquals(List.of("decode", "convert", "binarize", "label", "write"), List.copyOf(stages.keySet()));
+    Map<?, ?> decode = (Map<?, ?>) stages.get("decode");
+    assertEquals(2L, decode.get("count"));
+    assertEquals(4.0, (Double) decode.get("maxMillis"), 1e-9);
+    assertEquals(6.0, (Double) decode.get("totalMillis"), 1e-9);
+    assertEquals(0L, ((Map<?, ?>) stages.get("label")).get("count"));
+  }
+
+  @Test
+  void writeReport_writesParsableJson() throws Exception {
+    PerformanceRecorder recorder = new PerformanceRecorder();
+    recorder.record(Stage.BINARIZE, 1_000);
+    Path path = tempDir.resolve("out.perf.json");
+    recorder.writeReport(path);
+
+    Map<String, Object> report = Json.parseObject(Files.readString(path).strip());
+    assertTrue(report.containsKey("stages"));
+  }
+
+  @Test
+  void reportPathFor_replacesExtension() {
+    assertEquals(Path.of("a/out.perf.json"), PerformanceRecorder.reportPathFor("a/out.csv"));
+    assertEquals(Path.of("a.b/out.perf.json"), PerformanceRecorder.reportPathFor("a.b/out"));
+  }
+}
@@ -0,0 +1,96 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class ProgressEventWriterTest {
+
+  private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+  private final PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+  private long now;
+
+  private List<Map<String, Object>> events() {
+    List<Map<String, Object>> events = new ArrayList<>();
+    for (String line : bytes.toString(StandardCharsets.UTF_8).split("\n")) {
+      if (!line.isBlank()) events.add(Json.parseObject(line));
+    }
+    return events;
+  }
+
+  /** Advances the fake clock by one 10 ms frame, 4 ms decode and 6 ms analysis. */
+  private void frame(ProgressEventWriter writer, int frameNumber) {
+    now += TimeUnit.MILLISECONDS.toNanos(10);
+    writer.frameProcessed(frameNumber, TimeUnit.MILLISECONDS.toNanos(4), TimeUnit.MILLISECONDS.toNanos(6), List.of());
+  }
+
+  @Test
+  void progressEvents_areRateLimitedAndFlushedBeforeNextPhase() {
+    ProgressEventWriter writer = new ProgressEventWriter(out, 100, () -> now);
+    writer.setTotalFrames(30);
+    writer.phase("processing");
+
+    for (int frame = 1; frame <= 25; frame++) {
+      frame(writer, frame);
+    }
+    writer.phase("writing");
+
+    List<Map<String, Object>> events = events();
+    assertEquals(List.of("phase", "progress", "progress", "progress", "phase"),
+        events.stream().map(e -> e.get("event")).toList());
+
+    Map<String, Object> first = events.get(1);
+    assertEquals(10L, first.get("framesDone"));
+    assertEquals(30L, first.get("totalFrames"));
+    assertEquals(250L, first.get("decodeFps"));
+    assertEquals(166.7, first.get("analysisFps"));
+    assertEquals(0.2, first.get("etaSeconds"));
+
+    assertEquals(25L, events.get(3).get("framesDone"));
+    assertEquals("writing", events.get(4).get("phase"));
+    assertEquals(250L, events.get(4).get("elapsedMillis"));
+  }
+
+  @Test
+  void frameSkipped_countsTowardFramesDoneButNotRates() {
+    ProgressEventWriter writer = new ProgressEventWriter(out, 1000, () -> now);
+    writer.setTotalFrames(4);
+    writer.phase("processing");
+
+    frame(writer, 1);
+    writer.frameSkipped(2);
+    writer.frameSkipped(3);
+    frame(writer, 4);
+    writer.phase("writing");
+
+    Map<String, Object> last = events().get(1);
+    assertEquals("progress", last.get("event"));
+    assertEquals(4L, last.get("framesDone"));
+    assertEquals(250L, last.get("decodeFps"));
+    assertEquals(0L, last.get("etaSeconds"));
+  }
+
+  @Test
+  void failed_reportsError() {
+    ProgressEventWriter writer = new ProgressEventWriter(out, 0, () -> now);
+    writer.failed("cannot decode");
+
+    Map<String, Object> event = events().get(0);
+    assertEquals("failed", event.get("phase"));
+    assertEquals("cannot decode", event.get("error"));
+  }
+
+  @Test
+  void constructor_rejectsNegativeInterval() {
+    assertThrows(IllegalArgumentException.class, () -> new ProgressEventWriter(out, -1));
+  }
+}
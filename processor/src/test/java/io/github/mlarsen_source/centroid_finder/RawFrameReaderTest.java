@@ -0,0 +1,51 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.jcodec.common.model.ColorSpace;
+import org.jcodec.common.model.Picture;
+import org.junit.jupiter.api.Test;
+
+public class RawFrameReaderTest {
+
+  @Test
+  void readFrame_readsPackedFormatsInTheirByteOrder() throws IOException {
+    byte[] rgb = { (byte) 0xFF, (byte) 0xA5, 0x00, 0x20, 0x40, (byte) 0xE0 };
+    try (RawFrameReader reader = new RawFrameReader(new ByteArrayInputStream(rgb), 1, 1, RawPixelFormat.RGB24)) {
+      Picture picture = reader.readFrame();
+      assertEquals(ColorSpace.RGB, picture.getColor());
+      assertEquals(0xFFA500, FrameContext.current().toBufferedImage(picture).getRGB(0, 0) & 0xFFFFFF);
+      assertEquals(0x2040E0, FrameContext.current().toBufferedImage(reader.readFrame()).getRGB(0, 0) & 0xFFFFFF);
+      assertNull(reader.readFrame());
+    }
+
+    byte[] bgr = { 0x00, (byte) 0xA5, (byte) 0xFF };
+    try (RawFrameReader reader = new RawFrameReader(new ByteArrayInputStream(bgr), 1, 1, RawPixelFormat.BGR24)) {
+      assertEquals(0xFFA500, FrameContext.current().toBufferedImage(reader.readFrame()).getRGB(0, 0) & 0xFFFFFF);
+    }
+  }
+
+  @Test
+  void readFrame_throwsWhenStreamEndsInsideAFrame() throws IOException {
+    try (RawFrameReader reader = new RawFrameReader(new ByteArrayInputStream(new byte[5]), 2, 2, RawPixelFormat.YUV420P)) {
+      assertThrows(IOException.class, reader::readFrame);
+      assertNull(reader.readFrame());
+    }
+  }
+
+  @Test
+  void createPicture_checksSizeAgainstChromaSubsampling() {
+    assertEquals(27, RawPixelFormat.RGB24.createPicture(3, 3).getPlaneData(0).length);
+    assertEquals(3, RawPixelFormat.YUV422P.createPicture(2, 3).getPlaneData(1).length);
+    assertThrows(IllegalArgumentException.class, () -> RawPixelFormat.YUV420P.createPicture(2, 3));
+    assertThrows(IllegalArgumentException.class, () -> RawPixelFormat.YUV422P.createPicture(3, 2));
+    assertThrows(IllegalArgumentException.class, () -> RawPixelFormat.BGR24.createPicture(0, 2));
+    assertEquals(RawPixelFormat.GRAY, RawPixelFormat.fromName("gray"));
+    assertThrows(IllegalArgumentException.class, () -> RawPixelFormat.fromName("nv12"));
+  }
+}
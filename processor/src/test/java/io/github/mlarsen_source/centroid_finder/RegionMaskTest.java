@@ -0,0 +1,138 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class RegionMaskTest {
+
+  private static List<Coordinate> polygon(int... coordinates) {
+    Coordinate[] vertices = new Coordinate[coordinates.length / 2];
+    for (int i = 0; i < vertices.length; i++) {
+      vertices[i] = new Coordinate(coordinates[2 * i], coordinates[2 * i + 1]);
+    }
+    return List.of(vertices);
+  }
+
+  @Test
+  void compile_cropGivesOneSpanPerRowAndItsBoundingBox() {
+    RegionMask region = RegionMask.compile(10, 8, new Rectangle(2, 3, 5, 4), null);
+
+    assertEquals(3, region.top());
+    assertEquals(2, region.left());
+    assertEquals(4, region.height());
+    assertEquals(5, region.width());
+    assertEquals(20, region.area());
+    for (int row = 0; row < region.height(); row++) {
+      assertEquals(1, region.endSpan(row) - region.firstSpan(row));
+      assertEquals(2, region.spanFrom(region.firstSpan(row)));
+      assertEquals(7, region.spanTo(region.firstSpan(row)));
+    }
+  }
+
+  @Test
+  void compile_clipsTheCropToTheFrame() {
+    RegionMask region = RegionMask.compile(10, 8, new Rectangle(6, 5, 100, 100), null);
+
+    assertEquals(5, region.top());
+    assertEquals(6, region.left());
+    assertEquals(3, region.height());
+    assertEquals(4, region.width());
+  }
+
+  @Test
+  void compile_includesPixelsWhoseCentersAreInsideThePolygon() {
+    // A right triangle with its right angle at the top-left corner
+    RegionMask region = RegionMask.compile(8, 8, null, polygon(0, 0, 8, 0, 0, 8));
+
+    for (int y = 0; y < 8; y++) {
+      for (int x = 0; x < 8; x++) {
+        assertEquals(x + y + 1 < 8, region.contains(x, y), x + "," + y);
+      }
+    }
+    assertEquals(28, region.area());
+  }
+
+  @Test
+  void compile_splitsRowsOfAConcavePolygonIntoSeveralSpans() {
+    // A U shape: two 2-pixel columns joined along the bottom two rows
+    RegionMask region = RegionMask.compile(6, 6, null, polygon(0, 0, 2, 0, 2, 4, 4, 4, 4, 0, 6, 0, 6, 6, 0, 6));
+
+    assertEquals(2, region.endSpan(0) - region.firstSpan(0));
+    assertEquals(1, region.endSpan(5) - region.firstSpan(5));
+    assertTrue(region.contains(1, 1));
+    assertFalse(region.contains(3, 1));
+    assertTrue(region.contains(3, 5));
+  }
+
+  @Test
+  void compile_intersectsCropAndPolygon() {
+    RegionMask region = RegionMask.compile(8, 8, new Rectangle(0, 0, 4, 8), polygon(0, 0, 8, 0, 0, 8));
+
+    assertTrue(region.contains(3, 0));
+    assertFalse(region.contains(4, 0));
+    assertFalse(region.contains(3, 5));
+    assertEquals(4, region.width());
+  }
+
+  @Test
+  void compile_rejectsRegionsWithoutPixels() {
+    assertThrows(IllegalArgumentException.class, () -> RegionMask.compile(10, 8, new Rectangle(20, 20, 5, 5), null));
+    assertThrows(IllegalArgumentException.class, () -> RegionMask.compile(10, 8, null, polygon(0, 0, 5, 0, 9, 0)));
+    assertThrows(IllegalArgumentException.class, () -> RegionMask.compile(10, 8, null, polygon(0, 0, 5, 5)));
+    assertThrows(IllegalArgumentException.class, () -> RegionMask.compile(0, 8, null, null));
+  }
+
+  @Test
+  void compile_splitsSpansAroundExcludedBackgroundPixels() {
+    BitSet excluded = new BitSet();
+    // Columns 3 and 4 of row 2, and all of row 0
+    excluded.set(2 * 8 + 3, 2 * 8 + 5);
+    excluded.set(0, 8);
+    StaticBackgroundMask background = new StaticBackgroundMask(8, 4, excluded, 1);
+
+    RegionMask region = RegionMask.compile(8, 4, new Rectangle(1, 0, 6, 4), null, background);
+
+    assertEquals(1, region.top());
+    assertEquals(3, region.height());
+    assertEquals(2, region.endSpan(1) - region.firstSpan(1));
+    assertEquals(1, region.spanFrom(region.firstSpan(1)));
+    assertEquals(3, region.spanTo(region.firstSpan(1)));
+    assertEquals(5, region.spanFrom(region.firstSpan(1) + 1));
+    assertEquals(7, region.spanTo(region.firstSpan(1) + 1));
+    assertFalse(region.contains(3, 2));
+    assertTrue(region.contains(3, 1));
+    assertEquals(16, region.area());
+  }
+
+  @Test
+  void compile_rejectsABackgroundMaskOfAnotherFrameSize() {
+    StaticBackgroundMask background = new StaticBackgroundMask(8, 4, new BitSet(), 1);
+
+    assertThrows(IllegalArgumentException.class, () -> RegionMask.compile(8, 5, null, null, background));
+  }
+
+  @Test
+  void extract_copiesTheRegionAndClearsTheRestOfTheBox() {
+    RegionMask region = RegionMask.compile(4, 4, null, polygon(0, 0, 5, 0, 0, 5));
+    int[][] binary = new int[4][4];
+    for (int[] row : binary) Arrays.fill(row, 1);
+    int[][] reuse = new int[4][4];
+    for (int[] row : reuse) Arrays.fill(row, 7);
+
+    int[][] box = region.extract(binary, reuse);
+
+    assertSame(reuse, box);
+    assertArrayEquals(new int[][] {{1, 1, 1, 1}, {1, 1, 1, 0}, {1, 1, 0, 0}, {1, 0, 0, 0}}, box);
+  }
+}
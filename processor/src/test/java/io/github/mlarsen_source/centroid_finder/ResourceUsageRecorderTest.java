@@ -0,0 +1,84 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ResourceUsageRecorderTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void report_measuresWorkOnTheJobThread() {
+    ResourceUsageRecorder recorder = new ResourceUsageRecorder();
+    recorder.setInput(1920, 1080, 10);
+    long sum = 0;
+    for (int i = 0; i < 1_000; i++) {
+      sum += new int[1024].length;
+    }
+    recorder.finish();
+
+    Map<String, Object> report = recorder.report();
+    assertEquals(1024_000, sum);
+    assertEquals(List.of("width", "height", "frames", "megapixelFrames", "wallMillis", "processCpuMillis",
+        "threadCpuMillis", "allocatedBytes", "allocatedBytesPerFrame", "stripeCpuMillis", "stripeAllocatedBytes",
+        "peakHeapBytes", "gcCount", "gcMillis"),
+        List.copyOf(report.keySet()));
+    assertEquals(20.736, (Double) report.get("megapixelFrames"), 1e-9);
+    assertTrue((Long) report.get("allocatedBytes") >= 4_000_000L, "allocation of the loop should be counted");
+    assertTrue((Long) report.get("peakHeapBytes") > 0);
+    assertTrue((Double) report.get("threadCpuMillis") >= 0);
+  }
+
+  @Test
+  void processVideo_writesResourceReportNextToCsv_whenEnabled() throws Exception {
+    ProcessingOptions options = new ProcessingOptions();
+    options.setResourceReport(true);
+    new VideoProcessingAppRunner().processVideo("sampleInput/training.mp4",
+        tempDir.resolve("training.csv").toString(), 0xFFA500, 60, options);
+
+    Map<String, Object> report = Json.parseObject(Files.readString(tempDir.resolve("training.resources.json")).strip());
+    assertEquals(320L, report.get("width"));
+    assertEquals(240L, report.get("height"));
+    assertEquals(30L, report.get("frames"));
+    assertTrue((Long) report.get("allocatedBytes") > 0);
+  }
+
+  @Test
+  void report_addsTheWorkOfStripePoolThreadsSeparately() {
+    ResourceUsageRecorder recorder = new ResourceUsageRecorder();
+    ForkJoinPool pool = new ForkJoinPool(2, recorder.workerThreadFactory(), null, false);
+    try {
+      long sum = pool.submit(() -> {
+        long total = 0;
+        for (int i = 0; i < 1_000; i++) {
+          total += new int[1024].length;
+        }
+        return total;
+      }).join();
+      assertEquals(1024_000, sum);
+      recorder.finish();
+    } finally {
+      pool.shutdown();
+    }
+
+    Map<String, Object> report = recorder.report();
+    assertTrue((Long) report.get("stripeAllocatedBytes") >= 4_000_000L, "allocation on the pool should be counted");
+    assertTrue((Long) report.get("allocatedBytes") < 4_000_000L, "the pool's allocation is not the job thread's");
+    assertTrue((Double) report.get("stripeCpuMillis") >= 0);
+  }
+
+  @Test
+  void reportPathFor_replacesExtension() {
+    assertEquals(Path.of("a/out.resources.json"), ResourceUsageRecorder.reportPathFor("a/out.csv"));
+  }
+}
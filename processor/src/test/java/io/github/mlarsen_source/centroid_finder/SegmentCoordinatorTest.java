@@ -0,0 +1,211 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.jcodec.api.JCodecException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SegmentCoordinatorTest {
+
+  private static final SyntheticVideoGenerator.ClipSpec CLIP =
+      new SyntheticVideoGenerator.ClipSpec("segments", 160, 128, 100, 25, 2, 0, 11);
+
+  @TempDir
+  Path tempDir;
+
+  private final AtomicBoolean stop = new AtomicBoolean();
+
+  private final List<Thread> workers = new ArrayList<>();
+
+  @AfterEach
+  void stopWorkers() throws InterruptedException {
+    stop.set(true);
+    for (Thread worker : workers) {
+      worker.join();
+    }
+  }
+
+  /** Starts a worker thread that takes jobs from the spool like a worker on another machine. */
+  private void startWorker(VideoProcessingAppRunner runner, SegmentSpool spool) {
+    SegmentWorker worker = new SegmentWorker(runner, spool);
+    Thread thread = new Thread(() -> {
+      try {
+        while (!stop.get()) {
+          if (!worker.processNext()) Thread.sleep(10);
+        }
+      } catch (IOException | InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    thread.start();
+    workers.add(thread);
+  }
+
+  private Path writeClip() throws IOException {
+    SyntheticVideoGenerator.writeClip(CLIP, tempDir);
+    return SyntheticVideoGenerator.videoPath(CLIP, tempDir);
+  }
+
+  private String singleProcessCsv(Path video) throws Exception {
+    Path output = tempDir.resolve("single.csv");
+    ProcessingOptions options = new ProcessingOptions();
+    options.setDecoder(FrameDecoder.JCODEC);
+    options.setTopK(2);
+    new VideoProcessingAppRunner().processVideo(video.toString(), output.toString(),
+        SyntheticVideoGenerator.TARGET_COLOR, SyntheticVideoGenerator.THRESHOLD, options);
+    return Files.readString(output);
+  }
+
+  private String[] jobArgs(Path video, Path output) {
+    return new String[] { video.toString(), output.toString(), "FFA500",
+        String.valueOf(SyntheticVideoGenerator.THRESHOLD), "--top-k", "2" };
+  }
+
+  private static long fileCount(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+
+  @Test
+  void coordinate_mergesSegmentsIntoSingleProcessCsv() throws Exception {
+    Path video = writeClip();
+    SegmentSpool spool = new SegmentSpool(tempDir.resolve("spool"));
+    startWorker(new VideoProcessingAppRunner(), spool);
+    startWorker(new VideoProcessingAppRunner(), spool);
+    SegmentCoordinator coordinator = new SegmentCoordinator(spool, 0, 3, 10_000);
+    coordinator.setPollMillis(20);
+
+    Path output = tempDir.resolve("merged.csv");
+    List<VideoSegment> segments = coordinator.coordinate(jobArgs(video, output), 4);
+
+    assertEquals(4, segments.size());
+    assertEquals(singleProcessCsv(video), Files.readString(output));
+    assertEquals(0, fileCount(spool.getDirectory()));
+  }
+
+  @Test
+  void coordinate_retriesFailedSegments() throws Exception {
+    Path video = writeClip();
+    SegmentSpool spool = new SegmentSpool(tempDir.resolve("spool"));
+    Set<Integer> attempted = ConcurrentHashMap.newKeySet();
+    AtomicInteger calls = new AtomicInteger();
+    startWorker(new VideoProcessingAppRunner() {
+      @Override
+      public void processVideo(String videoPath, String outputPath, int targetColor, int threshold,
+          ProcessingOptions options) throws IOException, JCodecException {
+        calls.incrementAndGet();
+        // The first attempt at every segment fails; each attempt writes to a path of its own
+        if (attempted.add(options.getStartFrame())) throw new IOException("simulated crash");
+        super.processVideo(videoPath, outputPath, targetColor, threshold, options);
+      }
+    }, spool);
+    SegmentCoordinator coordinator = new SegmentCoordinator(spool, 0, 2, 10_000);
+    coordinator.setPollMillis(20);
+
+    Path output = tempDir.resolve("merged.csv");
+    coordinator.coordinate(jobArgs(video, output), 3);
+
+    assertEquals(6, calls.get());
+    assertEquals(singleProcessCsv(video), Files.readString(output));
+  }
+
+  @Test
+  void coordinate_failsWhenSegmentUsesUpItsAttempts() throws Exception {
+    Path video = writeClip();
+    SegmentSpool spool = new SegmentSpool(tempDir.resolve("spool"));
+    startWorker(new VideoProcessingAppRunner() {
+      @Override
+      public void processVideo(String videoPath, String outputPath, int targetColor, int threshold,
+          ProcessingOptions options) throws IOException {
+        throw new IOException("disk full");
+      }
+    }, spool);
+    SegmentCoordinator coordinator = new SegmentCoordinator(spool, 0, 2, 10_000);
+    coordinator.setPollMillis(20);
+
+    Path output = tempDir.resolve("merged.csv");
+    IOException e = assertThrows(IOException.class, () -> coordinator.coordinate(jobArgs(video, output), 2));
+    assertTrue(e.getMessage().contains("after 2 attempts: disk full"), e.getMessage());
+    assertEquals(0, fileCount(spool.getDirectory()));
+  }
+
+  @Test
+  void coordinate_startsLocalWorkerProcesses() throws Exception {
+    Path video = Path.of("sampleInput/training.mp4");
+    SegmentSpool spool = new SegmentSpool(tempDir.resolve("spool"));
+    SegmentCoordinator coordinator = new SegmentCoordinator(spool, 2, 2, 30_000);
+    coordinator.setPollMillis(50);
+
+    Path output = tempDir.resolve("merged.csv");
+    List<VideoSegment> segments = coordinator.coordinate(jobArgs(video, output), 2);
+
+    assertEquals(List.of(new VideoSegment(0, 0, 25), new VideoSegment(1, 25, 30)), segments);
+    assertEquals(singleProcessCsv(video), Files.readString(output));
+  }
+
+  @Test
+  void coordinate_rejectsFrameRangesAndFfmpeg() throws Exception {
+    Path video = Path.of("sampleInput/training.mp4");
+    Path output = tempDir.resolve("merged.csv");
+    SegmentCoordinator coordinator = new SegmentCoordinator(new SegmentSpool(tempDir.resolve("spool")), 0, 1, 10_000);
+    assertThrows(IllegalArgumentException.class, () -> coordinator.coordinate(new String[] {
+        video.toString(), output.toString(), "FFA500", "60", "--start-frame", "5" }, 2));
+    assertThrows(IllegalArgumentException.class, () -> coordinator.coordinate(new String[] {
+        video.toString(), output.toString(), "FFA500", "60", "--decoder", "ffmpeg" }, 2));
+  }
+
+  @Test
+  void coordinate_rejectsFlagsThatWriteReportsNextToTheCsv() throws Exception {
+    Path video = Path.of("sampleInput/training.mp4");
+    Path output = tempDir.resolve("merged.csv");
+    SegmentCoordinator coordinator = new SegmentCoordinator(new SegmentSpool(tempDir.resolve("spool")), 0, 1, 10_000);
+    assertThrows(IllegalArgumentException.class, () -> coordinator.coordinate(new String[] {
+        video.toString(), output.toString(), "FFA500", "60", "--perf-report" }, 2));
+    assertThrows(IllegalArgumentException.class, () -> coordinator.coordinate(new String[] {
+        video.toString(), output.toString(), "FFA500", "60", "--resource-report" }, 2));
+    assertThrows(IllegalArgumentException.class, () -> coordinator.coordinate(new String[] {
+        video.toString(), output.toString(), "FFA500", "60", "--heatmap", "16" }, 2));
+  }
+
+  @Test
+  void coordinate_rejectsChangeOnly_whoseRunsWouldBeCutAtSegmentBoundaries() throws Exception {
+    Path video = Path.of("sampleInput/training.mp4");
+    Path output = tempDir.resolve("merged.csv");
+    SegmentCoordinator coordinator = new SegmentCoordinator(new SegmentSpool(tempDir.resolve("spool")), 0, 1, 10_000);
+    assertThrows(IllegalArgumentException.class, () -> coordinator.coordinate(new String[] {
+        video.toString(), output.toString(), "FFA500", "60", "--change-only", "50" }, 3));
+  }
+
+  @Test
+  void coordinate_rejectsSampling_whichWouldRestartItsPhaseInEverySegment() throws Exception {
+    Path video = Path.of("sampleInput/training.mp4");
+    Path output = tempDir.resolve("merged.csv");
+    SegmentCoordinator coordinator = new SegmentCoordinator(new SegmentSpool(tempDir.resolve("spool")), 0, 1, 10_000);
+    assertThrows(IllegalArgumentException.class, () -> coordinator.coordinate(new String[] {
+        video.toString(), output.toString(), "FFA500", "60", "--sample-every", "4" }, 3));
+  }
+
+  @Test
+  void constructor_rejectsInvalidSettings() throws Exception {
+    SegmentSpool spool = new SegmentSpool(tempDir);
+    assertThrows(IllegalArgumentException.class, () -> new SegmentCoordinator(spool, -1, 1, 10_000));
+    assertThrows(IllegalArgumentException.class, () -> new SegmentCoordinator(spool, 0, 0, 10_000));
+    assertThrows(IllegalArgumentException.class, () -> new SegmentCoordinator(spool, 0, 1, 1_000));
+  }
+}
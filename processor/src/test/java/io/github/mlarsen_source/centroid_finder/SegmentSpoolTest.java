@@ -0,0 +1,114 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SegmentSpoolTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void claim_takesJobsInNameOrderOnce() throws Exception {
+    SegmentSpool spool = new SegmentSpool(tempDir);
+    spool.submit("run-00001", Map.of("video", "b.mp4"));
+    spool.submit("run-00000", Map.of("video", "a.mp4"));
+
+    SegmentSpool.Claim first = spool.claim();
+    assertEquals("run-00000", first.name());
+    assertEquals("a.mp4", spool.read(first).get("video"));
+    assertEquals(spool.partialOutput(first).toString(), spool.read(first).get("output"));
+    assertEquals("run-00001", spool.claim().name());
+    assertNull(spool.claim());
+  }
+
+  @Test
+  void complete_publishesOutputAndReleasesClaim() throws Exception {
+    SegmentSpool spool = new SegmentSpool(tempDir);
+    spool.submit("run-00000", Map.of());
+    SegmentSpool.Claim claim = spool.claim();
+    Files.writeString(spool.partialOutput(claim), "0.1,2,3\n");
+
+    spool.complete(claim);
+    assertEquals("0.1,2,3\n", Files.readString(spool.output("run-00000")));
+    assertFalse(Files.exists(spool.claimed(claim)));
+    assertFalse(Files.exists(spool.partialOutput(claim)));
+  }
+
+  @Test
+  void complete_discardsOutputOfRevokedClaim() throws Exception {
+    SegmentSpool spool = new SegmentSpool(tempDir);
+    SegmentSpool.Claim claim = new SegmentSpool.Claim("run-00000", "revoked");
+    Files.writeString(spool.partialOutput(claim), "late\n");
+
+    spool.complete(claim);
+    assertFalse(Files.exists(spool.output("run-00000")));
+    assertFalse(Files.exists(spool.partialOutput(claim)));
+  }
+
+  @Test
+  void complete_byStaleWorker_leavesRequeuedClaimAlone() throws Exception {
+    SegmentSpool spool = new SegmentSpool(tempDir);
+    spool.submit("run-00000", Map.of());
+    SegmentSpool.Claim stale = spool.claim();
+    Files.writeString(spool.partialOutput(stale), "stale\n");
+    Files.setLastModifiedTime(spool.claimed(stale), FileTime.fromMillis(System.currentTimeMillis() - 120_000));
+    assertTrue(spool.requeueIfStale("run-00000", 60_000));
+
+    SegmentSpool.Claim current = spool.claim();
+    assertNotEquals(stale, current);
+    Files.writeString(spool.partialOutput(current), "half");
+
+    spool.heartbeat(stale);
+    spool.complete(stale);
+    spool.fail(stale, "too late");
+    assertFalse(Files.exists(spool.output("run-00000")));
+    assertFalse(Files.exists(spool.failure("run-00000")));
+    assertFalse(Files.exists(spool.partialOutput(stale)));
+    assertEquals("half", Files.readString(spool.partialOutput(current)));
+    assertTrue(Files.exists(spool.claimed(current)));
+
+    Files.writeString(spool.partialOutput(current), "0.1,2,3\n");
+    spool.complete(current);
+    assertEquals("0.1,2,3\n", Files.readString(spool.output("run-00000")));
+  }
+
+  @Test
+  void fail_recordsMessage() throws Exception {
+    SegmentSpool spool = new SegmentSpool(tempDir);
+    spool.submit("run-00000", Map.of());
+    SegmentSpool.Claim claim = spool.claim();
+
+    spool.fail(claim, "decoder error");
+    assertEquals("decoder error", Files.readString(spool.failure("run-00000")));
+    assertFalse(Files.exists(spool.claimed(claim)));
+  }
+
+  @Test
+  void requeueIfStale_returnsAbandonedClaimToQueue() throws Exception {
+    SegmentSpool spool = new SegmentSpool(tempDir);
+    spool.submit("run-00000", Map.of());
+    SegmentSpool.Claim claim = spool.claim();
+
+    assertFalse(spool.requeueIfStale("run-00000", 60_000));
+    Files.setLastModifiedTime(spool.claimed(claim), FileTime.fromMillis(System.currentTimeMillis() - 120_000));
+    assertTrue(spool.requeueIfStale("run-00000", 60_000));
+    assertTrue(Files.exists(spool.job("run-00000")));
+
+    claim = spool.claim();
+    Files.setLastModifiedTime(spool.claimed(claim), FileTime.fromMillis(System.currentTimeMillis() - 120_000));
+    spool.heartbeat(claim);
+    assertFalse(spool.requeueIfStale("run-00000", 60_000));
+  }
+}
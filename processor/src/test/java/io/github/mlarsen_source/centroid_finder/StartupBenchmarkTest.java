@@ -0,0 +1,24 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class StartupBenchmarkTest {
+
+  private static final File TRAINING_VIDEO = new File("sampleInput/training.mp4");
+
+  @Test
+  void decodeFirstFrame_findsOrangeBlobInBundledClip() throws Exception {
+    List<Group> groups = StartupBenchmark.decodeFirstFrame(TRAINING_VIDEO);
+
+    assertFalse(groups.isEmpty());
+    Coordinate centroid = groups.get(0).centroid();
+    assertTrue(Math.abs(centroid.x() - 40) <= 2, "unexpected x " + centroid.x());
+    assertTrue(Math.abs(centroid.y() - 80) <= 2, "unexpected y " + centroid.y());
+  }
+}
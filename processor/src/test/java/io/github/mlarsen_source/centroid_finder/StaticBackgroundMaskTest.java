@@ -0,0 +1,118 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Path;
+
+import org.jcodec.api.awt.AWTSequenceEncoder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class StaticBackgroundMaskTest {
+
+  private static final int TARGET = 0xFFA500;
+
+  private static final int FRAMES = 20;
+
+  @TempDir
+  Path tempDir;
+
+  /** Returns the left column of the moving square in a frame. */
+  private static int movingX(int frame) {
+    return 40 + 2 * frame;
+  }
+
+  /**
+   * Writes a video with a large target-colored square that never moves and a smaller one
+   * that moves right by 2 pixels per frame.
+   */
+  private File createVideo() throws Exception {
+    File video = tempDir.resolve("background.mp4").toFile();
+    AWTSequenceEncoder encoder = AWTSequenceEncoder.createSequenceEncoder(video, 10);
+    for (int i = 0; i < FRAMES; i++) {
+      BufferedImage frame = new BufferedImage(96, 64, BufferedImage.TYPE_INT_RGB);
+      Graphics2D g = frame.createGraphics();
+      try {
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, 96, 64);
+        g.setColor(new Color(TARGET));
+        g.fillRect(8, 8, 20, 20);
+        g.fillRect(movingX(i), 30, 10, 10);
+      } finally {
+        g.dispose();
+      }
+      encoder.encodeImage(frame);
+    }
+    encoder.finish();
+    return video;
+  }
+
+  private static DistanceImageBinarizer binarizer() {
+    return new DistanceImageBinarizer(new EuclideanColorDistance(), TARGET, 60);
+  }
+
+  @Test
+  void learn_excludesTheStaticSquareButNotThePathOfTheMovingOne() throws Exception {
+    Mp4VideoProcessor video = new Mp4VideoProcessor(createVideo());
+
+    StaticBackgroundMask mask = StaticBackgroundMask.learn(video, binarizer(), 5, 0.9);
+
+    assertEquals(5, mask.samples());
+    assertTrue(mask.isExcluded(18, 18));
+    // The one-pixel fringe around the square is excluded too
+    assertTrue(mask.isExcluded(7, 18));
+    assertFalse(mask.isExcluded(18, 40));
+    for (int x = movingX(0); x < movingX(FRAMES - 1) + 10; x++) {
+      assertFalse(mask.isExcluded(x, 35), "x=" + x);
+    }
+    assertTrue(mask.excludedCount() >= 20 * 20);
+    assertTrue(mask.excludedCount() < 30 * 30);
+  }
+
+  @Test
+  void learn_regionWithoutTheBackgroundReportsTheMovingSquare() throws Exception {
+    File file = createVideo();
+    Mp4VideoProcessor video = new Mp4VideoProcessor(file);
+    StaticBackgroundMask mask = StaticBackgroundMask.learn(video, binarizer(), 5, 0.9);
+    BinarizingImageGroupFinder groupFinder = new BinarizingImageGroupFinder(binarizer(), new BfsBinaryGroupFinder(1, 1));
+
+    Trajectory unmasked = new Mp4VideoGroupFinder(video, groupFinder, 1).getTrajectory();
+    groupFinder.setRegion(RegionMask.compile(video.getWidth(), video.getHeight(), null, null, mask));
+    Trajectory masked = new Mp4VideoGroupFinder(new Mp4VideoProcessor(file), groupFinder, 1).getTrajectory();
+
+    // Without the mask the larger static square wins every frame
+    assertEquals(FRAMES, unmasked.size());
+    assertEquals(17.5, unmasked.x(FRAMES - 1), 1.0);
+    assertEquals(FRAMES, masked.size());
+    for (int i = 0; i < FRAMES; i++) {
+      assertEquals(movingX(i) + 4.5, masked.x(i), 1.0);
+      assertEquals(34.5, masked.y(i), 1.0);
+    }
+  }
+
+  @Test
+  void learn_rejectsInvalidSettings() throws Exception {
+    Mp4VideoProcessor video = new Mp4VideoProcessor(new File("sampleInput/training.mp4"));
+
+    assertThrows(IllegalArgumentException.class, () -> StaticBackgroundMask.learn(video, binarizer(), 0, 0.9));
+    assertThrows(IllegalArgumentException.class, () -> StaticBackgroundMask.learn(video, binarizer(), 5, 0));
+    assertThrows(IllegalArgumentException.class, () -> StaticBackgroundMask.learn(video, binarizer(), 5, 1.5));
+  }
+
+  @Test
+  void learn_excludesNothing_whenNoPixelMatchesInEnoughSamples() throws Exception {
+    Mp4VideoProcessor video = new Mp4VideoProcessor(createVideo());
+
+    StaticBackgroundMask mask = StaticBackgroundMask.learn(video, new DistanceImageBinarizer(
+        new EuclideanColorDistance(), 0x00FF00, 10), 4, 0.5);
+
+    assertEquals(0, mask.excludedCount());
+  }
+}
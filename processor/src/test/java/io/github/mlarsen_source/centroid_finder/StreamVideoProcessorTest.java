@@ -0,0 +1,97 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class StreamVideoProcessorTest {
+
+  private static final int SIZE = 16;
+
+  @TempDir
+  Path tempDir;
+
+  /**
+   * Writes a 16x16 4:2:0 frame: black with a 4x4 orange square whose top-left corner is
+   * at (left, top), both even so the square covers whole chroma samples.
+   */
+  private static void writeFrame(ByteArrayOutputStream out, int left, int top) {
+    byte[] y = new byte[SIZE * SIZE];
+    byte[] u = new byte[SIZE * SIZE / 4];
+    byte[] v = new byte[SIZE * SIZE / 4];
+    for (int row = 0; row < SIZE; row++) {
+      for (int col = 0; col < SIZE; col++) {
+        boolean inside = col >= left && col < left + 4 && row >= top && row < top + 4;
+        // FFA500 in video-range BT.601 is Y=165, U=42, V=179
+        y[row * SIZE + col] = (byte) (inside ? 165 : 16);
+        u[(row / 2) * (SIZE / 2) + col / 2] = (byte) (inside ? 42 : 128);
+        v[(row / 2) * (SIZE / 2) + col / 2] = (byte) (inside ? 179 : 128);
+      }
+    }
+    out.writeBytes(y);
+    out.writeBytes(u);
+    out.writeBytes(v);
+  }
+
+  private static List<String> expectedRows(double fps) {
+    Trajectory expected = new Trajectory(2);
+    expected.add(1 / fps, 5, 9);
+    expected.add(2 / fps, 7, 9);
+    return List.of(expected.toCsvRow(0, false), expected.toCsvRow(1, false));
+  }
+
+  @Test
+  void processVideo_readsY4mWithTimestampsFromTheHeader() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.writeBytes("YUV4MPEG2 W16 H16 F25:1 C420jpeg\n".getBytes(StandardCharsets.US_ASCII));
+    for (int left : new int[] { 4, 6 }) {
+      out.writeBytes("FRAME\n".getBytes(StandardCharsets.US_ASCII));
+      writeFrame(out, left, 8);
+    }
+    Path video = tempDir.resolve("clip.y4m");
+    Files.write(video, out.toByteArray());
+    Path output = tempDir.resolve("clip.csv");
+
+    new VideoProcessingAppRunner().processVideo(video.toString(), output.toString(), 0xFFA500, 60);
+
+    assertEquals(expectedRows(25), Files.readAllLines(output));
+  }
+
+  @Test
+  void processVideo_readsRawFramesOfTheDeclaredSizeAndRate() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeFrame(out, 4, 8);
+    writeFrame(out, 6, 8);
+    Path video = tempDir.resolve("clip.yuv");
+    Files.write(video, out.toByteArray());
+    Path output = tempDir.resolve("clip.csv");
+
+    CommandLineParser parser = new CommandLineParser(new String[] { video.toString(), output.toString(), "FFA500", "60",
+        "--input-format", "raw", "--frame-size", "16x16", "--frame-rate", "30000/1001" });
+    new VideoProcessingAppRunner().processVideo(parser.getVideoPath(), parser.getOutputPath(),
+        parser.getTargetColor(), parser.getThreshold(), parser.getOptions());
+
+    assertEquals(expectedRows(30000 / 1001.0), Files.readAllLines(output));
+  }
+
+  @Test
+  void openFrames_canOnlyBeCalledOnce() throws Exception {
+    StreamVideoProcessor processor = StreamVideoProcessor.raw(new ByteArrayInputStream(new byte[0]), 2, 2, 10,
+        RawPixelFormat.GRAY);
+    assertEquals(0, processor.getTotalFrames());
+    assertEquals(0.5, processor.getTime(5));
+    processor.openFrames().close();
+    assertThrows(IllegalStateException.class, processor::openFrames);
+    assertThrows(IllegalArgumentException.class,
+        () -> StreamVideoProcessor.raw(new ByteArrayInputStream(new byte[0]), 2, 2, 0, RawPixelFormat.GRAY));
+  }
+}
@@ -0,0 +1,108 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class StripedBinaryGroupFinderTest {
+
+  private static ForkJoinPool pool;
+
+  @BeforeAll
+  static void startPool() {
+    pool = new ForkJoinPool(4);
+  }
+
+  @AfterAll
+  static void stopPool() {
+    pool.shutdown();
+  }
+
+  private static int[][] randomMask(Random random, int height, int width, double density) {
+    int[][] mask = new int[height][width];
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        mask[row][col] = random.nextDouble() < density ? 1 : 0;
+      }
+    }
+    return mask;
+  }
+
+  @Test
+  void findConnectedGroups_matchesBfsOnRandomMasks() {
+    Random random = new Random(42);
+    int[][] sizes = {{128, 96}, {200, 17}, {131, 64}, {40, 300}, {256, 1}};
+    double[] densities = {0.1, 0.45, 0.6, 0.9};
+    int[][] limits = {{Integer.MAX_VALUE, 1}, {1, 1}, {5, 3}, {Integer.MAX_VALUE, 20}};
+    for (int[] size : sizes) {
+      for (double density : densities) {
+        int[][] mask = randomMask(random, size[0], size[1], density);
+        for (int[] limit : limits) {
+          List<Group> expected = new BfsBinaryGroupFinder(limit[0], limit[1]).findConnectedGroups(mask);
+          List<Group> actual = new StripedBinaryGroupFinder(limit[0], limit[1], pool).findConnectedGroups(mask);
+          assertEquals(expected, actual, size[0] + "x" + size[1] + " at " + density);
+        }
+      }
+    }
+  }
+
+  @Test
+  void findConnectedGroups_joinsShapeThatCrossesEveryStripe() {
+    // A serpentine path through all 128 rows meets every boundary several times
+    int[][] mask = new int[128][16];
+    for (int row = 0; row < 128; row++) {
+      if (row % 4 == 0 || row % 4 == 2) {
+        for (int col = 0; col < 16; col++) mask[row][col] = 1;
+      } else {
+        mask[row][row % 8 == 1 ? 15 : 0] = 1;
+      }
+    }
+    List<Group> expected = new BfsBinaryGroupFinder().findConnectedGroups(mask);
+    List<Group> actual = new StripedBinaryGroupFinder(Integer.MAX_VALUE, 1, pool).findConnectedGroups(mask);
+    assertEquals(1, actual.size());
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  void findConnectedGroups_labelsShortImageOnCallingThread() {
+    int[][] mask = {
+      {1, 1, 0},
+      {0, 0, 0},
+      {0, 1, 1}
+    };
+    List<Group> actual = new StripedBinaryGroupFinder(Integer.MAX_VALUE, 1, pool).findConnectedGroups(mask);
+    assertEquals(new BfsBinaryGroupFinder().findConnectedGroups(mask), actual);
+  }
+
+  @Test
+  void findConnectedGroups_rejectsValuesOtherThanZeroOrOne() {
+    int[][] mask = new int[128][8];
+    mask[100][3] = 2;
+    StripedBinaryGroupFinder finder = new StripedBinaryGroupFinder(Integer.MAX_VALUE, 1, pool);
+    assertThrows(IllegalArgumentException.class, () -> finder.findConnectedGroups(mask));
+  }
+
+  @Test
+  void findConnectedGroups_rejectsNullAndRaggedArrays() {
+    StripedBinaryGroupFinder finder = new StripedBinaryGroupFinder(Integer.MAX_VALUE, 1, pool);
+    assertThrows(NullPointerException.class, () -> finder.findConnectedGroups(null));
+    assertThrows(IllegalArgumentException.class, () -> finder.findConnectedGroups(new int[0][0]));
+    int[][] ragged = new int[64][4];
+    ragged[50] = new int[3];
+    assertThrows(IllegalArgumentException.class, () -> finder.findConnectedGroups(ragged));
+  }
+
+  @Test
+  void constructor_rejectsInvalidLimitsAndNullPool() {
+    assertThrows(IllegalArgumentException.class, () -> new StripedBinaryGroupFinder(0, 1, pool));
+    assertThrows(IllegalArgumentException.class, () -> new StripedBinaryGroupFinder(1, 0, pool));
+    assertThrows(NullPointerException.class, () -> new StripedBinaryGroupFinder(1, 1, null));
+  }
+}
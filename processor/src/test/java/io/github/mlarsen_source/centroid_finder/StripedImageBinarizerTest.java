@@ -0,0 +1,80 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class StripedImageBinarizerTest {
+
+  private static ForkJoinPool pool;
+
+  @BeforeAll
+  static void startPool() {
+    pool = new ForkJoinPool(4);
+  }
+
+  @AfterAll
+  static void stopPool() {
+    pool.shutdown();
+  }
+
+  private static BufferedImage randomImage(int type, int width, int height) {
+    Random random = new Random(7);
+    BufferedImage image = new BufferedImage(width, height, type);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        image.setRGB(x, y, random.nextInt(0x1000000));
+      }
+    }
+    return image;
+  }
+
+  @Test
+  void toBinaryArray_matchesWholeImageBinarization() {
+    DistanceImageBinarizer whole = new DistanceImageBinarizer(new EuclideanColorDistance(), 0x808080, 150);
+    StripedImageBinarizer striped = new StripedImageBinarizer(whole, pool);
+    int[] types = {BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_USHORT_565_RGB};
+    for (int type : types) {
+      BufferedImage image = randomImage(type, 45, 150);
+      assertArrayEquals(whole.toBinaryArray(image), striped.toBinaryArray(image));
+    }
+  }
+
+  @Test
+  void toBinaryArray_writesIntoMatchingArray() {
+    DistanceImageBinarizer whole = new DistanceImageBinarizer(new EuclideanColorDistance(), 0x000000, 100);
+    StripedImageBinarizer striped = new StripedImageBinarizer(whole, pool);
+    BufferedImage image = randomImage(BufferedImage.TYPE_INT_RGB, 20, 128);
+    int[][] reuse = new int[128][20];
+    assertSame(reuse, striped.toBinaryArray(image, reuse));
+    assertArrayEquals(whole.toBinaryArray(image), reuse);
+  }
+
+  @Test
+  void toBinaryArray_rejectsNullImage() {
+    DistanceImageBinarizer whole = new DistanceImageBinarizer(new EuclideanColorDistance(), 0x000000, 100);
+    StripedImageBinarizer striped = new StripedImageBinarizer(whole, pool);
+    assertThrows(NullPointerException.class, () -> striped.toBinaryArray(null));
+  }
+
+  @Test
+  void toBinaryArray_matchesSerialBinarization_insideARegion() {
+    DistanceImageBinarizer whole = new DistanceImageBinarizer(new EuclideanColorDistance(), 0x808080, 150);
+    StripedImageBinarizer striped = new StripedImageBinarizer(whole, pool);
+    RegionMask region = RegionMask.compile(45, 150, new Rectangle(5, 10, 30, 120),
+        List.of(new Coordinate(0, 0), new Coordinate(45, 40), new Coordinate(10, 150)));
+    BufferedImage image = randomImage(BufferedImage.TYPE_3BYTE_BGR, 45, 150);
+
+    assertArrayEquals(region.extract(whole.toBinaryArray(image), null), striped.toBinaryArray(image, region, null));
+  }
+}
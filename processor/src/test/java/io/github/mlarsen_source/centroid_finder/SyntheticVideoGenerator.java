@@ -0,0 +1,420 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.jcodec.api.awt.AWTSequenceEncoder;
+
+/**
+ * Generates deterministic H.264 MP4 clips of moving colored blobs together with the true
+ * trajectory of the tracked blob.
+ *
+ * Every clip has one orange target blob, the color the processor is asked to track, and
+ * a number of blue distractor blobs. All blobs move in straight lines and bounce off the
+ * frame edges. Blobs are drawn as exact discs around whole-pixel centers, so the centroid
+ * of the target's pixels is its center. An optional noise level adds uniform per-channel
+ * noise to every pixel, blobs included. The same spec always produces the same file: the
+ * creation and modification times in the MP4 headers are fixed rather than the time of
+ * writing.
+ *
+ * For each clip, NAME.mp4 and NAME.truth.csv are written. The truth file has the same
+ * "time,x,y" rows the processor writes, one per frame, so the two can be compared row by
+ * row.
+ *
+ * Usage: java -cp target/test-classes:target/classes:&lt;dependencies&gt;
+ * io.github.mlarsen_source.centroid_finder.SyntheticVideoGenerator &lt;output_dir&gt; [--full]
+ */
+public class SyntheticVideoGenerator {
+
+    /** The color of the target blob. */
+    public static final int TARGET_COLOR = 0xFFA500;
+
+    /** A color distance threshold that finds the target blob after encoding. */
+    public static final int THRESHOLD = 60;
+
+    /** The color of the distractor blobs. */
+    private static final int DISTRACTOR_COLOR = 0x2040E0;
+
+    /** The creation and modification time stored in the MP4 headers: 2020-01-01 UTC in seconds since 1904. */
+    private static final long HEADER_TIME = 3_660_681_600L;
+
+    /**
+     * Describes one clip.
+     *
+     * @param name the base name of the clip's files
+     * @param width the frame width in pixels
+     * @param height the frame height in pixels
+     * @param frames the number of frames
+     * @param fps the frame rate
+     * @param distractors the number of blue distractor blobs
+     * @param noise the maximum per-channel noise added to each pixel, 0 for none
+     * @param seed the seed for blob positions, velocities and noise
+     */
+    public record ClipSpec(String name, int width, int height, int frames, int fps,
+            int distractors, int noise, long seed) {
+
+        /**
+         * Validates the spec.
+         *
+         * @throws IllegalArgumentException if a dimension, count or rate is out of range
+         */
+        public ClipSpec {
+            if (width < 64 || height < 64) throw new IllegalArgumentException("Clip must be at least 64x64: " + width + "x" + height);
+            if (frames < 1) throw new IllegalArgumentException("Clip must have at least one frame: " + frames);
+            if (fps < 1) throw new IllegalArgumentException("Frame rate must be at least 1: " + fps);
+            if (distractors < 0 || noise < 0) throw new IllegalArgumentException("Distractors and noise cannot be negative");
+        }
+
+        /**
+         * Returns the number of pixels of all frames in millions.
+         *
+         * @return the clip's size in megapixel-frames
+         */
+        public double megapixelFrames() {
+            return (double) width * height * frames / 1e6;
+        }
+    }
+
+    /**
+     * Writes the standard corpus, or the full corpus with larger clips, to a directory.
+     *
+     * @param args the output directory, optionally followed by --full
+     * @throws IOException if a clip cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2 || (args.length == 2 && !args[1].equals("--full"))) {
+            System.err.println("Usage: java SyntheticVideoGenerator <output_dir> [--full]");
+            System.exit(1);
+        }
+        Path directory = Path.of(args[0]);
+        for (ClipSpec spec : corpus(args.length == 2)) {
+            long start = System.nanoTime();
+            writeClip(spec, directory);
+            System.out.printf("Wrote %s (%dx%d, %d frames) in %d ms%n", spec.name(), spec.width(), spec.height(),
+                spec.frames(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * Returns the clips of the corpus: small to HD clips with and without noise, and when
+     * full, longer 1080p clips as well.
+     *
+     * @param full true to include the large clips
+     * @return the clip specs, smallest first
+     */
+    public static List<ClipSpec> corpus(boolean full) {
+        List<ClipSpec> clips = new ArrayList<>(List.of(
+            new ClipSpec("qvga-clean", 320, 240, 90, 30, 2, 0, 1),
+            new ClipSpec("qvga-noisy", 320, 240, 90, 30, 2, 24, 2),
+            new ClipSpec("vga-clean", 640, 480, 90, 30, 3, 0, 3),
+            new ClipSpec("hd-noisy", 1280, 720, 60, 30, 4, 16, 4)));
+        if (full) {
+            clips.add(new ClipSpec("fhd-clean", 1920, 1080, 120, 30, 4, 0, 5));
+            clips.add(new ClipSpec("fhd-noisy", 1920, 1080, 120, 30, 6, 24, 6));
+        }
+        return clips;
+    }
+
+    /**
+     * Writes a clip and its truth file to a directory, creating the directory if needed.
+     *
+     * @param spec the clip to generate
+     * @param directory the directory for NAME.mp4 and NAME.truth.csv
+     * @throws IOException if a file cannot be written
+     */
+    public static void writeClip(ClipSpec spec, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Trajectory truth = generate(spec, videoPath(spec, directory).toFile());
+        new CsvWriter().writeToCsv(truthPath(spec, directory).toString(), truth);
+    }
+
+    /**
+     * Returns the path of a clip's video in a directory.
+     *
+     * @param spec the clip
+     * @param directory the corpus directory
+     * @return the path of NAME.mp4
+     */
+    public static Path videoPath(ClipSpec spec, Path directory) {
+        return directory.resolve(spec.name() + ".mp4");
+    }
+
+    /**
+     * Returns the path of a clip's truth file in a directory.
+     *
+     * @param spec the clip
+     * @param directory the corpus directory
+     * @return the path of NAME.truth.csv
+     */
+    public static Path truthPath(ClipSpec spec, Path directory) {
+        return directory.resolve(spec.name() + ".truth.csv");
+    }
+
+    /**
+     * Encodes a clip.
+     *
+     * @param spec the clip to generate
+     * @param video the MP4 file to write
+     * @return the target blob's center in every frame, timed like the processor's output
+     * @throws IOException if the file cannot be written
+     */
+    public static Trajectory generate(ClipSpec spec, File video) throws IOException {
+        SplittableRandom random = new SplittableRandom(spec.seed());
+        int shortSide = Math.min(spec.width(), spec.height());
+        List<Blob> blobs = new ArrayList<>();
+        blobs.add(Blob.random(TARGET_COLOR, shortSide / 10, spec, random));
+        for (int i = 0; i < spec.distractors(); i++) {
+            blobs.add(Blob.random(DISTRACTOR_COLOR, shortSide / 14, spec, random));
+        }
+
+        BufferedImage frame = new BufferedImage(spec.width(), spec.height(), BufferedImage.TYPE_3BYTE_BGR);
+        byte[] bgr = ((DataBufferByte) frame.getRaster().getDataBuffer()).getData();
+        Trajectory truth = new Trajectory(spec.frames());
+        AWTSequenceEncoder encoder = AWTSequenceEncoder.createSequenceEncoder(video, spec.fps());
+        try {
+            for (int index = 0; index < spec.frames(); index++) {
+                drawBackground(bgr, spec.width(), spec.height());
+                // Draw distractors first so the target is never hidden
+                for (int i = blobs.size() - 1; i >= 0; i--) {
+                    blobs.get(i).draw(bgr, spec.width(), spec.height());
+                }
+                if (spec.noise() > 0) addNoise(bgr, spec.noise(), random);
+                Blob target = blobs.get(0);
+                // Frame numbers are one-based, as in the processor's timestamps
+                truth.add((index + 1) / (double) spec.fps(), target.centerX(), target.centerY());
+                encoder.encodeImage(frame);
+                for (Blob blob : blobs) {
+                    blob.move(spec.width(), spec.height());
+                }
+            }
+        } finally {
+            encoder.finish();
+        }
+        fixHeaderTimes(video.toPath());
+        return truth;
+    }
+
+    /**
+     * Replaces the time of writing that the muxer stores in the movie, track and media
+     * headers with {@link #HEADER_TIME}, so that encoding the same clip twice gives the
+     * same bytes.
+     *
+     * @param video the finished MP4 file
+     * @throws IOException if the file cannot be read or written
+     */
+    private static void fixHeaderTimes(Path video) throws IOException {
+        try (FileChannel channel = FileChannel.open(video, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(16);
+            long position = 0;
+            while (position + 8 <= channel.size()) {
+                header.clear();
+                channel.read(header, position);
+                long size = Integer.toUnsignedLong(header.getInt(0));
+                if (size == 1) size = header.getLong(8);
+                if (size == 0) size = channel.size() - position;
+                if (size < 8) throw new IOException("Malformed MP4 box at " + position + " in " + video);
+                if (boxType(header, 4).equals("moov")) {
+                    ByteBuffer moov = ByteBuffer.allocate(Math.toIntExact(size));
+                    channel.read(moov, position);
+                    stampTimes(moov, 8, moov.capacity());
+                    channel.write(moov.rewind(), position);
+                }
+                position += size;
+            }
+        }
+    }
+
+    /**
+     * Sets the creation and modification times of the mvhd, tkhd and mdhd boxes among the
+     * boxes in part of a movie box, descending into track and media boxes.
+     *
+     * @param moov the movie box
+     * @param from the offset of the first box
+     * @param to the offset just past the last box
+     */
+    private static void stampTimes(ByteBuffer moov, int from, int to) {
+        int position = from;
+        while (position + 8 <= to) {
+            int size = moov.getInt(position);
+            if (size < 8 || size > to - position) return;
+            switch (boxType(moov, position + 4)) {
+                case "trak", "mdia" -> stampTimes(moov, position + 8, position + size);
+                case "mvhd", "tkhd", "mdhd" -> {
+                    // A full box: version and flags, then both times, 64-bit in version 1
+                    int times = position + 12;
+                    if (moov.get(position + 8) == 1) {
+                        moov.putLong(times, HEADER_TIME);
+                        moov.putLong(times + 8, HEADER_TIME);
+                    } else {
+                        moov.putInt(times, (int) HEADER_TIME);
+                        moov.putInt(times + 4, (int) HEADER_TIME);
+                    }
+                }
+                default -> { }
+            }
+            position += size;
+        }
+    }
+
+    /**
+     * Reads a four-character box type.
+     *
+     * @param buffer the buffer holding the box header
+     * @param offset the offset of the type
+     * @return the type, such as "moov"
+     */
+    private static String boxType(ByteBuffer buffer, int offset) {
+        byte[] type = new byte[4];
+        buffer.get(offset, type);
+        return new String(type, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Fills a frame with a dark vertical gradient.
+     *
+     * @param bgr the frame's BGR bytes
+     * @param width the frame width
+     * @param height the frame height
+     */
+    private static void drawBackground(byte[] bgr, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            byte shade = (byte) (20 + 40 * row / height);
+            int offset = row * width * 3;
+            Arrays.fill(bgr, offset, offset + width * 3, shade);
+        }
+    }
+
+    /**
+     * Adds uniform noise to every channel of every pixel.
+     *
+     * @param bgr the frame's BGR bytes
+     * @param noise the maximum change of a channel
+     * @param random the source of the noise
+     */
+    private static void addNoise(byte[] bgr, int noise, SplittableRandom random) {
+        for (int i = 0; i < bgr.length; i++) {
+            int value = (bgr[i] & 0xFF) + random.nextInt(-noise, noise + 1);
+            bgr[i] = (byte) Math.max(0, Math.min(255, value));
+        }
+    }
+
+    /**
+     * A disc moving at constant velocity that bounces off the frame edges.
+     */
+    private static final class Blob {
+
+        /** The fill color as 0xRRGGBB. */
+        private final int color;
+
+        /** The disc radius in pixels. */
+        private final int radius;
+
+        /** The center column, kept as a double so slow velocities still move the disc. */
+        private double x;
+
+        /** The center row, kept as a double so slow velocities still move the disc. */
+        private double y;
+
+        /** The horizontal velocity in pixels per frame. */
+        private double dx;
+
+        /** The vertical velocity in pixels per frame. */
+        private double dy;
+
+        private Blob(int color, int radius, double x, double y, double dx, double dy) {
+            this.color = color;
+            this.radius = radius;
+            this.x = x;
+            this.y = y;
+            this.dx = dx;
+            this.dy = dy;
+        }
+
+        /**
+         * Creates a blob at a random position inside the frame with a random velocity.
+         *
+         * @param color the fill color
+         * @param radius the radius in pixels
+         * @param spec the clip
+         * @param random the source of the position and velocity
+         * @return the blob
+         */
+        static Blob random(int color, int radius, ClipSpec spec, SplittableRandom random) {
+            int r = Math.max(2, radius);
+            double x = r + random.nextDouble() * (spec.width() - 2 * r - 1);
+            double y = r + random.nextDouble() * (spec.height() - 2 * r - 1);
+            double speed = 1 + random.nextDouble() * 3;
+            double angle = random.nextDouble() * 2 * Math.PI;
+            return new Blob(color, r, x, y, speed * Math.cos(angle), speed * Math.sin(angle));
+        }
+
+        /** Returns the center column the disc is drawn around. */
+        int centerX() {
+            return (int) Math.round(x);
+        }
+
+        /** Returns the center row the disc is drawn around. */
+        int centerY() {
+            return (int) Math.round(y);
+        }
+
+        /**
+         * Draws the disc.
+         *
+         * @param bgr the frame's BGR bytes
+         * @param width the frame width
+         * @param height the frame height
+         */
+        void draw(byte[] bgr, int width, int height) {
+            int cx = centerX();
+            int cy = centerY();
+            byte blue = (byte) (color & 0xFF);
+            byte green = (byte) ((color >> 8) & 0xFF);
+            byte red = (byte) ((color >> 16) & 0xFF);
+            for (int row = Math.max(0, cy - radius); row <= Math.min(height - 1, cy + radius); row++) {
+                for (int col = Math.max(0, cx - radius); col <= Math.min(width - 1, cx + radius); col++) {
+                    int ddx = col - cx;
+                    int ddy = row - cy;
+                    if (ddx * ddx + ddy * ddy <= radius * radius) {
+                        int i = (row * width + col) * 3;
+                        bgr[i] = blue;
+                        bgr[i + 1] = green;
+                        bgr[i + 2] = red;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Advances the disc by one frame, reflecting its velocity at the edges so it stays
+         * entirely inside the frame.
+         *
+         * @param width the frame width
+         * @param height the frame height
+         */
+        void move(int width, int height) {
+            x += dx;
+            y += dy;
+            if (x < radius || x > width - 1 - radius) {
+                dx = -dx;
+                x = Math.max(radius, Math.min(width - 1 - radius, x));
+            }
+            if (y < radius || y > height - 1 - radius) {
+                dy = -dy;
+                y = Math.max(radius, Math.min(height - 1 - radius, y));
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SyntheticVideoGeneratorTest {
+
+  private static final SyntheticVideoGenerator.ClipSpec CLIP =
+      new SyntheticVideoGenerator.ClipSpec("tiny", 160, 128, 12, 12, 2, 0, 7);
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void writeClip_writesDecodableVideoAndOneTruthRowPerFrame() throws Exception {
+    SyntheticVideoGenerator.writeClip(CLIP, tempDir);
+
+    Mp4VideoProcessor processor = new Mp4VideoProcessor(SyntheticVideoGenerator.videoPath(CLIP, tempDir).toFile());
+    assertEquals(12, processor.getTotalFrames());
+    assertEquals(160, processor.getWidth());
+    assertEquals(128, processor.getHeight());
+
+    List<String> truth = Files.readAllLines(SyntheticVideoGenerator.truthPath(CLIP, tempDir));
+    assertEquals(12, truth.size());
+    assertEquals("0.08", truth.get(0).split(",")[0]);
+  }
+
+  @Test
+  void writeClip_isDeterministic() throws Exception {
+    Path first = tempDir.resolve("first");
+    Path second = tempDir.resolve("second");
+    SyntheticVideoGenerator.writeClip(CLIP, first);
+    SyntheticVideoGenerator.writeClip(CLIP, second);
+
+    assertArrayEquals(Files.readAllBytes(SyntheticVideoGenerator.videoPath(CLIP, first)),
+        Files.readAllBytes(SyntheticVideoGenerator.videoPath(CLIP, second)));
+    assertEquals(Files.readAllLines(SyntheticVideoGenerator.truthPath(CLIP, first)),
+        Files.readAllLines(SyntheticVideoGenerator.truthPath(CLIP, second)));
+  }
+
+  @Test
+  void clipSpec_rejectsInvalidValues() {
+    assertThrows(IllegalArgumentException.class, () -> new SyntheticVideoGenerator.ClipSpec("x", 32, 128, 1, 30, 0, 0, 1));
+    assertThrows(IllegalArgumentException.class, () -> new SyntheticVideoGenerator.ClipSpec("x", 160, 128, 0, 30, 0, 0, 1));
+    assertThrows(IllegalArgumentException.class, () -> new SyntheticVideoGenerator.ClipSpec("x", 160, 128, 1, 30, 0, -1, 1));
+  }
+}
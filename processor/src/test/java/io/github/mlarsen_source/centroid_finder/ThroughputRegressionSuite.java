@@ -0,0 +1,289 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs VideoProcessingAppRunner end to end over the synthetic corpus and checks both
+ * throughput and accuracy.
+ *
+ * Missing clips are generated first with SyntheticVideoGenerator. After one warm-up run,
+ * every clip is processed a number of times and its best frames per second is kept,
+ * which is the least sensitive to noise from other processes. Each output CSV is compared
+ * row by row with the clip's truth file to give the fraction of frames in which the
+ * target was found and the mean and maximum centroid error in pixels.
+ *
+ * The results are written as JSON. When a baseline from an earlier run exists, a clip
+ * whose throughput fell by more than the tolerance, or whose detection rate fell at all,
+ * is a regression and the exit status is 1. A new baseline is recorded with
+ * --update-baseline; since throughput depends on the machine, record it on the machine
+ * that runs the suite.
+ *
+ * The suite is test code and is run by the e2e Maven profile, or with the test classpath:
+ *
+ * Usage: java -cp target/test-classes:target/classes:&lt;dependencies&gt;
+ * io.github.mlarsen_source.centroid_finder.ThroughputRegressionSuite &lt;corpus_dir&gt; [--baseline FILE] [--result FILE] [--tolerance PERCENT] [--runs N]
+ * [--full] [--update-baseline]
+ */
+public class ThroughputRegressionSuite {
+
+    /** The usage message shown when the arguments are malformed. */
+    private static final String USAGE =
+        "Usage: java ThroughputRegressionSuite <corpus_dir> [--baseline FILE] [--result FILE]"
+        + " [--tolerance PERCENT] [--runs N] [--full] [--update-baseline]";
+
+    /** The relative throughput drop in percent tolerated when no tolerance is given. */
+    private static final double DEFAULT_TOLERANCE_PERCENT = 15;
+
+    /**
+     * How well an output matches a clip's truth.
+     *
+     * @param truthFrames the number of frames in the truth file
+     * @param detectedFrames the number of those frames that have an output row
+     * @param meanError the mean centroid distance in pixels over detected frames
+     * @param maxError the largest centroid distance in pixels
+     */
+    public record Accuracy(int truthFrames, int detectedFrames, double meanError, double maxError) {
+
+        /**
+         * Returns the fraction of frames in which the target was found.
+         *
+         * @return the detection rate between 0 and 1
+         */
+        public double detectionRate() {
+            return truthFrames == 0 ? 0 : (double) detectedFrames / truthFrames;
+        }
+    }
+
+    /**
+     * Runs the suite.
+     *
+     * @param args the corpus directory followed by options
+     * @throws IOException if the corpus, an output or a report cannot be read or written
+     * @throws Exception if a clip cannot be processed
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args[0].startsWith("--")) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        Path corpus = Path.of(args[0]);
+        Path baseline = null;
+        Path result = corpus.resolve("e2e-result.json");
+        double tolerance = DEFAULT_TOLERANCE_PERCENT;
+        int runs = 3;
+        boolean full = false;
+        boolean updateBaseline = false;
+        int i = 1;
+        while (i < args.length) {
+            String flag = args[i++];
+            switch (flag) {
+                case "--full" -> full = true;
+                case "--update-baseline" -> updateBaseline = true;
+                default -> {
+                    if (i >= args.length) throw new IllegalArgumentException("Missing value for " + flag + "\n" + USAGE);
+                    String value = args[i++];
+                    switch (flag) {
+                        case "--baseline" -> baseline = Path.of(value);
+                        case "--result" -> result = Path.of(value);
+                        case "--tolerance" -> tolerance = Double.parseDouble(value);
+                        case "--runs" -> runs = Integer.parseInt(value);
+                        default -> throw new IllegalArgumentException("Unknown option: " + flag + "\n" + USAGE);
+                    }
+                }
+            }
+        }
+        if (runs < 1) throw new IllegalArgumentException("Run count must be at least 1: " + runs);
+
+        Map<String, Object> results = run(SyntheticVideoGenerator.corpus(full), corpus, runs);
+        Files.writeString(result, Json.write(results) + System.lineSeparator());
+        System.out.println("Results saved at " + result.toAbsolutePath());
+
+        if (baseline == null) return;
+        if (updateBaseline || !Files.exists(baseline)) {
+            Files.writeString(baseline, Json.write(results) + System.lineSeparator());
+            System.out.println("Baseline saved at " + baseline.toAbsolutePath());
+            return;
+        }
+        List<String> regressions = regressions(Json.parseObject(Files.readString(baseline).strip()), results, tolerance);
+        for (String regression : regressions) {
+            System.out.println("REGRESSION " + regression);
+        }
+        System.out.println(regressions.isEmpty()
+            ? "No regressions against " + baseline + " (tolerance " + tolerance + "%)."
+            : regressions.size() + " regression(s) against " + baseline + ".");
+        if (!regressions.isEmpty()) System.exit(1);
+    }
+
+    /**
+     * Generates any missing clips, then processes every clip and measures it.
+     *
+     * @param clips the clips to run
+     * @param corpus the directory holding the clips; outputs are written next to them
+     * @param runs the number of timed runs per clip
+     * @return one result object per clip, keyed by clip name
+     * @throws Exception if a clip cannot be generated or processed
+     */
+    static Map<String, Object> run(List<SyntheticVideoGenerator.ClipSpec> clips, Path corpus, int runs) throws Exception {
+        for (SyntheticVideoGenerator.ClipSpec clip : clips) {
+            if (!Files.exists(SyntheticVideoGenerator.videoPath(clip, corpus))
+                    || !Files.exists(SyntheticVideoGenerator.truthPath(clip, corpus))) {
+                System.out.println("Generating " + clip.name() + "...");
+                SyntheticVideoGenerator.writeClip(clip, corpus);
+            }
+        }
+
+        VideoProcessingAppRunner runner = new VideoProcessingAppRunner();
+        if (!clips.isEmpty()) {
+            // Warm up the JIT so the first clip is not measured cold
+            process(runner, clips.get(0), corpus);
+        }
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        for (SyntheticVideoGenerator.ClipSpec clip : clips) {
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < runs; run++) {
+                best = Math.min(best, process(runner, clip, corpus));
+            }
+            double seconds = best / 1e9;
+            Accuracy accuracy = accuracy(outputPath(clip, corpus), SyntheticVideoGenerator.truthPath(clip, corpus));
+
+            Map<String, Object> clipResult = new LinkedHashMap<>();
+            clipResult.put("width", clip.width());
+            clipResult.put("height", clip.height());
+            clipResult.put("frames", clip.frames());
+            clipResult.put("noise", clip.noise());
+            clipResult.put("framesPerSecond", round(clip.frames() / seconds));
+            clipResult.put("megapixelFramesPerSecond", round(clip.megapixelFrames() / seconds));
+            clipResult.put("detectionRate", round(accuracy.detectionRate()));
+            clipResult.put("meanErrorPx", round(accuracy.meanError()));
+            clipResult.put("maxErrorPx", round(accuracy.maxError()));
+            results.put(clip.name(), clipResult);
+
+            System.out.printf("%-12s %5.0f fps  %6.1f MPix/s  detected %5.1f%%  error mean %.2f px, max %.2f px%n",
+                clip.name(), clip.frames() / seconds, clip.megapixelFrames() / seconds,
+                accuracy.detectionRate() * 100, accuracy.meanError(), accuracy.maxError());
+        }
+        return results;
+    }
+
+    /**
+     * Processes one clip with the default settings.
+     *
+     * @param runner the runner
+     * @param clip the clip
+     * @param corpus the corpus directory
+     * @return the wall time in nanoseconds
+     * @throws Exception if the clip cannot be processed
+     */
+    private static long process(VideoProcessingAppRunner runner, SyntheticVideoGenerator.ClipSpec clip, Path corpus)
+            throws Exception {
+        long start = System.nanoTime();
+        runner.processVideo(SyntheticVideoGenerator.videoPath(clip, corpus).toString(), outputPath(clip, corpus).toString(),
+            SyntheticVideoGenerator.TARGET_COLOR, SyntheticVideoGenerator.THRESHOLD);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Returns the path the processor writes a clip's output to.
+     *
+     * @param clip the clip
+     * @param corpus the corpus directory
+     * @return the path of NAME.out.csv
+     */
+    private static Path outputPath(SyntheticVideoGenerator.ClipSpec clip, Path corpus) {
+        return corpus.resolve(clip.name() + ".out.csv");
+    }
+
+    /**
+     * Compares an output CSV with a truth CSV. Rows are matched by their time column,
+     * which both files format the same way.
+     *
+     * @param output the processor's "time,x,y" output
+     * @param truth the truth file with one row per frame
+     * @return the accuracy of the output
+     * @throws IOException if a file cannot be read
+     */
+    static Accuracy accuracy(Path output, Path truth) throws IOException {
+        Map<String, int[]> detected = new HashMap<>();
+        for (String line : Files.readAllLines(output)) {
+            String[] fields = line.split(",");
+            if (fields.length < 3) continue;
+            detected.putIfAbsent(fields[0], new int[] { Integer.parseInt(fields[1]), Integer.parseInt(fields[2]) });
+        }
+
+        int truthFrames = 0;
+        int detectedFrames = 0;
+        double errorSum = 0;
+        double maxError = 0;
+        for (String line : Files.readAllLines(truth)) {
+            String[] fields = line.split(",");
+            if (fields.length < 3) continue;
+            truthFrames++;
+            int[] position = detected.get(fields[0]);
+            if (position == null) continue;
+            detectedFrames++;
+            double error = Math.hypot(position[0] - Integer.parseInt(fields[1]), position[1] - Integer.parseInt(fields[2]));
+            errorSum += error;
+            maxError = Math.max(maxError, error);
+        }
+        return new Accuracy(truthFrames, detectedFrames, detectedFrames == 0 ? 0 : errorSum / detectedFrames, maxError);
+    }
+
+    /**
+     * Lists the clips that got slower than the baseline by more than the tolerance, or
+     * whose detection rate dropped. Clips missing from either side are ignored.
+     *
+     * @param baseline the results of an earlier run
+     * @param results the results of this run
+     * @param tolerancePercent the tolerated throughput drop in percent
+     * @return one description per regression
+     */
+    static List<String> regressions(Map<String, Object> baseline, Map<String, Object> results, double tolerancePercent) {
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : results.entrySet()) {
+            if (!(baseline.get(entry.getKey()) instanceof Map<?, ?> before)) continue;
+            Map<?, ?> after = (Map<?, ?>) entry.getValue();
+
+            double oldFps = number(before, "framesPerSecond");
+            double newFps = number(after, "framesPerSecond");
+            if (newFps < oldFps * (1 - tolerancePercent / 100)) {
+                regressions.add(String.format("%s: %.1f fps, down %.1f%% from %.1f fps",
+                    entry.getKey(), newFps, (oldFps - newFps) / oldFps * 100, oldFps));
+            }
+            double oldRate = number(before, "detectionRate");
+            double newRate = number(after, "detectionRate");
+            if (newRate < oldRate) {
+                regressions.add(String.format("%s: detection rate %.2f, down from %.2f", entry.getKey(), newRate, oldRate));
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Returns a numeric member of a result.
+     *
+     * @param result the result object
+     * @param name the member name
+     * @return the value, or 0 if it is missing
+     */
+    private static double number(Map<?, ?> result, String name) {
+        return result.get(name) instanceof Number value ? value.doubleValue() : 0;
+    }
+
+    /**
+     * Rounds to three decimals.
+     *
+     * @param value the value to round
+     * @return the rounded value
+     */
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
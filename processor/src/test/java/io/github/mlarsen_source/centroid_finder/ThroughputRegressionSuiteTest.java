@@ -0,0 +1,68 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ThroughputRegressionSuiteTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void run_tracksTargetWithinAPixelOnCleanAndNoisyClips() throws Exception {
+    List<SyntheticVideoGenerator.ClipSpec> clips = List.of(
+        new SyntheticVideoGenerator.ClipSpec("clean", 192, 144, 20, 20, 2, 0, 11),
+        new SyntheticVideoGenerator.ClipSpec("noisy", 192, 144, 20, 20, 2, 24, 12));
+
+    Map<String, Object> results = ThroughputRegressionSuite.run(clips, tempDir, 1);
+
+    assertEquals(List.of("clean", "noisy"), List.copyOf(results.keySet()));
+    for (Object value : results.values()) {
+      Map<?, ?> result = (Map<?, ?>) value;
+      assertEquals(1.0, (Double) result.get("detectionRate"), 1e-9);
+      assertTrue((Double) result.get("meanErrorPx") < 1.0, "mean error " + result.get("meanErrorPx"));
+      assertTrue((Double) result.get("framesPerSecond") > 0);
+    }
+  }
+
+  @Test
+  void accuracy_matchesRowsByTime() throws Exception {
+    Path truth = tempDir.resolve("truth.csv");
+    Path output = tempDir.resolve("out.csv");
+    Files.write(truth, List.of("0.10,10,10", "0.20,20,20", "0.30,30,30", "0.40,40,40"));
+    Files.write(output, List.of("0.10,13,14", "0.30,30,30", "0.40,40,41"));
+
+    ThroughputRegressionSuite.Accuracy accuracy = ThroughputRegressionSuite.accuracy(output, truth);
+
+    assertEquals(0.75, accuracy.detectionRate(), 1e-9);
+    assertEquals(2.0, accuracy.meanError(), 1e-9);
+    assertEquals(5.0, accuracy.maxError(), 1e-9);
+  }
+
+  @Test
+  void regressions_flagThroughputDropsBeyondToleranceAndLostDetections() {
+    Map<String, Object> baseline = Map.of(
+        "a", Map.of("framesPerSecond", 100.0, "detectionRate", 1.0),
+        "b", Map.of("framesPerSecond", 100.0, "detectionRate", 1.0),
+        "c", Map.of("framesPerSecond", 100.0, "detectionRate", 1.0));
+    Map<String, Object> results = Map.of(
+        "a", Map.of("framesPerSecond", 90.0, "detectionRate", 1.0),
+        "b", Map.of("framesPerSecond", 80.0, "detectionRate", 1.0),
+        "c", Map.of("framesPerSecond", 120.0, "detectionRate", 0.9),
+        "new", Map.of("framesPerSecond", 1.0, "detectionRate", 0.0));
+
+    List<String> regressions = ThroughputRegressionSuite.regressions(baseline, results, 15);
+
+    assertEquals(2, regressions.size(), regressions.toString());
+    assertTrue(regressions.stream().anyMatch(r -> r.startsWith("b:")));
+    assertTrue(regressions.stream().anyMatch(r -> r.startsWith("c: detection")));
+  }
+}
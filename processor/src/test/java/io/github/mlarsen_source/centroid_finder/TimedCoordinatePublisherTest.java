@@ -0,0 +1,184 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+public class TimedCoordinatePublisherTest {
+
+  /** Runs tasks on the calling thread so the tests are deterministic. */
+  private static final Executor DIRECT = Runnable::run;
+
+  /**
+   * Fake finder whose stream produces a fixed number of coordinates and records how many
+   * were generated and whether the stream was closed.
+   */
+  private static class CountingFinder implements VideoGroupFinder {
+    private final int total;
+    int generated;
+    int opened;
+    boolean closed;
+
+    CountingFinder(int total) {
+      this.total = total;
+    }
+
+    @Override
+    public Trajectory getTrajectory() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<TimedCoordinate> stream() {
+      opened++;
+      return Stream.iterate(0, i -> i + 1)
+          .limit(total)
+          .map(i -> {
+            generated++;
+            return new TimedCoordinate(i, new Coordinate(i, i));
+          })
+          .onClose(() -> closed = true);
+    }
+  }
+
+  /** Subscriber that records signals and requests a fixed amount on subscribe. */
+  private static class RecordingSubscriber implements Flow.Subscriber<TimedCoordinate> {
+    private final long initialRequest;
+    Flow.Subscription subscription;
+    final List<TimedCoordinate> items = new ArrayList<>();
+    Throwable error;
+    boolean completed;
+
+    RecordingSubscriber(long initialRequest) {
+      this.initialRequest = initialRequest;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      if (initialRequest > 0) subscription.request(initialRequest);
+    }
+
+    @Override
+    public void onNext(TimedCoordinate item) {
+      items.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+
+  @Test
+  void subscribe_doesNotOpenVideoUntilRequested() {
+    CountingFinder finder = new CountingFinder(5);
+    RecordingSubscriber subscriber = new RecordingSubscriber(0);
+
+    new TimedCoordinatePublisher(finder, DIRECT).subscribe(subscriber);
+
+    assertEquals(0, finder.opened);
+    assertTrue(subscriber.items.isEmpty());
+  }
+
+  @Test
+  void request_deliversOnlyRequestedItems() {
+    CountingFinder finder = new CountingFinder(10);
+    RecordingSubscriber subscriber = new RecordingSubscriber(3);
+
+    new TimedCoordinatePublisher(finder, DIRECT).subscribe(subscriber);
+
+    assertEquals(3, subscriber.items.size());
+    assertEquals(3, finder.generated);
+    assertFalse(subscriber.completed);
+
+    subscriber.subscription.request(2);
+    assertEquals(5, subscriber.items.size());
+    assertEquals(5, finder.generated);
+  }
+
+  @Test
+  void unboundedRequest_deliversEverythingThenCompletesAndCloses() {
+    CountingFinder finder = new CountingFinder(4);
+    RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+
+    new TimedCoordinatePublisher(finder, DIRECT).subscribe(subscriber);
+
+    assertEquals(4, subscriber.items.size());
+    assertEquals(2.0, subscriber.items.get(2).time(), 1e-9);
+    assertTrue(subscriber.completed);
+    assertNull(subscriber.error);
+    assertTrue(finder.closed);
+  }
+
+  @Test
+  void cancel_stopsDecodingAndClosesVideo() {
+    CountingFinder finder = new CountingFinder(10);
+    RecordingSubscriber subscriber = new RecordingSubscriber(2);
+
+    new TimedCoordinatePublisher(finder, DIRECT).subscribe(subscriber);
+    subscriber.subscription.cancel();
+    subscriber.subscription.request(5);
+
+    assertEquals(2, subscriber.items.size());
+    assertEquals(2, finder.generated);
+    assertTrue(finder.closed);
+    assertFalse(subscriber.completed);
+  }
+
+  @Test
+  void nonPositiveRequest_signalsIllegalArgument() {
+    CountingFinder finder = new CountingFinder(10);
+    RecordingSubscriber subscriber = new RecordingSubscriber(0);
+
+    new TimedCoordinatePublisher(finder, DIRECT).subscribe(subscriber);
+    subscriber.subscription.request(0);
+
+    assertInstanceOf(IllegalArgumentException.class, subscriber.error);
+  }
+
+  @Test
+  void streamFailure_isSignalledAsError() {
+    VideoGroupFinder failing = new CountingFinder(1) {
+      @Override
+      public Stream<TimedCoordinate> stream() {
+        throw new IllegalStateException("cannot open");
+      }
+    };
+    RecordingSubscriber subscriber = new RecordingSubscriber(1);
+
+    new TimedCoordinatePublisher(failing, DIRECT).subscribe(subscriber);
+
+    assertInstanceOf(IllegalStateException.class, subscriber.error);
+  }
+
+  @Test
+  void eachSubscriberGetsItsOwnPass() throws IOException {
+    CountingFinder finder = new CountingFinder(3);
+    TimedCoordinatePublisher publisher = new TimedCoordinatePublisher(finder, DIRECT);
+
+    RecordingSubscriber first = new RecordingSubscriber(Long.MAX_VALUE);
+    RecordingSubscriber second = new RecordingSubscriber(Long.MAX_VALUE);
+    publisher.subscribe(first);
+    publisher.subscribe(second);
+
+    assertEquals(2, finder.opened);
+    assertEquals(first.items, second.items);
+  }
+}
@@ -0,0 +1,89 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class TrajectoryTest {
+
+  @Test
+  void add_growsPastInitialCapacity_andKeepsOrder() {
+    Trajectory trajectory = new Trajectory(0);
+    for (int i = 0; i < 100; i++) {
+      trajectory.add(i / 10.0, i, i * 2);
+    }
+
+    assertEquals(100, trajectory.size());
+    assertEquals(4.2, trajectory.time(42), 1e-9);
+    assertEquals(42, trajectory.x(42));
+    assertEquals(84, trajectory.y(42));
+  }
+
+  @Test
+  void get_returnsEquivalentTimedCoordinate() {
+    Trajectory trajectory = new Trajectory();
+    trajectory.add(1.5, 3, 4);
+
+    assertEquals(new TimedCoordinate(1.5, new Coordinate(3, 4)), trajectory.get(0));
+  }
+
+  @Test
+  void accessors_rejectIndexesOutsideTheEntriesInUse() {
+    Trajectory trajectory = new Trajectory(10);
+    trajectory.add(1.0, 1, 1);
+
+    assertThrows(IndexOutOfBoundsException.class, () -> trajectory.time(1));
+    assertThrows(IndexOutOfBoundsException.class, () -> trajectory.x(-1));
+    assertThrows(IndexOutOfBoundsException.class, () -> trajectory.get(5));
+  }
+
+  @Test
+  void toCsvRow_matchesTimedCoordinateFormat() {
+    Trajectory trajectory = new Trajectory();
+    trajectory.add(2.0 / 3.0, 10, 20);
+
+    assertEquals(trajectory.get(0).toCsvRow(), trajectory.toCsvRow(0));
+  }
+
+  @Test
+  void asList_isReadOnlyViewThatSeesLaterEntries() {
+    Trajectory trajectory = new Trajectory();
+    List<TimedCoordinate> view = trajectory.asList();
+    assertTrue(view.isEmpty());
+
+    trajectory.add(1.0, 2, 3);
+    assertEquals(1, view.size());
+    assertEquals(new TimedCoordinate(1.0, new Coordinate(2, 3)), view.get(0));
+    assertThrows(UnsupportedOperationException.class,
+        () -> view.add(new TimedCoordinate(2.0, new Coordinate(0, 0))));
+  }
+
+  @Test
+  void of_copiesListInOrder() {
+    List<TimedCoordinate> list = List.of(
+        new TimedCoordinate(1.0, new Coordinate(2, 3)),
+        new TimedCoordinate(2.0, new Coordinate(4, 6)));
+
+    Trajectory trajectory = Trajectory.of(list);
+
+    assertEquals(list, trajectory.asList());
+  }
+
+  @Test
+  void rank_defaultsToOneAndIsKeptWhenGiven() {
+    Trajectory trajectory = new Trajectory(1);
+    trajectory.add(1.0, 2, 3);
+    trajectory.add(1.0, 4, 5, 2);
+    trajectory.add(2.0, 6, 7, 1);
+
+    assertEquals(1, trajectory.rank(0));
+    assertEquals(2, trajectory.rank(1));
+    assertEquals(1, trajectory.rank(2));
+    assertEquals("1.00,2,3", trajectory.toCsvRow(0, false));
+    assertEquals("1.00,4,5,2", trajectory.toCsvRow(1, true));
+  }
+}
@@ -45,7 +45,7 @@ public class VideoGroupFinderTest {
   }
 
   /**
-   * Subclass of VideoProcessor that throws from getFrames (constructor still validates the file and FPS).
+   * Subclass of VideoProcessor that throws when its frames are opened (constructor still validates the file and FPS).
    */
   private static class ThrowingVideoProcessor extends Mp4VideoProcessor {
     public ThrowingVideoProcessor(File video) throws IOException, JCodecException {
@@ -56,6 +56,11 @@ public class VideoGroupFinderTest {
     public org.jcodec.api.FrameGrab getFrames() throws IOException, JCodecException {
       throw new IOException("boom");
     }
+
+    @Override
+    public FrameReader openFrames() throws IOException, JCodecException {
+      throw new IOException("boom");
+    }
   }
 
   /**
@@ -189,7 +194,7 @@ public class VideoGroupFinderTest {
   }
 
   @Test
-  void getTimeGroups_propagatesExceptionFromVideoProcessorGetFrames() throws Exception {
+  void getTimeGroups_propagatesExceptionFromOpeningFrames() throws Exception {
     File video = createTestVideo(1, 1);
     VideoProcessor throwing = new ThrowingVideoProcessor(video);
 
@@ -198,6 +203,157 @@ public class VideoGroupFinderTest {
 
     assertThrows(IOException.class, finder::getTimeGroups);
   }
-}
 
+  /**
+   * Processor whose frame readers record whether they were closed.
+   */
+  private static class TrackingVideoProcessor extends Mp4VideoProcessor {
+    final List<Boolean> closed = new ArrayList<>();
+
+    TrackingVideoProcessor(File video) throws IOException, JCodecException {
+      super(video);
+    }
+
+    @Override
+    public FrameReader openFrames() throws IOException, JCodecException {
+      FrameReader reader = super.openFrames();
+      int index = closed.size();
+      closed.add(false);
+      return new FrameReader() {
+        @Override
+        public org.jcodec.common.model.Picture readFrame() throws IOException {
+          return reader.readFrame();
+        }
+
+        @Override
+        public void close() throws IOException {
+          closed.set(index, true);
+          reader.close();
+        }
+      };
+    }
+  }
+
+  private static List<List<Group>> groupOnEveryFrame(int frames) {
+    List<List<Group>> scripted = new ArrayList<>();
+    for (int i = 0; i < frames; i++) {
+      scripted.add(Collections.singletonList(new Group(1, new Coordinate(i, i))));
+    }
+    return scripted;
+  }
+
+  @Test
+  void stream_decodesLazily_andStopsWhenLimited() throws Exception {
+    File video = createTestVideo(2, 5); // 10 frames
+    TrackingVideoProcessor processor = new TrackingVideoProcessor(video);
+    ScriptedImageGroupFinder groupFinder = new ScriptedImageGroupFinder(groupOnEveryFrame(10));
+    VideoGroupFinder finder = new Mp4VideoGroupFinder(processor, groupFinder);
+
+    List<TimedCoordinate> firstTwo;
+    try (java.util.stream.Stream<TimedCoordinate> stream = finder.stream()) {
+      firstTwo = stream.limit(2).toList();
+      assertEquals(2, groupFinder.calls, "Only the consumed frames should be analyzed");
+    }
+
+    assertEquals(2, firstTwo.size());
+    assertEquals(processor.getTime(2), firstTwo.get(1).time(), 1e-9);
+    assertEquals(List.of(true), processor.closed, "Closing the stream should close the reader");
+  }
+
+  @Test
+  void stream_matchesGetTimeGroups() throws Exception {
+    File video = createTestVideo(2, 2);
+    VideoProcessor processor = new Mp4VideoProcessor(video);
+
+    List<TimedCoordinate> eager = new Mp4VideoGroupFinder(processor,
+        new ScriptedImageGroupFinder(groupOnEveryFrame(4))).getTimeGroups();
+    List<TimedCoordinate> lazy;
+    try (java.util.stream.Stream<TimedCoordinate> stream = new Mp4VideoGroupFinder(processor,
+        new ScriptedImageGroupFinder(groupOnEveryFrame(4))).stream()) {
+      lazy = stream.toList();
+    }
 
+    assertEquals(eager, lazy);
+  }
+
+  @Test
+  void getTimeGroups_closesFrameReaderWhenDone() throws Exception {
+    File video = createTestVideo(1, 2);
+    TrackingVideoProcessor processor = new TrackingVideoProcessor(video);
+    VideoGroupFinder finder = new Mp4VideoGroupFinder(processor, new ScriptedImageGroupFinder(null));
+
+    finder.getTimeGroups();
+
+    assertEquals(List.of(true), processor.closed);
+  }
+
+  @Test
+  void observer_seesEveryFrameIncludingEmptyOnes() throws Exception {
+    File video = createTestVideo(1, 5);
+    VideoProcessor processor = new Mp4VideoProcessor(video);
+
+    List<List<Group>> scripted = new ArrayList<>();
+    scripted.add(Collections.emptyList());
+    scripted.add(Collections.singletonList(new Group(10, new Coordinate(2, 3))));
+
+    Mp4VideoGroupFinder finder = new Mp4VideoGroupFinder(processor, new ScriptedImageGroupFinder(scripted));
+    List<Integer> frames = new ArrayList<>();
+    List<Integer> groupCounts = new ArrayList<>();
+    finder.setObserver((frameNumber, decodeNanos, analysisNanos, groups) -> {
+      frames.add(frameNumber);
+      groupCounts.add(groups.size());
+    });
+
+    finder.getTrajectory();
+
+    assertEquals(List.of(1, 2, 3, 4, 5), frames);
+    assertEquals(List.of(0, 1, 0, 0, 0), groupCounts);
+  }
+
+  @Test
+  void setSampling_keepsRowsOfTheFullRunAndAnalyzesFewerFrames_whenTheTargetBarelyMoves() throws Exception {
+    VideoProcessor processor = new Mp4VideoProcessor(new File("sampleInput/training.mp4"));
+    ImageGroupFinder groupFinder = new BinarizingImageGroupFinder(
+        new DistanceImageBinarizer(new EuclideanColorDistance(), 0xFFA500, 60), new BfsBinaryGroupFinder());
+    List<TimedCoordinate> full = new Mp4VideoGroupFinder(processor, groupFinder).getTimeGroups();
+
+    Mp4VideoGroupFinder sampled = new Mp4VideoGroupFinder(processor, groupFinder);
+    sampled.setSampling(5, 1_000);
+    List<Integer> analyzed = new ArrayList<>();
+    sampled.setObserver((frameNumber, decodeNanos, analysisNanos, groups) -> analyzed.add(frameNumber));
+    List<TimedCoordinate> rows = sampled.getTrajectory().asList();
+
+    // Frames 1, 6, ..., 26 are samples and frame 30 is the last frame
+    assertEquals(List.of(1, 6, 11, 16, 21, 26, 30), analyzed);
+    assertEquals(full.stream().filter(rows::contains).toList(), rows);
+  }
+
+  @Test
+  void setOccupancyGrid_accumulatesEveryRowOfTheRun() throws Exception {
+    VideoProcessor processor = new Mp4VideoProcessor(new File("sampleInput/training.mp4"));
+    ImageGroupFinder groupFinder = new BinarizingImageGroupFinder(
+        new DistanceImageBinarizer(new EuclideanColorDistance(), 0xFFA500, 60), new BfsBinaryGroupFinder());
+    Mp4VideoGroupFinder finder = new Mp4VideoGroupFinder(processor, groupFinder);
+    OccupancyGrid grid = new OccupancyGrid(processor.getWidth(), processor.getHeight(), 32, processor.getFps());
+    finder.setOccupancyGrid(grid);
+
+    Trajectory trajectory = finder.getTrajectory();
+
+    assertEquals(trajectory.size(), grid.framesInFrame());
+    int busiest = 0;
+    for (int row = 0; row < grid.rows(); row++) {
+      for (int column = 0; column < grid.columns(); column++) {
+        busiest = Math.max(busiest, grid.frames(column, row));
+      }
+    }
+    assertEquals(((Number) grid.summary().get("maxCellSeconds")).doubleValue(),
+        Math.round(100 * busiest / processor.getFps()) / 100.0);
+  }
+
+  @Test
+  void setSampling_rejectsIntervalBelowOne() throws Exception {
+    Mp4VideoGroupFinder finder = new Mp4VideoGroupFinder(new Mp4VideoProcessor(createTestVideo(1, 1)),
+        new ScriptedImageGroupFinder(null));
+    assertThrows(IllegalArgumentException.class, () -> finder.setSampling(0, 3));
+  }
+}
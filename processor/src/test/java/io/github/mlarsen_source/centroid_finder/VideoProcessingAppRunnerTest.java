@@ -2,10 +2,15 @@ package io.github.mlarsen_source.centroid_finder;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 
 import org.jcodec.api.JCodecException;
 import org.junit.jupiter.api.BeforeEach;
@@ -112,4 +117,167 @@ public class VideoProcessingAppRunnerTest {
 
         assertFalse(output.length() > 0, "Output should be empty for an invalid input video");
     }
-}
\ No newline at end of file
+
+    @Test
+    void processVideo_writesPerfReportNextToCsv_whenEnabled() throws Exception {
+        Path dir = Files.createTempDirectory("perf-report-");
+        Path output = dir.resolve("training.csv");
+        ProcessingOptions options = new ProcessingOptions();
+        options.setPerfReport(true);
+
+        runner.processVideo("sampleInput/training.mp4", output.toString(), 0xFFA500, 60, options);
+
+        Path report = dir.resolve("training.perf.json");
+        assertTrue(Files.exists(report), "Performance report should be written next to the CSV");
+        Map<String, Object> json = Json.parseObject(Files.readString(report).strip());
+        assertEquals(30L, json.get("frames"));
+        Map<?, ?> stages = (Map<?, ?>) json.get("stages");
+        for (String stage : List.of("decode", "convert", "binarize", "label")) {
+            assertEquals(30L, ((Map<?, ?>) stages.get(stage)).get("count"), stage);
+        }
+        assertEquals(1L, ((Map<?, ?>) stages.get("write")).get("count"));
+    }
+
+    @Test
+    void processVideo_writesNoPerfReport_byDefault() throws Exception {
+        Path dir = Files.createTempDirectory("perf-report-");
+        runner.processVideo("sampleInput/training.mp4", dir.resolve("training.csv").toString(), 0xFFA500, 60);
+        assertFalse(Files.exists(dir.resolve("training.perf.json")));
+    }
+
+    @Test
+    void processVideo_writesSameCsv_withFrameThreads() throws Exception {
+        Path dir = Files.createTempDirectory("frame-threads-");
+        Path serial = dir.resolve("serial.csv");
+        Path striped = dir.resolve("striped.csv");
+        ProcessingOptions options = new ProcessingOptions();
+        options.setFrameThreads(4);
+        options.setTopK(3);
+        ProcessingOptions serialOptions = new ProcessingOptions();
+        serialOptions.setTopK(3);
+
+        runner.processVideo("sampleInput/training.mp4", serial.toString(), 0xFFA500, 60, serialOptions);
+        runner.processVideo("sampleInput/training.mp4", striped.toString(), 0xFFA500, 60, options);
+
+        assertEquals(Files.readString(serial), Files.readString(striped));
+    }
+
+    @Test
+    void processVideo_writesSameCsv_whenFollowingAFragmentedRecording() throws Exception {
+        Path dir = Files.createTempDirectory("follow-");
+        Path recording = FragmentedMp4FrameReaderTest.writeFragmented(dir.resolve("recording.mp4"),
+            FragmentedMp4FrameReaderTest.fragmentedParts(Path.of("sampleInput/training.mp4"), 10, true));
+        Path finished = dir.resolve("finished.csv");
+        Path followed = dir.resolve("followed.csv");
+        ProcessingOptions finishedOptions = new ProcessingOptions();
+        finishedOptions.setDecoder(FrameDecoder.JCODEC);
+        finishedOptions.setTopK(2);
+        ProcessingOptions followOptions = new ProcessingOptions();
+        followOptions.setFollow(true);
+        followOptions.setTopK(2);
+
+        runner.processVideo("sampleInput/training.mp4", finished.toString(), 0xFFA500, 60, finishedOptions);
+        runner.processVideo(recording.toString(), followed.toString(), 0xFFA500, 60, followOptions);
+
+        assertFalse(Files.readString(followed).isEmpty());
+        assertEquals(Files.readString(finished), Files.readString(followed));
+    }
+
+    @Test
+    void processVideo_writesWholeCsvAndCoverage_whenTheTimeBudgetIsGenerous() throws Exception {
+        Path dir = Files.createTempDirectory("time-budget-");
+        Path whole = dir.resolve("whole.csv");
+        Path budgeted = dir.resolve("budgeted.csv");
+        ProcessingOptions wholeOptions = new ProcessingOptions();
+        wholeOptions.setDecoder(FrameDecoder.JCODEC);
+        ProcessingOptions budgetOptions = new ProcessingOptions();
+        budgetOptions.setTimeBudgetMillis(600_000);
+
+        runner.processVideo("sampleInput/training.mp4", whole.toString(), 0xFFA500, 60, wholeOptions);
+        runner.processVideo("sampleInput/training.mp4", budgeted.toString(), 0xFFA500, 60, budgetOptions);
+
+        assertEquals(Files.readString(whole), Files.readString(budgeted));
+        Map<String, Object> coverage = Json.parseObject(Files.readString(dir.resolve("budgeted.coverage.json")).strip());
+        assertEquals(30L, coverage.get("totalFrames"));
+        assertEquals(1L, coverage.get("density"));
+        assertEquals(true, coverage.get("complete"));
+    }
+
+    @Test
+    void processVideo_writesSameCsv_whenTheRegionCoversTheTarget() throws Exception {
+        Path dir = Files.createTempDirectory("region-");
+        Path whole = dir.resolve("whole.csv");
+        Path cropped = dir.resolve("cropped.csv");
+        ProcessingOptions cropOptions = new ProcessingOptions();
+        // Larger than the frame, so it is clipped to the whole frame minus the left column
+        cropOptions.setCrop(1, 0, 10_000, 10_000);
+        cropOptions.setMaskPolygon(List.of(new Coordinate(0, 0), new Coordinate(20_000, 0), new Coordinate(0, 20_000)));
+
+        runner.processVideo("sampleInput/training.mp4", whole.toString(), 0xFFA500, 60, new ProcessingOptions());
+        runner.processVideo("sampleInput/training.mp4", cropped.toString(), 0xFFA500, 60, cropOptions);
+
+        assertFalse(Files.readString(whole).isEmpty());
+        assertEquals(Files.readString(whole), Files.readString(cropped));
+    }
+
+    @Test
+    void processVideo_writesHeatmapAndSummaryNextToCsv_whenEnabled() throws Exception {
+        Path dir = Files.createTempDirectory("heatmap-");
+        Path csv = dir.resolve("out.csv");
+        ProcessingOptions options = new ProcessingOptions();
+        options.setHeatmapCellSize(16);
+
+        runner.processVideo("sampleInput/training.mp4", csv.toString(), 0xFFA500, 60, options);
+
+        assertTrue(Files.exists(dir.resolve("out.heatmap.png")));
+        Map<String, Object> summary = Json.parseObject(Files.readString(dir.resolve("out.heatmap.json")).strip());
+        assertEquals((long) Files.readAllLines(csv).size(), summary.get("framesInFrame"));
+        assertEquals(16L, summary.get("cellSize"));
+    }
+
+    @Test
+    void processVideo_writesOneRowPerRunCoveringEveryFrame_inChangeOnlyMode() throws Exception {
+        Path dir = Files.createTempDirectory("changes-");
+        Path whole = dir.resolve("whole.csv");
+        Path changes = dir.resolve("changes.csv");
+        ProcessingOptions options = new ProcessingOptions();
+        options.setChangeEpsilon(0);
+
+        runner.processVideo("sampleInput/training.mp4", whole.toString(), 0xFFA500, 60, new ProcessingOptions());
+        runner.processVideo("sampleInput/training.mp4", changes.toString(), 0xFFA500, 60, options);
+
+        List<String> frames = Files.readAllLines(whole);
+        List<String> runs = Files.readAllLines(changes);
+        assertFalse(runs.isEmpty());
+        assertTrue(runs.size() <= frames.size());
+        // Every run starts at a frame of the full CSV with the same position
+        for (String run : runs) {
+            String frame = run.substring(0, run.lastIndexOf(','));
+            assertTrue(frames.contains(frame), frame);
+        }
+    }
+
+    @Test
+    void processVideo_progressEventsCountFramesSkippedBySampling() throws Exception {
+        ByteArrayOutputStream events = new ByteArrayOutputStream();
+        VideoProcessingAppRunner progressRunner =
+                new VideoProcessingAppRunner(new PrintStream(events, true, StandardCharsets.UTF_8));
+        Path csv = Files.createTempDirectory("sampled-progress-").resolve("out.csv");
+        ProcessingOptions options = new ProcessingOptions();
+        options.setProgressIntervalMillis(0);
+        options.setSampleInterval(4);
+        options.setMotionThreshold(10_000);
+
+        progressRunner.processVideo("sampleInput/training.mp4", csv.toString(), 0xFFA500, 60, options);
+
+        Map<String, Object> last = null;
+        for (String line : events.toString(StandardCharsets.UTF_8).split("\n")) {
+            Map<String, Object> event = Json.parseObject(line);
+            if ("progress".equals(event.get("event"))) last = event;
+        }
+        assertNotNull(last);
+        assertEquals(30L, last.get("totalFrames"));
+        assertEquals(30L, last.get("framesDone"));
+        assertEquals(0L, last.get("etaSeconds"));
+    }
+}
@@ -74,7 +74,7 @@ public class VideoProcessorTest {
     int seconds = 5;
     int expectedFrames = fps * seconds;
     File video = createTestVideo(fps, seconds);
-    VideoProcessor processor = new Mp4VideoProcessor(video);
+    Mp4VideoProcessor processor = new Mp4VideoProcessor(video);
 
     FrameGrab grab = processor.getFrames();
     int framesSeen = 0;
@@ -0,0 +1,50 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class VideoSegmentTest {
+
+  @Test
+  void plan_splitsAtKeyframesNearEvenBoundaries() {
+    int[] keyframes = { 0, 25, 50, 75, 100 };
+    assertEquals(List.of(
+        new VideoSegment(0, 0, 50),
+        new VideoSegment(1, 50, 110)),
+        VideoSegment.plan(keyframes, 110, 2));
+    assertEquals(List.of(
+        new VideoSegment(0, 0, 25),
+        new VideoSegment(1, 25, 75),
+        new VideoSegment(2, 75, 110)),
+        VideoSegment.plan(keyframes, 110, 3));
+  }
+
+  @Test
+  void plan_returnsFewerSegmentsWhenKeyframesAreSparse() {
+    assertEquals(List.of(new VideoSegment(0, 0, 30)), VideoSegment.plan(new int[] { 0 }, 30, 4));
+    assertEquals(List.of(new VideoSegment(0, 0, 25), new VideoSegment(1, 25, 30)),
+        VideoSegment.plan(new int[] { 0, 25 }, 30, 8));
+  }
+
+  @Test
+  void plan_coversEveryFrameOnceWhenEveryFrameIsAKeyframe() {
+    int[] keyframes = new int[10];
+    for (int i = 0; i < keyframes.length; i++) keyframes[i] = i;
+    List<VideoSegment> segments = VideoSegment.plan(keyframes, 10, 20);
+    assertEquals(10, segments.size());
+    for (int i = 0; i < segments.size(); i++) {
+      assertEquals(new VideoSegment(i, i, i + 1), segments.get(i));
+      assertEquals(1, segments.get(i).frameCount());
+    }
+  }
+
+  @Test
+  void plan_rejectsEmptyVideoAndCount() {
+    assertThrows(IllegalArgumentException.class, () -> VideoSegment.plan(new int[] { 0 }, 0, 1));
+    assertThrows(IllegalArgumentException.class, () -> VideoSegment.plan(new int[] { 0 }, 10, 0));
+  }
+}
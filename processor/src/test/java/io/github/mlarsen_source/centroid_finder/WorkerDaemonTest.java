@@ -0,0 +1,199 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class WorkerDaemonTest {
+
+  @TempDir
+  Path tempDir;
+
+  /** Records jobs instead of processing videos; videos named fail*.mp4 throw. */
+  private static class RecordingRunner extends VideoProcessingAppRunner {
+    final Map<String, ProcessingOptions> processed = new ConcurrentHashMap<>();
+    final Map<String, Boolean> onVirtualThread = new ConcurrentHashMap<>();
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+
+    @Override
+    public void processVideo(String videoPath, String outputPath, int targetColor, int threshold,
+        ProcessingOptions options) throws IOException {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      onVirtualThread.put(videoPath, Thread.currentThread().isVirtual());
+      try {
+        Thread.sleep(20);
+        if (Path.of(videoPath).getFileName().toString().startsWith("fail")) {
+          throw new IOException("cannot decode " + videoPath);
+        }
+        processed.put(videoPath, options);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        running.decrementAndGet();
+      }
+    }
+  }
+
+  private String job(String id, String videoName, String extra) throws IOException {
+    Path video = Files.writeString(tempDir.resolve(videoName), "x");
+    String output = tempDir.resolve(id + ".csv").toString();
+    return "{\"id\":\"" + id + "\",\"video\":" + Json.write(video.toString()) + ",\"output\":" + Json.write(output)
+        + ",\"color\":\"FFA500\",\"threshold\":40" + extra + "}";
+  }
+
+  private List<Map<String, Object>> serve(WorkerDaemon daemon, String... lines) throws Exception {
+    StringWriter out = new StringWriter();
+    daemon.serve(new BufferedReader(new StringReader(String.join("\n", lines))), out);
+    List<Map<String, Object>> messages = new ArrayList<>();
+    for (String line : out.toString().split("\n")) {
+      messages.add(Json.parseObject(line));
+    }
+    return messages;
+  }
+
+  private static List<String> statuses(List<Map<String, Object>> messages, String id) {
+    return messages.stream().filter(m -> id.equals(m.get("id"))).map(m -> (String) m.get("status")).toList();
+  }
+
+  @Test
+  void serve_runsJobsAndReportsStatusForEach() throws Exception {
+    RecordingRunner runner = new RecordingRunner();
+    WorkerDaemon daemon = new WorkerDaemon(runner, 2);
+
+    List<Map<String, Object>> messages = serve(daemon,
+        job("a", "a.mp4", ""),
+        job("b", "b.mp4", ",\"options\":{\"top-k\":3}"));
+
+    assertEquals(List.of("queued", "running", "done"), statuses(messages, "a"));
+    assertEquals(List.of("queued", "running", "done"), statuses(messages, "b"));
+    assertEquals(3, runner.processed.get(tempDir.resolve("b.mp4").toString()).getTopK());
+    assertEquals(1, runner.processed.get(tempDir.resolve("a.mp4").toString()).getTopK());
+  }
+
+  @Test
+  void serve_isolatesFailingJobsAndRejectsInvalidLines() throws Exception {
+    RecordingRunner runner = new RecordingRunner();
+    WorkerDaemon daemon = new WorkerDaemon(runner, 2);
+
+    List<Map<String, Object>> messages = serve(daemon,
+        "not json",
+        "{\"id\":\"m\",\"video\":\"x.mp4\"}",
+        job("bad", "fail.mp4", ""),
+        job("good", "good.mp4", ""));
+
+    assertEquals("rejected", messages.get(0).get("status"));
+    assertEquals("rejected", messages.get(1).get("status"));
+    assertEquals(List.of("queued", "running", "failed"), statuses(messages, "bad"));
+    assertEquals(List.of("queued", "running", "done"), statuses(messages, "good"));
+    assertEquals(1, runner.processed.size());
+  }
+
+  @Test
+  void serve_rejectsProgressEvents_whichCannotReachTheSession() throws Exception {
+    RecordingRunner runner = new RecordingRunner();
+    WorkerDaemon daemon = new WorkerDaemon(runner, 2);
+
+    List<Map<String, Object>> messages = serve(daemon, job("e", "e.mp4", ",\"options\":{\"progress-events\":100}"));
+
+    assertEquals(List.of("rejected"), statuses(messages, "e"));
+    assertTrue(runner.processed.isEmpty());
+  }
+
+  @Test
+  void serve_neverRunsMoreJobsThanTheLimit() throws Exception {
+    RecordingRunner runner = new RecordingRunner();
+    WorkerDaemon daemon = new WorkerDaemon(runner, 2);
+
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      lines.add(job("j" + i, "v" + i + ".mp4", ""));
+    }
+    serve(daemon, lines.toArray(new String[0]));
+
+    assertEquals(8, runner.processed.size());
+    assertTrue(runner.maxRunning.get() <= 2, "ran " + runner.maxRunning.get() + " jobs at once");
+  }
+
+  @Test
+  void serve_runsJobsWithAResourceReportOnPlatformThreads() throws Exception {
+    RecordingRunner runner = new RecordingRunner();
+    WorkerDaemon daemon = new WorkerDaemon(runner, 2);
+
+    List<Map<String, Object>> messages = serve(daemon,
+        job("r", "r.mp4", ",\"options\":{\"resource-report\":true}"),
+        job("p", "p.mp4", ""));
+
+    assertEquals(List.of("queued", "running", "done"), statuses(messages, "r"));
+    assertEquals(false, runner.onVirtualThread.get(tempDir.resolve("r.mp4").toString()));
+    assertEquals(true, runner.onVirtualThread.get(tempDir.resolve("p.mp4").toString()));
+  }
+
+  /** Connects once the listener has bound and started listening on the socket. */
+  private static SocketChannel connect(Path socket) throws Exception {
+    for (int attempt = 0; ; attempt++) {
+      SocketChannel client = SocketChannel.open(StandardProtocolFamily.UNIX);
+      try {
+        client.connect(UnixDomainSocketAddress.of(socket));
+        return client;
+      } catch (IOException e) {
+        client.close();
+        if (attempt == 200) throw e;
+        Thread.sleep(10);
+      }
+    }
+  }
+
+  @Test
+  void listen_servesJobsOverUnixDomainSocket() throws Exception {
+    RecordingRunner runner = new RecordingRunner();
+    WorkerDaemon daemon = new WorkerDaemon(runner, 1);
+    Path socket = tempDir.resolve("worker.sock");
+
+    Thread listener = Thread.ofVirtual().start(() -> {
+      try {
+        daemon.listen(socket);
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+
+    List<String> replies = new ArrayList<>();
+    try (SocketChannel client = connect(socket)) {
+      client.write(ByteBuffer.wrap((job("s", "s.mp4", "") + "\n").getBytes(StandardCharsets.UTF_8)));
+      client.shutdownOutput();
+      BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+      String line;
+      while ((line = in.readLine()) != null) {
+        replies.add((String) Json.parseObject(line).get("status"));
+      }
+    }
+
+    listener.interrupt();
+    listener.join(5000);
+
+    assertEquals(List.of("queued", "running", "done"), replies);
+    assertTrue(runner.processed.containsKey(tempDir.resolve("s.mp4").toString()));
+  }
+}
@@ -0,0 +1,118 @@
+package io.github.mlarsen_source.centroid_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.jcodec.common.model.ColorSpace;
+import org.jcodec.common.model.Picture;
+import org.junit.jupiter.api.Test;
+
+public class Y4mFrameReaderTest {
+
+  /** Builds a stream of 4:2:0 frames that are uniform in Y, U and V. */
+  static byte[] y4m(String header, int width, int height, int[]... yuvFrames) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.writeBytes((header + "\n").getBytes(StandardCharsets.US_ASCII));
+    for (int[] yuv : yuvFrames) {
+      out.writeBytes("FRAME\n".getBytes(StandardCharsets.US_ASCII));
+      out.writeBytes(filled(width * height, yuv[0]));
+      out.writeBytes(filled(width * height / 4, yuv[1]));
+      out.writeBytes(filled(width * height / 4, yuv[2]));
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] filled(int length, int value) {
+    byte[] bytes = new byte[length];
+    Arrays.fill(bytes, (byte) value);
+    return bytes;
+  }
+
+  private static int rgb(Picture picture) {
+    return FrameContext.current().toBufferedImage(picture).getRGB(1, 1) & 0xFFFFFF;
+  }
+
+  @Test
+  void open_readsSizeRateAndFrames() throws IOException {
+    byte[] stream = y4m("YUV4MPEG2 W4 H2 F30000:1001 Ip A1:1 C420jpeg XYSCSS=420JPEG", 4, 2,
+        new int[] { 16, 128, 128 }, new int[] { 235, 128, 128 });
+    try (Y4mFrameReader reader = Y4mFrameReader.open(new ByteArrayInputStream(stream))) {
+      assertEquals(4, reader.getWidth());
+      assertEquals(2, reader.getHeight());
+      assertEquals(30000 / 1001.0, reader.getFps(), 1e-9);
+
+      Picture black = reader.readFrame();
+      assertEquals(ColorSpace.YUV420, black.getColor());
+      assertEquals(0x000000, rgb(black));
+      Picture white = reader.readFrame();
+      assertSame(black, white);
+      assertEquals(0xFFFFFF, rgb(white));
+      assertNull(reader.readFrame());
+    }
+  }
+
+  @Test
+  void open_usesFullRangeMatrixWhenDeclared() throws IOException {
+    byte[] stream = y4m("YUV4MPEG2 W2 H2 F25:1 XCOLORRANGE=FULL", 2, 2, new int[] { 0, 128, 128 });
+    try (Y4mFrameReader reader = Y4mFrameReader.open(new ByteArrayInputStream(stream))) {
+      Picture picture = reader.readFrame();
+      assertEquals(ColorSpace.YUV420J, picture.getColor());
+      assertEquals(0x000000, FrameContext.current().toBufferedImage(picture).getRGB(0, 0) & 0xFFFFFF);
+    }
+  }
+
+  @Test
+  void open_readsMonoAsNeutralChroma() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.writeBytes("YUV4MPEG2 W2 H2 F25:1 Cmono\nFRAME\n".getBytes(StandardCharsets.US_ASCII));
+    out.writeBytes(filled(4, 235));
+    try (Y4mFrameReader reader = Y4mFrameReader.open(new ByteArrayInputStream(out.toByteArray()))) {
+      assertEquals(0xFFFFFF, FrameContext.current().toBufferedImage(reader.readFrame()).getRGB(0, 0) & 0xFFFFFF);
+      assertNull(reader.readFrame());
+    }
+  }
+
+  @Test
+  void open_rejectsInvalidHeaders() {
+    for (String header : new String[] {
+        "MPEG2 W4 H2 F25:1", "YUV4MPEG2 H2 F25:1", "YUV4MPEG2 W4 H2", "YUV4MPEG2 W4 H2 F25:0",
+        "YUV4MPEG2 W4 H2 F25:1 C444", "YUV4MPEG2 W4 H2 F25:1 C420p10", "YUV4MPEG2 Wx H2 F25:1", "YUV4MPEG2 W3 H2 F25:1" }) {
+      byte[] stream = (header + "\n").getBytes(StandardCharsets.US_ASCII);
+      assertThrows(IOException.class, () -> Y4mFrameReader.open(new ByteArrayInputStream(stream)), header);
+    }
+    assertThrows(IOException.class, () -> Y4mFrameReader.open(new ByteArrayInputStream(new byte[0])));
+  }
+
+  @Test
+  void readFrame_rejectsMissingFrameHeaderAndTruncatedFrames() throws IOException {
+    byte[] stream = y4m("YUV4MPEG2 W4 H2 F25:1", 4, 2, new int[] { 16, 128, 128 });
+    byte[] garbled = stream.clone();
+    garbled[new String(stream, StandardCharsets.US_ASCII).indexOf("FRAME")] = 'X';
+    try (Y4mFrameReader reader = Y4mFrameReader.open(new ByteArrayInputStream(garbled))) {
+      assertThrows(IOException.class, reader::readFrame);
+    }
+
+    byte[] truncated = Arrays.copyOf(stream, stream.length - 1);
+    try (Y4mFrameReader reader = Y4mFrameReader.open(new ByteArrayInputStream(truncated))) {
+      assertThrows(IOException.class, reader::readFrame);
+      assertNull(reader.readFrame());
+    }
+  }
+
+  @Test
+  void readFrame_ignoresFrameParameters() throws IOException {
+    byte[] stream = y4m("YUV4MPEG2 W2 H2 F25:1", 2, 2, new int[] { 235, 128, 128 });
+    String text = new String(stream, StandardCharsets.ISO_8859_1).replace("FRAME\n", "FRAME Ixyz\n");
+    try (Y4mFrameReader reader = Y4mFrameReader.open(new ByteArrayInputStream(text.getBytes(StandardCharsets.ISO_8859_1)))) {
+      assertEquals(0xFFFFFF, FrameContext.current().toBufferedImage(reader.readFrame()).getRGB(0, 0) & 0xFFFFFF);
+    }
+  }
+}
@@ -142,6 +142,10 @@ export function runProcessor(
 ) {
   // Construct command line arguments for the Java process
   const args = ["-jar", jarPath, videoPath, outputPath, targetColor, threshold];
+  // Start from the class-data-sharing archive when one was built for this JAR
+  if (process.env.CDS_ARCHIVE) {
+    args.unshift(`-XX:SharedArchiveFile=${process.env.CDS_ARCHIVE}`);
+  }
   console.log("spawning:", "java", ...args);
 
   // Spawn the Java process as a detached child
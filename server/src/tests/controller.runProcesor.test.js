@@ -144,6 +144,34 @@ describe('runProcessor Function', () => {
       ]);
     });
 
+    /**
+     * Test Case: Class-data-sharing archive passed to the JVM
+     * 
+     * Verifies that the archive named by CDS_ARCHIVE is passed before -jar.
+     */
+    it('should pass the shared archive when CDS_ARCHIVE is set', () => {
+      // ARRANGE
+      const jarPath = '/path/to/processor.jar';
+      const previous = process.env.CDS_ARCHIVE;
+      process.env.CDS_ARCHIVE = '/path/to/app.jsa';
+
+      try {
+        // ACT
+        runProcessor(jarPath, '/videos/test.mp4', '/results/test.csv', 'FF0000', '50', 'test-job-123');
+      } finally {
+        if (previous === undefined) delete process.env.CDS_ARCHIVE;
+        else process.env.CDS_ARCHIVE = previous;
+      }
+
+      // ASSERT: Archive option comes before the JAR
+      const spawnArgs = mockSpawn.firstCall.args[1];
+      expect(spawnArgs.slice(0, 3)).to.deep.equal([
+        '-XX:SharedArchiveFile=/path/to/app.jsa',
+        '-jar',
+        jarPath
+      ]);
+    });
+
     /**
      * Test Case: Process options configured correctly
      * 